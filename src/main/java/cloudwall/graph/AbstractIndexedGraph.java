@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.function.Consumer;
+
+/**
+ * Base class for read-only {@link IndexedGraph} implementations whose vertices are interned in a {@link VertexLookup}
+ * and whose adjacencies are stored as primitive indices, e.g. {@link CsrGraph} and {@link CompressedGraph}. Subclasses
+ * only provide the index-level neighbor methods; the {@link Edge}-based methods of {@link Graph} are implemented here
+ * as adapters which create edges on the fly, so do not rely on their identity.
+ *
+ * <p>Undirected graphs are expected to store each edge once per endpoint, and directed graphs to answer the in-neighbor
+ * methods from a separate reverse index rather than a scan.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@ParametersAreNonnullByDefault
+public abstract class AbstractIndexedGraph implements IndexedGraph<Vertex, Edge<Vertex>> {
+    final VertexLookup vertexIndex;
+    final int numVertices;
+    final boolean directed;
+    final long edgeCount;
+
+    AbstractIndexedGraph(VertexLookup vertexIndex, boolean directed, long edgeCount) {
+        this.vertexIndex = vertexIndex;
+        this.numVertices = vertexIndex.size();
+        this.directed = directed;
+        this.edgeCount = edgeCount;
+    }
+
+    /**
+     * Tests whether the graph was built from directed edges.
+     */
+    public boolean isDirected() {
+        return directed;
+    }
+
+    @Override
+    public int indexOf(Vertex vertex) {
+        return vertexIndex.requireIndexOf(vertex);
+    }
+
+    @Override
+    public Vertex vertexAt(int vertexIndex) {
+        return this.vertexIndex.getVertex(vertexIndex);
+    }
+
+    @Override
+    public void forEachVertex(Consumer<Vertex> visitor) {
+        for (int i = 0; i < numVertices; i++) {
+            visitor.accept(vertexIndex.getVertex(i));
+        }
+    }
+
+    @Override
+    public void forEachEdge(Consumer<Edge<Vertex>> visitor) {
+        for (int i = 0; i < numVertices; i++) {
+            int source = i;
+            forEachNeighbor(source, target -> {
+                // undirected edges are stored once per endpoint, so only report them from the lower index
+                if (directed || source <= target) {
+                    visitor.accept(createEdge(source, target));
+                }
+            });
+        }
+    }
+
+    @Override
+    public void forEachConnectedEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        int ndx = vertexIndex.requireIndexOf(vertex);
+        forEachNeighbor(ndx, target -> edges.accept(createEdge(ndx, target)));
+        if (directed) {
+            forEachInNeighbor(ndx, source -> edges.accept(createEdge(source, ndx)));
+        }
+    }
+
+    @Override
+    public void forEachTraversableEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        int ndx = vertexIndex.requireIndexOf(vertex);
+        forEachNeighbor(ndx, target -> edges.accept(createEdge(ndx, target)));
+    }
+
+    @Override
+    public void forEachInEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        int ndx = vertexIndex.requireIndexOf(vertex);
+        forEachInNeighbor(ndx, source -> edges.accept(createEdge(source, ndx)));
+    }
+
+    @Override
+    public void visitBreadthFirstFrom(Vertex start, Consumer<Vertex> visitor) {
+        new IndexedTraversal(this).breadthFirst(indexOf(start), ndx -> visitor.accept(vertexAt(ndx)));
+    }
+
+    @Override
+    public void visitDepthFirstFrom(Vertex start, Consumer<Vertex> visitor) {
+        new IndexedTraversal(this).depthFirst(indexOf(start), ndx -> visitor.accept(vertexAt(ndx)));
+    }
+
+    @Override
+    public Vertex getVertex(Object vertexId) {
+        return vertexIndex.getVertex(vertexId);
+    }
+
+    @Override
+    public long getVertexCount() {
+        return numVertices;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Gets the approximate number of bytes held by the adjacency storage and vertex index, excluding the vertex
+     * objects themselves, which are shared with whatever created them.
+     */
+    public abstract long getMemoryFootprint();
+
+    /**
+     * Creates the edge object reported for the arc between the given vertex indices.
+     */
+    Edge<Vertex> createEdge(int from, int to) {
+        if (directed) {
+            return new HeavyweightDirectedEdge<>(vertexIndex.getVertex(from), vertexIndex.getVertex(to));
+        } else {
+            return new LightweightEdge<>(vertexIndex.getVertex(from), vertexIndex.getVertex(to));
+        }
+    }
+}
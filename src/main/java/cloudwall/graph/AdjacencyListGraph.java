@@ -16,7 +16,9 @@
 package cloudwall.graph;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Sets;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -42,15 +44,50 @@ import java.util.function.Consumer;
  *
  * <p>The BFS traversal is A B C D E F G H I and the DFS traversal is A C G I F E H B D.
  *
+ * <p>Undirected edges are listed under both of their vertices. {@link Edge.DirectedEdge directed} edges are only
+ * listed as out-edges of their source and, separately, as in-edges of their target, so traversal never has to skip
+ * over inbound edges and {@link #forEachInEdge(Vertex, Consumer)} is as cheap as its outbound counterpart.
+ *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  */
 @NotThreadSafe
 @ParametersAreNonnullByDefault
 public class AdjacencyListGraph<V extends Vertex, E extends Edge<V>> implements MutableGraph<V, E> {
-    private final Map<Object,V> vertices = new HashMap<>();
-    private final Set<E> edges = new HashSet<>();
+    private static final int DEFAULT_EXPECTED_VERTICES = 1024;
+    private static final int DEFAULT_EXPECTED_DEGREE = 8;
+
+    // per-vertex lists are allocated at the average degree, so hubs still grow but no list starts out huge
+    private static final int MAX_EXPECTED_DEGREE = 1024;
+
+    private final Map<Object,V> vertices;
+    private final Set<E> edges;
+
+    // undirected edges live only in the out-edge map, under both vertices; in-edge map holds directed edges only
+    private final Multimap<Object, E> outEdgeMap;
+    private final Multimap<Object, E> inEdgeMap;
+    private int numUndirectedEdges = 0;
+
+    public AdjacencyListGraph() {
+        this(-1, -1);
+    }
 
-    private final Multimap<Object, E> adjacencyMap = ArrayListMultimap.create(1024, 8);
+    /**
+     * Creates an empty graph with its tables sized up front for the expected number of vertices and edges, so bulk
+     * loading does not keep rehashing as the graph grows. As with {@link GraphMetadata} either count may be -1 if
+     * unknown, and the graph still accepts more than it was sized for.
+     */
+    public AdjacencyListGraph(long expectedVertices, long expectedEdges) {
+        int vertexCapacity = CapacityHints.presize(expectedVertices, DEFAULT_EXPECTED_VERTICES);
+        int degree = DEFAULT_EXPECTED_DEGREE;
+        if (expectedVertices > 0 && expectedEdges >= 0) {
+            degree = (int) Math.max(1, Math.min(MAX_EXPECTED_DEGREE,
+                    (expectedEdges + expectedVertices - 1) / expectedVertices));
+        }
+        this.vertices = Maps.newHashMapWithExpectedSize(vertexCapacity);
+        this.edges = Sets.newHashSetWithExpectedSize(CapacityHints.presize(expectedEdges, DEFAULT_EXPECTED_VERTICES));
+        this.outEdgeMap = ArrayListMultimap.create(vertexCapacity, degree);
+        this.inEdgeMap = ArrayListMultimap.create(vertexCapacity, degree);
+    }
 
     @Override
     public void forEachVertex(Consumer<V> visitor) {
@@ -68,42 +105,37 @@ public class AdjacencyListGraph<V extends Vertex, E extends Edge<V>> implements
 
     @Override
     public void forEachConnectedEdge(V vertex, Consumer<E> edges) {
-        adjacencyMap.get(vertex.getVertexId()).forEach(edges);
+        Object vertexId = vertex.getVertexId();
+        outEdgeMap.get(vertexId).forEach(edges);
+        inEdgeMap.get(vertexId).forEach(edges);
     }
 
     @Override
     public void forEachTraversableEdge(V vertex, Consumer<E> edges) {
-        adjacencyMap.get(vertex.getVertexId()).stream().filter(e -> e.isTraversable(vertex)).forEach(edges);
+        outEdgeMap.get(vertex.getVertexId()).forEach(edges);
     }
 
     @Override
-    public void visitBreadthFirstFrom(V start, Consumer<V> visitor) {
-        Set<V> visitedVertices = new HashSet<>();
-        LinkedList<V> toVisitQueue = new LinkedList<>();
-        toVisitQueue.add(start);
-        while (!toVisitQueue.isEmpty()) {
-            V current = toVisitQueue.poll();
-            if (!visitedVertices.contains(current)) {
-                visitedVertices.add(current);
-                visitor.accept(current);
-                forEachTraversableEdge(current, e -> toVisitQueue.add(e.getOpposite(current)));
+    public void forEachInEdge(V vertex, Consumer<E> edges) {
+        Object vertexId = vertex.getVertexId();
+        inEdgeMap.get(vertexId).forEach(edges);
+        if (numUndirectedEdges > 0) {
+            for (E edge : outEdgeMap.get(vertexId)) {
+                if (!(edge instanceof Edge.DirectedEdge)) {
+                    edges.accept(edge);
+                }
             }
         }
     }
 
+    @Override
+    public void visitBreadthFirstFrom(V start, Consumer<V> visitor) {
+        Traversals.breadthFirst(start, this::forEachSuccessor, visitor);
+    }
+
     @Override
     public void visitDepthFirstFrom(V start, Consumer<V> visitor) {
-        Set<V> visitedVertices = new HashSet<>();
-        LinkedList<V> toVisitStack = new LinkedList<>();
-        toVisitStack.push(start);
-        while (!toVisitStack.isEmpty()) {
-            V current = toVisitStack.pop();
-            if (!visitedVertices.contains(current)) {
-                visitedVertices.add(current);
-                visitor.accept(current);
-                forEachTraversableEdge(current, e -> toVisitStack.push(e.getOpposite(current)));
-            }
-        }
+        Traversals.depthFirst(start, this::forEachSuccessor, visitor);
     }
 
     @Override
@@ -128,19 +160,41 @@ public class AdjacencyListGraph<V extends Vertex, E extends Edge<V>> implements
 
     @Override
     public void removeVertex(V vertex) throws NoSuchElementException {
-        forEachConnectedEdge(vertex, this::removeEdge);
+        List<E> connectedEdges = new ArrayList<>();
+        forEachConnectedEdge(vertex, connectedEdges::add);
+        connectedEdges.forEach(this::removeEdge);
         vertices.remove(vertex.getVertexId());
     }
 
     @Override
     public void addEdge(E edge) throws NoSuchElementException {
         edges.add(edge);
-        edge.forEachVertex(v -> adjacencyMap.put(v.getVertexId(), edge));
+        if (edge instanceof Edge.DirectedEdge) {
+            Edge.DirectedEdge<?> directedEdge = (Edge.DirectedEdge<?>) edge;
+            outEdgeMap.put(directedEdge.getFrom().getVertexId(), edge);
+            inEdgeMap.put(directedEdge.getTo().getVertexId(), edge);
+        } else {
+            edge.forEachVertex(v -> outEdgeMap.put(v.getVertexId(), edge));
+            numUndirectedEdges++;
+        }
     }
 
     @Override
     public void removeEdge(E edge) throws NoSuchElementException {
-        edges.remove(edge);
-        edge.forEachVertex(v -> adjacencyMap.remove(v.getVertexId(), edge));
+        if (!edges.remove(edge)) {
+            return;
+        }
+        if (edge instanceof Edge.DirectedEdge) {
+            Edge.DirectedEdge<?> directedEdge = (Edge.DirectedEdge<?>) edge;
+            outEdgeMap.remove(directedEdge.getFrom().getVertexId(), edge);
+            inEdgeMap.remove(directedEdge.getTo().getVertexId(), edge);
+        } else {
+            edge.forEachVertex(v -> outEdgeMap.remove(v.getVertexId(), edge));
+            numUndirectedEdges--;
+        }
+    }
+
+    private void forEachSuccessor(V vertex, Consumer<V> successors) {
+        forEachTraversableEdge(vertex, edge -> successors.accept(edge.getOpposite(vertex)));
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Common base for the builders of the array-based graphs, which buffer the visited edges as pairs of vertex indices
+ * and only lay them out once the model is complete. Keeping the buffering and the expansion of edges into arcs here
+ * means every such graph gets the same vertex indices, directedness and self-loop handling.
+ *
+ * <p>The graph is treated as directed if the model declares {@link GraphMetadata.Feature#DIRECTED} or if any of the
+ * visited edges is a {@link Edge.DirectedEdge}; see {@link CsrAssembler} for how edges are stored as arcs.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+abstract class BufferedGraphBuilder<G extends AbstractIndexedGraph> implements GraphVisitor {
+    private static final int DEFAULT_EDGE_CAPACITY = 1024;
+
+    VertexIndex vertexIndex = new VertexIndex();
+
+    int[] edgeSources = new int[DEFAULT_EDGE_CAPACITY];
+    int[] edgeTargets = new int[DEFAULT_EDGE_CAPACITY];
+    boolean[] edgeDirected = new boolean[DEFAULT_EDGE_CAPACITY];
+    int numEdges = 0;
+    boolean directed = false;
+
+    /**
+     * Receives one arc, along with the index of the buffered edge it came from.
+     */
+    @FunctionalInterface
+    interface ArcConsumer {
+        void accept(int edge, int from, int to);
+    }
+
+    public G build(GraphModel model) {
+        model.visit(this);
+        return build();
+    }
+
+    @Override
+    public void start(@Nonnull GraphMetadata metadata) {
+        directed = metadata.supports(GraphMetadata.Feature.DIRECTED);
+        if (vertexIndex.size() == 0 && numEdges == 0) {
+            // nothing buffered yet, so re-allocate at the sizes the model reports instead of doubling up to them
+            vertexIndex = new VertexIndex(CapacityHints.presize(metadata.getVertexCount(), 16));
+            resizeEdgeBuffers(Math.max(DEFAULT_EDGE_CAPACITY, CapacityHints.presize(metadata.getEdgeCount(), 0)));
+        }
+    }
+
+    @Override
+    public void visitVertex(@Nonnull Vertex vertex) {
+        vertexIndex.add(vertex);
+    }
+
+    @Override
+    public void visitEdge(@Nonnull Edge<Vertex> edge) {
+        if (numEdges == edgeSources.length) {
+            resizeEdgeBuffers(edgeSources.length * 2);
+        }
+        boolean isDirectedEdge = edge instanceof Edge.DirectedEdge;
+        edgeSources[numEdges] = vertexIndex.add(edge.getVertex0());
+        edgeTargets[numEdges] = vertexIndex.add(edge.getVertex1());
+        edgeDirected[numEdges] = isDirectedEdge;
+        directed |= isDirectedEdge;
+        numEdges++;
+    }
+
+    // how many edges fit before the buffers have to grow
+    int getEdgeCapacity() {
+        return edgeSources.length;
+    }
+
+    /**
+     * Lays out the buffered edges as the finished graph.
+     */
+    abstract G build();
+
+    /**
+     * Resizes the per-edge buffers, keeping the edges buffered so far; subclasses with buffers of their own resize
+     * them as well.
+     */
+    void resizeEdgeBuffers(int capacity) {
+        edgeSources = Arrays.copyOf(edgeSources, capacity);
+        edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+        edgeDirected = Arrays.copyOf(edgeDirected, capacity);
+    }
+
+    /**
+     * Replays the buffered edges, in the order they were visited, for {@link CsrAssembler}.
+     */
+    void forEachEdge(CsrAssembler.EdgeConsumer edges) {
+        for (int i = 0; i < numEdges; i++) {
+            edges.accept(edgeSources[i], edgeTargets[i], edgeDirected[i]);
+        }
+    }
+
+    /**
+     * Replays the buffered edges as the arcs they are stored as, in the same order as {@link CsrAssembler} lays
+     * them out.
+     */
+    void forEachArc(ArcConsumer arcs) {
+        for (int i = 0; i < numEdges; i++) {
+            int source = edgeSources[i];
+            int target = edgeTargets[i];
+            arcs.accept(i, source, target);
+            if (CsrAssembler.hasReverseArc(directed, source, target, edgeDirected[i])) {
+                arcs.accept(i, target, source);
+            }
+        }
+    }
+}
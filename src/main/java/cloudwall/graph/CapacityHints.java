@@ -0,0 +1,38 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+/**
+ * Turns the vertex and edge counts reported by {@link GraphMetadata} into initial capacities for the builders and
+ * graph implementations, so bulk loads can allocate their tables once instead of growing them repeatedly.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class CapacityHints {
+    // counts usually come from file headers, so cap what a wrong or hostile header can make us allocate up front;
+    // anything beyond this still loads, it just grows the usual way
+    static final int MAX_PRESIZE = 1 << 24;
+
+    private CapacityHints() {
+    }
+
+    /**
+     * Gets the capacity to allocate for the given count, or the default if the count is unknown (negative).
+     */
+    static int presize(long count, int defaultCapacity) {
+        return count < 0 ? defaultCapacity : (int) Math.min(MAX_PRESIZE, count);
+    }
+}
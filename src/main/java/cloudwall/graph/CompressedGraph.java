@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only graph which stores its adjacency lists compressed, in the style of WebGraph: every neighbor list is
+ * sorted and written as a sequence of gaps between consecutive neighbor indices, each encoded as a variable-length
+ * integer of 7 bits per byte. Since real-world graphs tend to have strong locality once vertices are numbered in
+ * crawl or load order, most gaps fit in a single byte, bringing the cost per edge well under the 32 bits of a
+ * {@link CsrGraph}; use {@link #getBitsPerEdge()} to check what a given graph achieves.
+ *
+ * <p>Each list is laid out as its degree followed by the first neighbor, as a zig-zag encoded offset from the vertex
+ * itself, followed by the gaps to the remaining neighbors. All lists share one {@code byte[]} and are located through
+ * an offsets index, so random access to a vertex stays O(1) and decoding is a forward scan. Directed graphs also store
+ * their in-lists in the same form.
+ *
+ * <p>Neighbors are always visited in ascending index order, which may differ from the order in which the edges were
+ * added. Use {@link CompressedGraphBuilder} to create one.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public class CompressedGraph extends AbstractIndexedGraph {
+    private final byte[] data;
+    private final int[] offsets;
+
+    // positions of the in-lists in data; only populated for directed graphs
+    private final int[] inOffsets;
+
+    CompressedGraph(VertexLookup vertexIndex, boolean directed, long edgeCount,
+                    byte[] data, int[] offsets, int[] inOffsets) {
+        super(vertexIndex, directed, edgeCount);
+        this.data = data;
+        this.offsets = offsets;
+        this.inOffsets = inOffsets;
+    }
+
+    @Override
+    public int degree(int vertexIndex) {
+        return (int) (readVarInt(data, offsets[vertexIndex]) >>> 32);
+    }
+
+    @Override
+    public void forEachNeighbor(int vertexIndex, IntConsumer neighbors) {
+        decode(offsets[vertexIndex], vertexIndex, neighbors);
+    }
+
+    @Override
+    public int inDegree(int vertexIndex) {
+        if (!directed) {
+            return degree(vertexIndex);
+        }
+        return (int) (readVarInt(data, inOffsets[vertexIndex]) >>> 32);
+    }
+
+    @Override
+    public void forEachInNeighbor(int vertexIndex, IntConsumer inNeighbors) {
+        decode(directed ? inOffsets[vertexIndex] : offsets[vertexIndex], vertexIndex, inNeighbors);
+    }
+
+    @Override
+    public int findInNeighbor(int vertexIndex, IntPredicate predicate) {
+        int position = directed ? inOffsets[vertexIndex] : offsets[vertexIndex];
+        long header = readVarInt(data, position);
+        int degree = (int) (header >>> 32);
+        position = (int) header;
+        int neighbor = vertexIndex;
+        for (int i = 0; i < degree; i++) {
+            long gap = readVarInt(data, position);
+            position = (int) gap;
+            neighbor += (i == 0) ? zigZagDecode((int) (gap >>> 32)) : (int) (gap >>> 32);
+            if (predicate.test(neighbor)) {
+                return neighbor;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the average number of bits of adjacency data per stored arc, excluding the offsets index and vertex index;
+     * undirected edges count twice, as they are stored once per endpoint, and directed ones also count twice if the
+     * graph keeps in-lists.
+     */
+    public double getBitsPerEdge() {
+        long numArcs = 0;
+        for (int i = 0; i < numVertices; i++) {
+            numArcs += degree(i) + (directed ? inDegree(i) : 0);
+        }
+        return numArcs == 0 ? 0.0 : (8.0 * data.length) / numArcs;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long arrayBytes = data.length + 4L * (offsets.length + inOffsets.length);
+        return arrayBytes + vertexIndex.getMemoryFootprint();
+    }
+
+    private void decode(int position, int vertexIndex, IntConsumer consumer) {
+        long header = readVarInt(data, position);
+        int degree = (int) (header >>> 32);
+        position = (int) header;
+        int neighbor = vertexIndex;
+        for (int i = 0; i < degree; i++) {
+            long gap = readVarInt(data, position);
+            position = (int) gap;
+            neighbor += (i == 0) ? zigZagDecode((int) (gap >>> 32)) : (int) (gap >>> 32);
+            consumer.accept(neighbor);
+        }
+    }
+
+    /**
+     * Reads the variable-length integer at the given position and returns it in the high 32 bits, with the position
+     * just past it in the low 32 bits, so decoding needs no mutable cursor object.
+     */
+    static long readVarInt(byte[] data, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return ((long) value << 32) | position;
+    }
+
+    static int zigZagEncode(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int zigZagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
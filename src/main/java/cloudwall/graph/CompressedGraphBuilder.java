@@ -0,0 +1,97 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import java.util.Arrays;
+
+/**
+ * Helper class that builds a read-only {@link CompressedGraph}, either from a {@link GraphModel} or by re-encoding an
+ * existing {@link CsrGraph}; the former goes through the latter, so peak memory during a build is that of the CSR
+ * form plus the compressed output.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class CompressedGraphBuilder {
+    private byte[] data = new byte[1024];
+    private int length = 0;
+
+    public CompressedGraph build(GraphModel model) {
+        return build(new CsrGraphBuilder().build(model));
+    }
+
+    public CompressedGraph build(CsrGraph graph) {
+        data = new byte[Math.max(1024, (int) Math.min(Integer.MAX_VALUE - 8, graph.getEdgeCount() * 2))];
+        length = 0;
+
+        int numVertices = graph.numVertices;
+        int[] buffer = new int[16];
+        int[] offsets = new int[numVertices + 1];
+        for (int i = 0; i < numVertices; i++) {
+            offsets[i] = length;
+            buffer = ensureCapacity(buffer, graph.degree(i));
+            writeList(i, buffer, graph.neighborsInto(i, buffer));
+        }
+        offsets[numVertices] = length;
+
+        int[] inOffsets = new int[0];
+        if (graph.isDirected()) {
+            inOffsets = new int[numVertices + 1];
+            for (int i = 0; i < numVertices; i++) {
+                inOffsets[i] = length;
+                buffer = ensureCapacity(buffer, graph.inDegree(i));
+                int[] neighbors = buffer;
+                int[] count = new int[1];
+                graph.forEachInNeighbor(i, inNeighbor -> neighbors[count[0]++] = inNeighbor);
+                writeList(i, buffer, count[0]);
+            }
+            inOffsets[numVertices] = length;
+        }
+
+        byte[] compressed = Arrays.copyOf(data, length);
+        data = new byte[0];
+        return new CompressedGraph(graph.vertexIndex, graph.isDirected(), graph.getEdgeCount(),
+                compressed, offsets, inOffsets);
+    }
+
+    private void writeList(int vertexIndex, int[] neighbors, int degree) {
+        Arrays.sort(neighbors, 0, degree);
+        writeVarInt(degree);
+        int previous = vertexIndex;
+        for (int i = 0; i < degree; i++) {
+            int gap = neighbors[i] - previous;
+            writeVarInt(i == 0 ? CompressedGraph.zigZagEncode(gap) : gap);
+            previous = neighbors[i];
+        }
+    }
+
+    private void writeVarInt(int value) {
+        if (length + 5 > data.length) {
+            if (data.length >= Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("compressed adjacency data exceeds the maximum array size");
+            }
+            data = Arrays.copyOf(data, (int) Math.min(Integer.MAX_VALUE - 8, data.length * 2L));
+        }
+        while ((value & ~0x7F) != 0) {
+            data[length++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[length++] = (byte) value;
+    }
+
+    private static int[] ensureCapacity(int[] buffer, int size) {
+        return buffer.length >= size ? buffer : new int[Math.max(size, buffer.length * 2)];
+    }
+}
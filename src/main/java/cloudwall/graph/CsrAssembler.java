@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import java.util.Arrays;
+
+/**
+ * Lays out edges given as pairs of vertex indices into a {@link CsrGraph}, shared by {@link CsrGraphBuilder} and the
+ * loaders which build one straight from a file. The edges are walked twice, first to count the degrees and then to
+ * drop each arc into its slot, so a source which can replay them, e.g. by scanning a mapped file again, never has to
+ * hold them in memory. It is public only because the loaders live in the per-format packages; it is not meant for
+ * use outside of this library.
+ *
+ * <p>In an undirected graph every edge other than a self-loop is stored as a pair of arcs, one per endpoint. In a
+ * directed graph a {@linkplain Edge.DirectedEdge directed edge} is one arc from source to target, while an undirected
+ * one is again stored both ways so it remains traversable in either direction, and counts as two edges.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public final class CsrAssembler {
+    // the arrays are indexed by int; stay clear of the VM's limit on array length
+    static final int MAX_ARCS = Integer.MAX_VALUE - 8;
+
+    /**
+     * Receives one edge as the indices of its endpoints; {@code directedEdge} only matters in a directed graph.
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(int source, int target, boolean directedEdge);
+    }
+
+    /**
+     * Supplies the edges; it is called twice and must give the same edges in the same order both times.
+     */
+    @FunctionalInterface
+    public interface EdgeSource<E extends Exception> {
+        void forEachEdge(EdgeConsumer edges) throws E;
+    }
+
+    private CsrAssembler() { }
+
+    /**
+     * Creates an index holding vertices with IDs 1 to {@code numVertices}, in order, for formats which simply number
+     * their vertices.
+     */
+    public static VertexIndex sequentialVertices(int numVertices) {
+        VertexIndex vertexIndex = new VertexIndex(numVertices);
+        for (int i = 0; i < numVertices; i++) {
+            vertexIndex.add(new LightweightVertex((long) i + 1));
+        }
+        return vertexIndex;
+    }
+
+    /**
+     * Assembles the graph from edges held in a pair of endpoint arrays, all directed if the graph is.
+     *
+     * @throws IllegalArgumentException if there are too many arcs to index with an {@code int}
+     */
+    public static CsrGraph assemble(VertexLookup vertices, boolean directed, int[] sources, int[] targets,
+                                    int numEdges) {
+        return assemble(vertices, directed, edges -> {
+            for (int i = 0; i < numEdges; i++) {
+                edges.accept(sources[i], targets[i], directed);
+            }
+        });
+    }
+
+    /**
+     * Assembles the graph from the given edges. The source may add vertices while it is first walked, e.g. in order
+     * of first appearance, so the vertex count is only read once it is done.
+     *
+     * @throws IllegalArgumentException if there are too many arcs to index with an {@code int}
+     */
+    public static <E extends Exception> CsrGraph assemble(VertexLookup vertices, boolean directed,
+                                                          EdgeSource<E> source) throws E {
+        Degrees degrees = new Degrees(directed, vertices.size());
+        source.forEachEdge(degrees);
+        if (degrees.numArcs > MAX_ARCS) {
+            throw new IllegalArgumentException("too many edges to load into a CsrGraph: " + degrees.edgeCount);
+        }
+
+        int numVertices = vertices.size();
+        degrees.ensureCapacity(numVertices);
+        Arcs arcs = new Arcs(directed, degrees, numVertices);
+        source.forEachEdge(arcs);
+        return new CsrGraph(vertices, directed, degrees.edgeCount, arcs.offsets, arcs.targets,
+                arcs.inOffsets, arcs.inTargets);
+    }
+
+    /**
+     * Tests whether an edge is also stored as an arc from its target back to its source.
+     */
+    static boolean hasReverseArc(boolean directed, int source, int target, boolean directedEdge) {
+        return (!directed || !directedEdge) && source != target;
+    }
+
+    // first pass: counts the arcs leaving (and for directed graphs entering) every vertex
+    private static final class Degrees implements EdgeConsumer {
+        private final boolean directed;
+        private int[] outDegrees;
+        private int[] inDegrees;
+        private long numArcs = 0;
+        private long edgeCount = 0;
+
+        Degrees(boolean directed, int numVertices) {
+            this.directed = directed;
+            this.outDegrees = new int[Math.max(16, numVertices)];
+            this.inDegrees = directed ? new int[outDegrees.length] : new int[0];
+        }
+
+        @Override
+        public void accept(int source, int target, boolean directedEdge) {
+            ensureCapacity(Math.max(source, target) + 1);
+            addArc(source, target);
+            edgeCount++;
+            if (hasReverseArc(directed, source, target, directedEdge)) {
+                addArc(target, source);
+                if (directed) {
+                    edgeCount++;
+                }
+            }
+        }
+
+        void ensureCapacity(int numVertices) {
+            if (numVertices > outDegrees.length) {
+                int newLength = Math.max(numVertices, outDegrees.length * 2);
+                outDegrees = Arrays.copyOf(outDegrees, newLength);
+                if (directed) {
+                    inDegrees = Arrays.copyOf(inDegrees, newLength);
+                }
+            }
+        }
+
+        private void addArc(int from, int to) {
+            outDegrees[from]++;
+            if (directed) {
+                inDegrees[to]++;
+            }
+            numArcs++;
+        }
+    }
+
+    // second pass: scatters the arcs into their slots, reusing the degree arrays as write cursors
+    private static final class Arcs implements EdgeConsumer {
+        private final boolean directed;
+        private final int[] offsets;
+        private final int[] inOffsets;
+        private final int[] targets;
+        private final int[] inTargets;
+        private final int[] cursor;
+        private final int[] inCursor;
+
+        Arcs(boolean directed, Degrees degrees, int numVertices) {
+            this.directed = directed;
+            this.offsets = toOffsets(degrees.outDegrees, numVertices);
+            this.inOffsets = directed ? toOffsets(degrees.inDegrees, numVertices) : new int[0];
+            this.targets = new int[offsets[numVertices]];
+            this.inTargets = directed ? new int[inOffsets[numVertices]] : new int[0];
+            this.cursor = degrees.outDegrees;
+            this.inCursor = degrees.inDegrees;
+            System.arraycopy(offsets, 0, cursor, 0, numVertices);
+            if (directed) {
+                System.arraycopy(inOffsets, 0, inCursor, 0, numVertices);
+            }
+        }
+
+        @Override
+        public void accept(int source, int target, boolean directedEdge) {
+            putArc(source, target);
+            if (hasReverseArc(directed, source, target, directedEdge)) {
+                putArc(target, source);
+            }
+        }
+
+        private void putArc(int from, int to) {
+            targets[cursor[from]++] = to;
+            if (directed) {
+                inTargets[inCursor[to]++] = from;
+            }
+        }
+
+        private static int[] toOffsets(int[] degrees, int numVertices) {
+            int[] offsets = new int[numVertices + 1];
+            for (int i = 0; i < numVertices; i++) {
+                offsets[i + 1] = offsets[i] + degrees[i];
+            }
+            return offsets;
+        }
+    }
+}
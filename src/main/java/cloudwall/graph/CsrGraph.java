@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import javax.annotation.concurrent.Immutable;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only graph implementation based on the compressed sparse row (CSR) layout: every vertex gets a dense index,
+ * and the adjacencies of vertex <em>i</em> are stored in {@code targets[offsets[i] .. offsets[i + 1])}. Compared with
+ * {@link AdjacencyListGraph} there are no per-edge objects and no hashing on traversal, so memory per edge drops to
+ * a few bytes and neighbor iteration is a linear scan over a primitive array.
+ *
+ * <p>Undirected graphs store each edge as a pair of arcs, one per endpoint; directed graphs store the out-arcs in
+ * the primary arrays plus a transposed copy with the in-arcs so {@link #forEachConnectedEdge(Vertex, Consumer)}
+ * does not need a full scan. Edges passed to visitors are created on the fly, so do not rely on their identity.
+ *
+ * <p>As an {@link IndexedGraph} the neighbors of vertex <em>i</em> can also be read directly as indices, which is
+ * the preferred route for analysis code; for repeated traversals hold on to an {@link IndexedTraversal} rather than
+ * calling {@link #visitBreadthFirstFrom(Vertex, Consumer)}, which sets up a fresh one every time.
+ *
+ * <p>Use {@link CsrGraphBuilder} to create one from a {@link GraphModel}, or
+ * {@link cloudwall.graph.io.edge.CsrEdgeListLoader} to load a large edge list file directly.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@Immutable
+@ParametersAreNonnullByDefault
+public class CsrGraph extends AbstractIndexedGraph {
+    private final int[] offsets;
+    private final int[] targets;
+
+    // in-arcs; only populated for directed graphs
+    private final int[] inOffsets;
+    private final int[] inTargets;
+
+    /**
+     * Creates a graph directly from its arrays, for loaders which fill them in without going through
+     * {@link CsrGraphBuilder}; {@code inOffsets} and {@code inTargets} must be empty for undirected graphs.
+     */
+    public CsrGraph(VertexLookup vertexIndex, boolean directed, long edgeCount,
+                    int[] offsets, int[] targets, int[] inOffsets, int[] inTargets) {
+        super(vertexIndex, directed, edgeCount);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.inOffsets = inOffsets;
+        this.inTargets = inTargets;
+    }
+
+    @Override
+    public int degree(int vertexIndex) {
+        return offsets[vertexIndex + 1] - offsets[vertexIndex];
+    }
+
+    @Override
+    public void forEachNeighbor(int vertexIndex, IntConsumer neighbors) {
+        for (int j = offsets[vertexIndex]; j < offsets[vertexIndex + 1]; j++) {
+            neighbors.accept(targets[j]);
+        }
+    }
+
+    @Override
+    public int neighborsInto(int vertexIndex, int[] buffer) {
+        int degree = degree(vertexIndex);
+        System.arraycopy(targets, offsets[vertexIndex], buffer, 0, degree);
+        return degree;
+    }
+
+    @Override
+    public int inDegree(int vertexIndex) {
+        if (!directed) {
+            return degree(vertexIndex);
+        }
+        return inOffsets[vertexIndex + 1] - inOffsets[vertexIndex];
+    }
+
+    @Override
+    public void forEachInNeighbor(int vertexIndex, IntConsumer inNeighbors) {
+        if (!directed) {
+            forEachNeighbor(vertexIndex, inNeighbors);
+            return;
+        }
+        for (int j = inOffsets[vertexIndex]; j < inOffsets[vertexIndex + 1]; j++) {
+            inNeighbors.accept(inTargets[j]);
+        }
+    }
+
+    @Override
+    public int findInNeighbor(int vertexIndex, IntPredicate predicate) {
+        int[] sourceOffsets = directed ? inOffsets : offsets;
+        int[] sources = directed ? inTargets : targets;
+        for (int j = sourceOffsets[vertexIndex]; j < sourceOffsets[vertexIndex + 1]; j++) {
+            if (predicate.test(sources[j])) {
+                return sources[j];
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEachEdge(Consumer<Edge<Vertex>> visitor) {
+        for (int i = 0; i < numVertices; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                int target = targets[j];
+                // undirected edges are stored once per endpoint, so only report them from the lower index
+                if (directed || i <= target) {
+                    visitor.accept(createEdge(i, target));
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the transpose of this graph. This is O(1): the result shares the vertex index and simply swaps the out-
+     * and in-arc arrays, so the edges it reports point the other way. An undirected graph is its own transpose.
+     */
+    @Override
+    public CsrGraph transpose() {
+        if (!directed) {
+            return this;
+        }
+        return new CsrGraph(vertexIndex, true, edgeCount, inOffsets, inTargets, offsets, targets);
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        long arrayBytes = 4L * (offsets.length + targets.length + inOffsets.length + inTargets.length);
+        return arrayBytes + vertexIndex.getMemoryFootprint();
+    }
+}
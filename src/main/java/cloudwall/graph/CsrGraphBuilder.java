@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cloudwall.graph;
+
+import cloudwall.graph.io.GraphFormat;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.activation.DataSource;
+import java.io.IOException;
+
+/**
+ * Helper class that builds a read-only {@link CsrGraph} as a side effect of visiting a graph model. Edges are
+ * buffered as pairs of vertex indices and only turned into the final offset and target arrays on completion.
+ *
+ * <p>The graph is treated as directed if the model declares {@link GraphMetadata.Feature#DIRECTED} or if any of the
+ * visited edges is a {@link Edge.DirectedEdge}; in the latter case any undirected edges are stored as a pair of
+ * arcs so they remain traversable both ways.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class CsrGraphBuilder extends BufferedGraphBuilder<CsrGraph> {
+    /**
+     * Builds the graph straight from serialized data, streaming vertices and edges from the format's parser rather
+     * than reading the whole model first when the format supports it.
+     */
+    public CsrGraph build(GraphFormat<?> format, DataSource dataIn) throws GraphFormatException, IOException {
+        format.read(dataIn, this);
+        return build();
+    }
+
+    @Override
+    CsrGraph build() {
+        return CsrAssembler.assemble(vertexIndex, directed, this::forEachEdge);
+    }
+}
@@ -48,6 +48,40 @@ public interface Graph<V extends Vertex, E extends Edge> {
      */
     void forEachTraversableEdge(V vertex, Consumer<E> edges);
 
+    /**
+     * Iterates over all edges leaving the given vertex, i.e. the ones you can traverse from it. For undirected
+     * edges this is every connected edge; by default this is the same as
+     * {@link #forEachTraversableEdge(Vertex, Consumer)}.
+     */
+    default void forEachOutEdge(V vertex, Consumer<E> edges) {
+        forEachTraversableEdge(vertex, edges);
+    }
+
+    /**
+     * Iterates over all edges arriving at the given vertex, i.e. the ones you can traverse to reach it. For
+     * undirected edges this is every connected edge. The default implementation filters
+     * {@link #forEachConnectedEdge(Vertex, Consumer)}; graphs which index in-edges separately should override it.
+     */
+    @SuppressWarnings("unchecked")
+    default void forEachInEdge(V vertex, Consumer<E> edges) {
+        forEachConnectedEdge(vertex, edge -> {
+            if (edge.isTraversable(edge.getOpposite(vertex))) {
+                edges.accept(edge);
+            }
+        });
+    }
+
+    /**
+     * Gets a view of this graph with every directed edge reversed, so traversals follow in-edges instead of
+     * out-edges. The view shares storage with this graph rather than copying it; the directed edges it reports point
+     * the other way, so {@link Edge#isTraversable(Vertex)} agrees with {@link #forEachTraversableEdge}, while
+     * undirected edges are the same objects.
+     */
+    @SuppressWarnings("unchecked")
+    default Graph<V, Edge<V>> transpose() {
+        return new TransposedGraph<>((Graph<V, ? extends Edge<V>>) this);
+    }
+
     /**
      * Given a starting vertex performs a BFS (Breadth First Search) from that vertex. In case of a graph with cycles
      * the implementation should guarantee that the operation terminates and visits all vertices in scope only once.
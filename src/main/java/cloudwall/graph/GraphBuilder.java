@@ -16,28 +16,77 @@
 
 package cloudwall.graph;
 
+import cloudwall.graph.io.GraphFormat;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.activation.DataSource;
 import javax.annotation.Nonnull;
+import java.io.IOException;
 
 /**
  * Helper class that builds a graph as a side effect of visiting a graph model.
  *
+ * <p>The target graph is only created once {@link #start(GraphMetadata)} reports the model's metadata, so it can be
+ * sized for the vertex and edge counts the model already knows; by default this is a pre-sized
+ * {@link AdjacencyListGraph}, but callers can supply a {@link GraphFactory} to pick another implementation.
+ *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  */
 public class GraphBuilder implements GraphVisitor {
-    private AdjacencyListGraph<Vertex, Edge<Vertex>> graph = new AdjacencyListGraph<>();
+    /**
+     * Creates the empty graph to fill in, given the metadata of the model about to be visited. Vertex and edge counts
+     * may be -1 if the model does not know them in advance.
+     */
+    @FunctionalInterface
+    public interface GraphFactory {
+        MutableGraph<Vertex, Edge<Vertex>> create(GraphMetadata metadata);
+    }
+
+    private final GraphFactory factory;
+    private MutableGraph<Vertex, Edge<Vertex>> graph;
+
+    public GraphBuilder() {
+        this(metadata -> new AdjacencyListGraph<>(metadata.getVertexCount(), metadata.getEdgeCount()));
+    }
+
+    public GraphBuilder(GraphFactory factory) {
+        this.factory = factory;
+    }
 
     public Graph<?,?> build(GraphModel model) {
         model.visit(this);
-        return graph;
+        return getGraph();
+    }
+
+    /**
+     * Builds the graph straight from serialized data, streaming vertices and edges from the format's parser rather
+     * than reading the whole model first when the format supports it.
+     */
+    public Graph<?,?> build(GraphFormat<?> format, DataSource dataIn) throws GraphFormatException, IOException {
+        format.read(dataIn, this);
+        return getGraph();
+    }
+
+    @Override
+    public void start(@Nonnull GraphMetadata metadata) {
+        graph = factory.create(metadata);
     }
 
     @Override
     public void visitVertex(@Nonnull Vertex vertex) {
-        graph.addVertex(vertex);
+        getGraph().addVertex(vertex);
     }
 
     @Override
     public void visitEdge(@Nonnull Edge<Vertex> edge) {
-        graph.addEdge(edge);
+        getGraph().addEdge(edge);
+    }
+
+    // models are expected to call start() first, but fall back to an unsized graph for visitors driven by hand
+    private MutableGraph<Vertex, Edge<Vertex>> getGraph() {
+        if (graph == null) {
+            graph = factory.create(new GraphMetadata() { });
+        }
+        return graph;
     }
 }
@@ -17,7 +17,7 @@ public class HeavyweightDirectedEdge<V extends Vertex> extends HeavyweightEdge<V
     }
 
     public HeavyweightDirectedEdge(@Nonnull V vertex0, @Nonnull V vertex1, double weight, short sign) {
-        super(vertex0, vertex1);
+        super(vertex0, vertex1, weight, sign);
     }
 
     public String toString() {
@@ -10,10 +10,22 @@ import javax.annotation.Nonnull;
 public class HeavyweightEdge<V extends Vertex> implements Edge.WeightedEdge<V>, Edge.SignedEdge<V> {
     private final V vertex0;
     private final V vertex1;
+    private final double weight;
+    private final short sign;
 
     public HeavyweightEdge(@Nonnull V vertex0, @Nonnull V vertex1) {
+        this(vertex0, vertex1, 1.0);
+    }
+
+    public HeavyweightEdge(@Nonnull V vertex0, @Nonnull V vertex1, double weight) {
+        this(vertex0, vertex1, weight, (short)0);
+    }
+
+    public HeavyweightEdge(@Nonnull V vertex0, @Nonnull V vertex1, double weight, short sign) {
         this.vertex0 = vertex0;
         this.vertex1 = vertex1;
+        this.weight = weight;
+        this.sign = sign;
     }
 
     @Nonnull
@@ -28,6 +40,16 @@ public class HeavyweightEdge<V extends Vertex> implements Edge.WeightedEdge<V>,
         return vertex1;
     }
 
+    @Override
+    public double getWeight() {
+        return weight;
+    }
+
+    @Override
+    public short getSign() {
+        return sign;
+    }
+
     public String toString() {
         return getVertex0() + " - " + getVertex1();
     }
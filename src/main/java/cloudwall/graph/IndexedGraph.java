@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Extension to the basic graph interface for implementations that assign every vertex a dense index from zero to
+ * {@link #getVertexCount()} - 1, e.g. via a {@link VertexIndex}. Neighbors can then be visited as primitive indices
+ * without creating an {@link Edge} per adjacency, which is the fast path for traversals and analysis functors; the
+ * {@link Consumer}-based methods on {@link Graph} remain available as adapters over the same storage.
+ *
+ * <p>Neighbors here are always the ones reachable via {@link #forEachTraversableEdge(Vertex, Consumer)}, i.e. the
+ * out-neighbors in the case of directed graphs. The in-neighbor methods give the reverse view, which for undirected
+ * graphs is the same as the forward one.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public interface IndexedGraph<V extends Vertex, E extends Edge> extends Graph<V, E> {
+    /**
+     * Gets the dense index assigned to the given vertex.
+     *
+     * @throws IllegalArgumentException if the vertex is not a member of the graph
+     */
+    int indexOf(@Nonnull V vertex);
+
+    /**
+     * Gets the vertex assigned the given index.
+     *
+     * @throws ArrayIndexOutOfBoundsException if the index is out of range
+     */
+    @Nonnull
+    V vertexAt(int vertexIndex);
+
+    /**
+     * Gets the number of traversable neighbors of the vertex with the given index, counting parallel edges.
+     */
+    @Nonnegative
+    int degree(int vertexIndex);
+
+    /**
+     * Iterates over the indices of all traversable neighbors of the vertex with the given index, without allocating.
+     */
+    void forEachNeighbor(int vertexIndex, @Nonnull IntConsumer neighbors);
+
+    /**
+     * Copies the indices of all traversable neighbors of the vertex with the given index into the buffer, which must
+     * have room for at least {@link #degree(int)} elements, and returns the number copied.
+     */
+    default int neighborsInto(int vertexIndex, @Nonnull int[] buffer) {
+        int[] count = new int[1];
+        forEachNeighbor(vertexIndex, neighbor -> buffer[count[0]++] = neighbor);
+        return count[0];
+    }
+
+    /**
+     * Gets the number of vertices which have the vertex with the given index as a traversable neighbor.
+     */
+    @Nonnegative
+    int inDegree(int vertexIndex);
+
+    /**
+     * Iterates over the indices of all vertices which have the vertex with the given index as a traversable
+     * neighbor, without allocating.
+     */
+    void forEachInNeighbor(int vertexIndex, @Nonnull IntConsumer inNeighbors);
+
+    /**
+     * Scans the in-neighbors of the vertex with the given index and returns the first one matching the predicate, or
+     * -1 if there is none. Implementations should stop scanning at the first match, which is what makes bottom-up
+     * traversal steps cheap.
+     */
+    default int findInNeighbor(int vertexIndex, @Nonnull IntPredicate predicate) {
+        int[] found = { -1 };
+        forEachInNeighbor(vertexIndex, inNeighbor -> {
+            if (found[0] == -1 && predicate.test(inNeighbor)) {
+                found[0] = inNeighbor;
+            }
+        });
+        return found[0];
+    }
+}
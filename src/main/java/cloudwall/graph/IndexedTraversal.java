@@ -0,0 +1,226 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Reusable BFS / DFS engine for {@link IndexedGraph} implementations. All working state lives in primitive arrays
+ * sized to the graph on construction: visited marks are epoch-stamped so starting a new traversal is O(1) rather than
+ * a clear of the whole array, the BFS queue is a flat array that each vertex enters at most once, and the DFS stack
+ * only grows until it fits the largest frontier seen. Running repeated traversals on one engine therefore allocates
+ * nothing after warm-up.
+ *
+ * <p>Every traversal records the depth and parent of each vertex it reaches, available afterwards via
+ * {@link #getDepth(int)} and {@link #getParent(int)} or as whole arrays through {@link #getDepths()} and
+ * {@link #getParents()}. For DFS these describe the DFS tree rather than shortest paths. Results are only valid until
+ * the next traversal on the same engine.
+ *
+ * <p>Visit order matches {@link AdjacencyListGraph}: BFS is level by level in adjacency order, while DFS is
+ * pre-order and explores the most recently added adjacency first.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public class IndexedTraversal {
+    /**
+     * Depth and parent value for vertices not reached by the last traversal; also the parent of the start vertex.
+     */
+    public static final int NONE = -1;
+
+    private final IndexedGraph<?, ?> graph;
+    private final int numVertices;
+
+    private final int[] visitedEpoch;
+    private final int[] depth;
+    private final int[] parent;
+    private final int[] visitOrder;
+    private int epoch = 0;
+    private int numVisited = 0;
+
+    private int[] stack;
+    private int[] stackParents;
+    private int top;
+
+    private int current;
+    private final IntConsumer discoverBreadthFirst = this::discoverBreadthFirst;
+    private final IntConsumer pushDepthFirst = this::pushDepthFirst;
+
+    public IndexedTraversal(@Nonnull IndexedGraph<?, ?> graph) {
+        this.graph = graph;
+        this.numVertices = (int) graph.getVertexCount();
+        this.visitedEpoch = new int[numVertices];
+        this.depth = new int[numVertices];
+        this.parent = new int[numVertices];
+        this.visitOrder = new int[numVertices];
+        this.stack = new int[16];
+        this.stackParents = new int[16];
+    }
+
+    /**
+     * Performs a BFS from the given start index, calling the visitor with each vertex index as it is dequeued.
+     *
+     * @return the number of vertices visited
+     */
+    public int breadthFirst(int start, @Nonnull IntConsumer visitor) {
+        beginTraversal(start);
+        markVisited(start, NONE, 0);
+
+        // the visit order array doubles as the queue since every vertex is appended exactly once on discovery
+        int head = 0;
+        while (head < numVisited) {
+            current = visitOrder[head++];
+            visitor.accept(current);
+            graph.forEachNeighbor(current, discoverBreadthFirst);
+        }
+        return numVisited;
+    }
+
+    /**
+     * Performs a pre-order DFS from the given start index, calling the visitor with each vertex index as it is
+     * first reached.
+     *
+     * @return the number of vertices visited
+     */
+    public int depthFirst(int start, @Nonnull IntConsumer visitor) {
+        beginTraversal(start);
+        top = 0;
+        current = NONE;
+        pushDepthFirst(start);
+
+        while (top > 0) {
+            top--;
+            int next = stack[top];
+            if (isVisited(next)) {
+                continue;
+            }
+            int nextParent = stackParents[top];
+            markVisited(next, nextParent, nextParent == NONE ? 0 : depth[nextParent] + 1);
+            visitor.accept(next);
+
+            current = next;
+            graph.forEachNeighbor(next, pushDepthFirst);
+        }
+        return numVisited;
+    }
+
+    /**
+     * Tests whether the last traversal reached the given vertex index.
+     */
+    public boolean isVisited(int vertexIndex) {
+        return visitedEpoch[vertexIndex] == epoch;
+    }
+
+    /**
+     * Gets the number of vertices reached by the last traversal.
+     */
+    public int getVisitedCount() {
+        return numVisited;
+    }
+
+    /**
+     * Gets the n-th vertex index reached by the last traversal, in visit order.
+     */
+    public int getVisitedVertex(int n) {
+        if (n >= numVisited) {
+            throw new ArrayIndexOutOfBoundsException(n);
+        }
+        return visitOrder[n];
+    }
+
+    /**
+     * Gets the depth at which the last traversal reached the given vertex index, or {@link #NONE} if not reached.
+     */
+    public int getDepth(int vertexIndex) {
+        return isVisited(vertexIndex) ? depth[vertexIndex] : NONE;
+    }
+
+    /**
+     * Gets the vertex index from which the last traversal reached the given vertex index, or {@link #NONE} if it
+     * was the start vertex or was not reached.
+     */
+    public int getParent(int vertexIndex) {
+        return isVisited(vertexIndex) ? parent[vertexIndex] : NONE;
+    }
+
+    /**
+     * Copies out the depth of every vertex from the last traversal, with {@link #NONE} for those not reached.
+     */
+    @Nonnull
+    public int[] getDepths() {
+        return copyVisited(depth);
+    }
+
+    /**
+     * Copies out the parent of every vertex from the last traversal, with {@link #NONE} for the start vertex and
+     * those not reached.
+     */
+    @Nonnull
+    public int[] getParents() {
+        return copyVisited(parent);
+    }
+
+    private void beginTraversal(int start) {
+        if (start < 0 || start >= numVertices) {
+            throw new ArrayIndexOutOfBoundsException(start);
+        }
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(visitedEpoch, 0);
+            epoch = 0;
+        }
+        epoch++;
+        numVisited = 0;
+    }
+
+    private void markVisited(int vertexIndex, int parentIndex, int vertexDepth) {
+        visitedEpoch[vertexIndex] = epoch;
+        parent[vertexIndex] = parentIndex;
+        depth[vertexIndex] = vertexDepth;
+        visitOrder[numVisited++] = vertexIndex;
+    }
+
+    private void discoverBreadthFirst(int neighbor) {
+        if (!isVisited(neighbor)) {
+            markVisited(neighbor, current, depth[current] + 1);
+        }
+    }
+
+    private void pushDepthFirst(int neighbor) {
+        if (isVisited(neighbor)) {
+            return;
+        }
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+            stackParents = Arrays.copyOf(stackParents, stackParents.length * 2);
+        }
+        stack[top] = neighbor;
+        stackParents[top] = current;
+        top++;
+    }
+
+    private int[] copyVisited(int[] values) {
+        int[] copy = new int[numVertices];
+        Arrays.fill(copy, NONE);
+        for (int i = 0; i < numVisited; i++) {
+            int vertexIndex = visitOrder[i];
+            copy[vertexIndex] = values[vertexIndex];
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.util.OffHeapBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only graph with the same compressed sparse row layout as {@link CsrGraph}, but with the offsets, adjacencies
+ * and optional edge weights all held off-heap in {@link OffHeapBuffer}s. The Java heap is left with just the vertex
+ * objects and their {@link VertexIndex}, so a very large graph no longer means a very large heap for the garbage
+ * collector to scan, and the arc count is not limited by the maximum array size.
+ *
+ * <p>The memory is released by {@link #close()} rather than by the garbage collector; any use of the graph after
+ * that fails with an {@link IllegalStateException}. Do not close it while other threads are still traversing it.
+ * {@link #getMemoryFootprint()} includes both the off-heap part, also available on its own through
+ * {@link #getOffHeapMemoryFootprint()}, and the on-heap vertex index.
+ *
+ * <p>Weighted graphs report their edges as {@link Edge.WeightedEdge}s carrying the stored weight; the weights can also
+ * be read without creating edges via {@link #forEachWeightedNeighbor(int, WeightedNeighborConsumer)}. Use
+ * {@link OffHeapGraphBuilder} to create one.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@ParametersAreNonnullByDefault
+public class OffHeapGraph extends AbstractIndexedGraph implements AutoCloseable {
+    /**
+     * Callback for iterating over neighbors along with the weight of the arc leading to them.
+     */
+    @FunctionalInterface
+    public interface WeightedNeighborConsumer {
+        void accept(int neighbor, double weight);
+    }
+
+    // offsets are longs, so one vertex's adjacencies can start beyond the 2^31st arc
+    private final OffHeapBuffer offsets;
+    private final OffHeapBuffer targets;
+    private final OffHeapBuffer weights;
+
+    // in-arcs; only allocated for directed graphs
+    private final OffHeapBuffer inOffsets;
+    private final OffHeapBuffer inTargets;
+    private final OffHeapBuffer inWeights;
+
+    /**
+     * Wraps existing buffers in CSR layout: {@code offsets} holds {@code vertexIndex.size() + 1} longs, and the arcs of
+     * vertex <em>i</em> are the ints at {@code targets[offsets[i] .. offsets[i + 1])}, with a weight per arc at the
+     * same index if weighted. The in-arc buffers follow the same layout and must be present iff the graph is directed.
+     * The graph takes ownership of the buffers and closes them on {@link #close()}; this is how other off-heap stores
+     * such as memory-mapped snapshots are exposed without copying, while {@link OffHeapGraphBuilder} is the usual way
+     * to build one.
+     */
+    public OffHeapGraph(VertexLookup vertexIndex, boolean directed, long edgeCount,
+                        OffHeapBuffer offsets, OffHeapBuffer targets, @Nullable OffHeapBuffer weights,
+                        @Nullable OffHeapBuffer inOffsets, @Nullable OffHeapBuffer inTargets,
+                        @Nullable OffHeapBuffer inWeights) {
+        super(vertexIndex, directed, edgeCount);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.inTargets = inTargets;
+        this.inWeights = inWeights;
+    }
+
+    /**
+     * Tests whether per-edge weights are stored.
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    @Override
+    public int degree(int vertexIndex) {
+        return (int) (offsets.getLong(vertexIndex + 1) - offsets.getLong(vertexIndex));
+    }
+
+    @Override
+    public void forEachNeighbor(int vertexIndex, IntConsumer neighbors) {
+        long end = offsets.getLong(vertexIndex + 1);
+        for (long j = offsets.getLong(vertexIndex); j < end; j++) {
+            neighbors.accept(targets.getInt(j));
+        }
+    }
+
+    /**
+     * Iterates over the indices of all traversable neighbors of the vertex with the given index along with the arc
+     * weights, which are all 1.0 if the graph is not weighted.
+     */
+    public void forEachWeightedNeighbor(int vertexIndex, WeightedNeighborConsumer neighbors) {
+        long end = offsets.getLong(vertexIndex + 1);
+        for (long j = offsets.getLong(vertexIndex); j < end; j++) {
+            neighbors.accept(targets.getInt(j), weights == null ? 1.0 : weights.getDouble(j));
+        }
+    }
+
+    @Override
+    public int inDegree(int vertexIndex) {
+        if (!directed) {
+            return degree(vertexIndex);
+        }
+        return (int) (inOffsets.getLong(vertexIndex + 1) - inOffsets.getLong(vertexIndex));
+    }
+
+    @Override
+    public void forEachInNeighbor(int vertexIndex, IntConsumer inNeighbors) {
+        if (!directed) {
+            forEachNeighbor(vertexIndex, inNeighbors);
+            return;
+        }
+        long end = inOffsets.getLong(vertexIndex + 1);
+        for (long j = inOffsets.getLong(vertexIndex); j < end; j++) {
+            inNeighbors.accept(inTargets.getInt(j));
+        }
+    }
+
+    @Override
+    public int findInNeighbor(int vertexIndex, IntPredicate predicate) {
+        OffHeapBuffer sourceOffsets = directed ? inOffsets : offsets;
+        OffHeapBuffer sources = directed ? inTargets : targets;
+        long end = sourceOffsets.getLong(vertexIndex + 1);
+        for (long j = sourceOffsets.getLong(vertexIndex); j < end; j++) {
+            int source = sources.getInt(j);
+            if (predicate.test(source)) {
+                return source;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void forEachEdge(Consumer<Edge<Vertex>> visitor) {
+        for (int i = 0; i < numVertices; i++) {
+            long end = offsets.getLong(i + 1);
+            for (long j = offsets.getLong(i); j < end; j++) {
+                int target = targets.getInt(j);
+                // undirected edges are stored once per endpoint, so only report them from the lower index
+                if (directed || i <= target) {
+                    visitor.accept(createEdge(i, target, weights, j));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachConnectedEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        forEachTraversableEdge(vertex, edges);
+        if (directed) {
+            forEachInEdge(vertex, edges);
+        }
+    }
+
+    @Override
+    public void forEachTraversableEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        int ndx = vertexIndex.requireIndexOf(vertex);
+        long end = offsets.getLong(ndx + 1);
+        for (long j = offsets.getLong(ndx); j < end; j++) {
+            edges.accept(createEdge(ndx, targets.getInt(j), weights, j));
+        }
+    }
+
+    @Override
+    public void forEachInEdge(Vertex vertex, Consumer<Edge<Vertex>> edges) {
+        if (!directed) {
+            forEachTraversableEdge(vertex, edges);
+            return;
+        }
+        int ndx = vertexIndex.requireIndexOf(vertex);
+        long end = inOffsets.getLong(ndx + 1);
+        for (long j = inOffsets.getLong(ndx); j < end; j++) {
+            edges.accept(createEdge(inTargets.getInt(j), ndx, inWeights, j));
+        }
+    }
+
+    /**
+     * Gets the number of bytes of off-heap memory held by this graph; zero once closed.
+     */
+    public long getOffHeapMemoryFootprint() {
+        long bytes = 0;
+        for (OffHeapBuffer buffer : buffers()) {
+            if (buffer != null && !buffer.isClosed()) {
+                bytes += buffer.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return getOffHeapMemoryFootprint() + vertexIndex.getMemoryFootprint();
+    }
+
+    /**
+     * Frees all off-heap memory held by the graph. Calling this more than once has no further effect.
+     */
+    @Override
+    public void close() {
+        for (OffHeapBuffer buffer : buffers()) {
+            if (buffer != null) {
+                buffer.close();
+            }
+        }
+    }
+
+    private OffHeapBuffer[] buffers() {
+        return new OffHeapBuffer[] { offsets, targets, weights, inOffsets, inTargets, inWeights };
+    }
+
+    @Nonnull
+    private Edge<Vertex> createEdge(int from, int to, @Nullable OffHeapBuffer arcWeights, long arc) {
+        if (arcWeights == null) {
+            return createEdge(from, to);
+        }
+        double weight = arcWeights.getDouble(arc);
+        if (directed) {
+            return new HeavyweightDirectedEdge<>(vertexIndex.getVertex(from), vertexIndex.getVertex(to), weight);
+        } else {
+            return new HeavyweightEdge<>(vertexIndex.getVertex(from), vertexIndex.getVertex(to), weight);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.util.OffHeapBuffer;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+
+/**
+ * Helper class that builds an {@link OffHeapGraph} as a side effect of visiting a graph model. Edges are buffered on
+ * the heap as pairs of vertex indices until the model is complete, then scattered straight into off-heap memory, so
+ * only the vertex index outlives the build on the heap.
+ *
+ * <p>Directedness follows the same rules as {@link CsrGraphBuilder}. Weights are stored if the model declares
+ * {@link GraphMetadata.Feature#WEIGHTED} or if any visited {@link Edge.WeightedEdge} has a weight other than 1.0.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class OffHeapGraphBuilder extends BufferedGraphBuilder<OffHeapGraph> {
+    private double[] edgeWeights = new double[getEdgeCapacity()];
+    private boolean weighted = false;
+
+    @Override
+    public void start(@Nonnull GraphMetadata metadata) {
+        weighted = metadata.supports(GraphMetadata.Feature.WEIGHTED);
+        super.start(metadata);
+    }
+
+    @Override
+    public void visitEdge(@Nonnull Edge<Vertex> edge) {
+        double weight = (edge instanceof Edge.WeightedEdge) ? ((Edge.WeightedEdge<?>) edge).getWeight() : 1.0;
+        super.visitEdge(edge);
+        edgeWeights[numEdges - 1] = weight;
+        weighted |= (weight != 1.0);
+    }
+
+    @Override
+    void resizeEdgeBuffers(int capacity) {
+        super.resizeEdgeBuffers(capacity);
+        edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+    }
+
+    @Override
+    OffHeapGraph build() {
+        int numVertices = vertexIndex.size();
+        long[] counts = new long[numVertices + 1];
+        long[] inCounts = directed ? new long[numVertices + 1] : null;
+
+        // first pass: count the arcs leaving (and for directed graphs entering) every vertex
+        forEachArc((edge, from, to) -> {
+            counts[from + 1]++;
+            if (directed) {
+                inCounts[to + 1]++;
+            }
+        });
+        prefixSum(counts);
+        long numArcs = counts[numVertices];
+        OffHeapBuffer offsets = toOffHeap(counts);
+        OffHeapBuffer targets = new OffHeapBuffer(4L * numArcs);
+        OffHeapBuffer weights = weighted ? new OffHeapBuffer(8L * numArcs) : null;
+        if (directed) {
+            prefixSum(inCounts);
+        }
+        OffHeapBuffer inOffsets = directed ? toOffHeap(inCounts) : null;
+        OffHeapBuffer inTargets = directed ? new OffHeapBuffer(4L * numArcs) : null;
+        OffHeapBuffer inWeights = directed && weighted ? new OffHeapBuffer(8L * numArcs) : null;
+
+        // second pass: scatter the arcs into their slots, reusing the prefix sums as cursors
+        forEachArc((edge, from, to) -> {
+            double weight = edgeWeights[edge];
+            putArc(targets, weights, counts[from]++, to, weight);
+            if (directed) {
+                putArc(inTargets, inWeights, inCounts[to]++, from, weight);
+            }
+        });
+
+        // every arc of a directed graph is an edge of its own, while undirected edges are stored once per endpoint
+        long edgeCount = directed ? numArcs : numEdges;
+        resizeEdgeBuffers(0);
+        return new OffHeapGraph(vertexIndex, directed, edgeCount, offsets, targets, weights,
+                inOffsets, inTargets, inWeights);
+    }
+
+    private static void putArc(OffHeapBuffer targets, OffHeapBuffer weights, long slot, int target, double weight) {
+        targets.putInt(slot, target);
+        if (weights != null) {
+            weights.putDouble(slot, weight);
+        }
+    }
+
+    private static OffHeapBuffer toOffHeap(long[] offsets) {
+        OffHeapBuffer buffer = new OffHeapBuffer(8L * offsets.length);
+        for (int i = 0; i < offsets.length; i++) {
+            buffer.putLong(i, offsets[i]);
+        }
+        return buffer;
+    }
+
+    private static void prefixSum(long[] counts) {
+        for (int i = 1; i < counts.length; i++) {
+            counts[i] += counts[i - 1];
+        }
+    }
+}
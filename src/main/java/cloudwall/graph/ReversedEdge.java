@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnull;
+import java.util.Objects;
+
+/**
+ * Directed edge pointing the opposite way to the one it wraps, as reported by a {@link TransposedGraph}; the weight
+ * and sign are those of the original edge, which is available from {@link #getOriginal()}.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class ReversedEdge<V extends Vertex> implements Edge.DirectedEdge<V>, Edge.WeightedEdge<V>, Edge.SignedEdge<V> {
+    private final Edge.DirectedEdge<V> original;
+
+    public ReversedEdge(@Nonnull Edge.DirectedEdge<V> original) {
+        this.original = original;
+    }
+
+    /**
+     * Reverses the edge if it is directed; undirected edges can be traversed either way and so are returned as-is.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V extends Vertex> Edge<V> reverse(@Nonnull Edge<V> edge) {
+        if (edge instanceof ReversedEdge) {
+            return ((ReversedEdge<V>) edge).original;
+        }
+        return (edge instanceof Edge.DirectedEdge) ? new ReversedEdge<>((Edge.DirectedEdge<V>) edge) : edge;
+    }
+
+    @Nonnull
+    public Edge.DirectedEdge<V> getOriginal() {
+        return original;
+    }
+
+    @Nonnull
+    @Override
+    public V getVertex0() {
+        return original.getTo();
+    }
+
+    @Nonnull
+    @Override
+    public V getVertex1() {
+        return original.getFrom();
+    }
+
+    @Override
+    public double getWeight() {
+        return (original instanceof Edge.WeightedEdge) ? ((Edge.WeightedEdge<V>) original).getWeight() : 1.0;
+    }
+
+    @Override
+    public short getSign() {
+        return (original instanceof Edge.SignedEdge) ? ((Edge.SignedEdge<V>) original).getSign() : 0;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return (o instanceof ReversedEdge) && original.equals(((ReversedEdge<?>) o).original);
+    }
+
+    @Override
+    public int hashCode() {
+        return ~Objects.hashCode(original);
+    }
+
+    public String toString() {
+        return getVertex0() + " -> " + getVertex1();
+    }
+}
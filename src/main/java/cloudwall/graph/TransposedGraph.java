@@ -0,0 +1,106 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnull;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.function.Consumer;
+
+/**
+ * Zero-copy view of a graph with edge directions reversed: traversable edges become the underlying graph's in-edges
+ * and vice-versa, while vertex enumeration, lookup and counts pass straight through. Directed edges are reported as
+ * {@link ReversedEdge} wrappers, so {@link Edge#isTraversable(Vertex)} agrees with the view; undirected edges are
+ * passed through as-is. It is as cheap as the underlying {@link Graph#forEachInEdge(Vertex, Consumer)}, so use it
+ * with graphs that index their in-edges.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see Graph#transpose()
+ */
+@ParametersAreNonnullByDefault
+public class TransposedGraph<V extends Vertex> implements Graph<V, Edge<V>> {
+    private final Graph<V, ? extends Edge<V>> graph;
+
+    public TransposedGraph(@Nonnull Graph<V, ? extends Edge<V>> graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public void forEachVertex(Consumer<V> visitor) {
+        graph.forEachVertex(visitor);
+    }
+
+    @Override
+    public void forEachEdge(Consumer<Edge<V>> visitor) {
+        graph.forEachEdge(edge -> visitor.accept(ReversedEdge.reverse(edge)));
+    }
+
+    @Override
+    public void forEachConnectedEdge(V vertex, Consumer<Edge<V>> edges) {
+        graph.forEachConnectedEdge(vertex, edge -> edges.accept(ReversedEdge.reverse(edge)));
+    }
+
+    @Override
+    public void forEachTraversableEdge(V vertex, Consumer<Edge<V>> edges) {
+        graph.forEachInEdge(vertex, edge -> edges.accept(ReversedEdge.reverse(edge)));
+    }
+
+    @Override
+    public void forEachOutEdge(V vertex, Consumer<Edge<V>> edges) {
+        forEachTraversableEdge(vertex, edges);
+    }
+
+    @Override
+    public void forEachInEdge(V vertex, Consumer<Edge<V>> edges) {
+        graph.forEachOutEdge(vertex, edge -> edges.accept(ReversedEdge.reverse(edge)));
+    }
+
+    // the underlying graph only ever hands out its own edge type, so viewing it as a graph of plain edges is safe
+    @Override
+    @SuppressWarnings("unchecked")
+    public Graph<V, Edge<V>> transpose() {
+        return (Graph<V, Edge<V>>) graph;
+    }
+
+    @Override
+    public void visitBreadthFirstFrom(V start, Consumer<V> visitor) {
+        Traversals.breadthFirst(start, this::forEachPredecessor, visitor);
+    }
+
+    @Override
+    public void visitDepthFirstFrom(V start, Consumer<V> visitor) {
+        Traversals.depthFirst(start, this::forEachPredecessor, visitor);
+    }
+
+    @Override
+    public V getVertex(Object vertexId) {
+        return graph.getVertex(vertexId);
+    }
+
+    @Override
+    public long getVertexCount() {
+        return graph.getVertexCount();
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return graph.getEdgeCount();
+    }
+
+    // skips the wrapping, since traversal only needs the vertex at the other end of each in-edge
+    private void forEachPredecessor(V vertex, Consumer<V> predecessors) {
+        graph.forEachInEdge(vertex, edge -> predecessors.accept(edge.getOpposite(vertex)));
+    }
+}
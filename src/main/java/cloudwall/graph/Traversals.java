@@ -0,0 +1,68 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Iterative BFS and DFS over vertex objects, tracking visited vertices in a hash set; shared by the graphs which have
+ * no dense vertex index and so cannot use {@link IndexedTraversal}. Each takes a function which feeds the vertices
+ * reachable in one step from a given vertex to a consumer, in traversal order.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class Traversals {
+    private Traversals() {
+    }
+
+    static <V> void breadthFirst(V start, BiConsumer<V, Consumer<V>> neighbors, Consumer<V> visitor) {
+        // mark on discovery rather than on dequeue so each vertex enters the queue at most once
+        Set<V> visitedVertices = new HashSet<>();
+        ArrayDeque<V> toVisitQueue = new ArrayDeque<>();
+        visitedVertices.add(start);
+        toVisitQueue.add(start);
+        while (!toVisitQueue.isEmpty()) {
+            V current = toVisitQueue.poll();
+            visitor.accept(current);
+            neighbors.accept(current, opposite -> {
+                if (visitedVertices.add(opposite)) {
+                    toVisitQueue.add(opposite);
+                }
+            });
+        }
+    }
+
+    static <V> void depthFirst(V start, BiConsumer<V, Consumer<V>> neighbors, Consumer<V> visitor) {
+        Set<V> visitedVertices = new HashSet<>();
+        ArrayDeque<V> toVisitStack = new ArrayDeque<>();
+        toVisitStack.push(start);
+        while (!toVisitStack.isEmpty()) {
+            V current = toVisitStack.pop();
+            if (visitedVertices.add(current)) {
+                visitor.accept(current);
+                neighbors.accept(current, opposite -> {
+                    if (!visitedVertices.contains(opposite)) {
+                        toVisitStack.push(opposite);
+                    }
+                });
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.util.LongIntHashMap;
+import cloudwall.graph.util.ObjectIntHashMap;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Assigns every distinct {@link Vertex#getVertexId() vertex ID} a dense {@code int} index, starting at zero in the
+ * order vertices are first added. Graph implementations and analysis code can then work on primitive indices and
+ * arrays internally, translating back to {@link Vertex} objects only at API boundaries.
+ *
+ * <p>{@code Long} and {@code Integer} IDs -- the common case for SNAP-style edge lists -- are kept in primitive
+ * open-addressing tables with no boxing on lookup; all other IDs, typically strings from DOT or GML files, go into an
+ * object dictionary. As with {@code HashMap} the two numeric types are kept apart, so {@code 1L} and {@code 1} are
+ * distinct IDs.
+ *
+ * <p>Mutation is not threadsafe, but once fully built an index can be shared by concurrent readers.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public class VertexIndex implements VertexLookup {
+    private final LongIntHashMap longIds;
+    private final LongIntHashMap intIds;
+    private final ObjectIntHashMap<Object> otherIds;
+
+    private Vertex[] vertices;
+    private int size = 0;
+
+    public VertexIndex() {
+        this(16);
+    }
+
+    public VertexIndex(@Nonnegative int expectedSize) {
+        this.longIds = new LongIntHashMap(expectedSize, NOT_FOUND);
+        this.intIds = new LongIntHashMap(NOT_FOUND);
+        this.otherIds = new ObjectIntHashMap<>(NOT_FOUND);
+        this.vertices = new Vertex[Math.max(16, expectedSize)];
+    }
+
+    /**
+     * Adds the vertex if its ID is not already present and returns its index; if the ID is already known the index
+     * of the previously-added vertex is returned instead.
+     */
+    public int add(@Nonnull Vertex vertex) {
+        Object id = vertex.getVertexId();
+        int ndx;
+        if (id instanceof Long) {
+            ndx = longIds.putIfAbsent((Long) id, size);
+        } else if (id instanceof Integer) {
+            ndx = intIds.putIfAbsent((Integer) id, size);
+        } else {
+            ndx = otherIds.putIfAbsent(id, size);
+        }
+
+        if (ndx == NOT_FOUND) {
+            if (size == vertices.length) {
+                vertices = Arrays.copyOf(vertices, vertices.length * 2);
+            }
+            vertices[size] = vertex;
+            ndx = size++;
+        }
+        return ndx;
+    }
+
+    @Override
+    public int indexOf(@Nonnull Object vertexId) {
+        if (vertexId instanceof Long) {
+            return longIds.get((Long) vertexId);
+        } else if (vertexId instanceof Integer) {
+            return intIds.get((Integer) vertexId);
+        } else {
+            return otherIds.get(vertexId);
+        }
+    }
+
+    @Override
+    public int indexOf(long vertexId) {
+        return longIds.get(vertexId);
+    }
+
+    @Nonnull
+    @Override
+    public Vertex getVertex(int index) {
+        if (index >= size) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return vertices[index];
+    }
+
+    @Nullable
+    @Override
+    public Vertex getVertex(@Nonnull Object vertexId) {
+        int ndx = indexOf(vertexId);
+        return ndx == NOT_FOUND ? null : vertices[ndx];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long getMemoryFootprint() {
+        return longIds.getMemoryFootprint() + intIds.getMemoryFootprint() + otherIds.getMemoryFootprint()
+                + 4L * vertices.length;
+    }
+}
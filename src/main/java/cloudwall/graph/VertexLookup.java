@@ -0,0 +1,81 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Read-only side of a {@link VertexIndex}: translates between vertex IDs and the dense {@code int} indices, from zero
+ * to {@link #size()} - 1, which the indexed graph implementations store in their adjacency arrays. Besides the
+ * in-memory {@link VertexIndex} it is implemented by indices served straight out of a mapped file, which can never be
+ * added to.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public interface VertexLookup {
+    /**
+     * Index value returned for IDs which are not in the index.
+     */
+    int NOT_FOUND = -1;
+
+    /**
+     * Gets the index for the given vertex ID, or {@link #NOT_FOUND} if absent.
+     */
+    int indexOf(@Nonnull Object vertexId);
+
+    /**
+     * Gets the index for the given {@code Long} vertex ID without boxing, or {@link #NOT_FOUND} if absent.
+     */
+    int indexOf(long vertexId);
+
+    /**
+     * Gets the index of the given vertex, failing if it is not in the index.
+     *
+     * @throws IllegalArgumentException if the vertex is not in the index
+     */
+    default int requireIndexOf(@Nonnull Vertex vertex) {
+        int ndx = indexOf(vertex.getVertexId());
+        if (ndx == NOT_FOUND) {
+            throw new IllegalArgumentException("vertex is not a member of the graph: " + vertex);
+        }
+        return ndx;
+    }
+
+    /**
+     * Gets the vertex at the given index.
+     *
+     * @throws ArrayIndexOutOfBoundsException if the index is negative or not less than {@link #size()}
+     */
+    @Nonnull
+    Vertex getVertex(int index);
+
+    /**
+     * Looks up the vertex with the given ID, or null if absent.
+     */
+    @Nullable
+    Vertex getVertex(@Nonnull Object vertexId);
+
+    /**
+     * Gets the number of distinct vertices indexed; valid indices are 0 to size - 1.
+     */
+    int size();
+
+    /**
+     * Gets the approximate number of bytes of heap held by the index, not counting the vertices and IDs themselves.
+     */
+    long getMemoryFootprint();
+}
@@ -0,0 +1,90 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Output of a breadth-first search over an {@link cloudwall.graph.IndexedGraph}: the distance in hops from the start
+ * vertex and the BFS tree parent for every vertex index, with -1 for vertices which were not reached. When several
+ * parents are equally close any of them may be recorded, so only the depths are guaranteed to be identical between
+ * different BFS implementations.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@Immutable
+public class BreadthFirstTree {
+    /**
+     * Depth and parent value for unreached vertices, also used as the parent of the start vertex.
+     */
+    public static final int NONE = -1;
+
+    private final int start;
+    private final int[] depths;
+    private final int[] parents;
+    private final int visitedCount;
+
+    public BreadthFirstTree(int start, @Nonnull int[] depths, @Nonnull int[] parents, @Nonnegative int visitedCount) {
+        this.start = start;
+        this.depths = depths;
+        this.parents = parents;
+        this.visitedCount = visitedCount;
+    }
+
+    /**
+     * Gets the index of the vertex the search started from.
+     */
+    public int getStart() {
+        return start;
+    }
+
+    /**
+     * Gets the number of vertices reached, including the start vertex.
+     */
+    public int getVisitedCount() {
+        return visitedCount;
+    }
+
+    public boolean isVisited(int vertexIndex) {
+        return depths[vertexIndex] != NONE;
+    }
+
+    public int getDepth(int vertexIndex) {
+        return depths[vertexIndex];
+    }
+
+    public int getParent(int vertexIndex) {
+        return parents[vertexIndex];
+    }
+
+    /**
+     * Gets a copy of the depth array, indexed by vertex index.
+     */
+    @Nonnull
+    public int[] getDepths() {
+        return depths.clone();
+    }
+
+    /**
+     * Gets a copy of the parent array, indexed by vertex index.
+     */
+    @Nonnull
+    public int[] getParents() {
+        return parents.clone();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.IndexedGraph;
+import cloudwall.graph.Vertex;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Compact connected component assignment for an {@link IndexedGraph}: component labels run from zero to
+ * {@link #getComponentCount()} - 1, numbered in order of each component's lowest vertex index, and every vertex index
+ * maps to one label. Far cheaper than a collection of vertex sets for large graphs; use
+ * {@link #toComponents(IndexedGraph)} to get the same shape as {@link ConnectedComponentCollector} where needed.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@Immutable
+public class ComponentLabels {
+    private final int[] labels;
+    private final int[] sizes;
+
+    public ComponentLabels(@Nonnull int[] labels, @Nonnull int[] sizes) {
+        this.labels = labels;
+        this.sizes = sizes;
+    }
+
+    @Nonnegative
+    public int getComponentCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Gets the component label for the given vertex index.
+     */
+    public int getLabel(int vertexIndex) {
+        return labels[vertexIndex];
+    }
+
+    /**
+     * Gets the number of vertices in the component with the given label.
+     */
+    public int getSize(int label) {
+        return sizes[label];
+    }
+
+    /**
+     * Gets a copy of the label array, indexed by vertex index.
+     */
+    @Nonnull
+    public int[] getLabels() {
+        return labels.clone();
+    }
+
+    /**
+     * Gets a copy of the component size array, indexed by label.
+     */
+    @Nonnull
+    public int[] getSizes() {
+        return sizes.clone();
+    }
+
+    /**
+     * Expands the labels into one {@link ConnectedComponentCollector.Component} per label, with the component
+     * number set to the label.
+     */
+    @Nonnull
+    public <V extends Vertex> Collection<ConnectedComponentCollector.Component> toComponents(
+            @Nonnull IndexedGraph<V, ?> graph) {
+        List<List<V>> members = new ArrayList<>(sizes.length);
+        for (int size : sizes) {
+            members.add(new ArrayList<>(size));
+        }
+        for (int i = 0; i < labels.length; i++) {
+            members.get(labels[i]).add(graph.vertexAt(i));
+        }
+
+        Collection<ConnectedComponentCollector.Component> components = new ArrayList<>(sizes.length);
+        for (int label = 0; label < sizes.length; label++) {
+            components.add(new ConnectedComponentCollector.Component<>(label, members.get(label)));
+        }
+        return components;
+    }
+}
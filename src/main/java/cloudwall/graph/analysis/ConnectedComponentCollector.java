@@ -17,16 +17,22 @@ package cloudwall.graph.analysis;
 
 import cloudwall.graph.Edge;
 import cloudwall.graph.Graph;
+import cloudwall.graph.IndexedGraph;
 import cloudwall.graph.Vertex;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Traverses a graph and determines how many connected components comprise the graph. Each of these gets built as a
  * subgraph if the graph is not fully connected, else you are left just with the original graph as the only component.
+ * For {@link IndexedGraph} implementations the traversal runs over primitive vertex indices with a single visited
+ * array rather than a pair of hash sets.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  */
@@ -55,7 +61,12 @@ public class ConnectedComponentCollector<V extends Vertex, E extends Edge, G ext
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public Collection<Component> apply(G g) {
+        if (g instanceof IndexedGraph) {
+            return applyIndexed((IndexedGraph<V, E>) g);
+        }
+
         Collection<Component> components = new HashSet<>();
         Set<V> visited = new HashSet<>();
         AtomicLong numConnected = new AtomicLong(0L);
@@ -73,4 +84,45 @@ public class ConnectedComponentCollector<V extends Vertex, E extends Edge, G ext
         });
         return components;
     }
+
+    private Collection<Component> applyIndexed(IndexedGraph<V, E> g) {
+        int numVertices = (int) g.getVertexCount();
+        Collection<Component> components = new HashSet<>();
+        boolean[] visited = new boolean[numVertices];
+        int[] stack = new int[Math.max(16, numVertices)];
+        int[] neighbors = new int[16];
+        long numConnected = 0;
+        for (int outer = 0; outer < numVertices; outer++) {
+            if (visited[outer]) {
+                continue;
+            }
+            List<V> vertices = new ArrayList<>();
+            int top = 0;
+            stack[top++] = outer;
+            while (top > 0) {
+                int current = stack[--top];
+                if (visited[current]) {
+                    continue;
+                }
+                visited[current] = true;
+                vertices.add(g.vertexAt(current));
+
+                int degree = g.degree(current);
+                if (neighbors.length < degree) {
+                    neighbors = new int[degree];
+                }
+                if (stack.length < top + degree) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + degree));
+                }
+                int numNeighbors = g.neighborsInto(current, neighbors);
+                for (int i = 0; i < numNeighbors; i++) {
+                    if (!visited[neighbors[i]]) {
+                        stack[top++] = neighbors[i];
+                    }
+                }
+            }
+            components.add(new Component<>(numConnected++, vertices));
+        }
+        return components;
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.Edge;
+import cloudwall.graph.IndexedGraph;
+import cloudwall.graph.Vertex;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Direction-optimizing BFS after Beamer, Asanovic &amp; Patterson: it expands small frontiers top-down, scanning the
+ * out-neighbors of every frontier vertex, but once the frontier's edges outnumber a fraction of the edges left to
+ * explore it flips to bottom-up, where every unvisited vertex looks for any in-neighbor in the frontier and stops at
+ * the first one found. On low-diameter graphs, where one or two middle levels hold most of the vertices, this skips
+ * the bulk of the edge checks a plain top-down BFS would make.
+ *
+ * <p>The switching thresholds are the paper's defaults: go bottom-up when the frontier's out-degree sum exceeds the
+ * unexplored edges divided by {@link #setAlpha(int) alpha}, and return to top-down once the frontier shrinks below
+ * the vertex count divided by {@link #setBeta(int) beta}. The depths produced are identical to
+ * {@link cloudwall.graph.Graph#visitBreadthFirstFrom}; parents may differ where a vertex has several candidates.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="https://parlab.eecs.berkeley.edu/sites/all/parlab/files/main.pdf">Direction-Optimizing Breadth-First Search</a>
+ */
+public class DirectionOptimizingBreadthFirstSearch<V extends Vertex, E extends Edge, G extends IndexedGraph<V, E>>
+        implements GraphFunctor<V, E, G, BreadthFirstTree> {
+    private final V start;
+    private int alpha = 14;
+    private int beta = 24;
+
+    // per-run state, kept in fields so the step callbacks below can be allocated once up front
+    private G graph;
+    private int[] depths;
+    private int[] parents;
+    private long[] frontierBits;
+    private long[] nextBits;
+    private int[] next;
+    private int nextSize;
+    private long nextEdges;
+    private int nextDepth;
+    private int current;
+
+    private final IntConsumer discoverTopDown = this::discoverTopDown;
+    private final IntPredicate inFrontier = this::inFrontier;
+
+    public DirectionOptimizingBreadthFirstSearch(@Nonnull V start) {
+        this.start = start;
+    }
+
+    /**
+     * Sets the divisor of the unexplored edge count above which the search switches to bottom-up; default 14.
+     */
+    public void setAlpha(int alpha) {
+        this.alpha = alpha;
+    }
+
+    /**
+     * Sets the divisor of the vertex count below which a bottom-up search switches back to top-down; default 24.
+     */
+    public void setBeta(int beta) {
+        this.beta = beta;
+    }
+
+    @Override
+    public BreadthFirstTree apply(G g) {
+        int numVertices = (int) g.getVertexCount();
+        int startNdx = g.indexOf(start);
+
+        graph = g;
+        depths = new int[numVertices];
+        parents = new int[numVertices];
+        Arrays.fill(depths, BreadthFirstTree.NONE);
+        Arrays.fill(parents, BreadthFirstTree.NONE);
+        int words = (numVertices + 63) >>> 6;
+        frontierBits = new long[words];
+        nextBits = new long[words];
+
+        long unexploredEdges = 0;
+        for (int i = 0; i < numVertices; i++) {
+            unexploredEdges += g.degree(i);
+        }
+
+        int[] frontier = new int[numVertices];
+        next = new int[numVertices];
+        int frontierSize = 1;
+        frontier[0] = startNdx;
+        depths[startNdx] = 0;
+        unexploredEdges -= g.degree(startNdx);
+        int visitedCount = 1;
+
+        int depth = 0;
+        boolean bottomUp = false;
+        long frontierEdges = g.degree(startNdx);
+        while (frontierSize > 0) {
+            if (!bottomUp && frontierEdges > unexploredEdges / alpha) {
+                bottomUp = true;
+                toBitset(frontier, frontierSize, frontierBits);
+            } else if (bottomUp && frontierSize < numVertices / beta) {
+                bottomUp = false;
+                frontierSize = fromBitset(frontierBits, frontier);
+            }
+
+            nextSize = 0;
+            nextEdges = 0;
+            nextDepth = depth + 1;
+            if (bottomUp) {
+                Arrays.fill(nextBits, 0L);
+                for (int v = 0; v < numVertices; v++) {
+                    if (depths[v] == BreadthFirstTree.NONE) {
+                        int parent = g.findInNeighbor(v, inFrontier);
+                        if (parent != -1) {
+                            depths[v] = nextDepth;
+                            parents[v] = parent;
+                            nextBits[v >>> 6] |= 1L << v;
+                            nextSize++;
+                            nextEdges += g.degree(v);
+                        }
+                    }
+                }
+                long[] swap = frontierBits;
+                frontierBits = nextBits;
+                nextBits = swap;
+            } else {
+                for (int i = 0; i < frontierSize; i++) {
+                    current = frontier[i];
+                    g.forEachNeighbor(current, discoverTopDown);
+                }
+                int[] swap = frontier;
+                frontier = next;
+                next = swap;
+            }
+
+            visitedCount += nextSize;
+            unexploredEdges -= nextEdges;
+            frontierEdges = nextEdges;
+            frontierSize = nextSize;
+            depth = nextDepth;
+        }
+
+        BreadthFirstTree tree = new BreadthFirstTree(startNdx, depths, parents, visitedCount);
+        graph = null;
+        depths = null;
+        parents = null;
+        frontierBits = null;
+        nextBits = null;
+        next = null;
+        return tree;
+    }
+
+    private void discoverTopDown(int v) {
+        if (depths[v] == BreadthFirstTree.NONE) {
+            depths[v] = nextDepth;
+            parents[v] = current;
+            next[nextSize++] = v;
+            nextEdges += graph.degree(v);
+        }
+    }
+
+    private boolean inFrontier(int vertexIndex) {
+        return (frontierBits[vertexIndex >>> 6] & (1L << vertexIndex)) != 0;
+    }
+
+    private static void toBitset(int[] vertices, int count, long[] bits) {
+        Arrays.fill(bits, 0L);
+        for (int i = 0; i < count; i++) {
+            int v = vertices[i];
+            bits[v >>> 6] |= 1L << v;
+        }
+    }
+
+    private static int fromBitset(long[] bits, int[] vertices) {
+        int count = 0;
+        for (int word = 0; word < bits.length; word++) {
+            long w = bits[word];
+            while (w != 0) {
+                vertices[count++] = (word << 6) + Long.numberOfTrailingZeros(w);
+                w &= w - 1;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.Edge;
+import cloudwall.graph.IndexedGraph;
+import cloudwall.graph.Vertex;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Level-synchronous parallel BFS: each frontier is split into ranges which are expanded concurrently on a
+ * {@link ForkJoinPool}, with vertices claimed through a compare-and-set on a shared visited bitset so that exactly one
+ * task records each vertex's depth and parent. Workers buffer newly discovered vertices locally and copy them into
+ * the next frontier in blocks, so the only shared writes per vertex are the single CAS and the depth/parent slots it
+ * guards.
+ *
+ * <p>The depths produced are identical to a sequential BFS; parents may differ where a vertex has several candidates
+ * at the same level, since whichever task claims it first wins. The graph must be safe for concurrent reads, which
+ * holds for the read-only implementations such as {@link cloudwall.graph.CsrGraph}.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class ParallelBreadthFirstSearch<V extends Vertex, E extends Edge, G extends IndexedGraph<V, E>>
+        implements GraphFunctor<V, E, G, BreadthFirstTree> {
+    private static final int DEFAULT_GRAIN_SIZE = 256;
+
+    private final V start;
+    private final int parallelism;
+    private int grainSize = DEFAULT_GRAIN_SIZE;
+
+    public ParallelBreadthFirstSearch(@Nonnull V start) {
+        this(start, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelBreadthFirstSearch(@Nonnull V start, @Nonnegative int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.start = start;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of frontier vertices below which a range is expanded by a single task; default 256.
+     */
+    public void setGrainSize(@Nonnegative int grainSize) {
+        this.grainSize = Math.max(1, grainSize);
+    }
+
+    @Override
+    public BreadthFirstTree apply(G g) {
+        int numVertices = (int) g.getVertexCount();
+        int startNdx = g.indexOf(start);
+
+        Level level = new Level(g, numVertices);
+        level.claim(startNdx);
+        level.depths[startNdx] = 0;
+        level.frontier[0] = startNdx;
+        int frontierSize = 1;
+        int visitedCount = 1;
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int depth = 0;
+            while (frontierSize > 0) {
+                level.nextDepth = depth + 1;
+                level.nextSize.set(0);
+                pool.invoke(new ExpandTask(level, 0, frontierSize));
+
+                frontierSize = level.nextSize.get();
+                visitedCount += frontierSize;
+                int[] swap = level.frontier;
+                level.frontier = level.next;
+                level.next = swap;
+                depth++;
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return new BreadthFirstTree(startNdx, level.depths, level.parents, visitedCount);
+    }
+
+    /**
+     * State shared by all tasks expanding one level; the frontier arrays are swapped between levels.
+     */
+    private static class Level {
+        final IndexedGraph<?, ?> graph;
+        final AtomicLongArray visited;
+        final int[] depths;
+        final int[] parents;
+        final AtomicInteger nextSize = new AtomicInteger();
+        int[] frontier;
+        int[] next;
+        int nextDepth;
+
+        Level(IndexedGraph<?, ?> graph, int numVertices) {
+            this.graph = graph;
+            this.visited = new AtomicLongArray((numVertices + 63) >>> 6);
+            this.depths = new int[numVertices];
+            this.parents = new int[numVertices];
+            this.frontier = new int[numVertices];
+            this.next = new int[numVertices];
+            Arrays.fill(depths, BreadthFirstTree.NONE);
+            Arrays.fill(parents, BreadthFirstTree.NONE);
+        }
+
+        boolean claim(int vertexIndex) {
+            int word = vertexIndex >>> 6;
+            long bit = 1L << vertexIndex;
+            long current;
+            do {
+                current = visited.get(word);
+                if ((current & bit) != 0) {
+                    return false;
+                }
+            } while (!visited.compareAndSet(word, current, current | bit));
+            return true;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class ExpandTask extends RecursiveAction {
+        private final Level level;
+        private final int from;
+        private final int to;
+
+        ExpandTask(Level level, int from, int to) {
+            this.level = level;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grainSize) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ExpandTask(level, from, mid), new ExpandTask(level, mid, to));
+            } else {
+                Discoverer discoverer = new Discoverer(level);
+                for (int i = from; i < to; i++) {
+                    discoverer.parent = level.frontier[i];
+                    level.graph.forEachNeighbor(discoverer.parent, discoverer);
+                }
+                discoverer.flush();
+            }
+        }
+    }
+
+    /**
+     * Per-task neighbor callback which claims unvisited vertices and batches them before publishing to the shared
+     * next frontier.
+     */
+    private static class Discoverer implements IntConsumer {
+        private static final int BATCH_SIZE = 512;
+
+        private final Level level;
+        private final int[] batch = new int[BATCH_SIZE];
+        private int batchSize = 0;
+        int parent;
+
+        Discoverer(Level level) {
+            this.level = level;
+        }
+
+        @Override
+        public void accept(int neighbor) {
+            if (level.claim(neighbor)) {
+                level.depths[neighbor] = level.nextDepth;
+                level.parents[neighbor] = parent;
+                batch[batchSize++] = neighbor;
+                if (batchSize == BATCH_SIZE) {
+                    flush();
+                }
+            }
+        }
+
+        void flush() {
+            if (batchSize > 0) {
+                int offset = level.nextSize.getAndAdd(batchSize);
+                System.arraycopy(batch, 0, level.next, offset, batchSize);
+                batchSize = 0;
+            }
+        }
+    }
+}
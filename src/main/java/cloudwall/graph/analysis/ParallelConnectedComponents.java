@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.Edge;
+import cloudwall.graph.IndexedGraph;
+import cloudwall.graph.Vertex;
+
+import javax.annotation.Nonnegative;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Computes weakly connected components in parallel with a lock-free union-find. The vertex index range is split into
+ * chunks on a {@link ForkJoinPool}, and each task unions every vertex with its neighbors in a shared
+ * {@code int} parent array. Roots are linked with a compare-and-set, always pointing the higher index at the lower one
+ * (union by index), and finds compress paths by halving, also via compare-and-set, so no locks are taken.
+ *
+ * <p>Edge direction is ignored, so unlike {@link ConnectedComponentCollector} the result for a directed graph doesn't
+ * depend on iteration order. Memory is one {@code int} per vertex for the union-find plus the output labels. The graph
+ * must be safe for concurrent reads.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class ParallelConnectedComponents<V extends Vertex, E extends Edge, G extends IndexedGraph<V, E>>
+        implements GraphFunctor<V, E, G, ComponentLabels> {
+    private static final int DEFAULT_GRAIN_SIZE = 4096;
+
+    private final int parallelism;
+    private int grainSize = DEFAULT_GRAIN_SIZE;
+
+    public ParallelConnectedComponents() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelConnectedComponents(@Nonnegative int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the number of vertices below which a range is processed by a single task; default 4096.
+     */
+    public void setGrainSize(@Nonnegative int grainSize) {
+        this.grainSize = Math.max(1, grainSize);
+    }
+
+    @Override
+    public ComponentLabels apply(G g) {
+        int numVertices = (int) g.getVertexCount();
+        AtomicIntegerArray parents = new AtomicIntegerArray(numVertices);
+        for (int i = 0; i < numVertices; i++) {
+            parents.lazySet(i, i);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new UnionTask(g, parents, 0, numVertices));
+        } finally {
+            pool.shutdown();
+        }
+
+        // roots are always the lowest index in their component, so a single ascending pass assigns compact labels
+        int[] labels = new int[numVertices];
+        int numComponents = 0;
+        for (int i = 0; i < numVertices; i++) {
+            int root = find(parents, i);
+            labels[i] = (root == i) ? numComponents++ : labels[root];
+        }
+        int[] sizes = new int[numComponents];
+        for (int label : labels) {
+            sizes[label]++;
+        }
+        return new ComponentLabels(labels, sizes);
+    }
+
+    static int find(AtomicIntegerArray parents, int x) {
+        while (true) {
+            int parent = parents.get(x);
+            if (parent == x) {
+                return x;
+            }
+            int grandparent = parents.get(parent);
+            if (parent != grandparent) {
+                // path halving; losing this race is harmless since any ancestor is still a valid parent
+                parents.compareAndSet(x, parent, grandparent);
+            }
+            x = grandparent;
+        }
+    }
+
+    static void union(AtomicIntegerArray parents, int a, int b) {
+        while (true) {
+            int rootA = find(parents, a);
+            int rootB = find(parents, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            if (parents.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class UnionTask extends RecursiveAction {
+        private final G graph;
+        private final AtomicIntegerArray parents;
+        private final int from;
+        private final int to;
+
+        UnionTask(G graph, AtomicIntegerArray parents, int from, int to) {
+            this.graph = graph;
+            this.parents = parents;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > grainSize) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new UnionTask(graph, parents, from, mid), new UnionTask(graph, parents, mid, to));
+            } else {
+                Unioner unioner = new Unioner(parents);
+                for (int i = from; i < to; i++) {
+                    unioner.vertex = i;
+                    graph.forEachNeighbor(i, unioner);
+                }
+            }
+        }
+    }
+
+    private static class Unioner implements IntConsumer {
+        private final AtomicIntegerArray parents;
+        int vertex;
+
+        Unioner(AtomicIntegerArray parents) {
+            this.parents = parents;
+        }
+
+        @Override
+        public void accept(int neighbor) {
+            union(parents, vertex, neighbor);
+        }
+    }
+}
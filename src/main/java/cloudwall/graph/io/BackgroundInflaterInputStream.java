@@ -0,0 +1,192 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Input stream which runs a decompressing stream on a background thread, so inflating the next blocks overlaps with
+ * the caller parsing the current one. The thread reads large chunks into a small ring of reusable buffers; any error
+ * it hits is rethrown to the reader once the chunks before it have been consumed. Closing the stream stops the thread
+ * and closes the source.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class BackgroundInflaterInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 1 << 18;
+    private static final int NUM_CHUNKS = 4;
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(NUM_CHUNKS);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(NUM_CHUNKS);
+    private final Thread inflater;
+    private volatile boolean closed = false;
+
+    private Chunk current;
+    private int position = 0;
+    private boolean endOfStream = false;
+
+    BackgroundInflaterInputStream(@Nonnull InputStream source) {
+        this.source = source;
+        for (int i = 0; i < NUM_CHUNKS; i++) {
+            free.add(new Chunk());
+        }
+        this.inflater = new Thread(this::inflate, "graph-inflater");
+        this.inflater.setDaemon(true);
+        this.inflater.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureChunk()) {
+            return -1;
+        }
+        return current.bytes[position++] & 0xff;
+    }
+
+    @Override
+    public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureChunk()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.bytes, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        inflater.interrupt();
+        try {
+            // the inflater may be part way through a read, so let it finish before closing the source under it
+            inflater.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            source.close();
+        }
+    }
+
+    // moves on to the next filled chunk once the current one is used up; returns false at the end of the stream
+    private boolean ensureChunk() throws IOException {
+        if (closed) {
+            throw new IOException("stream closed");
+        }
+        if (endOfStream) {
+            return false;
+        }
+        while (current == null || position == current.length) {
+            if (current != null) {
+                free.add(current);
+                current = null;
+            }
+            Chunk next;
+            try {
+                next = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while waiting for decompressed data");
+            }
+            if (next.error instanceof IOException) {
+                // keep the type, e.g. ZipException for corrupt data or EOFException for truncated input
+                throw (IOException) next.error;
+            } else if (next.error instanceof Error) {
+                throw (Error) next.error;
+            } else if (next.error != null) {
+                throw new IOException(next.error.getMessage(), next.error);
+            }
+            if (next == Chunk.END) {
+                endOfStream = true;
+                return false;
+            }
+            current = next;
+            position = 0;
+        }
+        return true;
+    }
+
+    private void inflate() {
+        try {
+            while (!closed) {
+                Chunk chunk = free.take();
+                chunk.length = 0;
+                int count = 0;
+                while (chunk.length < chunk.bytes.length
+                        && (count = source.read(chunk.bytes, chunk.length, chunk.bytes.length - chunk.length)) >= 0) {
+                    chunk.length += count;
+                }
+                if (chunk.length > 0) {
+                    filled.put(chunk);
+                }
+                if (count < 0) {
+                    filled.put(Chunk.END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed by the reader
+        } catch (Throwable e) {
+            // anything else, including runtime exceptions from the decompressor, has to reach the reader or it would
+            // wait on the queue forever
+            if (!closed) {
+                Chunk failed = new Chunk(e);
+                try {
+                    filled.put(failed);
+                } catch (InterruptedException e2) {
+                    // closed by the reader
+                }
+            }
+        }
+    }
+
+    private static class Chunk {
+        static final Chunk END = new Chunk(null);
+
+        final byte[] bytes;
+        final Throwable error;
+        int length;
+
+        Chunk() {
+            this.bytes = new byte[CHUNK_SIZE];
+            this.error = null;
+        }
+
+        Chunk(Throwable error) {
+            this.bytes = null;
+            this.error = error;
+        }
+    }
+}
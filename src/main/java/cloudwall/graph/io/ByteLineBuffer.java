@@ -0,0 +1,226 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Large byte buffer over raw input which hands it out a line at a time, shared by the byte-level scanners for the
+ * line-oriented formats. Positions passed to and returned from the scanning methods index the buffer and are only
+ * good until the next call to {@link #nextLine()}. It is public only because the scanners live in the per-format
+ * packages; it is not meant for use outside of this library.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public final class ByteLineBuffer {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+    private int lineNumber = 0;
+
+    // input offset of buffer[0]
+    private long bufferOffset = 0;
+
+    // bounds of the current line
+    private int lineStart = 0;
+    private int lineEnd = 0;
+
+    public ByteLineBuffer(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ByteLineBuffer(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next line, blank or not, and returns false once the input is exhausted.
+     */
+    public boolean nextLine() throws IOException {
+        int end = findLineEnd();
+        if (end < 0) {
+            return false;
+        }
+        lineStart = position;
+        lineEnd = end;
+        position = end + 1;
+        lineNumber++;
+        return true;
+    }
+
+    /**
+     * Gets the position of the first byte of the current line.
+     */
+    public int getLineStart() {
+        return lineStart;
+    }
+
+    /**
+     * Gets the position just past the last byte of the current line, excluding the newline.
+     */
+    public int getLineEnd() {
+        return lineEnd;
+    }
+
+    /**
+     * Gets the number of lines read so far, which is also the number of the current line.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the offset into the input of the start of the next line.
+     */
+    public long getOffset() {
+        return bufferOffset + position;
+    }
+
+    public byte byteAt(int index) {
+        return buffer[index];
+    }
+
+    /**
+     * Gets the position of the first non-whitespace byte at or after the given one, or the line end if none.
+     */
+    public int skipWhitespace(int from) {
+        while (from < lineEnd && isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Gets the position of the first whitespace byte at or after the given one, or the line end if none.
+     */
+    public int skipToken(int from) {
+        while (from < lineEnd && !isWhitespace(buffer[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * Gets the position just past the last non-whitespace byte of the current line, or the line start if none.
+     */
+    public int trimEnd() {
+        int end = lineEnd;
+        while (end > lineStart && isWhitespace(buffer[end - 1])) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Parses the bytes in the given range as a decimal {@code long} by the same rules as {@link Long#parseLong}, but
+     * straight from the buffer.
+     *
+     * @throws NumberFormatException if the range is not a valid {@code long}
+     */
+    public long parseLong(int start, int end) {
+        boolean negative = false;
+        int i = start;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException();
+        }
+        // accumulate negatively so Long.MIN_VALUE does not overflow
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException();
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException();
+            }
+            return -result;
+        }
+        return result;
+    }
+
+    /**
+     * Decodes the bytes in the given range as UTF-8.
+     */
+    public String text(int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the current line as text, trimmed.
+     */
+    public String getLine() {
+        return text(lineStart, lineEnd).trim();
+    }
+
+    // bytes are signed, so this excludes the lead and continuation bytes of multi-byte UTF-8 characters
+    public static boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    // returns the position of the newline ending the next line, or of the end of input for an unterminated last
+    // line; -1 if there are no more lines
+    private int findLineEnd() throws IOException {
+        int scan = position;
+        while (true) {
+            for (; scan < limit; scan++) {
+                if (buffer[scan] == '\n') {
+                    return scan;
+                }
+            }
+            if (endOfInput) {
+                return position < limit ? limit : -1;
+            }
+            scan -= position;
+            fill();
+        }
+    }
+
+    // moves the partial line to the front of the buffer, growing it if the line fills it, then reads more input
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        bufferOffset += position;
+        position = 0;
+        limit = remaining;
+        int count = in.read(buffer, limit, buffer.length - limit);
+        if (count < 0) {
+            endOfInput = true;
+        } else {
+            limit += count;
+        }
+    }
+}
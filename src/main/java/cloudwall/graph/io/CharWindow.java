@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Fixed-size window over a character stream with a few characters of lookahead, shared by the hand-written lexers
+ * for the text formats. It is public only because the lexers live in the per-format packages; it is not meant for
+ * use outside of this library.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public final class CharWindow {
+    public static final int EOF = -1;
+
+    private static final int DEFAULT_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean endOfInput = false;
+
+    public CharWindow(Reader in) {
+        this(in, DEFAULT_SIZE);
+    }
+
+    public CharWindow(Reader in, int size) {
+        this.in = in;
+        this.buffer = new char[size];
+    }
+
+    /**
+     * Gets the character the given distance ahead of the current one, or {@link #EOF} if the input ends first.
+     */
+    public int peek(int offset) throws IOException {
+        if (position + offset >= limit && !fill(offset + 1)) {
+            return EOF;
+        }
+        return buffer[position + offset];
+    }
+
+    /**
+     * Moves past the current character, which must have been peeked.
+     */
+    public void advance() {
+        position++;
+    }
+
+    /**
+     * Moves past the given number of characters, which must have been peeked.
+     */
+    public void advance(int count) {
+        position += count;
+    }
+
+    // compacts the window and reads until at least the given number of characters is available past the position
+    private boolean fill(int needed) throws IOException {
+        if (endOfInput) {
+            return limit - position >= needed;
+        }
+        int remaining = limit - position;
+        System.arraycopy(buffer, position, buffer, 0, remaining);
+        position = 0;
+        limit = remaining;
+        while (limit < needed) {
+            int count = in.read(buffer, limit, buffer.length - limit);
+            if (count < 0) {
+                endOfInput = true;
+                break;
+            }
+            limit += count;
+        }
+        return limit >= needed;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.activation.DataSource;
+import javax.activation.FileTypeMap;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Wrapper which decompresses a data source on read and compresses it on write, so a {@link GraphFormat} sees the
+ * plain text. Decompression runs on a background thread with large buffers, overlapping with parsing. The name and
+ * content type are those of the uncompressed data, e.g. {@code email-Eu-core.txt} and {@code text/plain} for a file
+ * named {@code email-Eu-core.txt.gz}.
+ *
+ * <p>The edge list, TGF, GML, Tulip and DOT formats apply {@link #wrap(DataSource)} themselves, so any data source
+ * whose name or content type indicates compression is handled transparently. To write at a level other than the
+ * default, wrap the data source explicitly:
+ *
+ * <pre>
+ * format.write(new CompressedDataSource(new FileDataSource(file), Compression.GZIP, Deflater.BEST_SPEED), model);
+ * </pre>
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class CompressedDataSource implements DataSource {
+    private final DataSource delegate;
+    private final Compression compression;
+    private final int level;
+
+    public CompressedDataSource(@Nonnull DataSource delegate, @Nonnull Compression compression) {
+        this(delegate, compression, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level compression level for writing, from {@link Deflater#BEST_SPEED} to
+     *              {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public CompressedDataSource(@Nonnull DataSource delegate, @Nonnull Compression compression, int level) {
+        boolean inRange = level >= Deflater.BEST_SPEED && level <= Deflater.BEST_COMPRESSION;
+        if (!inRange && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("invalid compression level: " + level);
+        }
+        this.delegate = delegate;
+        this.compression = compression;
+        this.level = level;
+    }
+
+    /**
+     * Wraps the data source if {@link Compression#detect(DataSource)} finds it to be compressed, and otherwise
+     * returns it as it is; data sources which are already wrapped are also returned as they are.
+     */
+    public static DataSource wrap(@Nonnull DataSource dataSource) {
+        if (dataSource instanceof CompressedDataSource) {
+            return dataSource;
+        }
+        Compression compression = Compression.detect(dataSource);
+        return compression == Compression.NONE ? dataSource : new CompressedDataSource(dataSource, compression);
+    }
+
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        InputStream in = delegate.getInputStream();
+        if (compression == Compression.NONE) {
+            return in;
+        }
+        try {
+            return new BackgroundInflaterInputStream(compression.decompress(in));
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        OutputStream out = delegate.getOutputStream();
+        try {
+            return compression.compress(out, level);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public String getName() {
+        String name = delegate.getName();
+        return name == null ? null : compression.stripExtension(name);
+    }
+
+    /**
+     * Gets the content type of the uncompressed data: the delegate's own content type unless that just says the data
+     * is compressed, in which case it is looked up from the name without the compression extension.
+     */
+    @Override
+    public String getContentType() {
+        String contentType = delegate.getContentType();
+        if (contentType != null && Compression.fromContentType(contentType) == Compression.NONE
+                && !contentType.startsWith("application/octet-stream")) {
+            return contentType;
+        }
+        String name = getName();
+        return name == null ? "application/octet-stream" : FileTypeMap.getDefaultFileTypeMap().getContentType(name);
+    }
+}
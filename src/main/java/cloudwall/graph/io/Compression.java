@@ -0,0 +1,155 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.activation.DataSource;
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression schemes which graph files may be stored in, recognized from a {@link DataSource}'s name or content
+ * type. {@link #DEFLATE} is the zlib-wrapped stream used by the HTTP {@code deflate} content encoding.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see CompressedDataSource
+ */
+public enum Compression {
+    NONE(new String[0], new String[0]),
+    GZIP(new String[] { ".gz", ".gzip" }, new String[] { "application/gzip", "application/x-gzip" }),
+    DEFLATE(new String[] { ".deflate", ".zz" }, new String[] { "application/zlib", "application/x-deflate" });
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final String[] extensions;
+    private final String[] contentTypes;
+
+    Compression(String[] extensions, String[] contentTypes) {
+        this.extensions = extensions;
+        this.contentTypes = contentTypes;
+    }
+
+    /**
+     * Works out the compression of a data source from its content type, or failing that the extension on its name;
+     * anything unrecognized is taken to be uncompressed.
+     */
+    public static Compression detect(@Nonnull DataSource dataSource) {
+        Compression compression = fromContentType(dataSource.getContentType());
+        if (compression != NONE) {
+            return compression;
+        }
+        String name = dataSource.getName();
+        return name == null ? NONE : fromName(name);
+    }
+
+    static Compression fromContentType(String contentType) {
+        if (contentType != null) {
+            String baseType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+            for (Compression compression : values()) {
+                for (String compressedType : compression.contentTypes) {
+                    if (compressedType.equals(baseType)) {
+                        return compression;
+                    }
+                }
+            }
+        }
+        return NONE;
+    }
+
+    static Compression fromName(@Nonnull String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (Compression compression : values()) {
+            for (String extension : compression.extensions) {
+                if (lowerCaseName.endsWith(extension)) {
+                    return compression;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Strips this scheme's extension, if present, from a file name, e.g. {@code email-Eu-core.txt.gz} becomes
+     * {@code email-Eu-core.txt}.
+     */
+    public String stripExtension(@Nonnull String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (String extension : extensions) {
+            if (lowerCaseName.endsWith(extension)) {
+                return name.substring(0, name.length() - extension.length());
+            }
+        }
+        return name;
+    }
+
+    InputStream decompress(@Nonnull InputStream in) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE:
+                return new InflaterInputStream(in, new Inflater(), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            inf.end();
+                        }
+                    }
+                };
+            default:
+                return in;
+        }
+    }
+
+    /**
+     * Wraps the output in a compressing stream at the given level, from {@link Deflater#BEST_SPEED} to
+     * {@link Deflater#BEST_COMPRESSION}, or {@link Deflater#DEFAULT_COMPRESSION}. Small writes are buffered ahead of
+     * the compressor, which works best in large blocks.
+     */
+    OutputStream compress(@Nonnull OutputStream out, int level) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(out, BUFFER_SIZE) {
+                    {
+                        def.setLevel(level);
+                    }
+                }, BUFFER_SIZE);
+            case DEFLATE:
+                return new BufferedOutputStream(new DeflaterOutputStream(out, new Deflater(level), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        try {
+                            super.close();
+                        } finally {
+                            def.end();
+                        }
+                    }
+                }, BUFFER_SIZE);
+            default:
+                return out;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes the registered text and binary formats from the first few KB of a file, returning the content type
+ * that the format is registered under. Only the signatures are checked, not the full syntax, so a file which is
+ * detected may still fail to parse.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class FormatSniffer {
+    static final int SNIFF_SIZE = 4096;
+
+    // the UTF-8 byte order mark as it comes out of the single-byte decoding below
+    private static final String UTF8_BOM = "\u00ef\u00bb\u00bf";
+
+    private static final byte[] SNAPSHOT_SIGNATURE = "CWGRAPH\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MATRIX_MARKET_SIGNATURE = "%%MatrixMarket".getBytes(StandardCharsets.US_ASCII);
+
+    // leading whitespace and comments are skipped; Tulip comments run from ';' to the end of the line, and older
+    // files have no (tlp "version") header so start straight in on the nodes
+    private static final Pattern TULIP = Pattern.compile("\\A(?:\\s|;[^\\n]*)*\\(\\s*(?:tlp|nodes)\\b");
+
+    // DOT keywords are case-insensitive, and files may open with C and C++ style comments or preprocessor output
+    private static final Pattern DOT = Pattern.compile(
+            "\\A(?:\\s|//[^\\n]*|/\\*.*?\\*/|#[^\\n]*)*(?:strict\\s+)?(?:di)?graph\\b[^{\\[;]*\\{",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    // GML allows other top-level keys like Creator or Version before the graph itself
+    private static final Pattern GML = Pattern.compile("(?:\\A|\\s)graph\\s*\\[");
+
+    // METIS headers are the vertex and edge counts, optionally followed by the fmt flags and number of vertex weights
+    private static final Pattern METIS_HEADER = Pattern.compile("\\s*\\d+\\s+\\d+(?:\\s+[01]{1,3}(?:\\s+\\d+)?)?\\s*");
+    private static final Pattern METIS_LINE = Pattern.compile("[\\d\\s]*");
+
+    private static final Pattern NODE_LINE = Pattern.compile("\\s*-?\\d+(?:\\s.*)?");
+    private static final Pattern EDGE_LINE = Pattern.compile("\\s*-?\\d+\\s+-?\\d+(?:\\s.*)?");
+
+    private FormatSniffer() { }
+
+    /**
+     * Gets the content type for the format that the data starts with, or null if it matches none of them.
+     *
+     * @param head     the first bytes of the data, decompressed if necessary
+     * @param length   number of valid bytes in {@code head}
+     * @param complete true if {@code head} holds the whole of the data rather than just its start
+     */
+    @Nullable
+    static String sniff(byte[] head, int length, boolean complete) {
+        if (startsWith(head, length, SNAPSHOT_SIGNATURE)) {
+            return "application/x-cloudwall-graph-snapshot";
+        }
+        if (startsWith(head, length, MATRIX_MARKET_SIGNATURE)) {
+            return "application/x-matrix-market";
+        }
+
+        // every format here is ASCII apart from labels, so a single-byte decoding is enough to match on
+        String text = new String(head, 0, length, StandardCharsets.ISO_8859_1);
+        if (text.startsWith(UTF8_BOM)) {
+            text = text.substring(UTF8_BOM.length());
+        }
+        if (TULIP.matcher(text).lookingAt()) {
+            return "application/x-tulip-tlp";
+        }
+        if (DOT.matcher(text).lookingAt()) {
+            return "text/vnd.graphviz";
+        }
+        if (GML.matcher(text).find()) {
+            return "application/x-graphlet";
+        }
+
+        String[] lines = text.split("\r?\n", -1);
+
+        // the last line is cut off unless the data ended within the window, in which case it is empty if the data
+        // ended with a newline
+        int numLines = !complete || lines[lines.length - 1].isEmpty() ? lines.length - 1 : lines.length;
+        if (isMetis(lines, numLines, complete)) {
+            return "application/x-metis-graph";
+        }
+        return sniffLines(lines, numLines);
+    }
+
+    // METIS files have a '%' comment or exactly one line per vertex after the header; without comments, and unless
+    // the whole file fits in the window, they cannot be told apart from an edge list with a header line
+    private static boolean isMetis(String[] lines, int numLines, boolean complete) {
+        boolean commented = false;
+        int i = 0;
+        for (; i < numLines && (lines[i].trim().isEmpty() || lines[i].trim().startsWith("%")); i++) {
+            commented |= !lines[i].trim().isEmpty();
+        }
+        if (i == numLines || !METIS_HEADER.matcher(lines[i]).matches()) {
+            return false;
+        }
+        String numVertices = lines[i].trim().split("\\s+")[0];
+        long numVertexLines = 0;
+        for (i++; i < numLines; i++) {
+            if (lines[i].trim().startsWith("%")) {
+                continue;
+            }
+            if (!METIS_LINE.matcher(lines[i]).matches()) {
+                return false;
+            }
+            numVertexLines++;
+        }
+        return commented || (complete && String.valueOf(numVertexLines).equals(numVertices));
+    }
+
+    // TGF is a node list, a line with a lone '#' and then an edge list; SNAP edge lists have '#' comment lines
+    @Nullable
+    private static String sniffLines(String[] lines, int numLines) {
+        boolean inNodes = true;
+        boolean separated = false;
+        int numEdges = 0;
+        for (int i = 0; i < numLines; i++) {
+            String line = lines[i].trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals("#") && inNodes) {
+                inNodes = false;
+                separated = true;
+            } else if (line.startsWith("#")) {
+                if (separated) {
+                    return null;
+                }
+                inNodes = false;
+            } else if (EDGE_LINE.matcher(line).matches()) {
+                numEdges++;
+            } else if (!(inNodes && NODE_LINE.matcher(line).matches())) {
+                return null;
+            }
+        }
+        if (separated) {
+            return "chemical/x-mdl-tgf";
+        }
+        return numEdges > 0 ? "text/plain" : null;
+    }
+
+    private static boolean startsWith(byte[] head, int length, byte[] signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if (head[i] != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -16,10 +16,17 @@
 package cloudwall.graph.io;
 
 import cloudwall.graph.GraphModel;
+import cloudwall.graph.GraphVisitor;
 
 import javax.activation.DataSource;
 import javax.activation.MimeType;
+import javax.annotation.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.function.Consumer;
 
@@ -38,7 +45,20 @@ import java.util.function.Consumer;
  */
 public interface GraphFormat<M extends GraphModel> {
     /**
-     * Helper class that discovers all registered formats under META-INF/services in the JAR file.
+     * Helper class that discovers all registered formats under META-INF/services in the JAR file. Lookups by content
+     * type go through a table built once from the registered formats, and {@link #detect(DataSource)} picks the
+     * format from the data itself for sources with a missing or unhelpful name and content type:
+     *
+     * <pre>
+     * GraphFormat&lt;?&gt; format = GraphFormat.Provider.detect(upload);
+     * if (format == null) {
+     *     throw new GraphFormatException("unrecognized graph format: " + upload.getName(), null);
+     * }
+     * Graph&lt;?, ?&gt; graph = new GraphBuilder().build(format, upload);
+     * </pre>
+     *
+     * Formats are stateful, e.g. {@link cloudwall.graph.io.edge.EdgeListFormat#setParallelism(int)}, so every lookup
+     * returns a new instance.
      */
     class Provider {
         private static final ServiceLoader<GraphFormat> FORMAT_LOADER = ServiceLoader.load(GraphFormat.class);
@@ -46,6 +66,97 @@ public interface GraphFormat<M extends GraphModel> {
         static Iterable<GraphFormat> getSupportedFormats() {
             return FORMAT_LOADER;
         }
+
+        /**
+         * Gets a new instance of the format registered for a content type, ignoring any parameters like charset, or
+         * null if there is none.
+         */
+        @Nullable
+        public static GraphFormat<?> forContentType(String contentType) {
+            ServiceLoader.Provider<GraphFormat> provider = ContentTypes.FORMATS_BY_TYPE.get(baseType(contentType));
+            return provider == null ? null : provider.get();
+        }
+
+        /**
+         * Works out the format of a data source by reading the first few KB of it, decompressed if necessary, and
+         * matching them against the signatures of the registered formats: {@code (tlp} or {@code (nodes} for Tulip,
+         * {@code graph [} for GML, <code>digraph {</code> and friends for DOT, a lone {@code #} separator line for
+         * TGF, pairs of numeric IDs for edge lists, {@code %%MatrixMarket} for Matrix Market, a count header with
+         * {@code %} comments or one line per vertex for METIS and the magic number for snapshots. If none of them
+         * match, this falls back on the content type. Only the start of the data is read, so an edge list with
+         * non-numeric IDs further down is still detected as one.
+         *
+         * @return a new instance of the detected format, or null if the data matches none of them
+         */
+        @Nullable
+        public static GraphFormat<?> detect(DataSource dataIn) throws IOException {
+            DataSource source = CompressedDataSource.wrap(dataIn);
+            byte[] head = new byte[FormatSniffer.SNIFF_SIZE];
+            int length = 0;
+            boolean complete = false;
+            try (InputStream in = openHead(source)) {
+                while (length < head.length) {
+                    int count = in.read(head, length, head.length - length);
+                    if (count < 0) {
+                        complete = true;
+                        break;
+                    }
+                    length += count;
+                }
+            }
+
+            String contentType = FormatSniffer.sniff(head, length, complete);
+            if (contentType == null) {
+                contentType = source.getContentType();
+            }
+            return contentType == null ? null : forContentType(contentType);
+        }
+
+        /**
+         * Maps each content type to the first registered format claiming it. Formats which fail to load are left out,
+         * so they cannot be looked up, but all the others still can.
+         */
+        static Map<String, ServiceLoader.Provider<GraphFormat>> indexByContentType(
+                Iterable<ServiceLoader.Provider<GraphFormat>> providers) {
+            Map<String, ServiceLoader.Provider<GraphFormat>> index = new HashMap<>();
+            for (ServiceLoader.Provider<GraphFormat> provider : providers) {
+                MimeType[] contentTypes;
+                try {
+                    contentTypes = provider.get().getSupportedContentTypes();
+                } catch (ServiceConfigurationError | RuntimeException | LinkageError e) {
+                    continue;
+                }
+                for (MimeType contentType : contentTypes) {
+                    index.putIfAbsent(contentType.getBaseType(), provider);
+                }
+            }
+            return index;
+        }
+
+        // only a few KB are read, so decompress inline instead of starting CompressedDataSource's background inflater
+        private static InputStream openHead(DataSource source) throws IOException {
+            if (!(source instanceof CompressedDataSource)) {
+                return source.getInputStream();
+            }
+            CompressedDataSource compressed = (CompressedDataSource) source;
+            InputStream in = compressed.getDelegate().getInputStream();
+            try {
+                return compressed.getCompression().decompress(in);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        private static String baseType(String contentType) {
+            return contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        }
+
+        // holder for the table, built on the first lookup rather than when Provider loads
+        private static final class ContentTypes {
+            static final Map<String, ServiceLoader.Provider<GraphFormat>> FORMATS_BY_TYPE =
+                    indexByContentType(FORMAT_LOADER.stream()::iterator);
+        }
     }
 
     /**
@@ -58,6 +169,16 @@ public interface GraphFormat<M extends GraphModel> {
      */
     void read(DataSource dataIn, Consumer<M> modelConsumer) throws GraphFormatException, IOException;
 
+    /**
+     * Reads a graph and pushes its vertices and edges straight into the given visitor, for callers like
+     * {@link cloudwall.graph.GraphBuilder} which have no use for the format-specific model. The default implementation
+     * reads the full model and then visits it; formats which can emit callbacks as they parse override this so that
+     * nothing proportional to the number of edges is held in memory besides what the visitor itself keeps.
+     */
+    default void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        read(dataIn, (Consumer<M>) model -> model.visit(visitor));
+    }
+
     /**
      * Writes the given graph to the output stream.
      */
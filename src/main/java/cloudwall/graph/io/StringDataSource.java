@@ -6,6 +6,7 @@ import org.apache.commons.io.output.WriterOutputStream;
 import javax.activation.DataSource;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Helper DataSource that reads and writes streams with edge in a particular character set.
@@ -29,6 +30,15 @@ public class StringDataSource implements DataSource {
         this.charset = charset;
     }
 
+    /**
+     * Creates a data source already holding the given text, in UTF-8, e.g. a small graph to read back in a test.
+     */
+    public static StringDataSource of(String contentType, String text) {
+        StringDataSource dataSource = new StringDataSource("<anonymous>", contentType, StandardCharsets.UTF_8);
+        dataSource.stringWriter.write(text);
+        return dataSource;
+    }
+
     @Override
     public InputStream getInputStream() throws IOException {
         return new ReaderInputStream(new StringReader(stringWriter.toString()), charset);
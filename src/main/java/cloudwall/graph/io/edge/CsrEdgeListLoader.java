@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import cloudwall.graph.CsrAssembler;
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.LightweightVertex;
+import cloudwall.graph.VertexIndex;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.util.OffHeapBuffer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Loads an edge list file, with the same syntax as {@link EdgeListFormat}, directly into a {@link CsrGraph} without
+ * materializing the edges. The file is mapped and scanned twice: the first pass assigns vertex indices and counts
+ * degrees, from which the offset arrays are computed, and the second pass drops each arc into its pre-sized slot. Apart
+ * from the vertex index the only heap used is the final arrays, about four bytes per arc, so a graph far too big for
+ * {@link EdgeListModel} plus {@link cloudwall.graph.GraphBuilder} still loads.
+ *
+ * <p>The graph is the same as {@link cloudwall.graph.CsrGraphBuilder} gives for the file's {@link EdgeListModel},
+ * with the same vertex indices and neighbor order. By default it is undirected, like the model; with
+ * {@link #setDirected(boolean)} each line becomes an arc from source to target instead. As the arrays are indexed by
+ * {@code int} the total number of arcs -- twice the edge count for undirected graphs -- is limited to about 2^31.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+public class CsrEdgeListLoader {
+    private int skipLines = 0;
+    private boolean directed = false;
+
+    /**
+     * Sets the number of header lines to skip regardless of their contents, e.g. vertex and edge counts.
+     */
+    public void setSkipLines(@Nonnegative int skipLines) {
+        this.skipLines = skipLines;
+    }
+
+    /**
+     * Sets whether each line is a directed arc from source to target; defaults to false.
+     */
+    public void setDirected(boolean directed) {
+        this.directed = directed;
+    }
+
+    public CsrGraph load(@Nonnull Path path) throws GraphFormatException, IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+             OffHeapBuffer mapped = OffHeapBuffer.map(channel, 0, channel.size(), ByteOrder.nativeOrder())) {
+
+            // both passes scan the whole file; the first one also indexes the vertices in order of first appearance
+            VertexIndex vertexIndex = new VertexIndex(1024);
+            try {
+                return CsrAssembler.assemble(vertexIndex, directed, edges -> {
+                    EdgeListScanner scanner = scan(mapped);
+                    while (scanner.nextEdge()) {
+                        int source = addVertex(vertexIndex, scanner.getSource());
+                        int target = addVertex(vertexIndex, scanner.getTarget());
+                        edges.accept(source, target, directed);
+                    }
+                });
+            } catch (IllegalArgumentException e) {
+                throw new GraphFormatException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private EdgeListScanner scan(OffHeapBuffer mapped) throws IOException {
+        EdgeListScanner scanner = new EdgeListScanner(new MappedInputStream(mapped));
+        scanner.skipLines(skipLines);
+        return scanner;
+    }
+
+    private static int addVertex(VertexIndex vertexIndex, long vid) {
+        int ndx = vertexIndex.indexOf(vid);
+        if (ndx == VertexIndex.NOT_FOUND) {
+            ndx = vertexIndex.add(new LightweightVertex(vid));
+        }
+        return ndx;
+    }
+
+    /**
+     * Sequential stream over a mapped file, so both passes can share the mapping and the scanner's buffering.
+     */
+    private static class MappedInputStream extends InputStream {
+        private final OffHeapBuffer mapped;
+        private long position = 0;
+
+        MappedInputStream(OffHeapBuffer mapped) {
+            this.mapped = mapped;
+        }
+
+        @Override
+        public int read() {
+            return position < mapped.capacity() ? mapped.getByte(position++) & 0xff : -1;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) {
+            long remaining = mapped.capacity() - position;
+            if (remaining <= 0) {
+                return len == 0 ? 0 : -1;
+            }
+            int count = (int) Math.min(len, remaining);
+            mapped.getBytes(position, b, off, count);
+            position += count;
+            return count;
+        }
+    }
+}
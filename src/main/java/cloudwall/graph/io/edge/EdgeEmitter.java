@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.LightweightEdge;
+import cloudwall.graph.LightweightVertex;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.util.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Adapter which turns a stream of parsed edges into {@link GraphVisitor} callbacks, visiting each vertex the first
+ * time one of its edges is seen. Only the distinct vertices are retained, so memory grows with the vertex count and
+ * not the edge count. The vertices and edges visited are the same as for a fully-read {@link EdgeListModel}, but
+ * vertex callbacks are interleaved with the edges rather than all coming first.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class EdgeEmitter {
+    // edge lists carry no counts or features up front
+    private static final GraphMetadata UNKNOWN_METADATA = new GraphMetadata() { };
+
+    private final GraphVisitor visitor;
+    private final LongIntHashMap vertexOrdinals = new LongIntHashMap(1024, -1);
+    private Vertex[] vertices = new Vertex[1024];
+    private int numVertices = 0;
+
+    EdgeEmitter(GraphVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    void start() {
+        visitor.start(UNKNOWN_METADATA);
+    }
+
+    void emitEdge(long vid1, long vid2) {
+        Vertex source = vertex(vid1);
+        Vertex target = vertex(vid2);
+        visitor.visitEdge(new LightweightEdge<>(source, target));
+    }
+
+    void complete() {
+        visitor.complete();
+    }
+
+    private Vertex vertex(long vid) {
+        int ordinal = vertexOrdinals.putIfAbsent(vid, numVertices);
+        if (ordinal != -1) {
+            return vertices[ordinal];
+        }
+        if (numVertices == vertices.length) {
+            vertices = Arrays.copyOf(vertices, numVertices * 2);
+        }
+        Vertex vertex = new LightweightVertex(vid);
+        vertices[numVertices++] = vertex;
+        visitor.visitVertex(vertex);
+        return vertex;
+    }
+}
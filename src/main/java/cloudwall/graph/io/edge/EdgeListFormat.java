@@ -15,15 +15,18 @@
  */
 package cloudwall.graph.io.edge;
 
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
 import cloudwall.graph.io.GraphFormat;
 import cloudwall.graph.io.GraphFormatException;
 
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.function.Consumer;
 
 /**
@@ -31,6 +34,11 @@ import java.util.function.Consumer;
  * are simple edge files with lists of edges, and comments with a # prefix at the top. It is very similar to TGF, the
  * Trivial Graph Format, which this library also supports.
  *
+ * <p>Large files can be parsed and written on several threads, see {@link #setParallelism(int)}. If you only need to
+ * build a graph, {@link #read(DataSource, GraphVisitor)} skips the model entirely and streams the edges to the visitor.
+ * Files compressed with gzip or deflate, e.g. {@code email-Eu-core.txt.gz}, are decompressed transparently; see
+ * {@link CompressedDataSource}.
+ *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see <a href="https://snap.stanford.edu/index.html">SNAP homepage</a>
  * @see TrivialGraphFormat
@@ -47,6 +55,7 @@ public class EdgeListFormat implements GraphFormat<EdgeListModel> {
     }
 
     private int skipLines = 0;
+    private int parallelism = 1;
 
     @Override
     public MimeType[] getSupportedContentTypes() {
@@ -56,28 +65,63 @@ public class EdgeListFormat implements GraphFormat<EdgeListModel> {
     @Override
     public void read(DataSource dataIn, Consumer<EdgeListModel> modelConsumer) throws GraphFormatException, IOException {
         EdgeListModel model = new EdgeListModel();
-        try (LineNumberReader r = new LineNumberReader(new InputStreamReader(dataIn.getInputStream()))) {
-            for (int i = 0; i < skipLines; i++) {
-                // some formats have # nodes / edges as first two lines
-                r.readLine();
-            }
+        DataSource source = CompressedDataSource.wrap(dataIn);
+        try (InputStream in = source.getInputStream()) {
+            EdgeListScanner scanner = new EdgeListScanner(in);
+
+            // some formats have # nodes / edges as first two lines
+            scanner.skipLines(skipLines);
 
-            String line;
-            while ((line = r.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
+            if (parallelism > 1 && source instanceof FileDataSource) {
+                Path path = ((FileDataSource) source).getFile().toPath();
+                new ParallelEdgeListReader(parallelism).read(path, scanner.getOffset(), scanner.getLineNumber(), model);
+            } else {
+                while (scanner.nextEdge()) {
+                    model.addEdge(scanner.getSource(), scanner.getTarget(), scanner.getLabel());
                 }
-                model.parseAndAddEdge(line, r.getLineNumber());
             }
         }
 
         modelConsumer.accept(model);
     }
 
+    /**
+     * Streams the edges to the visitor as they are parsed, visiting each vertex just before the first edge that
+     * refers to it. This is always a sequential read, regardless of {@link #setParallelism(int)}.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        DataSource source = CompressedDataSource.wrap(dataIn);
+        try (InputStream in = source.getInputStream()) {
+            EdgeListScanner scanner = new EdgeListScanner(in);
+            scanner.skipLines(skipLines);
+
+            EdgeEmitter emitter = new EdgeEmitter(visitor);
+            emitter.start();
+            while (scanner.nextEdge()) {
+                emitter.emitEdge(scanner.getSource(), scanner.getTarget());
+            }
+            emitter.complete();
+        }
+    }
+
     @Override
     public void write(DataSource dataOut, EdgeListModel model) throws IOException {
-        model.write(dataOut);
+        model.write(CompressedDataSource.wrap(dataOut), parallelism);
+    }
+
+    /**
+     * Sets the number of threads used to parse and write files; above one, a {@link FileDataSource} is split into
+     * chunks that are parsed concurrently and then merged, giving the same model as a sequential read. Other data
+     * sources, including compressed files, are always read sequentially. On write, large models are formatted in
+     * blocks on that many threads and written out in order, giving the same bytes as a sequential write. Defaults to
+     * one.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
     }
 
     @SuppressWarnings("SameParameterValue")
@@ -16,106 +16,119 @@
 package cloudwall.graph.io.edge;
 
 import cloudwall.graph.*;
-import org.jooq.lambda.tuple.Tuple3;
+import cloudwall.graph.util.LongIntHashMap;
 
 import javax.activation.DataSource;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.util.*;
+import java.util.Arrays;
 
 /**
- * Ultra-simple data model for various edge formats that are just lists of edges.
+ * Ultra-simple data model for various edge formats that are just lists of edges. Edges are kept in primitive columns,
+ * with each endpoint stored as the ordinal of its vertex ID in order of first appearance, and labels only allocated
+ * once the first labeled edge is added.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see EdgeListFormat
  */
 @SuppressWarnings("WeakerAccess")
 public class EdgeListModel implements GraphModel {
-    private final Collection<Long> vertices = new HashSet<>();
-    private final List<Tuple3<Long, Long, String>> edges = new ArrayList<>();
+    private final LongIntHashMap vertexOrdinals = new LongIntHashMap(1024, -1);
+    private long[] vertexIds = new long[1024];
+    private int numVertices = 0;
+
+    private int[] edgeSources = new int[1024];
+    private int[] edgeTargets = new int[1024];
+    private String[] edgeLabels;
+    private int numEdges = 0;
 
     @Override
     public long getVertexCount() {
-        return vertices.size();
+        return numVertices;
     }
 
     @Override
     public long getEdgeCount() {
-        return edges.size();
+        return numEdges;
     }
 
     @Override
     public void visit(GraphVisitor visitor) {
-        Map<Long,Vertex> vertexMap = new HashMap<>();
+        Vertex[] vertices = new Vertex[numVertices];
 
         visitor.start(this);
-        vertices.forEach(vid -> {
-            LightweightVertex vertex = new LightweightVertex(vid);
-            vertexMap.put(vid, vertex);
-            visitor.visitVertex(vertex);
-        });
-        edges.forEach(tuple -> {
-            Vertex vertex0 = vertexMap.get(tuple.v1);
-            Vertex vertex1 = vertexMap.get(tuple.v1);
-            visitor.visitEdge(new LightweightEdge<>(vertex0, vertex1));
-        }) ;
+        for (int i = 0; i < numVertices; i++) {
+            vertices[i] = new LightweightVertex(vertexIds[i]);
+            visitor.visitVertex(vertices[i]);
+        }
+        for (int i = 0; i < numEdges; i++) {
+            visitor.visitEdge(new LightweightEdge<>(vertices[edgeSources[i]], vertices[edgeTargets[i]]));
+        }
         visitor.complete();
     }
 
-    void parseAndAddEdge(String line, int lineNumber) throws IOException {
-        String[] lineParts = line.split("\\s+");
-        if (lineParts.length < 2) {
-            throw new IOException("invalid line at line # " + lineNumber + ": " + line);
-        }
-        String vid1Txt = lineParts[0];
-        String vid2Txt = lineParts[1];
-        String label;
-        if (lineParts.length == 2) {
-            label = null;
-        } else {
-            int ndxFirstSpace = line.indexOf(" ");
-            int ndxSecondSpace = line.indexOf(" ", ndxFirstSpace + 1);
-            label = line.substring(ndxSecondSpace + 1);
+    void addEdge(long vid1, long vid2, String label) {
+        ensureEdgeCapacity(numEdges + 1, label != null);
+        edgeSources[numEdges] = addVertex(vid1);
+        edgeTargets[numEdges] = addVertex(vid2);
+        if (edgeLabels != null) {
+            edgeLabels[numEdges] = label;
         }
+        numEdges++;
+    }
 
-        try {
-            long vertex0 = Long.parseLong(vid1Txt);
-            long vertex1 = Long.parseLong(vid2Txt);
-            addEdge(vertex0, vertex1, label);
-        } catch (NumberFormatException e) {
-            throw new IOException("invalid node ID in edge list at line # " + lineNumber + ": " + line);
+    /**
+     * Appends all edges of the other model after the ones already added, as if they had been added one by one. Each
+     * distinct vertex of the other model is only looked up once, so this is how chunks parsed in parallel are merged.
+     */
+    void append(EdgeListModel other) {
+        int[] ordinals = new int[other.numVertices];
+        for (int i = 0; i < other.numVertices; i++) {
+            ordinals[i] = addVertex(other.vertexIds[i]);
+        }
+        ensureEdgeCapacity(numEdges + other.numEdges, other.edgeLabels != null);
+        for (int i = 0; i < other.numEdges; i++) {
+            edgeSources[numEdges + i] = ordinals[other.edgeSources[i]];
+            edgeTargets[numEdges + i] = ordinals[other.edgeTargets[i]];
         }
+        if (other.edgeLabels != null) {
+            System.arraycopy(other.edgeLabels, 0, edgeLabels, numEdges, other.numEdges);
+        }
+        numEdges += other.numEdges;
     }
 
-    void addEdge(long vid1, long vid2, String label) {
-        vertices.add(vid1);
-        vertices.add(vid2);
-        edges.add(new Tuple3<>(vid1, vid2, label));
+    void write(DataSource dataOut, int parallelism) throws IOException {
+        try (EdgeListWriter writer = new EdgeListWriter(dataOut, parallelism)) {
+            writeEdges(writer);
+        }
     }
 
-    void write(DataSource dataOut) throws IOException {
-        try (Writer w = new OutputStreamWriter(dataOut.getOutputStream())) {
-            writeEdges(w);
-        }
+    void writeEdges(EdgeListWriter writer) throws IOException {
+        writer.writeEdges(vertexIds, edgeSources, edgeTargets, edgeLabels, numEdges);
     }
 
-    void writeEdges(Writer w) throws IOException {
-        for (Tuple3<Long, Long, String> edge : edges) {
-            w.write(String.valueOf(edge.v1()));
-            w.write(" ");
-            w.write(String.valueOf(edge.v2()));
-            if (edge.v3() != null) {
-                w.write(" ");
-                w.write(edge.v3());
+    private void ensureEdgeCapacity(int capacity, boolean labeled) {
+        if (capacity > edgeSources.length) {
+            int newLength = Math.max(capacity, edgeSources.length * 2);
+            edgeSources = Arrays.copyOf(edgeSources, newLength);
+            edgeTargets = Arrays.copyOf(edgeTargets, newLength);
+            if (edgeLabels != null) {
+                edgeLabels = Arrays.copyOf(edgeLabels, newLength);
             }
-            w.write("\n");
+        }
+        if (labeled && edgeLabels == null) {
+            edgeLabels = new String[edgeSources.length];
         }
     }
 
-    private void ensureNodeExists(MutableGraph<LightweightVertex, ?> graph, long vid) {
-        if (graph.getVertex(vid) == null) {
-            graph.addVertex(new LightweightVertex(vid));
+    private int addVertex(long vid) {
+        int ordinal = vertexOrdinals.putIfAbsent(vid, numVertices);
+        if (ordinal == -1) {
+            if (numVertices == vertexIds.length) {
+                vertexIds = Arrays.copyOf(vertexIds, numVertices * 2);
+            }
+            vertexIds[numVertices] = vid;
+            ordinal = numVertices++;
         }
+        return ordinal;
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import cloudwall.graph.io.ByteLineBuffer;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Byte-level scanner for edge list lines of the form {@code <source> <target> [label]}, reading straight from a large
+ * buffer over the raw input rather than via a {@code Reader}. Vertex IDs are parsed as decimal {@code long}s in place,
+ * with no intermediate {@code String}s, and the label is only decoded (as UTF-8) if the line has one, so a plain edge
+ * list is parsed without allocating per line.
+ *
+ * <p>Blank lines and lines starting with {@code #} are skipped; any byte up to and including space counts as
+ * whitespace, so tab-separated files and CRLF line endings are fine. Malformed lines fail with a
+ * {@link MalformedLineException} giving the line number.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class EdgeListScanner {
+    private final ByteLineBuffer lines;
+
+    // input offset of the first line which should not be parsed
+    private long endOffset = Long.MAX_VALUE;
+
+    private long source;
+    private long target;
+    private String label;
+
+    EdgeListScanner(InputStream in) {
+        this.lines = new ByteLineBuffer(in);
+    }
+
+    EdgeListScanner(InputStream in, int bufferSize) {
+        this.lines = new ByteLineBuffer(in, bufferSize);
+    }
+
+    /**
+     * Skips the given number of lines regardless of their contents.
+     */
+    void skipLines(int numLines) throws IOException {
+        for (int i = 0; i < numLines; i++) {
+            if (!lines.nextLine()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads the next line as text, trimmed, or returns null once the input is exhausted.
+     */
+    String nextLine() throws IOException {
+        return lines.nextLine() ? lines.getLine() : null;
+    }
+
+    /**
+     * Stops {@link #nextEdge()} at the first line starting at or after the given offset into the input; lines
+     * starting before it are read to completion even if they extend beyond it.
+     */
+    void setEndOffset(long endOffset) {
+        this.endOffset = endOffset;
+    }
+
+    /**
+     * Advances to the next edge, skipping blank lines and comments, and returns false once the input is exhausted.
+     */
+    boolean nextEdge() throws IOException {
+        while (getOffset() < endOffset && lines.nextLine()) {
+            if (parseLine()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long getSource() {
+        return source;
+    }
+
+    long getTarget() {
+        return target;
+    }
+
+    /**
+     * Gets the label of the current edge, or null if the line only had the two vertex IDs.
+     */
+    @Nullable
+    String getLabel() {
+        return label;
+    }
+
+    /**
+     * Gets the number of lines read so far, which is also the number of the last line read.
+     */
+    int getLineNumber() {
+        return lines.getLineNumber();
+    }
+
+    /**
+     * Gets the offset into the input of the start of the next line.
+     */
+    long getOffset() {
+        return lines.getOffset();
+    }
+
+    private boolean parseLine() throws IOException {
+        int sourceStart = lines.skipWhitespace(lines.getLineStart());
+        if (sourceStart == lines.getLineEnd() || lines.byteAt(sourceStart) == '#') {
+            return false;
+        }
+        int sourceEnd = lines.skipToken(sourceStart);
+        int targetStart = lines.skipWhitespace(sourceEnd);
+        if (targetStart == lines.getLineEnd()) {
+            throw new MalformedLineException("invalid line", lines.getLineNumber(), lines.getLine());
+        }
+        int targetEnd = lines.skipToken(targetStart);
+
+        try {
+            source = lines.parseLong(sourceStart, sourceEnd);
+            target = lines.parseLong(targetStart, targetEnd);
+        } catch (NumberFormatException e) {
+            throw new MalformedLineException("invalid node ID in edge list", lines.getLineNumber(), lines.getLine());
+        }
+
+        int labelStart = lines.skipWhitespace(targetEnd);
+        label = labelStart == lines.getLineEnd() ? null : lines.text(labelStart, lines.trimEnd());
+        return true;
+    }
+}
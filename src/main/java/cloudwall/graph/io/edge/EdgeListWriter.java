@@ -0,0 +1,264 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Writes edge list and TGF lines by formatting vertex IDs straight into a reusable byte buffer, which goes out in large
+ * blocks through a {@link FileChannel} for a {@link FileDataSource} and a channel over the output stream otherwise.
+ * Labels are encoded in the platform default charset, so the bytes are exactly what an {@code OutputStreamWriter}
+ * would have produced.
+ *
+ * <p>With a parallelism above one, large edge arrays are cut into blocks which are formatted concurrently and then
+ * written in order, with only a couple of blocks per thread in flight at a time to bound memory. The output is the same
+ * as for a sequential write.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+final class EdgeListWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int DEFAULT_EDGES_PER_BLOCK = 1 << 20;
+
+    // blocks per thread waiting to be written, so the writer always has one ready
+    private static final int BLOCKS_PER_THREAD = 2;
+
+    private final WritableByteChannel channel;
+    private final Charset charset = Charset.defaultCharset();
+    private final int parallelism;
+    private final int edgesPerBlock;
+    private final Block buffer = new Block();
+
+    EdgeListWriter(@Nonnull DataSource dataOut, @Nonnegative int parallelism) throws IOException {
+        this(dataOut, parallelism, DEFAULT_EDGES_PER_BLOCK);
+    }
+
+    EdgeListWriter(@Nonnull DataSource dataOut, @Nonnegative int parallelism, @Nonnegative int edgesPerBlock)
+            throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        if (dataOut instanceof FileDataSource) {
+            this.channel = FileChannel.open(((FileDataSource) dataOut).getFile().toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } else {
+            this.channel = Channels.newChannel(dataOut.getOutputStream());
+        }
+        this.parallelism = parallelism;
+        this.edgesPerBlock = edgesPerBlock;
+    }
+
+    /**
+     * Writes a TGF node line: the ID, then the label if there is one.
+     */
+    void writeNode(long vid, @Nullable String label) throws IOException {
+        buffer.appendLong(vid);
+        if (label != null) {
+            buffer.appendByte(' ');
+            buffer.appendBytes(label.getBytes(charset));
+        }
+        buffer.appendByte('\n');
+        maybeFlush();
+    }
+
+    void writeLine(@Nonnull String line) throws IOException {
+        buffer.appendBytes(line.getBytes(charset));
+        buffer.appendByte('\n');
+        maybeFlush();
+    }
+
+    /**
+     * Writes one line per edge with the IDs of its two vertices, looked up by ordinal, and its label if it has one.
+     */
+    void writeEdges(@Nonnull long[] vertexIds, @Nonnull int[] sources, @Nonnull int[] targets,
+                    @Nullable String[] labels, @Nonnegative int numEdges) throws IOException {
+        EdgeFormatter formatter = new EdgeFormatter(vertexIds, sources, targets, labels, charset);
+        if (parallelism == 1 || numEdges <= edgesPerBlock) {
+            for (int i = 0; i < numEdges; i++) {
+                formatter.format(buffer, i);
+                maybeFlush();
+            }
+        } else {
+            flush();
+            writeEdgesInParallel(formatter, numEdges);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeEdgesInParallel(EdgeFormatter formatter, int numEdges) throws IOException {
+        int numBlocks = (numEdges + edgesPerBlock - 1) / edgesPerBlock;
+        Queue<Block> freeBlocks = new ConcurrentLinkedQueue<>();
+        Deque<Future<Block>> pending = new ArrayDeque<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            int nextBlock = 0;
+            while (nextBlock < numBlocks || !pending.isEmpty()) {
+                while (nextBlock < numBlocks && pending.size() < parallelism * BLOCKS_PER_THREAD) {
+                    int from = nextBlock * edgesPerBlock;
+                    int to = (int) Math.min(numEdges, (long) from + edgesPerBlock);
+                    pending.addLast(pool.submit(() -> {
+                        Block block = freeBlocks.poll();
+                        if (block == null) {
+                            block = new Block();
+                        }
+                        for (int i = from; i < to; i++) {
+                            formatter.format(block, i);
+                        }
+                        return block;
+                    }));
+                    nextBlock++;
+                }
+                Block block = pending.removeFirst().get();
+                write(block);
+                freeBlocks.add(block);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing edges", e);
+        } catch (ExecutionException e) {
+            throw new IOException("failed to format edges", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void maybeFlush() throws IOException {
+        if (buffer.length >= BUFFER_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        write(buffer);
+    }
+
+    private void write(Block block) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(block.bytes, 0, block.length);
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        block.length = 0;
+    }
+
+    /**
+     * Formats edges by index; stateless apart from the arrays it reads, so blocks can share one instance.
+     */
+    private static class EdgeFormatter {
+        private final long[] vertexIds;
+        private final int[] sources;
+        private final int[] targets;
+        private final String[] labels;
+        private final Charset charset;
+
+        EdgeFormatter(long[] vertexIds, int[] sources, int[] targets, String[] labels, Charset charset) {
+            this.vertexIds = vertexIds;
+            this.sources = sources;
+            this.targets = targets;
+            this.labels = labels;
+            this.charset = charset;
+        }
+
+        void format(Block block, int i) {
+            block.appendLong(vertexIds[sources[i]]);
+            block.appendByte(' ');
+            block.appendLong(vertexIds[targets[i]]);
+            if (labels != null && labels[i] != null) {
+                block.appendByte(' ');
+                block.appendBytes(labels[i].getBytes(charset));
+            }
+            block.appendByte('\n');
+        }
+    }
+
+    /**
+     * Growable byte array with just enough formatting support for edge lines.
+     */
+    private static class Block {
+        // longest decimal long is "-9223372036854775808"
+        private static final int MAX_LONG_DIGITS = 20;
+
+        byte[] bytes = new byte[BUFFER_SIZE + 1024];
+        int length = 0;
+
+        void appendByte(char c) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) c;
+        }
+
+        void appendBytes(byte[] src) {
+            ensureCapacity(src.length);
+            System.arraycopy(src, 0, bytes, length, src.length);
+            length += src.length;
+        }
+
+        // works on the negated value, as the negative range is the larger one and so covers Long.MIN_VALUE
+        void appendLong(long value) {
+            ensureCapacity(MAX_LONG_DIGITS);
+            long negated = value;
+            if (value < 0) {
+                bytes[length++] = '-';
+            } else {
+                negated = -value;
+            }
+            int numDigits = 1;
+            for (long n = negated; n <= -10; n /= 10) {
+                numDigits++;
+            }
+            int pos = length + numDigits;
+            do {
+                bytes[--pos] = (byte) ('0' - (int) (negated % 10));
+                negated /= 10;
+            } while (negated != 0);
+            length += numDigits;
+        }
+
+        private void ensureCapacity(int needed) {
+            if (length + needed > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + needed, bytes.length * 2));
+            }
+        }
+    }
+}
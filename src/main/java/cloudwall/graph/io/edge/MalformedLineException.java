@@ -0,0 +1,51 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import java.io.IOException;
+
+/**
+ * Syntax error on one line of an edge list. The line number is kept separately from the message so that parsers
+ * working on a chunk of a file can report errors against chunk-local line numbers and have them translated into
+ * file-wide ones once the sizes of the preceding chunks are known.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+class MalformedLineException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String problem;
+    private final int lineNumber;
+    private final String line;
+
+    MalformedLineException(String problem, int lineNumber, String line) {
+        super(problem + " at line # " + lineNumber + ": " + line);
+        this.problem = problem;
+        this.lineNumber = lineNumber;
+        this.line = line;
+    }
+
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets a copy of this error with the line number shifted by the given number of preceding lines.
+     */
+    MalformedLineException withLinesBefore(int linesBefore) {
+        return new MalformedLineException(problem, lineNumber + linesBefore, line);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Parses the edge lines of a file on several threads. The file is split into byte ranges of roughly equal size, each
+ * parsed by its own {@link EdgeListScanner} into a private {@link EdgeListModel}; the partial models are then
+ * appended in file order, so the result is identical to a sequential read.
+ *
+ * <p>Ranges are aligned on line boundaries without a coordinating pre-pass: each worker starts one byte early and
+ * skips up to and including the first newline, and keeps going past the end of its range to finish the line it is in.
+ * That way every line is parsed by exactly one worker, namely the one whose range it starts in. Comment and blank lines
+ * are per-line, so need no special handling; any header lines to be skipped must be consumed before the start offset.
+ *
+ * <p>Workers count the lines they see, so a syntax error is reported with its file-wide line number once all
+ * preceding ranges are done. If several ranges have errors, the first one in the file wins, as it would sequentially.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+class ParallelEdgeListReader {
+    private static final int DEFAULT_CHUNK_SIZE = 16 << 20;
+
+    // chunks per thread, so a slow chunk does not hold up the whole read
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final int parallelism;
+    private final int minChunkSize;
+
+    ParallelEdgeListReader(@Nonnegative int parallelism) {
+        this(parallelism, DEFAULT_CHUNK_SIZE);
+    }
+
+    ParallelEdgeListReader(@Nonnegative int parallelism, @Nonnegative int minChunkSize) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Parses the edges from the given offset to the end of the file into the model.
+     *
+     * @param start       offset of the first line to parse
+     * @param linesBefore number of lines preceding that offset, for error line numbers
+     */
+    void read(@Nonnull Path path, long start, int linesBefore, @Nonnull EdgeListModel model) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size() - start;
+            if (size <= 0) {
+                return;
+            }
+            int numChunks = (int) Math.max(1, Math.min((long) parallelism * CHUNKS_PER_THREAD, size / minChunkSize));
+            List<Callable<Chunk>> tasks = new ArrayList<>();
+            for (int i = 0; i < numChunks; i++) {
+                long chunkStart = start + size * i / numChunks;
+                long chunkEnd = (i == numChunks - 1) ? Long.MAX_VALUE : start + size * (i + 1) / numChunks;
+                tasks.add(new ChunkParser(channel, chunkStart, chunkEnd, i > 0));
+            }
+
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (Future<Chunk> future : pool.invokeAll(tasks)) {
+                    Chunk chunk = future.get();
+                    if (chunk.error != null) {
+                        throw chunk.error.withLinesBefore(linesBefore);
+                    }
+                    model.append(chunk.model);
+                    linesBefore += chunk.lineCount;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while reading " + path, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException("failed to read " + path, cause);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Partial result for one range: the edges parsed, plus the number of lines it covered or the first syntax error.
+     */
+    private static class Chunk {
+        final EdgeListModel model = new EdgeListModel();
+        int lineCount;
+        MalformedLineException error;
+    }
+
+    private static class ChunkParser implements Callable<Chunk> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final boolean skipPartialLine;
+
+        ChunkParser(FileChannel channel, long start, long end, boolean skipPartialLine) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.skipPartialLine = skipPartialLine;
+        }
+
+        @Override
+        public Chunk call() throws IOException {
+            Chunk chunk = new Chunk();
+
+            // start on the byte before the range: if it is a newline, the range starts on a line of its own
+            long readFrom = skipPartialLine ? start - 1 : start;
+            EdgeListScanner scanner = new EdgeListScanner(new RegionInputStream(channel, readFrom));
+            if (skipPartialLine) {
+                scanner.skipLines(1);
+            }
+            int linesSkipped = scanner.getLineNumber();
+            if (end != Long.MAX_VALUE) {
+                scanner.setEndOffset(end - readFrom);
+            }
+
+            try {
+                while (scanner.nextEdge()) {
+                    chunk.model.addEdge(scanner.getSource(), scanner.getTarget(), scanner.getLabel());
+                }
+                chunk.lineCount = scanner.getLineNumber() - linesSkipped;
+            } catch (MalformedLineException e) {
+                chunk.error = e.withLinesBefore(-linesSkipped);
+            }
+            return chunk;
+        }
+    }
+
+    /**
+     * Stream over a file from a given offset using positional reads, so any number of them can share one channel.
+     */
+    private static class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+
+        RegionInputStream(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+            int count = channel.read(ByteBuffer.wrap(b, off, len), position);
+            if (count > 0) {
+                position += count;
+            }
+            return count;
+        }
+    }
+}
@@ -15,15 +15,18 @@
  */
 package cloudwall.graph.io.edge;
 
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
 import cloudwall.graph.io.GraphFormat;
 import cloudwall.graph.io.GraphFormatException;
 
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.LineNumberReader;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.function.Consumer;
 
 /**
@@ -42,6 +45,8 @@ public class TrivialGraphFormat implements GraphFormat<TrivialGraphModel> {
         }
     }
 
+    private int parallelism = 1;
+
     @Override
     public MimeType[] getSupportedContentTypes() {
         return CONTENT_TYPES;
@@ -51,22 +56,24 @@ public class TrivialGraphFormat implements GraphFormat<TrivialGraphModel> {
     public void read(DataSource dataIn, Consumer<TrivialGraphModel> modelConsumer) throws GraphFormatException, IOException {
         TrivialGraphModel model = new TrivialGraphModel();
 
-        try (LineNumberReader r = new LineNumberReader(new InputStreamReader(dataIn.getInputStream()))) {
-            boolean nodesDone = false;
+        DataSource source = CompressedDataSource.wrap(dataIn);
+        try (InputStream in = source.getInputStream()) {
+            EdgeListScanner scanner = new EdgeListScanner(in);
             String line;
-            while ((line = r.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) {
-                    continue;
-                } else if (line.equals("#")) {
-                    nodesDone = true;
-                    continue;
+            while ((line = scanner.nextLine()) != null && !line.equals("#")) {
+                if (!line.isEmpty()) {
+                    model.parseAndAddVertex(line, scanner.getLineNumber());
                 }
-                int lineNumber = r.getLineNumber();
-                if (nodesDone) {
-                    model.parseAndAddEdge(line, lineNumber);
-                } else {
-                    model.parseAndAddVertex(line, lineNumber);
+            }
+
+            // only the edges can be split up, as they can be parsed without any context
+            if (parallelism > 1 && source instanceof FileDataSource) {
+                Path path = ((FileDataSource) source).getFile().toPath();
+                new ParallelEdgeListReader(parallelism).read(path, scanner.getOffset(), scanner.getLineNumber(),
+                        model.getEdgeListModel());
+            } else {
+                while (scanner.nextEdge()) {
+                    model.getEdgeListModel().addEdge(scanner.getSource(), scanner.getTarget(), scanner.getLabel());
                 }
             }
         }
@@ -74,8 +81,46 @@ public class TrivialGraphFormat implements GraphFormat<TrivialGraphModel> {
         modelConsumer.accept(model);
     }
 
+    /**
+     * Streams the edges to the visitor as they are parsed, without building a model. Node declarations are checked
+     * but, as with {@link TrivialGraphModel#visit(GraphVisitor)}, vertices are only visited once an edge refers to
+     * them. This is always a sequential read, regardless of {@link #setParallelism(int)}.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        DataSource source = CompressedDataSource.wrap(dataIn);
+        try (InputStream in = source.getInputStream()) {
+            EdgeListScanner scanner = new EdgeListScanner(in);
+            String line;
+            while ((line = scanner.nextLine()) != null && !line.equals("#")) {
+                if (!line.isEmpty()) {
+                    TrivialGraphModel.parseNode(line, scanner.getLineNumber());
+                }
+            }
+
+            EdgeEmitter emitter = new EdgeEmitter(visitor);
+            emitter.start();
+            while (scanner.nextEdge()) {
+                emitter.emitEdge(scanner.getSource(), scanner.getTarget());
+            }
+            emitter.complete();
+        }
+    }
+
     @Override
     public void write(DataSource dataOut, TrivialGraphModel model) throws IOException {
-        model.write(dataOut);
+        model.write(CompressedDataSource.wrap(dataOut), parallelism);
+    }
+
+    /**
+     * Sets the number of threads used to parse and write the edge section of files, as for
+     * {@link EdgeListFormat#setParallelism(int)}; the node section is always read and written sequentially. Defaults
+     * to one.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
     }
 }
@@ -21,7 +21,6 @@ import org.jooq.lambda.tuple.Tuple2;
 
 import javax.activation.DataSource;
 import java.io.IOException;
-import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -34,25 +33,7 @@ import java.util.List;
 @SuppressWarnings("WeakerAccess")
 public class TrivialGraphModel implements GraphModel {
     private final List<Tuple2<Long, String>> nodes = new ArrayList<>();
-    private final EdgeListModel edgeListModel;
-
-    public TrivialGraphModel() {
-        edgeListModel = new EdgeListModel() {
-            @Override
-            protected void writeEdges(Writer w) throws IOException {
-                for (Tuple2<Long,String> node : nodes) {
-                    w.write(String.valueOf(node.v1()));
-                    if (node.v2() != null){
-                        w.write(" ");
-                        w.write(node.v2());
-                    }
-                    w.write("\n");
-                }
-                w.write("#\n");
-                super.writeEdges(w);
-            }
-        };
-    }
+    private final EdgeListModel edgeListModel = new EdgeListModel();
 
     @Override
     public void visit(GraphVisitor visitor) {
@@ -69,11 +50,16 @@ public class TrivialGraphModel implements GraphModel {
         return edgeListModel.getEdgeCount();
     }
 
-    void parseAndAddEdge(String line, int lineNumber) throws IOException {
-        edgeListModel.parseAndAddEdge(line, lineNumber);
+    EdgeListModel getEdgeListModel() {
+        return edgeListModel;
     }
 
     void parseAndAddVertex(String line, int lineNumber) throws IOException {
+        Tuple2<Long, String> node = parseNode(line, lineNumber);
+        addNode(node.v1(), node.v2());
+    }
+
+    static Tuple2<Long, String> parseNode(String line, int lineNumber) throws IOException {
         int ndxFirstSpace = line.indexOf(" ");
 
         String vidTxt;
@@ -86,7 +72,7 @@ public class TrivialGraphModel implements GraphModel {
         }
 
         try {
-            addNode(Long.parseLong(vidTxt), label);
+            return new Tuple2<>(Long.parseLong(vidTxt), label);
         } catch (NumberFormatException e) {
             throw new IOException("invalid node ID in node list at line # " + lineNumber + ": " + line);
         }
@@ -96,7 +82,13 @@ public class TrivialGraphModel implements GraphModel {
         nodes.add(new Tuple2<>(vid, label));
     }
 
-    void write(DataSource dataOut) throws IOException {
-        edgeListModel.write(dataOut);
+    void write(DataSource dataOut, int parallelism) throws IOException {
+        try (EdgeListWriter writer = new EdgeListWriter(dataOut, parallelism)) {
+            for (Tuple2<Long, String> node : nodes) {
+                writer.writeNode(node.v1(), node.v2());
+            }
+            writer.writeLine("#");
+            edgeListModel.writeEdges(writer);
+        }
     }
 }
@@ -15,10 +15,10 @@
  */
 package cloudwall.graph.io.graphlet;
 
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
 import cloudwall.graph.io.GraphFormat;
 import cloudwall.graph.io.GraphFormatException;
-import cloudwall.graph.io.ReaderInput;
-import org.javafp.parsecj.Reply;
 
 import javax.activation.DataSource;
 import javax.activation.MimeType;
@@ -50,27 +50,36 @@ public class GMLFormat implements GraphFormat<GMLModel> {
 
     @Override
     public void read(DataSource dataIn, Consumer<GMLModel> modelConsumer) throws GraphFormatException, IOException {
+        GMLModel model;
         try (
-                InputStream in = dataIn.getInputStream();
+                InputStream in = CompressedDataSource.wrap(dataIn).getInputStream();
                 Reader r = new InputStreamReader(in)
             )
         {
-            ReaderInput parserInput = new ReaderInput(r);
-            Reply<Character, GMLModel> result = GMLParser.newInstance().parse(parserInput.toInput());
-            try {
-                GMLModel model = result.getResult();
-                modelConsumer.accept(model);
-            } catch (Exception e) {
-                throw new IOException(e);
-            }
+            model = new GMLParser(r).parse();
+        }
+        modelConsumer.accept(model);
+    }
 
+    /**
+     * Streams the nodes and edges to the visitor as they are parsed, so the node and edge lists are never held in
+     * memory all at once; see {@link GMLParser} for the restrictions this places on the input.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        try (
+                InputStream in = CompressedDataSource.wrap(dataIn).getInputStream();
+                Reader r = new InputStreamReader(in)
+            )
+        {
+            new GMLParser(r).parse(visitor);
         }
     }
 
     @Override
     public void write(DataSource dataOut, GMLModel model) throws IOException {
         try (
-                OutputStream out = dataOut.getOutputStream();
+                OutputStream out = CompressedDataSource.wrap(dataOut).getOutputStream();
                 PrintWriter pw = new PrintWriter(out)
             )
         {
@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphlet;
+
+import cloudwall.graph.*;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Helper which turns GML node and edge lists into {@link GraphVisitor} callbacks, shared by
+ * {@link GMLModel#visit(GraphVisitor)} and the streaming {@link GMLParser}. Vertices are keyed by their {@code id}
+ * and visited on first mention, so an edge may refer to a node which is only declared later in the file.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class GMLGraphEmitter {
+    private final GraphVisitor visitor;
+    private final boolean directed;
+    private final VertexIndex vertices = new VertexIndex();
+
+    GMLGraphEmitter(GraphVisitor visitor, boolean directed) {
+        this.visitor = visitor;
+        this.directed = directed;
+    }
+
+    void visitNode(GMLModel.List node) {
+        vertex(node, "id");
+    }
+
+    void visitEdge(GMLModel.List edge) {
+        Vertex vertex0 = vertex(edge, "source");
+        Vertex vertex1 = vertex(edge, "target");
+
+        Edge<Vertex> edgeToVisit = directed
+                ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
+                : new LightweightEdge<>(vertex0, vertex1);
+        visitor.visitEdge(edgeToVisit);
+    }
+
+    private Vertex vertex(GMLModel.List list, String idKey) {
+        GMLModel.Value id = list.get(idKey);
+        if (id == null || id instanceof GMLModel.List) {
+            throw new IllegalStateException("mal-formed GML for graph representation: missing " + idKey);
+        }
+        Object vertexId = id.getValue();
+        int ndx = vertices.indexOf(vertexId);
+        if (ndx != VertexIndex.NOT_FOUND) {
+            return vertices.getVertex(ndx);
+        }
+        Vertex vertex = new LightweightVertex(vertexId);
+        vertices.add(vertex);
+        visitor.visitVertex(vertex);
+        return vertex;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphlet;
+
+import cloudwall.graph.io.CharWindow;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass tokenizer for GML, reading from a fixed-size window over the character stream. Lines starting with
+ * {@code #} are comments. Numbers are classified while scanning: anything with a decimal point or exponent is a
+ * real, everything else an integer.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class GMLLexer {
+    enum Token {
+        KEY("a key"),
+        INTEGER("an integer"),
+        REAL("a real"),
+        STRING("a string"),
+        LEFT_BRACKET("'['"),
+        RIGHT_BRACKET("']'"),
+        END("end of input");
+
+        private final String label;
+
+        Token(String label) {
+            this.label = label;
+        }
+
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int EOF = CharWindow.EOF;
+
+    private final CharWindow window;
+
+    private int lineNumber = 1;
+    private boolean atLineStart = true;
+
+    private Token token;
+    private int tokenLineNumber;
+    private final StringBuilder text = new StringBuilder();
+
+    GMLLexer(Reader in) {
+        this.window = new CharWindow(in);
+    }
+
+    /**
+     * Advances to the next token and returns its type; at the end of the input this is {@link Token#END}.
+     */
+    Token next() throws GraphFormatException, IOException {
+        text.setLength(0);
+        tokenLineNumber = lineNumber;
+        int c = skipWhitespaceAndComments();
+        atLineStart = false;
+        tokenLineNumber = lineNumber;
+        if (c == EOF) {
+            return token = Token.END;
+        } else if (c == '[') {
+            window.advance();
+            return token = Token.LEFT_BRACKET;
+        } else if (c == ']') {
+            window.advance();
+            return token = Token.RIGHT_BRACKET;
+        } else if (c == '"') {
+            return string();
+        } else if (isLetter(c)) {
+            while ((c = window.peek(0)) != EOF && (isLetter(c) || isDigit(c))) {
+                text.append((char) c);
+                window.advance();
+            }
+            return token = Token.KEY;
+        } else if (isDigit(c) || c == '-' || c == '+' || c == '.') {
+            return number();
+        }
+        throw error("unexpected character '" + (char) c + "'");
+    }
+
+    Token getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the text of the current token; strings are returned without their quotes, and with any character
+     * entities left as they are.
+     */
+    String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Gets the text of the current token without copying it; only valid until the next call to {@link #next()}.
+     */
+    CharSequence getTextSequence() {
+        return text;
+    }
+
+    String describeToken() {
+        switch (token) {
+            case KEY:
+            case INTEGER:
+            case REAL:
+                return "'" + text + "'";
+            case STRING:
+                return "\"" + text + "\"";
+            default:
+                return token.toString();
+        }
+    }
+
+    /**
+     * Creates an exception for a syntax error at the current token.
+     */
+    GraphFormatException error(String problem) {
+        return new GraphFormatException(problem + " at line # " + tokenLineNumber, null);
+    }
+
+    // Integer ::= sign digit+
+    // Real ::= sign digit* . digit* Mantissa
+    private Token number() throws GraphFormatException, IOException {
+        int c = window.peek(0);
+        if (c == '-' || c == '+') {
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+        }
+        int numDigits = 0;
+        boolean real = false;
+        while (isDigit(c) || (c == '.' && !real)) {
+            if (c == '.') {
+                real = true;
+            } else {
+                numDigits++;
+            }
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+        }
+        if (numDigits == 0) {
+            throw error("invalid number '" + text + "'");
+        }
+        if (c == 'E' || c == 'e') {
+            real = true;
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+            if (c == '-' || c == '+') {
+                text.append((char) c);
+                window.advance();
+                c = window.peek(0);
+            }
+            if (!isDigit(c)) {
+                throw error("invalid number '" + text + "'");
+            }
+            while (isDigit(c)) {
+                text.append((char) c);
+                window.advance();
+                c = window.peek(0);
+            }
+        }
+        return token = real ? Token.REAL : Token.INTEGER;
+    }
+
+    private Token string() throws GraphFormatException, IOException {
+        window.advance();
+        while (true) {
+            int c = window.peek(0);
+            if (c == EOF) {
+                throw error("unterminated string");
+            }
+            window.advance();
+            if (c == '"') {
+                return token = Token.STRING;
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            text.append((char) c);
+        }
+    }
+
+    private int skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            int c = window.peek(0);
+            if (c == '\n') {
+                lineNumber++;
+                atLineStart = true;
+                window.advance();
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                window.advance();
+            } else if (c == '#' && atLineStart) {
+                while ((c = window.peek(0)) != EOF && c != '\n') {
+                    window.advance();
+                }
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -17,19 +17,26 @@ package cloudwall.graph.io.graphlet;
 
 import cloudwall.graph.*;
 
-import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Implementation of the Graph Modeling Language (GML) used by Graphlet.
  *
+ * <p>Lists keep their entries in order, and long lists build an index from keys to entries on first lookup, so
+ * reading attributes never needs more than a short scan. Visiting the model walks the graph list once, so graphs load
+ * in linear time regardless of how nodes and edges are interleaved.
+ *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see GMLFormat
  */
 @SuppressWarnings("WeakerAccess")
 public class GMLModel implements GraphModel {
+    static final String GRAPH = "graph";
+    static final String NODE = "node";
+    static final String EDGE = "edge";
+
     private static final Integer IS_DIRECTED = Integer.valueOf(1);
 
     private List root;
@@ -43,49 +50,67 @@ public class GMLModel implements GraphModel {
         return root;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void visit(GraphVisitor visitor) {
-        List graph = (List) root.getValue("graph");
+        List graph = getGraph();
         if (graph == null) {
             throw new IllegalStateException("mal-formed GML for graph representation: missing graph list");
         }
         visitor.start(this);
 
-        Map<Object, LightweightVertex> vertices = new HashMap<>();
-        Collection<List> nodes = graph.getValues("node");
-        nodes.forEach(node -> {
-            Object nodeId = node.getValue("id");
-            LightweightVertex vertex = new LightweightVertex(nodeId);
-            vertices.put(nodeId, vertex);
-            visitor.visitVertex(vertex);
-        });
+        GMLGraphEmitter emitter = new GMLGraphEmitter(visitor, isDirected(graph));
+        for (ListEntry entry : graph) {
+            if (entry.getValue() instanceof List) {
+                if (NODE.equals(entry.getKey())) {
+                    emitter.visitNode((List) entry.getValue());
+                } else if (EDGE.equals(entry.getKey())) {
+                    emitter.visitEdge((List) entry.getValue());
+                }
+            }
+        }
 
-        boolean isDigraph = supports(Feature.DIRECTED);
-        Collection<List> edges = graph.getValues("edge");
-        edges.forEach(edge -> {
-            Object srcId = edge.getValue("source");
-            Object tgtId = edge.getValue("target");
+        visitor.complete();
+    }
 
-            LightweightVertex vertex0 = vertices.get(srcId);
-            LightweightVertex vertex1 = vertices.get(tgtId);
+    @Override
+    public boolean supports(Feature feature) {
+        List graph = getGraph();
+        return (feature == Feature.DIRECTED) && graph != null && isDirected(graph);
+    }
 
-            Edge<LightweightVertex> edgeToVisit = isDigraph
-                    ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
-                    : new LightweightEdge<>(vertex0, vertex1);
+    @Override
+    public long getVertexCount() {
+        return countEntries(NODE);
+    }
 
-            visitor.visitEdge((Edge)edgeToVisit);
-        });
+    @Override
+    public long getEdgeCount() {
+        return countEntries(EDGE);
+    }
 
+    // a plain scan rather than getEntries(), which would build a key index over the whole graph list
+    private long countEntries(String key) {
+        List graph = getGraph();
+        if (graph == null) {
+            return -1;
+        }
+        long count = 0;
+        for (ListEntry entry : graph) {
+            if (key.equals(entry.getKey()) && entry.getValue() instanceof List) {
+                count++;
+            }
+        }
+        return count;
+    }
 
-        visitor.complete();
+    private @Nullable List getGraph() {
+        Value graph = root.get(GRAPH);
+        return graph instanceof List ? (List) graph : null;
     }
 
-    @Override
-    public boolean supports(Feature feature) {
-        List graph = (List) root.getValue("graph");
-        boolean isDirected = graph != null && IS_DIRECTED.equals(graph.getValue("directed"));
-        return (feature == Feature.DIRECTED) && isDirected;
+    static boolean isDirected(List graph) {
+        Value directed = graph.get("directed");
+        return directed != null && IS_DIRECTED.equals(directed.getValue());
     }
 
     public interface Value {
@@ -114,16 +139,72 @@ public class GMLModel implements GraphModel {
     }
 
     public static class List implements Value, Iterable<ListEntry> {
-        // for now doing O(n) linear search in getValue() / getValues() rather than storing multimap for every List
-        private java.util.List<ListEntry> entries = new ArrayList<>();
+        // node and edge lists rarely have more entries than this, and scanning a few is cheaper than hashing
+        private static final int INDEX_THRESHOLD = 8;
+
+        private final java.util.List<ListEntry> entries = new ArrayList<>(4);
+        private Map<String, java.util.List<ListEntry>> index;
+
+        /**
+         * Gets the first entry with the given key, or null if there is none.
+         */
+        public @Nullable ListEntry getEntry(@Nonnull String key) {
+            if (index == null && entries.size() > INDEX_THRESHOLD) {
+                buildIndex();
+            }
+            if (index != null) {
+                java.util.List<ListEntry> matches = index.get(key);
+                return matches == null ? null : matches.get(0);
+            }
+            for (ListEntry entry : entries) {
+                if (key.equals(entry.key)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
 
+        /**
+         * Gets all entries with the given key, in order.
+         */
+        public Collection<ListEntry> getEntries(@Nonnull String key) {
+            if (index == null && entries.size() > INDEX_THRESHOLD) {
+                buildIndex();
+            }
+            if (index != null) {
+                java.util.List<ListEntry> matches = index.get(key);
+                return matches == null ? Collections.emptyList() : Collections.unmodifiableList(matches);
+            }
+            java.util.List<ListEntry> matches = new ArrayList<>();
+            for (ListEntry entry : entries) {
+                if (key.equals(entry.key)) {
+                    matches.add(entry);
+                }
+            }
+            return matches;
+        }
+
+        /**
+         * Gets the value of the first entry with the given key, or null if there is none.
+         */
+        public @Nullable Value get(@Nonnull String key) {
+            ListEntry entry = getEntry(key);
+            return entry == null ? null : entry.getValue();
+        }
+
+        /**
+         * Gets the first entry with the given key, or null if there is none; same as {@link #getEntry(String)}.
+         */
         public Object getValue(@Nonnull String key) {
-            return entries.stream().filter(entry -> key.equals(entry.key)).findFirst().orElseGet(null);
+            return getEntry(key);
         }
 
+        /**
+         * Gets all entries with the given key; same as {@link #getEntries(String)}.
+         */
         @SuppressWarnings("unchecked")
         public <T> Collection<T> getValues(@Nonnull String key) {
-            return (Collection<T>)entries.stream().filter(entry -> key.equals(entry.key)).collect(Collectors.toList());
+            return (Collection<T>) getEntries(key);
         }
 
         @Override
@@ -138,6 +219,9 @@ public class GMLModel implements GraphModel {
 
         public void addEntry(ListEntry entry) {
             entries.add(entry);
+            if (index != null) {
+                index.computeIfAbsent(entry.key, key -> new ArrayList<>(1)).add(entry);
+            }
         }
 
         @Override
@@ -145,6 +229,13 @@ public class GMLModel implements GraphModel {
         public Iterator<ListEntry> iterator() {
             return entries.iterator();
         }
+
+        private void buildIndex() {
+            index = new HashMap<>();
+            for (ListEntry entry : entries) {
+                index.computeIfAbsent(entry.key, key -> new ArrayList<>(1)).add(entry);
+            }
+        }
     }
 
     public static class ListEntry {
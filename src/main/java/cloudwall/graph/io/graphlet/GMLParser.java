@@ -13,15 +13,17 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package cloudwall.graph.io.graphlet;
 
-import org.javafp.parsecj.Parser;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.graphlet.GMLLexer.Token;
 
-import static cloudwall.graph.io.Parsers.jstring;
-import static cloudwall.graph.io.Parsers.token;
-import static org.javafp.parsecj.Combinators.*;
-import static org.javafp.parsecj.Text.*;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Parser for the raw GML format which puts no constraints on what's being represented -- it will accept any model
@@ -42,46 +44,176 @@ import static org.javafp.parsecj.Text.*;
  *     whitespace ::= space | tabulator | newline
  * </pre>
  *
+ * <p>The grammar is LL(1), so this is a recursive descent parser over the tokens from {@link GMLLexer} with no
+ * backtracking. Keys are interned, as the same handful of them repeat in every node and edge. Integers which do not
+ * fit in an {@code int} are kept as {@code Long}. Lists still open at the end of the input are closed implicitly,
+ * as some exporters leave off the final brackets.
+ *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see <a href="http://www.fim.uni-passau.de/fileadmin/files/lehrstuhl/brandenburg/projekte/gml/gml-technical-report.pdf">GML: A portable Graph File Format</a>
  */
+@NotThreadSafe
 @SuppressWarnings("WeakerAccess")
 public class GMLParser {
+    private final GMLLexer lexer;
+    private final Map<String, String> keys = new HashMap<>();
+
+    public GMLParser(Reader in) {
+        this.lexer = new GMLLexer(in);
+    }
+
+    /**
+     * Parses the whole input into a model.
+     */
+    public GMLModel parse() throws GraphFormatException, IOException {
+        lexer.next();
+        return new GMLModel(list(false));
+    }
+
+    /**
+     * Parses the input and passes the graph it describes straight to the visitor, as for
+     * {@link GMLModel#visit(GraphVisitor)}, without keeping the node and edge lists. The graph's own attributes must
+     * come before its first node or edge, as they are needed to start the visit, and the model passed to
+     * {@link GraphVisitor#start} only holds those attributes, with -1 vertex and edge counts for unknown. Anything
+     * outside the first {@code graph} list is ignored.
+     */
+    void parse(GraphVisitor visitor) throws GraphFormatException, IOException {
+        lexer.next();
+        boolean seenGraph = false;
+        while (lexer.getToken() != Token.END) {
+            String key = key();
+            if (!seenGraph && key.equals(GMLModel.GRAPH) && lexer.getToken() == Token.LEFT_BRACKET) {
+                lexer.next();
+                streamGraph(visitor);
+                seenGraph = true;
+            } else {
+                value();
+            }
+        }
+        if (!seenGraph) {
+            throw new GraphFormatException("mal-formed GML for graph representation: missing graph list", null);
+        }
+    }
 
-    public static Parser<Character, GMLModel> newInstance() {
-        return list().bind(list -> retn(new GMLModel(list)));
+    private void streamGraph(GraphVisitor visitor) throws GraphFormatException, IOException {
+        GMLModel.List graph = new GMLModel.List();
+        GMLGraphEmitter emitter = null;
+        while (lexer.getToken() != Token.RIGHT_BRACKET && lexer.getToken() != Token.END) {
+            String key = key();
+            GMLModel.Value value = value();
+            boolean isNode = key.equals(GMLModel.NODE);
+            if ((isNode || key.equals(GMLModel.EDGE)) && value instanceof GMLModel.List) {
+                if (emitter == null) {
+                    emitter = startVisit(visitor, graph);
+                }
+                try {
+                    if (isNode) {
+                        emitter.visitNode((GMLModel.List) value);
+                    } else {
+                        emitter.visitEdge((GMLModel.List) value);
+                    }
+                } catch (IllegalStateException e) {
+                    throw lexer.error(e.getMessage());
+                }
+            } else {
+                graph.addEntry(new GMLModel.ListEntry(key, value));
+            }
+        }
+        if (lexer.getToken() == Token.RIGHT_BRACKET) {
+            lexer.next();
+        }
+        if (emitter == null) {
+            startVisit(visitor, graph);
+        }
+        visitor.complete();
     }
 
-    private static Parser<Character, GMLModel.List> list() {
-        return many(attempt(listEntry())).bind(entries -> {
-            GMLModel.List list = new GMLModel.List();
-            entries.forEach(list::addEntry);
-            return retn(list);
-        });
+    private static GMLGraphEmitter startVisit(GraphVisitor visitor, GMLModel.List graph) {
+        GMLModel.List root = new GMLModel.List();
+        root.addEntry(new GMLModel.ListEntry(GMLModel.GRAPH, graph));
+        visitor.start(new StreamedModel(root));
+        return new GMLGraphEmitter(visitor, GMLModel.isDirected(graph));
     }
 
-    private static Parser<Character, GMLModel.ListEntry> listEntry() {
-        return alphaNum
-                .bind(key -> wspaces.then(value()
-                .bind(value -> retn(new GMLModel.ListEntry(key, value)))));
+    // List ::= (whitespace* Key whitespace+ Value)
+    private GMLModel.List list(boolean nested) throws GraphFormatException, IOException {
+        GMLModel.List list = new GMLModel.List();
+        while (true) {
+            Token token = lexer.getToken();
+            if (token == Token.RIGHT_BRACKET && nested) {
+                lexer.next();
+                return list;
+            } else if (token == Token.END) {
+                return list;
+            }
+            String key = key();
+            list.addEntry(new GMLModel.ListEntry(key, value()));
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    private static Parser<Character, GMLModel.Value> value() {
-        return choice(
-                scalarValue(token(dble), Double.class),
-                scalarValue(token(intr), Integer.class),
-                scalarValue(jstring, String.class),
-                token(chr('[')).then(list()
-                        .bind(list -> token(chr(']'))
-                                .bind(endList -> retn(list)
-                                )
-                        )
-                )
-        );
+    private String key() throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.KEY) {
+            throw unexpected(Token.KEY.toString());
+        }
+        String text = lexer.getText();
+        String key = keys.putIfAbsent(text, text);
+        lexer.next();
+        return key != null ? key : text;
     }
 
-    private static <T> Parser<Character, GMLModel.Value> scalarValue(Parser<Character, T> p, Class<?> clazz) {
-        return p.bind(parsedValue -> retn(new GMLModel.Scalar(parsedValue, clazz)));
+    // Value ::= Integer | Real | String | [ List ]
+    private GMLModel.Value value() throws GraphFormatException, IOException {
+        GMLModel.Value value;
+        switch (lexer.getToken()) {
+            case INTEGER:
+                value = integer(lexer.getTextSequence());
+                break;
+            case REAL:
+                value = new GMLModel.Scalar(Double.parseDouble(lexer.getText()), Double.class);
+                break;
+            case STRING:
+                value = new GMLModel.Scalar(lexer.getText(), String.class);
+                break;
+            case LEFT_BRACKET:
+                lexer.next();
+                return list(true);
+            default:
+                throw unexpected("a value");
+        }
+        lexer.next();
+        return value;
+    }
+
+    private GMLModel.Value integer(CharSequence text) throws GraphFormatException {
+        try {
+            return new GMLModel.Scalar(Integer.parseInt(text, 0, text.length(), 10), Integer.class);
+        } catch (NumberFormatException e) {
+            try {
+                return new GMLModel.Scalar(Long.parseLong(text, 0, text.length(), 10), Long.class);
+            } catch (NumberFormatException e2) {
+                throw lexer.error("integer out of range '" + text + "'");
+            }
+        }
+    }
+
+    private GraphFormatException unexpected(String expected) {
+        return lexer.error("expected " + expected + " but found " + lexer.describeToken());
+    }
+
+    // the graph list only holds the attributes read so far, as nodes and edges go straight to the visitor
+    private static final class StreamedModel extends GMLModel {
+        StreamedModel(GMLModel.List root) {
+            super(root);
+        }
+
+        @Override
+        public long getVertexCount() {
+            return -1;
+        }
+
+        @Override
+        public long getEdgeCount() {
+            return -1;
+        }
     }
 }
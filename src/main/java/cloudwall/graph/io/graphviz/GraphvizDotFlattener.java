@@ -0,0 +1,164 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphviz;
+
+import cloudwall.graph.Edge;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.HeavyweightDirectedEdge;
+import cloudwall.graph.LightweightEdge;
+import cloudwall.graph.LightweightVertex;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.VertexIndex;
+import cloudwall.graph.io.graphviz.GraphvizDotModel.*;
+import cloudwall.graph.util.LongIntHashMap;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Helper for {@link GraphvizDotModel#visit(GraphVisitor)} which flattens the statement tree into plain vertices and
+ * edges. Every distinct node name becomes one {@link LightweightVertex}, visited the first time it is mentioned, and
+ * edges are emitted as the statements are walked:
+ *
+ * <ul>
+ *     <li>an edge chain {@code a -> b -> c} yields one edge per consecutive pair of terminals</li>
+ *     <li>a subgraph terminal stands for every node mentioned inside it, so {@code {a b} -> {c d}} yields four
+ *     edges, in addition to any edges declared within the subgraph itself</li>
+ *     <li>in a {@code strict} graph repeated edges are dropped, in either direction for undirected graphs</li>
+ * </ul>
+ *
+ * <p>Nodes are tracked by index, so a subgraph's members are a sorted {@code int[]} gathered from a shared scratch
+ * array while its statements are visited, and strict de-duplication uses a primitive set of packed index pairs.
+ * Ports and attributes do not affect the graph structure and are ignored.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class GraphvizDotFlattener {
+    private final GraphVisitor visitor;
+    private final boolean directed;
+    private final VertexIndex vertexIndex = new VertexIndex();
+    private final LongIntHashMap strictEdges;
+
+    // vertex indices mentioned inside the subgraph terminals currently being visited, innermost last
+    private int[] members = new int[64];
+    private int numMembers = 0;
+    private int collectingDepth = 0;
+
+    GraphvizDotFlattener(GraphVisitor visitor, boolean directed, boolean strict) {
+        this.visitor = visitor;
+        this.directed = directed;
+        this.strictEdges = strict ? new LongIntHashMap(1024, -1) : null;
+    }
+
+    void visitStatements(Collection<Statement> statements) {
+        for (Statement statement : statements) {
+            if (statement instanceof EdgeStatement) {
+                visitEdgeStatement((EdgeStatement) statement);
+            } else if (statement instanceof NodeStatement) {
+                vertex(((NodeStatement) statement).getNodeId());
+            } else if (statement instanceof Subgraph) {
+                visitStatements(((Subgraph) statement).getStatements());
+            }
+        }
+    }
+
+    private void visitEdgeStatement(EdgeStatement statement) {
+        EdgeTerminal lhs = statement.getLhsTerminal();
+        int[] lhsMembers = lhs instanceof Subgraph ? subgraphMembers((Subgraph) lhs) : null;
+        int lhsVertex = lhsMembers == null ? vertex((NodeId) lhs) : -1;
+        for (EdgeTerminal rhs : statement.getRhsTerminals()) {
+            int[] rhsMembers = rhs instanceof Subgraph ? subgraphMembers((Subgraph) rhs) : null;
+            int rhsVertex = rhsMembers == null ? vertex((NodeId) rhs) : -1;
+            if (lhsMembers == null && rhsMembers == null) {
+                emitEdge(lhsVertex, rhsVertex);
+            } else if (lhsMembers == null) {
+                for (int target : rhsMembers) {
+                    emitEdge(lhsVertex, target);
+                }
+            } else {
+                for (int source : lhsMembers) {
+                    if (rhsMembers == null) {
+                        emitEdge(source, rhsVertex);
+                    } else {
+                        for (int target : rhsMembers) {
+                            emitEdge(source, target);
+                        }
+                    }
+                }
+            }
+            lhsMembers = rhsMembers;
+            lhsVertex = rhsVertex;
+        }
+    }
+
+    /**
+     * Visits the subgraph's statements and returns the distinct nodes mentioned in them, including nested subgraphs.
+     * These remain in the scratch array afterwards, as they are also members of any enclosing subgraph terminal.
+     */
+    private int[] subgraphMembers(Subgraph subgraph) {
+        int start = numMembers;
+        collectingDepth++;
+        visitStatements(subgraph.getStatements());
+        collectingDepth--;
+
+        int[] distinct = Arrays.copyOfRange(members, start, numMembers);
+        Arrays.sort(distinct);
+        int numDistinct = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (i == 0 || distinct[i] != distinct[i - 1]) {
+                distinct[numDistinct++] = distinct[i];
+            }
+        }
+        if (collectingDepth == 0) {
+            numMembers = 0;
+        }
+        return numDistinct == distinct.length ? distinct : Arrays.copyOf(distinct, numDistinct);
+    }
+
+    private int vertex(NodeId nodeId) {
+        String name = nodeId.getNodeId().getValue();
+        int ndx = vertexIndex.indexOf(name);
+        if (ndx == VertexIndex.NOT_FOUND) {
+            Vertex vertex = new LightweightVertex(name);
+            ndx = vertexIndex.add(vertex);
+            visitor.visitVertex(vertex);
+        }
+        if (collectingDepth > 0) {
+            if (numMembers == members.length) {
+                members = Arrays.copyOf(members, numMembers * 2);
+            }
+            members[numMembers++] = ndx;
+        }
+        return ndx;
+    }
+
+    private void emitEdge(int source, int target) {
+        if (strictEdges != null) {
+            int low = directed ? source : Math.min(source, target);
+            int high = directed ? target : Math.max(source, target);
+            if (strictEdges.putIfAbsent(((long) low << 32) | high, 0) != -1) {
+                return;
+            }
+        }
+        Vertex vertex0 = vertexIndex.getVertex(source);
+        Vertex vertex1 = vertexIndex.getVertex(target);
+        Edge<Vertex> edge = directed ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
+                : new LightweightEdge<>(vertex0, vertex1);
+        visitor.visitEdge(edge);
+    }
+}
@@ -15,29 +15,32 @@
  */
 package cloudwall.graph.io.graphviz;
 
+import cloudwall.graph.io.CompressedDataSource;
 import cloudwall.graph.io.GraphFormat;
 import cloudwall.graph.io.GraphFormatException;
-import com.google.common.collect.ImmutableList;
-import org.javafp.parsecj.Parser;
 
 import javax.activation.DataSource;
 import javax.activation.MimeType;
 import javax.activation.MimeTypeParseException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
-import static cloudwall.graph.io.Parsers.keyword;
-import static cloudwall.graph.io.Parsers.token;
-import static org.javafp.parsecj.Combinators.retn;
-import static org.javafp.parsecj.Text.string;
-import static org.javafp.parsecj.Text.wspaces;
-
 /**
- * Reader for the Graphviz DOT format.
+ * Reader and writer for the Graphviz DOT format. Input is tokenized in a single pass over a fixed-size window, so
+ * large files are not held in memory as text, only as the resulting model. Files are read and written as UTF-8,
+ * the DOT default.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="http://www.graphviz.org/content/dot-language">DOT grammar</a>
  */
-@SuppressWarnings("unchecked")
 public class GraphvizDotFormat implements GraphFormat<GraphvizDotModel> {
     private static final MimeType[] CONTENT_TYPES;
     static {
@@ -48,6 +51,8 @@ public class GraphvizDotFormat implements GraphFormat<GraphvizDotModel> {
         }
     }
 
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     @Override
     public MimeType[] getSupportedContentTypes() {
         return CONTENT_TYPES;
@@ -55,12 +60,19 @@ public class GraphvizDotFormat implements GraphFormat<GraphvizDotModel> {
 
     @Override
     public void read(DataSource dataIn, Consumer<GraphvizDotModel> modelConsumer) throws GraphFormatException, IOException {
-
+        GraphvizDotModel model;
+        InputStream raw = CompressedDataSource.wrap(dataIn).getInputStream();
+        try (Reader in = new InputStreamReader(raw, StandardCharsets.UTF_8)) {
+            model = new GraphvizDotParser(in).parse();
+        }
+        modelConsumer.accept(model);
     }
 
     @Override
-    public void write(DataSource dataOut, GraphvizDotModel model) {
-
+    public void write(DataSource dataOut, GraphvizDotModel model) throws IOException {
+        OutputStream raw = CompressedDataSource.wrap(dataOut).getOutputStream();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(raw, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            new GraphvizDotWriter(out).write(model);
+        }
     }
-
 }
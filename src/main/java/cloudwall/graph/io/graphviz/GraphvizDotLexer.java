@@ -0,0 +1,326 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphviz;
+
+import cloudwall.graph.io.CharWindow;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass tokenizer for the Graphviz DOT language, reading from a fixed-size window over the character stream so
+ * memory use does not depend on the size of the input. Comments ({@code //}, {@code /* *}{@code /} and lines starting
+ * with {@code #}) are skipped, and quoted strings joined with {@code +} come back as a single token.
+ *
+ * <p>Keywords are not distinguished from other unquoted IDs here, as DOT treats them case-insensitively; see
+ * {@link #isKeyword(String)}.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="http://www.graphviz.org/content/dot-language">DOT grammar</a>
+ */
+@NotThreadSafe
+class GraphvizDotLexer {
+    enum Token {
+        ID(null),
+        QUOTED_ID(null),
+        HTML_ID(null),
+        LEFT_BRACE("'{'"),
+        RIGHT_BRACE("'}'"),
+        LEFT_BRACKET("'['"),
+        RIGHT_BRACKET("']'"),
+        EQUALS("'='"),
+        SEMICOLON("';'"),
+        COMMA("','"),
+        COLON("':'"),
+        DIRECTED_EDGE("'->'"),
+        UNDIRECTED_EDGE("'--'"),
+        END("end of input");
+
+        private final String label;
+
+        Token(String label) {
+            this.label = label;
+        }
+
+        public String toString() {
+            return label != null ? label : name();
+        }
+    }
+
+    private static final int EOF = CharWindow.EOF;
+
+    private final CharWindow window;
+
+    private int lineNumber = 1;
+    private boolean atLineStart = true;
+
+    private Token token;
+    private int tokenLineNumber;
+    private final StringBuilder text = new StringBuilder();
+
+    GraphvizDotLexer(Reader in) {
+        this.window = new CharWindow(in);
+    }
+
+    GraphvizDotLexer(Reader in, int bufferSize) {
+        this.window = new CharWindow(in, bufferSize);
+    }
+
+    /**
+     * Advances to the next token and returns its type; at the end of the input this is {@link Token#END}.
+     */
+    Token next() throws GraphFormatException, IOException {
+        text.setLength(0);
+        tokenLineNumber = lineNumber;
+        int c = skipWhitespaceAndComments();
+        atLineStart = false;
+        tokenLineNumber = lineNumber;
+        switch (c) {
+            case EOF:
+                return token = Token.END;
+            case '{':
+                return punctuation(Token.LEFT_BRACE);
+            case '}':
+                return punctuation(Token.RIGHT_BRACE);
+            case '[':
+                return punctuation(Token.LEFT_BRACKET);
+            case ']':
+                return punctuation(Token.RIGHT_BRACKET);
+            case '=':
+                return punctuation(Token.EQUALS);
+            case ';':
+                return punctuation(Token.SEMICOLON);
+            case ',':
+                return punctuation(Token.COMMA);
+            case ':':
+                return punctuation(Token.COLON);
+            case '"':
+                return quoted();
+            case '<':
+                return html();
+            case '-':
+                if (window.peek(1) == '>') {
+                    window.advance(2);
+                    return token = Token.DIRECTED_EDGE;
+                } else if (window.peek(1) == '-') {
+                    window.advance(2);
+                    return token = Token.UNDIRECTED_EDGE;
+                }
+                return numeral();
+            default:
+                if (isIdStart(c)) {
+                    return identifier();
+                } else if (isDigit(c) || c == '.') {
+                    return numeral();
+                }
+                throw error("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    Token getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the text of the current ID token: without the quotes for quoted strings, but including the angle brackets
+     * for HTML strings.
+     */
+    String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Gets the text of the current token without copying it; only valid until the next call to {@link #next()}.
+     */
+    CharSequence getTextSequence() {
+        return text;
+    }
+
+    /**
+     * Tests whether the current token is the given keyword, ignoring case.
+     */
+    boolean isKeyword(String keyword) {
+        return token == Token.ID && text.length() == keyword.length() && keyword.equalsIgnoreCase(getText());
+    }
+
+    int getLineNumber() {
+        return tokenLineNumber;
+    }
+
+    /**
+     * Describes the current token for error messages.
+     */
+    String describeToken() {
+        switch (token) {
+            case ID:
+            case HTML_ID:
+                return "'" + text + "'";
+            case QUOTED_ID:
+                return "\"" + text + "\"";
+            default:
+                return token.toString();
+        }
+    }
+
+    /**
+     * Creates an exception for a syntax error at the current token.
+     */
+    GraphFormatException error(String problem) {
+        return new GraphFormatException(problem + " at line # " + tokenLineNumber, null);
+    }
+
+    private Token punctuation(Token punctuation) {
+        window.advance();
+        return token = punctuation;
+    }
+
+    private Token identifier() throws IOException {
+        int c;
+        while ((c = window.peek(0)) != EOF && (isIdStart(c) || isDigit(c))) {
+            text.append((char) c);
+            window.advance();
+        }
+        return token = Token.ID;
+    }
+
+    // [-]?(.[0-9]+ | [0-9]+(.[0-9]*)?)
+    private Token numeral() throws GraphFormatException, IOException {
+        int c = window.peek(0);
+        if (c == '-') {
+            text.append('-');
+            window.advance();
+            c = window.peek(0);
+        }
+        int numDigits = 0;
+        boolean seenDot = false;
+        while (isDigit(c) || (c == '.' && !seenDot)) {
+            if (c == '.') {
+                seenDot = true;
+            } else {
+                numDigits++;
+            }
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+        }
+        if (numDigits == 0) {
+            throw error("invalid numeral '" + text + "'");
+        }
+        return token = Token.ID;
+    }
+
+    private Token quoted() throws GraphFormatException, IOException {
+        while (true) {
+            // opening quote
+            window.advance();
+            while (true) {
+                int c = window.peek(0);
+                if (c == EOF) {
+                    throw error("unterminated string");
+                } else if (c == '"') {
+                    window.advance();
+                    break;
+                } else if (c == '\\' && window.peek(1) == '\n') {
+                    // line continuation
+                    window.advance(2);
+                    lineNumber++;
+                } else if (c == '\\' && window.peek(1) == '"') {
+                    text.append('"');
+                    window.advance(2);
+                } else if (c == '\\' && window.peek(1) == '\\') {
+                    // an escaped backslash stays as written for the renderer, but cannot escape what follows it
+                    text.append("\\\\");
+                    window.advance(2);
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    text.append((char) c);
+                    window.advance();
+                }
+            }
+
+            // "a" + "b" is a single ID
+            if (skipWhitespaceAndComments() != '+') {
+                return token = Token.QUOTED_ID;
+            }
+            window.advance();
+            if (skipWhitespaceAndComments() != '"') {
+                throw error("expected a string after '+'");
+            }
+        }
+    }
+
+    private Token html() throws GraphFormatException, IOException {
+        int depth = 0;
+        while (true) {
+            int c = window.peek(0);
+            if (c == EOF) {
+                throw error("unterminated HTML string");
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            text.append((char) c);
+            window.advance();
+            if (c == '<') {
+                depth++;
+            } else if (c == '>' && --depth == 0) {
+                return token = Token.HTML_ID;
+            }
+        }
+    }
+
+    private int skipWhitespaceAndComments() throws GraphFormatException, IOException {
+        while (true) {
+            int c = window.peek(0);
+            if (c == '\n') {
+                lineNumber++;
+                atLineStart = true;
+                window.advance();
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                window.advance();
+            } else if ((c == '#' && atLineStart) || (c == '/' && window.peek(1) == '/')) {
+                while ((c = window.peek(0)) != EOF && c != '\n') {
+                    window.advance();
+                }
+            } else if (c == '/' && window.peek(1) == '*') {
+                window.advance(2);
+                while (!(window.peek(0) == '*' && window.peek(1) == '/')) {
+                    c = window.peek(0);
+                    if (c == EOF) {
+                        throw error("unterminated comment");
+                    } else if (c == '\n') {
+                        lineNumber++;
+                    }
+                    window.advance();
+                }
+                window.advance(2);
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private static boolean isIdStart(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c >= 0x80;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -16,13 +16,16 @@
 package cloudwall.graph.io.graphviz;
 
 import cloudwall.graph.GraphModel;
+import cloudwall.graph.GraphVisitor;
 
 import javax.annotation.Nullable;
 import java.util.*;
 import java.util.function.Function;
 
 /**
- * Object model for the content of a Graphviz DOT model.
+ * Object model for the content of a Graphviz DOT model. Visiting it flattens the statements into a plain graph:
+ * edge chains and subgraph terminals are expanded into individual edges between the named nodes, and a strict
+ * graph's repeated edges are dropped.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  */
@@ -66,6 +69,18 @@ public class GraphvizDotModel implements GraphModel {
         statements.add(statement);
     }
 
+    @Override
+    public boolean supports(Feature feature) {
+        return feature == Feature.DIRECTED && digraph;
+    }
+
+    @Override
+    public void visit(GraphVisitor visitor) {
+        visitor.start(this);
+        new GraphvizDotFlattener(visitor, digraph, strict).visitStatements(statements);
+        visitor.complete();
+    }
+
     public enum CompassPoint {
         NORTH("n"),
         NORTHEAST("ne"),
@@ -107,13 +122,56 @@ public class GraphvizDotModel implements GraphModel {
             this.quoted = quoted;
         }
 
+        /**
+         * Gets the text of the ID without surrounding quotes; escaped quotes in quoted IDs are unescaped, other escapes
+         * such as {@code \n} are left as is for the renderer, and HTML strings keep their angle brackets.
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public boolean isQuoted() {
+            return quoted;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Id that = (Id) o;
+            return quoted == that.quoted && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * value.hashCode() + (quoted ? 1 : 0);
+        }
+
         public String toString() {
             if (!quoted) {
                 return value;
             } else {
                 StringBuilder sb = new StringBuilder();
                 sb.append('"');
-                sb.append(value);
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '\\') {
+                        int next = i + 1 < value.length() ? value.charAt(i + 1) : '"';
+                        if (next == '\\') {
+                            // already an escaped backslash
+                            sb.append("\\\\");
+                            i++;
+                            continue;
+                        } else if (next == '"') {
+                            // a lone backslash would escape the quote after it, or the closing one
+                            sb.append('\\');
+                        }
+                    } else if (c == '"') {
+                        sb.append('\\');
+                    }
+                    sb.append(c);
+                }
                 sb.append('"');
                 return sb.toString();
             }
@@ -140,6 +198,14 @@ public class GraphvizDotModel implements GraphModel {
             this.id = id;
         }
 
+        public @Nullable Id getId() {
+            return id;
+        }
+
+        public Collection<Statement> getStatements() {
+            return statements;
+        }
+
         public void addStatement(Statement stmt) {
             statements.add(stmt);
         }
@@ -202,6 +268,10 @@ public class GraphvizDotModel implements GraphModel {
             attributes.add(attr);
         }
 
+        public Collection<Attribute> getAttributes() {
+            return attributes;
+        }
+
         public String toString() {
             if (attributes.isEmpty()) {
                 return "";
@@ -209,9 +279,7 @@ public class GraphvizDotModel implements GraphModel {
                 StringBuilder sb = new StringBuilder();
                 sb.append("[");
                 for (Attribute attr : attributes) {
-                    sb.append(attr.id);
-                    sb.append("=");
-                    sb.append(attr.value);
+                    sb.append(attr);
                     sb.append(";");
                 }
                 sb.setLength(sb.length() - 1);
@@ -231,12 +299,26 @@ public class GraphvizDotModel implements GraphModel {
         private final Id id;
         private final Id value;
 
-        public Attribute(Id id, Id value) {
+        /**
+         * Creates an attribute; the value may be omitted inside attribute lists, e.g. {@code [center]}.
+         */
+        public Attribute(Id id, @Nullable Id value) {
             this.id = id;
             this.value = value;
         }
 
+        public Id getId() {
+            return id;
+        }
+
+        public @Nullable Id getValue() {
+            return value;
+        }
+
         public String toString() {
+            if (value == null) {
+                return id.toString();
+            }
             StringBuilder sb = new StringBuilder();
             sb.append(id);
             sb.append("=");
@@ -270,6 +352,14 @@ public class GraphvizDotModel implements GraphModel {
             this.attributes = attributes;
         }
 
+        public AttributeScope getScope() {
+            return scope;
+        }
+
+        public Collection<AttributeList> getAttributes() {
+            return attributes;
+        }
+
         public String toString() {
             return conditionalToString(attributes, attrs -> scope + " " + attrs);
         }
@@ -284,6 +374,14 @@ public class GraphvizDotModel implements GraphModel {
             this.attributes = attributes;
         }
 
+        public NodeId getNodeId() {
+            return id;
+        }
+
+        public Collection<AttributeList> getAttributes() {
+            return attributes;
+        }
+
         public String toString() {
             return conditionalToString(attributes, attrs -> id + " " + attrs);
         }
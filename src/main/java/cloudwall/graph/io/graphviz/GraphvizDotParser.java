@@ -13,231 +13,310 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package cloudwall.graph.io.graphviz;
 
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.graphviz.GraphvizDotLexer.Token;
 import cloudwall.graph.io.graphviz.GraphvizDotModel.*;
-import org.javafp.data.IList;
-import org.javafp.parsecj.Parser;
-import org.jooq.lambda.tuple.Tuple2;
-
-import java.util.*;
 
-import static cloudwall.graph.io.Parsers.*;
-import static org.javafp.parsecj.Combinators.*;
-import static org.javafp.parsecj.Text.*;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * Helper class for {@link GraphvizDotFormat} that implements a basic recursive descent parser for the
- * Graphviz DOT language.
+ * Helper class for {@link GraphvizDotFormat} that implements a recursive descent parser for the Graphviz DOT
+ * language. The grammar is parsed with a single token of lookahead from {@link GraphvizDotLexer}, so there is no
+ * backtracking and parsing is linear in the size of the input: statements starting with an ID are only classified as
+ * attribute, node or edge statements once the ID and any port have been read.
+ *
+ * <p>Node names and attribute keys repeat constantly in real files, so short IDs are interned: every occurrence of
+ * the same text shares one {@link Id}, looked up straight from the lexer's buffer without creating a string.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see <a href="http://www.graphviz.org/content/dot-language">DOT grammar</a>
  */
-@SuppressWarnings("WeakerAccess")
+@NotThreadSafe
 class GraphvizDotParser {
-    // graph        : [ strict ] (graph | digraph) [ ID ] '{' stmt_list '}'
-    @SuppressWarnings("unchecked")
-    static Parser<Character, GraphvizDotModel> newInstance() {
-        return option(keyword("strict").then(retn(true)), false)
-                .bind(strict -> choice(keyword("graph"), keyword("digraph"))
-                        .bind(graphType -> option(id(), null)
-                                .bind(id -> wspaces.then(between(token(chr('{')), token(chr('}')), statementList())
-                                        .bind(stmts -> {
-                                                    GraphvizDotModel model = new GraphvizDotModel(id);
-                                                    model.setStrict(strict);
-                                                    model.setDigraph(graphType.equalsIgnoreCase("digraph"));
-                                                    stmts.forEach(model::addStatement);
-                                                    return retn(model);
-                                                }
-                                        )
-                                )
-                        )
-                ));
+    // longer IDs are mostly one-off labels, not worth keeping in the table
+    private static final int MAX_INTERNED_LENGTH = 64;
+
+    private final GraphvizDotLexer lexer;
+    private boolean digraph;
+
+    // open-addressing table of interned IDs
+    private Id[] ids = new Id[1024];
+    private int numIds = 0;
+
+    GraphvizDotParser(Reader in) {
+        this.lexer = new GraphvizDotLexer(in);
     }
 
-    // subgraph     : [ subgraph [ ID ] ] '{' stmt_list '}'
-    static Parser<Character, Subgraph> subgraph() {
-        return keyword("subgraph").then(option(id(), null)
-                .bind(id -> wspaces.then(between(token(chr('{')), token(chr('}')), statementList()
-                        .bind(stmts -> {
-                            Subgraph subgraph = new Subgraph();
-                            stmts.forEach(subgraph::addStatement);
-                            return retn(null);
-                        }))
-                )
-        ));
+    // graph        : [ strict ] (graph | digraph) [ ID ] '{' stmt_list '}'
+    GraphvizDotModel parse() throws GraphFormatException, IOException {
+        lexer.next();
+        boolean strict = false;
+        if (lexer.isKeyword("strict")) {
+            strict = true;
+            lexer.next();
+        }
+        if (lexer.isKeyword("digraph")) {
+            digraph = true;
+        } else if (!lexer.isKeyword("graph")) {
+            throw unexpected("'graph' or 'digraph'");
+        }
+        lexer.next();
+
+        GraphvizDotModel model = new GraphvizDotModel(isAtId() ? takeId() : null);
+        model.setStrict(strict);
+        model.setDigraph(digraph);
+        expect(Token.LEFT_BRACE);
+        statementList(model::addStatement);
+        expect(Token.RIGHT_BRACE);
+        if (lexer.getToken() != Token.END) {
+            throw unexpected("end of input");
+        }
+        return model;
     }
 
     // stmt_list    : [ stmt [ ';' ] stmt_list ]
-    @SuppressWarnings("unchecked")
-    static Parser<Character, IList<Statement>> statementList() {
-        return statement().bind(initialStmt -> many(statementListTail()).bind(tail -> {
-            IList<Statement> stmts = IList.of(initialStmt);
-            stmts.addAll((IList<Statement>)tail);
-            return retn(stmts);
-        }));
+    private void statementList(Consumer<Statement> statements) throws GraphFormatException, IOException {
+        while (lexer.getToken() != Token.RIGHT_BRACE) {
+            statements.accept(statement());
+            if (lexer.getToken() == Token.SEMICOLON) {
+                lexer.next();
+            }
+        }
     }
 
-    @SuppressWarnings("unchecked")
-    static Parser<Character, ? extends Statement> statementListTail() {
-        return token(chr(';')).then(statement());
-    }
+    // stmt         : node_stmt | edge_stmt | attr_stmt | ID '=' ID | subgraph
+    private Statement statement() throws GraphFormatException, IOException {
+        AttributeScope scope = attributeScope();
+        if (scope != null) {
+            lexer.next();
+            return new AttributeStatement(scope, attributeLists(true));
+        }
 
-    // node_stmt | edge_stmt | attr_stmt | ID '=' ID | subgraph
-    @SuppressWarnings("unchecked")
-    static Parser<Character, ? extends Statement> statement() {
-        IList<Parser<Character, ? extends Statement>> parsers = IList.of();
-        parsers = parsers.add(attempt(attribute()));
-        parsers = parsers.add(attempt(attributeStatement()));
-        parsers = parsers.add(attempt(nodeStatement()));
-        parsers = parsers.add(attempt(edgeStatement()));
-        parsers = parsers.add(attempt(subgraph()));
-        return choice((IList)parsers);
+        if (lexer.isKeyword("subgraph") || lexer.getToken() == Token.LEFT_BRACE) {
+            Subgraph subgraph = subgraph();
+            return isAtEdgeOp() ? edgeStatement(subgraph) : subgraph;
+        }
+
+        if (!isAtId()) {
+            throw unexpected("a statement");
+        }
+        Id id = takeId();
+        if (lexer.getToken() == Token.EQUALS) {
+            lexer.next();
+            return new Attribute(id, requireId());
+        }
+        NodeId nodeId = nodeId(id);
+        if (isAtEdgeOp()) {
+            return edgeStatement(nodeId);
+        }
+        return new NodeStatement(nodeId, attributeLists(false));
     }
 
     // edge_stmt    : (node_id | subgraph) edgeRHS [ attr_list ]
-    static Parser<Character, EdgeStatement> edgeStatement() {
-        return edgeTerminal().bind(lhs -> many1(edgeRHS())
-                .bind(rhs -> option(attributeList(), new AttributeList())
-                        .bind(attrs -> {
-                            EdgeOp edgeOp;
-                            Set<EdgeOp> edgeOps = new HashSet<>();
-                            List<EdgeTerminal> rhsTerminals = new ArrayList<>();
-
-                            rhs.forEach(terminal -> {
-                                edgeOps.add(terminal.v1);
-                                rhsTerminals.add(terminal.v2);
-                            });
-
-                            if (edgeOps.size() != 1) {
-                                throw new IllegalStateException("expected exactly one edge op type; got " + edgeOps);
-                            } else {
-                                edgeOp = edgeOps.iterator().next();
-                            }
-
-                            EdgeStatement edgeStmt = new EdgeStatement(lhs, edgeOp, rhsTerminals, attrs);
-                            return retn(edgeStmt);
-                        })));
+    // edgeRHS      : edgeop (node_id | subgraph) [ edgeRHS ]
+    private EdgeStatement edgeStatement(EdgeTerminal lhs) throws GraphFormatException, IOException {
+        Token expectedOp = digraph ? Token.DIRECTED_EDGE : Token.UNDIRECTED_EDGE;
+        List<EdgeTerminal> rhs = new ArrayList<>(2);
+        while (isAtEdgeOp()) {
+            if (lexer.getToken() != expectedOp) {
+                throw unexpected(expectedOp + " in a " + (digraph ? "digraph" : "graph"));
+            }
+            lexer.next();
+            if (lexer.isKeyword("subgraph") || lexer.getToken() == Token.LEFT_BRACE) {
+                rhs.add(subgraph());
+            } else {
+                rhs.add(nodeId(requireId()));
+            }
+        }
+
+        // several attribute lists on an edge are equivalent to one long one
+        AttributeList attributes = new AttributeList();
+        for (AttributeList list : attributeLists(false)) {
+            list.getAttributes().forEach(attributes::addAttribute);
+        }
+        return new EdgeStatement(lhs, digraph ? EdgeOp.DIRECTED : EdgeOp.UNDIRECTED, rhs, attributes);
     }
 
-    // edgeRHS      : edgeop (node_id | subgraph) [ edgeRHS ]
-    @SuppressWarnings("unchecked")
-    static Parser<Character, Tuple2<EdgeOp, EdgeTerminal>> edgeRHS() {
-        return edgeOp().bind(op -> edgeTerminal().bind(terminal -> retn(new Tuple2(op, terminal))));
-    }
-
-    static Parser<Character, EdgeOp> edgeOp() {
-        return regex("\\s*--|->\\s*").bind(op -> {
-            switch (op) {
-                case "--":
-                    return retn(EdgeOp.UNDIRECTED);
-                case "->":
-                    return retn(EdgeOp.DIRECTED);
-                default:
-                    throw new IllegalArgumentException("unrecognized operator: " + op);
+    // subgraph     : [ subgraph [ ID ] ] '{' stmt_list '}'
+    private Subgraph subgraph() throws GraphFormatException, IOException {
+        Id id = null;
+        if (lexer.isKeyword("subgraph")) {
+            lexer.next();
+            if (isAtId()) {
+                id = takeId();
+            }
+        }
+        Subgraph subgraph = new Subgraph(id);
+        expect(Token.LEFT_BRACE);
+        statementList(subgraph::addStatement);
+        expect(Token.RIGHT_BRACE);
+        return subgraph;
+    }
+
+    // node_id      : ID [ port ]
+    // port         : ':' ID [ ':' compass_pt ] | ':' compass_pt
+    private NodeId nodeId(Id id) throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.COLON) {
+            return new NodeId(id);
+        }
+        lexer.next();
+        Id portId = requireId();
+        if (lexer.getToken() == Token.COLON) {
+            lexer.next();
+            Id compassId = requireId();
+            CompassPoint compassPoint = compassPoint(compassId);
+            if (compassPoint == null) {
+                throw lexer.error("invalid compass point '" + compassId.getValue() + "'");
             }
-        });
-    }
-
-    @SuppressWarnings("unchecked")
-    static Parser<Character, EdgeTerminal> edgeTerminal() {
-        IList<Parser<Character, ? extends EdgeTerminal>> parsers = IList.of();
-        parsers = parsers.add(attempt(nodeId()));
-        parsers = parsers.add(attempt(subgraph()));
-        return choice((IList)parsers);
-    }
-
-    // node_stmt    : node_id [ attr_list ]
-    static Parser<Character, NodeStatement> nodeStatement() {
-        return nodeId().bind(nodeId -> attributeLists().bind(parsedAttrLists -> {
-            Collection<AttributeList> attrLists = new ArrayList<>();
-            parsedAttrLists.forEach(attrLists::add);
-            NodeStatement nodeStatement = new NodeStatement(nodeId, attrLists);
-            return retn(nodeStatement);
-        }));
-    }
-
-    // attr_stmt    : (graph | node | edge) attr_list
-    @SuppressWarnings("unchecked")
-    static Parser<Character, AttributeStatement> attributeStatement() {
-        return choice(
-                keyword("graph"),
-                keyword("node"),
-                keyword("edge"))
-                .bind(scopeName -> retn(AttributeScope.valueOf(scopeName.toUpperCase())))
-                .bind(scope -> attributeLists().bind(parsedAttrLists -> {
-                    Collection<AttributeList> attrLists = new ArrayList<>();
-                    parsedAttrLists.forEach(attrLists::add);
-                    return retn(new AttributeStatement(scope, attrLists));
-                }));
+            return new NodeId(id, portId, compassPoint);
+        }
+        CompassPoint compassPoint = portId.isQuoted() ? null : compassPoint(portId);
+        return compassPoint != null ? new NodeId(id, compassPoint) : new NodeId(id, portId);
     }
 
     // attr_list    : '[' [ a_list ] ']' [ attr_list ]
-    static Parser<Character, IList<AttributeList>> attributeLists() {
-        return many1(attributeList());
+    // a_list       : ID [ '=' ID ] [ (';' | ',') ] [ a_list ]
+    private Collection<AttributeList> attributeLists(boolean required) throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.LEFT_BRACKET) {
+            if (required) {
+                throw unexpected(Token.LEFT_BRACKET.toString());
+            }
+            return Collections.emptyList();
+        }
+        List<AttributeList> lists = new ArrayList<>(1);
+        while (lexer.getToken() == Token.LEFT_BRACKET) {
+            lexer.next();
+            AttributeList list = new AttributeList();
+            while (lexer.getToken() != Token.RIGHT_BRACKET) {
+                Id id = requireId();
+                Id value = null;
+                if (lexer.getToken() == Token.EQUALS) {
+                    lexer.next();
+                    value = requireId();
+                }
+                list.addAttribute(new Attribute(id, value));
+                if (lexer.getToken() == Token.COMMA || lexer.getToken() == Token.SEMICOLON) {
+                    lexer.next();
+                }
+            }
+            lexer.next();
+            lists.add(list);
+        }
+        return lists;
+    }
+
+    @Nullable
+    private AttributeScope attributeScope() {
+        if (lexer.isKeyword("graph")) {
+            return AttributeScope.GRAPH;
+        } else if (lexer.isKeyword("node")) {
+            return AttributeScope.NODE;
+        } else if (lexer.isKeyword("edge")) {
+            return AttributeScope.EDGE;
+        }
+        return null;
     }
 
-    // a_list       : ID '=' ID [ (';' | ',') ] [ a_list ]
-    static Parser<Character, AttributeList> attributeList() {
-        return chr('[').then(attribute()
-                .bind(attr -> many(or(chr(','), chr(';')).then(attribute()))))
-                .bind(attrs -> chr(']').bind(endAttrs -> {
-                    AttributeList attrList = new AttributeList();
-                    attrs.forEach(attrList::addAttribute);
-                    return retn(attrList);
-                }));
+    @Nullable
+    static CompassPoint compassPoint(Id id) {
+        for (CompassPoint point : CompassPoint.values()) {
+            if (point.getLabel().equals(id.getValue())) {
+                return point;
+            }
+        }
+        return null;
     }
 
-    static Parser<Character, Attribute> attribute() {
-        return id().bind(attr -> token(chr('='))
-                .bind(op -> id()
-                        .bind(value -> retn(new Attribute(attr, value)))
-                )
-        );
+    private boolean isAtId() {
+        switch (lexer.getToken()) {
+            case ID:
+                return !(lexer.isKeyword("node") || lexer.isKeyword("edge") || lexer.isKeyword("graph")
+                        || lexer.isKeyword("digraph") || lexer.isKeyword("subgraph") || lexer.isKeyword("strict"));
+            case QUOTED_ID:
+            case HTML_ID:
+                return true;
+            default:
+                return false;
+        }
     }
 
-    // node_id      : ID [ port ]
-    // port	        : ':' ID [ ':' compass_pt ] | ':' compass_pt
-    @SuppressWarnings("unchecked")
-    static Parser<Character, NodeId> nodeId() {
-        return choice
-                (
-                        attempt(id().bind(id -> chr(':').then(id()
-                                .bind(portId -> chr(':').then(compassPoint()
-                                        .bind(pt -> retn(new NodeId(id, portId, pt)))))))),
-                        attempt(id().bind(id -> chr(':').then(compassPoint()
-                                .bind(pt -> retn(new NodeId(id, pt)))))),
-                        attempt(id().bind(id -> chr(':').then(id()
-                                .bind(portId -> retn(new NodeId(id, portId)))))),
-                        attempt(id().bind(id -> retn(new NodeId(id))))
-                );
-    }
-
-    // compass_pt	: (n | ne | e | se | s | sw | w | nw | c | _)
-    @SuppressWarnings("unchecked")
-    static Parser<Character, CompassPoint> compassPoint() {
-        return choice
-                (
-                        attempt(keyword("ne").bind(pt -> retn(CompassPoint.NORTHEAST))),
-                        attempt(keyword("nw").bind(pt -> retn(CompassPoint.NORTHWEST))),
-                        attempt(keyword("n").bind(pt -> retn(CompassPoint.NORTH))),
-                        attempt(keyword("se").bind(pt -> retn(CompassPoint.SOUTHEAST))),
-                        attempt(keyword("sw").bind(pt -> retn(CompassPoint.SOUTHWEST))),
-                        attempt(keyword("s").bind(pt -> retn(CompassPoint.SOUTH))),
-                        attempt(keyword("e").bind(pt -> retn(CompassPoint.EAST))),
-                        attempt(keyword("w").bind(pt -> retn(CompassPoint.WEST))),
-                        attempt(keyword("c").bind(pt -> retn(CompassPoint.CENTER))),
-                        attempt(keyword("_").bind(pt -> retn(CompassPoint.DEFAULT)))
-                );
-    }
-
-    @SuppressWarnings("unchecked")
-    static Parser<Character, Id> id() {
-        return choice
-                (
-                        regex("[a-zA-Z\\0200-\\0377_]+[a-zA-Z\\0200-\\0377_0-9]*|\\d+").bind(id -> retn(new Id(id))),
-                        jstring.bind(id -> retn(new Id(id, true)))
-                );
+    private boolean isAtEdgeOp() {
+        return lexer.getToken() == Token.DIRECTED_EDGE || lexer.getToken() == Token.UNDIRECTED_EDGE;
+    }
+
+    private Id requireId() throws GraphFormatException, IOException {
+        if (!isAtId()) {
+            throw unexpected("an ID");
+        }
+        return takeId();
+    }
+
+    private Id takeId() throws GraphFormatException, IOException {
+        boolean quoted = lexer.getToken() == Token.QUOTED_ID;
+        CharSequence text = lexer.getTextSequence();
+        Id id = text.length() <= MAX_INTERNED_LENGTH ? intern(text, quoted) : new Id(text.toString(), quoted);
+        lexer.next();
+        return id;
+    }
+
+    private Id intern(CharSequence text, boolean quoted) {
+        int mask = ids.length - 1;
+        for (int slot = hash(text, quoted) & mask; ; slot = (slot + 1) & mask) {
+            Id id = ids[slot];
+            if (id == null) {
+                id = new Id(text.toString(), quoted);
+                ids[slot] = id;
+                if (++numIds * 2 > ids.length) {
+                    rehash();
+                }
+                return id;
+            } else if (id.isQuoted() == quoted && id.getValue().contentEquals(text)) {
+                return id;
+            }
+        }
+    }
+
+    private void rehash() {
+        Id[] oldIds = ids;
+        ids = new Id[oldIds.length * 2];
+        int mask = ids.length - 1;
+        for (Id id : oldIds) {
+            if (id != null) {
+                int slot = hash(id.getValue(), id.isQuoted()) & mask;
+                while (ids[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = id;
+            }
+        }
+    }
+
+    private static int hash(CharSequence text, boolean quoted) {
+        int hash = quoted ? 1 : 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private void expect(Token expected) throws GraphFormatException, IOException {
+        if (lexer.getToken() != expected) {
+            throw unexpected(expected.toString());
+        }
+        lexer.next();
+    }
+
+    private GraphFormatException unexpected(String expected) {
+        return lexer.error("expected " + expected + " but found " + lexer.describeToken());
     }
 }
@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphviz;
+
+import cloudwall.graph.io.graphviz.GraphvizDotModel.*;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * Helper class for {@link GraphvizDotFormat} which writes a {@link GraphvizDotModel} back out in DOT syntax, one
+ * statement per line. Everything goes straight to the underlying writer, which should be buffered, without building
+ * up per-statement strings.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class GraphvizDotWriter {
+    private static final String INDENT = "    ";
+
+    private final Writer out;
+
+    GraphvizDotWriter(Writer out) {
+        this.out = out;
+    }
+
+    void write(GraphvizDotModel model) throws IOException {
+        if (model.isStrict()) {
+            out.write("strict ");
+        }
+        out.write(model.isDigraph() ? "digraph" : "graph");
+        if (model.getId() != null) {
+            out.write(' ');
+            writeId(model.getId());
+        }
+        out.write(" {\n");
+        writeStatements(model.getStatements(), 1);
+        out.write("}\n");
+    }
+
+    private void writeStatements(Collection<Statement> statements, int depth) throws IOException {
+        for (Statement statement : statements) {
+            indent(depth);
+            writeStatement(statement, depth);
+            out.write('\n');
+        }
+    }
+
+    private void writeStatement(Statement statement, int depth) throws IOException {
+        if (statement instanceof NodeStatement) {
+            NodeStatement nodeStatement = (NodeStatement) statement;
+            writeNodeId(nodeStatement.getNodeId());
+            writeAttributeLists(nodeStatement.getAttributes());
+        } else if (statement instanceof EdgeStatement) {
+            EdgeStatement edgeStatement = (EdgeStatement) statement;
+            writeTerminal(edgeStatement.getLhsTerminal(), depth);
+            for (EdgeTerminal terminal : edgeStatement.getRhsTerminals()) {
+                out.write(' ');
+                out.write(edgeStatement.getOperator().toString());
+                out.write(' ');
+                writeTerminal(terminal, depth);
+            }
+            writeAttributeList(edgeStatement.getAttributes());
+        } else if (statement instanceof AttributeStatement) {
+            AttributeStatement attributeStatement = (AttributeStatement) statement;
+            out.write(attributeStatement.getScope().toString());
+            writeAttributeLists(attributeStatement.getAttributes());
+        } else if (statement instanceof Attribute) {
+            writeAttribute((Attribute) statement);
+        } else if (statement instanceof Subgraph) {
+            writeSubgraph((Subgraph) statement, depth);
+        } else {
+            throw new IllegalArgumentException("unsupported statement type: " + statement.getClass());
+        }
+    }
+
+    private void writeTerminal(EdgeTerminal terminal, int depth) throws IOException {
+        if (terminal instanceof Subgraph) {
+            writeSubgraph((Subgraph) terminal, depth);
+        } else {
+            writeNodeId((NodeId) terminal);
+        }
+    }
+
+    private void writeSubgraph(Subgraph subgraph, int depth) throws IOException {
+        out.write("subgraph ");
+        if (subgraph.getId() != null) {
+            writeId(subgraph.getId());
+            out.write(' ');
+        }
+        out.write("{\n");
+        writeStatements(subgraph.getStatements(), depth + 1);
+        indent(depth);
+        out.write('}');
+    }
+
+    private void writeNodeId(NodeId nodeId) throws IOException {
+        writeId(nodeId.getNodeId());
+        if (nodeId.getPortId() != null) {
+            out.write(':');
+            writeId(nodeId.getPortId());
+        }
+        if (nodeId.getCompassPoint() != null) {
+            out.write(':');
+            out.write(nodeId.getCompassPoint().getLabel());
+        }
+    }
+
+    // empty lists are kept, as an attribute statement needs at least one
+    private void writeAttributeLists(Collection<AttributeList> attributeLists) throws IOException {
+        for (AttributeList attributes : attributeLists) {
+            writeAttributes(attributes);
+        }
+    }
+
+    private void writeAttributeList(@Nullable AttributeList attributes) throws IOException {
+        if (attributes != null && !attributes.isEmpty()) {
+            writeAttributes(attributes);
+        }
+    }
+
+    private void writeAttributes(AttributeList attributes) throws IOException {
+        out.write(" [");
+        boolean first = true;
+        for (Attribute attribute : attributes.getAttributes()) {
+            if (!first) {
+                out.write(", ");
+            }
+            writeAttribute(attribute);
+            first = false;
+        }
+        out.write(']');
+    }
+
+    private void writeAttribute(Attribute attribute) throws IOException {
+        writeId(attribute.getId());
+        if (attribute.getValue() != null) {
+            out.write('=');
+            writeId(attribute.getValue());
+        }
+    }
+
+    private void writeId(Id id) throws IOException {
+        out.write(id.toString());
+    }
+
+    private void indent(int depth) throws IOException {
+        for (int i = 0; i < depth; i++) {
+            out.write(INDENT);
+        }
+    }
+}
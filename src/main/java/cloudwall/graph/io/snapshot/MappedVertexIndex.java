@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import cloudwall.graph.LightweightVertex;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.VertexLookup;
+import cloudwall.graph.util.OffHeapBuffer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static cloudwall.graph.io.snapshot.SnapshotLayout.*;
+
+/**
+ * Read-only {@link VertexLookup} over the vertex ID sections of a mapped snapshot. Nothing is loaded up front: IDs are
+ * looked up by binary search over the sorted index section, and {@link Vertex} objects are only created the first
+ * time an index is resolved, then cached in lazily-allocated pages so the same index always yields the same object.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+class MappedVertexIndex implements VertexLookup, AutoCloseable {
+    private static final int PAGE_SHIFT = 12;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    private final int numVertices;
+    private final OffHeapBuffer idOffsets;
+    private final OffHeapBuffer idData;
+    private final OffHeapBuffer sortedIds;
+    private final AtomicReferenceArray<AtomicReferenceArray<Vertex>> pages;
+
+    MappedVertexIndex(int numVertices, OffHeapBuffer idOffsets, OffHeapBuffer idData, OffHeapBuffer sortedIds) {
+        this.numVertices = numVertices;
+        this.idOffsets = idOffsets;
+        this.idData = idData;
+        this.sortedIds = sortedIds;
+        this.pages = new AtomicReferenceArray<>((numVertices >>> PAGE_SHIFT) + 1);
+    }
+
+    @Override
+    public int indexOf(@Nonnull Object vertexId) {
+        byte tag = tagOf(vertexId);
+        if (tag == TAG_LONG) {
+            return find(TAG_LONG, (Long) vertexId, null);
+        } else if (tag == TAG_INTEGER) {
+            return find(TAG_INTEGER, (Integer) vertexId, null);
+        } else if (tag == TAG_STRING) {
+            return find(TAG_STRING, 0, ((String) vertexId).getBytes(StandardCharsets.UTF_8));
+        } else {
+            return NOT_FOUND;
+        }
+    }
+
+    @Override
+    public int indexOf(long vertexId) {
+        return find(TAG_LONG, vertexId, null);
+    }
+
+    @Nonnull
+    @Override
+    public Vertex getVertex(int index) {
+        if (index < 0 || index >= numVertices) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        AtomicReferenceArray<Vertex> page = pages.get(index >>> PAGE_SHIFT);
+        if (page == null) {
+            pages.compareAndSet(index >>> PAGE_SHIFT, null, new AtomicReferenceArray<>(PAGE_MASK + 1));
+            page = pages.get(index >>> PAGE_SHIFT);
+        }
+        Vertex vertex = page.get(index & PAGE_MASK);
+        if (vertex == null) {
+            page.compareAndSet(index & PAGE_MASK, null, new LightweightVertex(readId(index)));
+            vertex = page.get(index & PAGE_MASK);
+        }
+        return vertex;
+    }
+
+    @Nullable
+    @Override
+    public Vertex getVertex(@Nonnull Object vertexId) {
+        int ndx = indexOf(vertexId);
+        return ndx == NOT_FOUND ? null : getVertex(ndx);
+    }
+
+    @Override
+    public int size() {
+        return numVertices;
+    }
+
+    /**
+     * Gets the approximate number of bytes of heap held by the vertex cache; the ID sections themselves are mapped.
+     */
+    @Override
+    public long getMemoryFootprint() {
+        long bytes = 4L * pages.length();
+        for (int i = 0; i < pages.length(); i++) {
+            if (pages.get(i) != null) {
+                bytes += 4L * (PAGE_MASK + 1);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void close() {
+        idOffsets.close();
+        idData.close();
+        sortedIds.close();
+    }
+
+    private int find(byte tag, long numericId, @Nullable byte[] stringId) {
+        int low = 0;
+        int high = numVertices - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int ndx = sortedIds.getInt(mid);
+            int cmp = compareTo(ndx, tag, numericId, stringId);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return ndx;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    // compares the stored ID at the given index with the probe, in the order the writer sorted them
+    private int compareTo(int index, byte tag, long numericId, @Nullable byte[] stringId) {
+        long start = idOffsets.getLong(index);
+        byte storedTag = idData.getByte(start);
+        if (storedTag != tag) {
+            return Byte.compare(storedTag, tag);
+        }
+        if (tag == TAG_LONG) {
+            return Long.compare(readLong(start + 1, 8), numericId);
+        } else if (tag == TAG_INTEGER) {
+            return Long.compare((int) readLong(start + 1, 4), numericId);
+        } else {
+            return compareUtf8(readBytes(start + 1, idOffsets.getLong(index + 1)), stringId);
+        }
+    }
+
+    private Object readId(int index) {
+        long start = idOffsets.getLong(index);
+        byte tag = idData.getByte(start);
+        if (tag == TAG_LONG) {
+            return readLong(start + 1, 8);
+        } else if (tag == TAG_INTEGER) {
+            return (int) readLong(start + 1, 4);
+        } else {
+            return new String(readBytes(start + 1, idOffsets.getLong(index + 1)), StandardCharsets.UTF_8);
+        }
+    }
+
+    // IDs are byte-packed, so wider values may straddle chunks and are assembled a byte at a time
+    private long readLong(long position, int numBytes) {
+        long value = 0;
+        for (int i = numBytes - 1; i >= 0; i--) {
+            value = (value << 8) | (idData.getByte(position + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private byte[] readBytes(long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        idData.getBytes(start, bytes, 0, bytes.length);
+        return bytes;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import cloudwall.graph.OffHeapGraph;
+import cloudwall.graph.io.GraphFormat;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.util.OffHeapBuffer;
+
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import static cloudwall.graph.io.snapshot.SnapshotLayout.*;
+
+/**
+ * Binary snapshot format for fast restarts: the CSR arrays and vertex IDs of a graph written in a layout which can be
+ * memory-mapped and queried in place, so opening even a very large graph costs a header read and a few
+ * {@link FileChannel#map} calls instead of a full parse. See {@link SnapshotModel} for what gets stored.
+ *
+ * <p>Every snapshot carries a format version and CRC-32 checksums of its header and body; a snapshot written by a
+ * different version, truncated or otherwise corrupt is rejected with a {@link GraphFormatException} when opened.
+ * Checking the body checksum means reading the whole file once, so for trusted files on a hot path you can turn it off
+ * with {@link #setVerifyChecksum(boolean)}; the header is always checked.
+ *
+ * <p>Snapshots are read in place when the data source is a {@link FileDataSource}, or via {@link #open(Path)}; any
+ * other source is first spooled to a temporary file.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see SnapshotModel
+ */
+public class SnapshotFormat implements GraphFormat<SnapshotModel> {
+    private static final MimeType[] CONTENT_TYPES;
+
+    static {
+        try {
+            CONTENT_TYPES = new MimeType[]{new MimeType("application/x-cloudwall-graph-snapshot")};
+        } catch (MimeTypeParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private boolean verifyChecksum = true;
+
+    @Override
+    public MimeType[] getSupportedContentTypes() {
+        return CONTENT_TYPES;
+    }
+
+    @Override
+    public void read(DataSource dataIn, Consumer<SnapshotModel> modelConsumer) throws GraphFormatException, IOException {
+        if (dataIn instanceof FileDataSource) {
+            modelConsumer.accept(open(((FileDataSource) dataIn).getFile().toPath()));
+            return;
+        }
+
+        Path spoolFile = Files.createTempFile("graph", ".cwg");
+        try {
+            try (InputStream in = dataIn.getInputStream()) {
+                Files.copy(in, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            modelConsumer.accept(open(spoolFile));
+        } finally {
+            try {
+                Files.deleteIfExists(spoolFile);
+            } catch (IOException e) {
+                // still mapped on platforms which forbid deleting open files
+                spoolFile.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Opens the snapshot at the given path. The returned model must be closed to release the mapping.
+     */
+    public SnapshotModel open(Path path) throws GraphFormatException, IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new GraphFormatException("not a graph snapshot, too short: " + path, null);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new GraphFormatException("unexpected end of snapshot header: " + path, null);
+                }
+            }
+
+            if (header.getLong(MAGIC_POSITION) != MAGIC) {
+                throw new GraphFormatException("not a graph snapshot, bad magic number: " + path, null);
+            }
+            int version = header.getInt(VERSION_POSITION);
+            if (version != VERSION) {
+                throw new GraphFormatException("unsupported snapshot version " + version + ", expected "
+                        + VERSION + ": " + path, null);
+            }
+            CRC32 headerChecksum = new CRC32();
+            headerChecksum.update(header.array(), 0, HEADER_CHECKSUM_POSITION);
+            if (header.getLong(HEADER_CHECKSUM_POSITION) != headerChecksum.getValue()) {
+                throw new GraphFormatException("corrupt snapshot header, checksum mismatch: " + path, null);
+            }
+
+            boolean directed = (header.getInt(FLAGS_POSITION) & FLAG_DIRECTED) != 0;
+            int numVertices = header.getInt(VERTEX_COUNT_POSITION);
+            long edgeCount = header.getLong(EDGE_COUNT_POSITION);
+            long numArcs = header.getLong(ARC_COUNT_POSITION);
+            long numInArcs = header.getLong(IN_ARC_COUNT_POSITION);
+            long idDataLength = header.getLong(ID_DATA_LENGTH_POSITION);
+            long bodyLength = header.getLong(BODY_LENGTH_POSITION);
+
+            long expectedBodyLength = offsetsLength(numVertices) + targetsLength(numArcs)
+                    + (directed ? offsetsLength(numVertices) + targetsLength(numInArcs) : 0)
+                    + offsetsLength(numVertices) + padded(idDataLength) + sortedIdsLength(numVertices);
+            if (bodyLength != expectedBodyLength || fileSize != HEADER_SIZE + bodyLength) {
+                throw new GraphFormatException("corrupt or truncated snapshot, expected " + expectedBodyLength
+                        + " body bytes in " + fileSize + " byte file: " + path, null);
+            }
+
+            if (verifyChecksum) {
+                CRC32 bodyChecksum = new CRC32();
+                try (OffHeapBuffer body = OffHeapBuffer.map(channel, HEADER_SIZE, bodyLength, BYTE_ORDER)) {
+                    body.updateChecksum(bodyChecksum);
+                }
+                if (header.getLong(BODY_CHECKSUM_POSITION) != bodyChecksum.getValue()) {
+                    throw new GraphFormatException("corrupt snapshot body, checksum mismatch: " + path, null);
+                }
+            }
+
+            SectionMapper sections = new SectionMapper(channel);
+            OffHeapBuffer offsets = sections.map(offsetsLength(numVertices), offsetsLength(numVertices));
+            OffHeapBuffer targets = sections.map(4L * numArcs, targetsLength(numArcs));
+            OffHeapBuffer inOffsets = null;
+            OffHeapBuffer inTargets = null;
+            if (directed) {
+                inOffsets = sections.map(offsetsLength(numVertices), offsetsLength(numVertices));
+                inTargets = sections.map(4L * numInArcs, targetsLength(numInArcs));
+            }
+            OffHeapBuffer idOffsets = sections.map(offsetsLength(numVertices), offsetsLength(numVertices));
+            OffHeapBuffer idData = sections.map(idDataLength, padded(idDataLength));
+            OffHeapBuffer sortedIds = sections.map(4L * numVertices, sortedIdsLength(numVertices));
+
+            MappedVertexIndex vertexIndex = new MappedVertexIndex(numVertices, idOffsets, idData, sortedIds);
+            OffHeapGraph graph = new OffHeapGraph(vertexIndex, directed, edgeCount, offsets, targets, null,
+                    inOffsets, inTargets, null);
+            return new SnapshotModel(graph, vertexIndex);
+        }
+    }
+
+    @Override
+    public void write(DataSource dataOut, SnapshotModel model) throws IOException {
+        model.write(dataOut);
+    }
+
+    /**
+     * Sets whether {@link #open(Path)} checks the body checksum, which requires a pass over the whole file; on by
+     * default.
+     */
+    public void setVerifyChecksum(boolean verifyChecksum) {
+        this.verifyChecksum = verifyChecksum;
+    }
+
+    // maps the body sections one after another
+    private static class SectionMapper {
+        private final FileChannel channel;
+        private long position = HEADER_SIZE;
+
+        SectionMapper(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        OffHeapBuffer map(long length, long paddedLength) throws IOException {
+            OffHeapBuffer section = OffHeapBuffer.map(channel, position, length, BYTE_ORDER);
+            position += paddedLength;
+            return section;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import java.nio.ByteOrder;
+
+/**
+ * Constants describing the on-disk layout of a graph snapshot, shared by the reader and writer. All values are
+ * little-endian. The file is a fixed-size header followed by the body sections, in this order and each padded to a
+ * multiple of eight bytes so it can be mapped and read in place:
+ *
+ * <ol>
+ *     <li>out-arc offsets: {@code numVertices + 1} longs</li>
+ *     <li>out-arc targets: {@code numArcs} ints</li>
+ *     <li>in-arc offsets and targets, laid out the same way; directed graphs only</li>
+ *     <li>vertex ID offsets: {@code numVertices + 1} longs into the ID data</li>
+ *     <li>vertex ID data: per vertex a one-byte type tag followed by the ID as a long, an int or UTF-8 bytes</li>
+ *     <li>vertex indices sorted by ID, for binary search: {@code numVertices} ints</li>
+ * </ol>
+ *
+ * <p>Any change to this layout must bump {@link #VERSION}.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class SnapshotLayout {
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    // "CWGRAPH\n" read as a little-endian long
+    static final long MAGIC = 0x0A48504152475743L;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 128;
+
+    // header field positions
+    static final int MAGIC_POSITION = 0;
+    static final int VERSION_POSITION = 8;
+    static final int FLAGS_POSITION = 12;
+    static final int VERTEX_COUNT_POSITION = 16;
+    static final int EDGE_COUNT_POSITION = 24;
+    static final int ARC_COUNT_POSITION = 32;
+    static final int IN_ARC_COUNT_POSITION = 40;
+    static final int ID_DATA_LENGTH_POSITION = 48;
+    static final int BODY_LENGTH_POSITION = 56;
+    static final int BODY_CHECKSUM_POSITION = 64;
+    static final int HEADER_CHECKSUM_POSITION = HEADER_SIZE - 8;
+
+    static final int FLAG_DIRECTED = 1;
+
+    // vertex ID type tags
+    static final byte TAG_LONG = 1;
+    static final byte TAG_INTEGER = 2;
+    static final byte TAG_STRING = 3;
+
+    private SnapshotLayout() {
+    }
+
+    static long offsetsLength(int numVertices) {
+        return 8L * (numVertices + 1);
+    }
+
+    static long targetsLength(long numArcs) {
+        return padded(4L * numArcs);
+    }
+
+    static long sortedIdsLength(int numVertices) {
+        return padded(4L * numVertices);
+    }
+
+    static long padded(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    /**
+     * Gets the type tag for a vertex ID, or zero if the type cannot be stored in a snapshot.
+     */
+    static byte tagOf(Object vertexId) {
+        if (vertexId instanceof Long) {
+            return TAG_LONG;
+        } else if (vertexId instanceof Integer) {
+            return TAG_INTEGER;
+        } else if (vertexId instanceof String) {
+            return TAG_STRING;
+        } else {
+            return 0;
+        }
+    }
+
+    /**
+     * Orders UTF-8 encoded strings by unsigned byte value, which is also code point order.
+     */
+    static int compareUtf8(byte[] a, byte[] b) {
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            int cmp = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import cloudwall.graph.*;
+
+import javax.activation.DataSource;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Data model for graph snapshots. When read via {@link SnapshotFormat} it wraps an {@link OffHeapGraph} whose arrays
+ * and vertex IDs are mapped straight from the file, so the graph can be queried as soon as it is opened; call
+ * {@link #close()} to unmap it once done. To write a snapshot, wrap any read-only indexed graph such as a
+ * {@link CsrGraph} and pass it to {@link SnapshotFormat#write(DataSource, SnapshotModel)}.
+ *
+ * <p>Snapshots store topology and vertex IDs only, and only {@code Long}, {@code Integer} and {@code String} IDs.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see SnapshotFormat
+ */
+@SuppressWarnings("WeakerAccess")
+public class SnapshotModel implements GraphModel, AutoCloseable {
+    private final AbstractIndexedGraph graph;
+
+    // only set if the graph was opened from a snapshot, in which case this model owns it
+    private final MappedVertexIndex mappedIndex;
+
+    public SnapshotModel(AbstractIndexedGraph graph) {
+        this(graph, null);
+    }
+
+    SnapshotModel(AbstractIndexedGraph graph, @Nullable MappedVertexIndex mappedIndex) {
+        this.graph = graph;
+        this.mappedIndex = mappedIndex;
+    }
+
+    /**
+     * Gets the graph, which can be used directly rather than copied out via {@link #visit(GraphVisitor)}.
+     */
+    public AbstractIndexedGraph getGraph() {
+        return graph;
+    }
+
+    @Override
+    public long getVertexCount() {
+        return graph.getVertexCount();
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return graph.getEdgeCount();
+    }
+
+    @Override
+    public boolean supports(Feature feature) {
+        return feature == Feature.DIRECTED && graph.isDirected();
+    }
+
+    @Override
+    public void visit(GraphVisitor visitor) {
+        visitor.start(this);
+        graph.forEachVertex(visitor::visitVertex);
+        graph.forEachEdge(visitor::visitEdge);
+        visitor.complete();
+    }
+
+    /**
+     * Releases the mapped file if this model was read from a snapshot; otherwise does nothing, as the graph belongs
+     * to whoever created it.
+     */
+    @Override
+    public void close() {
+        if (mappedIndex != null) {
+            ((OffHeapGraph) graph).close();
+            mappedIndex.close();
+        }
+    }
+
+    void write(DataSource dataOut) throws IOException {
+        try (OutputStream out = dataOut.getOutputStream()) {
+            new SnapshotWriter(graph).write(out);
+        }
+    }
+}
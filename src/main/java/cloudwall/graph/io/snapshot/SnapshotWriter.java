@@ -0,0 +1,260 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import cloudwall.graph.AbstractIndexedGraph;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static cloudwall.graph.io.snapshot.SnapshotLayout.*;
+
+/**
+ * Serializes an {@link AbstractIndexedGraph} in the snapshot layout. Output streams are not seekable, so the body is
+ * encoded twice: once just to compute its checksum for the header, then again for real.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+class SnapshotWriter {
+    private final AbstractIndexedGraph graph;
+    private final int numVertices;
+    private final int[] sortedIds;
+    private final long numArcs;
+    private final long numInArcs;
+    private final long idDataLength;
+
+    // UTF-8 encodings of string IDs, indexed by vertex; only allocated if there are any
+    private byte[][] stringIds;
+
+    SnapshotWriter(AbstractIndexedGraph graph) {
+        this.graph = graph;
+        this.numVertices = (int) graph.getVertexCount();
+
+        long arcs = 0;
+        long inArcs = 0;
+        long idBytes = 0;
+        for (int i = 0; i < numVertices; i++) {
+            arcs += graph.degree(i);
+            inArcs += graph.isDirected() ? graph.inDegree(i) : 0;
+            idBytes += 1 + idLength(i);
+        }
+        this.numArcs = arcs;
+        this.numInArcs = inArcs;
+        this.idDataLength = idBytes;
+        this.sortedIds = sortIds();
+    }
+
+    void write(OutputStream out) throws IOException {
+        try {
+            SnapshotOutput checksumOnly = new SnapshotOutput(null);
+            writeBody(checksumOnly);
+            checksumOnly.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            header.putLong(MAGIC_POSITION, MAGIC);
+            header.putInt(VERSION_POSITION, VERSION);
+            header.putInt(FLAGS_POSITION, graph.isDirected() ? FLAG_DIRECTED : 0);
+            header.putInt(VERTEX_COUNT_POSITION, numVertices);
+            header.putLong(EDGE_COUNT_POSITION, graph.getEdgeCount());
+            header.putLong(ARC_COUNT_POSITION, numArcs);
+            header.putLong(IN_ARC_COUNT_POSITION, numInArcs);
+            header.putLong(ID_DATA_LENGTH_POSITION, idDataLength);
+            header.putLong(BODY_LENGTH_POSITION, checksumOnly.count);
+            header.putLong(BODY_CHECKSUM_POSITION, checksumOnly.checksum.getValue());
+            CRC32 headerChecksum = new CRC32();
+            headerChecksum.update(header.array(), 0, HEADER_CHECKSUM_POSITION);
+            header.putLong(HEADER_CHECKSUM_POSITION, headerChecksum.getValue());
+            out.write(header.array());
+
+            SnapshotOutput body = new SnapshotOutput(out);
+            writeBody(body);
+            body.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeBody(SnapshotOutput out) {
+        writeArcs(out, false);
+        if (graph.isDirected()) {
+            writeArcs(out, true);
+        }
+
+        long idPosition = 0;
+        for (int i = 0; i < numVertices; i++) {
+            out.putLong(idPosition);
+            idPosition += 1 + idLength(i);
+        }
+        out.putLong(idPosition);
+        for (int i = 0; i < numVertices; i++) {
+            writeId(out, i);
+        }
+        out.pad();
+
+        for (int ndx : sortedIds) {
+            out.putInt(ndx);
+        }
+        out.pad();
+    }
+
+    private void writeArcs(SnapshotOutput out, boolean in) {
+        long offset = 0;
+        for (int i = 0; i < numVertices; i++) {
+            out.putLong(offset);
+            offset += in ? graph.inDegree(i) : graph.degree(i);
+        }
+        out.putLong(offset);
+        for (int i = 0; i < numVertices; i++) {
+            if (in) {
+                graph.forEachInNeighbor(i, out::putInt);
+            } else {
+                graph.forEachNeighbor(i, out::putInt);
+            }
+        }
+        out.pad();
+    }
+
+    private void writeId(SnapshotOutput out, int ndx) {
+        Object id = graph.vertexAt(ndx).getVertexId();
+        byte tag = tagOf(id);
+        out.putByte(tag);
+        if (tag == TAG_LONG) {
+            long value = (Long) id;
+            for (int i = 0; i < 8; i++) {
+                out.putByte((byte) (value >>> (8 * i)));
+            }
+        } else if (tag == TAG_INTEGER) {
+            int value = (Integer) id;
+            for (int i = 0; i < 4; i++) {
+                out.putByte((byte) (value >>> (8 * i)));
+            }
+        } else {
+            for (byte b : stringIds[ndx]) {
+                out.putByte(b);
+            }
+        }
+    }
+
+    private int idLength(int ndx) {
+        Object id = graph.vertexAt(ndx).getVertexId();
+        byte tag = tagOf(id);
+        if (tag == TAG_LONG) {
+            return 8;
+        } else if (tag == TAG_INTEGER) {
+            return 4;
+        } else if (tag == TAG_STRING) {
+            if (stringIds != null && stringIds[ndx] != null) {
+                return stringIds[ndx].length;
+            }
+            if (stringIds == null) {
+                stringIds = new byte[numVertices][];
+            }
+            stringIds[ndx] = ((String) id).getBytes(StandardCharsets.UTF_8);
+            return stringIds[ndx].length;
+        } else {
+            throw new IllegalArgumentException("snapshots only support Long, Integer and String vertex IDs, not "
+                    + id.getClass().getName());
+        }
+    }
+
+    private int[] sortIds() {
+        Integer[] order = new Integer[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            Object idA = graph.vertexAt(a).getVertexId();
+            Object idB = graph.vertexAt(b).getVertexId();
+            byte tagA = tagOf(idA);
+            byte tagB = tagOf(idB);
+            if (tagA != tagB) {
+                return Byte.compare(tagA, tagB);
+            } else if (tagA == TAG_LONG) {
+                return Long.compare((Long) idA, (Long) idB);
+            } else if (tagA == TAG_INTEGER) {
+                return Integer.compare((Integer) idA, (Integer) idB);
+            } else {
+                return compareUtf8(stringIds[a], stringIds[b]);
+            }
+        });
+        int[] sorted = new int[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            sorted[i] = order[i];
+        }
+        return sorted;
+    }
+
+    /**
+     * Little-endian buffered output which checksums everything it writes and discards it if there is no stream.
+     */
+    private static class SnapshotOutput {
+        private final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(BYTE_ORDER);
+        private final OutputStream out;
+        private final CRC32 checksum = new CRC32();
+        private long count = 0;
+
+        SnapshotOutput(@Nullable OutputStream out) {
+            this.out = out;
+        }
+
+        void putByte(byte value) {
+            ensureRemaining(1);
+            buffer.put(value);
+        }
+
+        void putInt(int value) {
+            ensureRemaining(4);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensureRemaining(8);
+            buffer.putLong(value);
+        }
+
+        // pads with zeros to the next multiple of eight bytes
+        void pad() {
+            while (((count + buffer.position()) & 7) != 0) {
+                putByte((byte) 0);
+            }
+        }
+
+        void flush() {
+            checksum.update(buffer.array(), 0, buffer.position());
+            if (out != null) {
+                try {
+                    out.write(buffer.array(), 0, buffer.position());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            count += buffer.position();
+            buffer.clear();
+        }
+
+        private void ensureRemaining(int length) {
+            if (buffer.remaining() < length) {
+                flush();
+            }
+        }
+    }
+}
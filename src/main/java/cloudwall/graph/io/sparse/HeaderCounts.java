@@ -0,0 +1,45 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+/**
+ * Sizes the arrays for a load from the counts declared in a file header without taking those counts on trust: up to
+ * a cap they are allocated at their final size straight away, and beyond it they start at the cap and grow as the
+ * data actually arrives, so a wrong or hostile header cannot make us allocate gigabytes before reading a line.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+final class HeaderCounts {
+    // same cap as the builders in cloudwall.graph apply to GraphMetadata counts
+    static final int MAX_PRESIZE = 1 << 24;
+
+    private HeaderCounts() { }
+
+    /**
+     * Gets the initial length for an array that will hold the given declared number of elements.
+     */
+    static int presize(int declared) {
+        return Math.min(declared, MAX_PRESIZE);
+    }
+
+    /**
+     * Gets the new length for an array which must now hold {@code needed} elements, doubling but never going past
+     * the declared count, which the caller has already checked {@code needed} against.
+     */
+    static int grow(int length, int needed, int declared) {
+        return (int) Math.min(declared, Math.max(needed, 2L * length));
+    }
+}
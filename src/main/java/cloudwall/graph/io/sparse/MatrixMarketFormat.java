@@ -0,0 +1,288 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.CsrAssembler;
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
+import cloudwall.graph.io.GraphFormat;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.sparse.MatrixMarketModel.Field;
+import cloudwall.graph.io.sparse.MatrixMarketModel.Symmetry;
+
+import javax.activation.DataSource;
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Reader and writer for the coordinate variant of the Matrix Market exchange format from NIST, widely used for sparse
+ * matrix collections like SuiteSparse. The file declares the matrix dimensions and number of entries before the
+ * entries themselves, so the entry arrays are allocated at their final size up front, up to a cap past which they
+ * grow as the entries arrive; see {@link MatrixMarketModel} for how the matrix maps onto a graph. The dense
+ * {@code array} variant is not supported.
+ *
+ * <p>Numbers are parsed straight from the bytes, and {@link #load(DataSource)} fills the arrays of a
+ * {@link CsrGraph} directly, without any per-edge objects or vertex ID hashing.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="https://math.nist.gov/MatrixMarket/formats.html">Matrix Market exchange formats</a>
+ */
+public class MatrixMarketFormat implements GraphFormat<MatrixMarketModel> {
+    private static final MimeType[] CONTENT_TYPES;
+    static {
+        try {
+            CONTENT_TYPES = new MimeType[] { new MimeType("application/x-matrix-market") };
+        } catch (MimeTypeParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+    @Override
+    public MimeType[] getSupportedContentTypes() {
+        return CONTENT_TYPES;
+    }
+
+    @Override
+    public void read(DataSource dataIn, Consumer<MatrixMarketModel> modelConsumer)
+            throws GraphFormatException, IOException {
+        MatrixMarketModel model;
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            SparseScanner scanner = new SparseScanner(in);
+            Header header = readHeader(scanner);
+            MatrixMarketModel presized = new MatrixMarketModel(header.field, header.symmetry, header.numRows,
+                    header.numColumns, HeaderCounts.presize(header.numEntries));
+            readEntries(scanner, header, (entry, row, column, value, imaginaryValue) ->
+                    presized.add(row, column, value, imaginaryValue));
+            model = presized;
+        }
+        modelConsumer.accept(model);
+    }
+
+    /**
+     * Streams the vertices and then the edges to the visitor as they are parsed, without building a model.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            SparseScanner scanner = new SparseScanner(in);
+            Header header = readHeader(scanner);
+            SparseGraphEmitter emitter = new SparseGraphEmitter(visitor);
+            emitter.start(new SparseMetadata(header.getVertexCount(), header.numEntries, header.isDirected(),
+                    header.field != Field.PATTERN));
+            readEntries(scanner, header, (entry, row, column, value, imaginaryValue) ->
+                    emitter.emitEdge(row, column, value));
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Loads the matrix straight into a {@link CsrGraph}, giving the same graph as
+     * {@link cloudwall.graph.CsrGraphBuilder} would for the model. The endpoints are read into two arrays sized from
+     * the entry count in the header, within a cap so a bad header cannot force a huge allocation, and then sorted
+     * into place by source; values are skipped.
+     */
+    public CsrGraph load(DataSource dataIn) throws GraphFormatException, IOException {
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            SparseScanner scanner = new SparseScanner(in);
+            Header header = readHeader(scanner);
+            Endpoints endpoints = new Endpoints(header.numEntries);
+            readEntries(scanner, header, (entry, row, column, value, imaginaryValue) ->
+                    endpoints.add(entry, row, column));
+            int numVertices = (int) header.getVertexCount();
+            try {
+                return CsrAssembler.assemble(CsrAssembler.sequentialVertices(numVertices), header.isDirected(),
+                        endpoints.sources, endpoints.targets, header.numEntries);
+            } catch (IllegalArgumentException e) {
+                throw new GraphFormatException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public void write(DataSource dataOut, MatrixMarketModel model) throws IOException {
+        OutputStream raw = CompressedDataSource.wrap(dataOut).getOutputStream();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(raw, StandardCharsets.US_ASCII),
+                WRITE_BUFFER_SIZE)) {
+            Field field = model.getField();
+            out.write("%%MatrixMarket matrix coordinate " + field.label() + " " + model.getSymmetry().label() + "\n");
+            out.write(model.getNumRows() + " " + model.getNumColumns() + " " + model.getEntryCount() + "\n");
+
+            StringBuilder line = new StringBuilder(64);
+            for (int i = 0; i < model.getEntryCount(); i++) {
+                line.setLength(0);
+                line.append(model.getRow(i)).append(' ').append(model.getColumn(i));
+                if (field != Field.PATTERN) {
+                    appendValue(line.append(' '), model.getValue(i));
+                }
+                if (field == Field.COMPLEX) {
+                    appendValue(line.append(' '), model.getImaginaryValue(i));
+                }
+                out.append(line.append('\n'));
+            }
+        }
+    }
+
+    private static Header readHeader(SparseScanner scanner) throws GraphFormatException, IOException {
+        if (!scanner.nextLine()) {
+            throw new GraphFormatException("empty Matrix Market file", null);
+        }
+        if (!scanner.hasNext() || !scanner.nextToken().equalsIgnoreCase("%%MatrixMarket")) {
+            throw scanner.error("expected a %%MatrixMarket header");
+        }
+        String object = scanner.nextToken().toLowerCase(Locale.ROOT);
+        if (!object.equals("matrix")) {
+            throw scanner.error("unsupported object, expected matrix: " + object);
+        }
+        String format = scanner.nextToken().toLowerCase(Locale.ROOT);
+        if (format.equals("array")) {
+            throw scanner.error("dense array format is not supported, only coordinate");
+        } else if (!format.equals("coordinate")) {
+            throw scanner.error("unknown format: " + format);
+        }
+
+        Header header = new Header();
+        String field = scanner.nextToken().toLowerCase(Locale.ROOT);
+        try {
+            header.field = field.equals("double") ? Field.REAL : Field.valueOf(field.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw scanner.error("unknown field: " + field);
+        }
+        String symmetry = scanner.nextToken().toLowerCase(Locale.ROOT);
+        try {
+            header.symmetry = Symmetry.valueOf(symmetry.replace('-', '_').toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw scanner.error("unknown symmetry: " + symmetry);
+        }
+
+        // comments may come between the header and the size line
+        do {
+            if (!scanner.nextLine()) {
+                throw new GraphFormatException("missing size line in Matrix Market file", null);
+            }
+        } while (scanner.isBlank() || scanner.isComment('%'));
+        header.numRows = scanner.nextInt("row count", 0, MAX_SIZE);
+        header.numColumns = scanner.nextInt("column count", 0, MAX_SIZE);
+        header.numEntries = scanner.nextInt("entry count", 0, MAX_SIZE);
+        if (scanner.hasNext()) {
+            throw scanner.error("unexpected value after matrix size");
+        }
+        if (header.symmetry != Symmetry.GENERAL && header.numRows != header.numColumns) {
+            throw scanner.error(symmetry + " matrix must be square");
+        }
+        return header;
+    }
+
+    // reads exactly the number of entries declared in the header, passing 0-based rows and columns to the consumer
+    private static void readEntries(SparseScanner scanner, Header header, EntryConsumer consumer)
+            throws GraphFormatException, IOException {
+        Field field = header.field;
+        int entry = 0;
+        while (scanner.nextLine()) {
+            if (scanner.isBlank() || scanner.isComment('%')) {
+                continue;
+            }
+            if (entry == header.numEntries) {
+                throw scanner.error("more entries than the " + header.numEntries + " declared");
+            }
+            int row = scanner.nextInt("row index", 1, header.numRows) - 1;
+            int column = scanner.nextInt("column index", 1, header.numColumns) - 1;
+            double value = 1.0;
+            double imaginaryValue = 0.0;
+            if (field == Field.INTEGER) {
+                value = scanner.nextLong();
+            } else if (field != Field.PATTERN) {
+                value = scanner.nextDouble();
+                if (field == Field.COMPLEX) {
+                    imaginaryValue = scanner.nextDouble();
+                }
+            }
+            if (scanner.hasNext()) {
+                throw scanner.error("unexpected value after entry");
+            }
+            consumer.accept(entry++, row, column, value, imaginaryValue);
+        }
+        if (entry < header.numEntries) {
+            throw new GraphFormatException("expected " + header.numEntries + " entries but found " + entry, null);
+        }
+    }
+
+    // integral values are written without a decimal point, which every Matrix Market reader accepts for reals
+    private static void appendValue(StringBuilder line, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            line.append((long) value);
+        } else {
+            line.append(value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface EntryConsumer {
+        void accept(int entry, int row, int column, double value, double imaginaryValue);
+    }
+
+    // readEntries() stops at the declared entry count, so the arrays never grow past it
+    private static class Endpoints {
+        private final int numEntries;
+        int[] sources;
+        int[] targets;
+
+        Endpoints(int numEntries) {
+            this.numEntries = numEntries;
+            this.sources = new int[HeaderCounts.presize(numEntries)];
+            this.targets = new int[sources.length];
+        }
+
+        void add(int entry, int source, int target) {
+            if (entry == sources.length) {
+                int newLength = HeaderCounts.grow(sources.length, entry + 1, numEntries);
+                sources = Arrays.copyOf(sources, newLength);
+                targets = Arrays.copyOf(targets, newLength);
+            }
+            sources[entry] = source;
+            targets[entry] = target;
+        }
+    }
+
+    private static class Header {
+        Field field;
+        Symmetry symmetry;
+        int numRows;
+        int numColumns;
+        int numEntries;
+
+        long getVertexCount() {
+            return Math.max(numRows, numColumns);
+        }
+
+        boolean isDirected() {
+            return symmetry == Symmetry.GENERAL;
+        }
+    }
+}
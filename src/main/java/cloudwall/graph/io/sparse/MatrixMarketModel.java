@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.GraphModel;
+import cloudwall.graph.GraphVisitor;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Data model for a sparse matrix in Matrix Market coordinate format, read as the adjacency matrix of a graph: entry
+ * (<em>i</em>, <em>j</em>) is an edge from vertex <em>i</em> to vertex <em>j</em>. Vertices have IDs 1 to
+ * <em>n</em> as in the file, where <em>n</em> is the larger of the row and column counts. General matrices give a
+ * directed graph; symmetric, skew-symmetric and Hermitian ones only store the lower triangle and give an undirected
+ * graph. Unless the field is {@code pattern} the graph is weighted, with the real part of each value as the weight.
+ *
+ * <p>Entries are kept in primitive columns, presized from the entry count in the size line.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see MatrixMarketFormat
+ */
+@SuppressWarnings("WeakerAccess")
+public class MatrixMarketModel implements GraphModel {
+    public enum Field {
+        REAL, INTEGER, COMPLEX, PATTERN;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public enum Symmetry {
+        GENERAL, SYMMETRIC, SKEW_SYMMETRIC, HERMITIAN;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT).replace('_', '-');
+        }
+    }
+
+    private final Field field;
+    private final Symmetry symmetry;
+    private final int numRows;
+    private final int numColumns;
+
+    private int[] rows;
+    private int[] columns;
+    private double[] values;
+    private double[] imaginaryValues;
+    private int numEntries = 0;
+
+    public MatrixMarketModel(@Nonnull Field field, @Nonnull Symmetry symmetry, @Nonnegative int numRows,
+                             @Nonnegative int numColumns) {
+        this(field, symmetry, numRows, numColumns, 1024);
+    }
+
+    MatrixMarketModel(Field field, Symmetry symmetry, int numRows, int numColumns, int expectedEntries) {
+        if (symmetry != Symmetry.GENERAL && numRows != numColumns) {
+            throw new IllegalArgumentException(symmetry.label() + " matrix must be square: "
+                    + numRows + " x " + numColumns);
+        }
+        this.field = field;
+        this.symmetry = symmetry;
+        this.numRows = numRows;
+        this.numColumns = numColumns;
+        this.rows = new int[expectedEntries];
+        this.columns = new int[expectedEntries];
+        this.values = field == Field.PATTERN ? null : new double[expectedEntries];
+        this.imaginaryValues = field == Field.COMPLEX ? new double[expectedEntries] : null;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public Symmetry getSymmetry() {
+        return symmetry;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    public int getEntryCount() {
+        return numEntries;
+    }
+
+    /**
+     * Gets the 1-based row of the given entry, which is also the ID of its source vertex.
+     */
+    public int getRow(int entry) {
+        return rows[checkEntry(entry)] + 1;
+    }
+
+    /**
+     * Gets the 1-based column of the given entry, which is also the ID of its target vertex.
+     */
+    public int getColumn(int entry) {
+        return columns[checkEntry(entry)] + 1;
+    }
+
+    /**
+     * Gets the value of the given entry, or its real part for complex matrices; always 1.0 for pattern matrices.
+     */
+    public double getValue(int entry) {
+        checkEntry(entry);
+        return values == null ? 1.0 : values[entry];
+    }
+
+    /**
+     * Gets the imaginary part of the given entry; always zero unless the matrix is complex.
+     */
+    public double getImaginaryValue(int entry) {
+        checkEntry(entry);
+        return imaginaryValues == null ? 0.0 : imaginaryValues[entry];
+    }
+
+    /**
+     * Adds an entry with the given 1-based row and column, ignoring the value for pattern matrices.
+     */
+    public void addEntry(int row, int column, double value) {
+        addEntry(row, column, value, 0.0);
+    }
+
+    public void addEntry(int row, int column, double value, double imaginaryValue) {
+        if (row < 1 || row > numRows || column < 1 || column > numColumns) {
+            throw new IllegalArgumentException("entry (" + row + ", " + column + ") outside of "
+                    + numRows + " x " + numColumns + " matrix");
+        }
+        add(row - 1, column - 1, value, imaginaryValue);
+    }
+
+    @Override
+    public long getVertexCount() {
+        return Math.max(numRows, numColumns);
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return numEntries;
+    }
+
+    @Override
+    public boolean supports(Feature feature) {
+        return (feature == Feature.DIRECTED && symmetry == Symmetry.GENERAL)
+                || (feature == Feature.WEIGHTED && field != Field.PATTERN);
+    }
+
+    @Override
+    public void visit(GraphVisitor visitor) {
+        SparseGraphEmitter emitter = new SparseGraphEmitter(visitor);
+        emitter.start(this);
+        for (int i = 0; i < numEntries; i++) {
+            emitter.emitEdge(rows[i], columns[i], values == null ? 1.0 : values[i]);
+        }
+        emitter.complete();
+    }
+
+    // 0-based, already range-checked
+    void add(int row, int column, double value, double imaginaryValue) {
+        if (numEntries == rows.length) {
+            int newLength = Math.max(16, rows.length * 2);
+            rows = Arrays.copyOf(rows, newLength);
+            columns = Arrays.copyOf(columns, newLength);
+            if (values != null) {
+                values = Arrays.copyOf(values, newLength);
+            }
+            if (imaginaryValues != null) {
+                imaginaryValues = Arrays.copyOf(imaginaryValues, newLength);
+            }
+        }
+        rows[numEntries] = row;
+        columns[numEntries] = column;
+        if (values != null) {
+            values[numEntries] = value;
+        }
+        if (imaginaryValues != null) {
+            imaginaryValues[numEntries] = imaginaryValue;
+        }
+        numEntries++;
+    }
+
+    private int checkEntry(int entry) {
+        if (entry < 0 || entry >= numEntries) {
+            throw new IndexOutOfBoundsException("no such entry: " + entry);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.CsrAssembler;
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
+import cloudwall.graph.io.GraphFormat;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.activation.DataSource;
+import javax.activation.MimeType;
+import javax.activation.MimeTypeParseException;
+import javax.annotation.Nullable;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Reader and writer for the graph file format of the METIS and ParMETIS partitioning tools. The header line gives
+ * the vertex and edge counts, so the arrays are allocated at their final size up front, up to a cap past which they
+ * grow as the lines arrive, and the
+ * <em>i</em>-th line after it lists the neighbors of vertex <em>i</em>, preceded by the vertex size and weights and
+ * each followed by the edge weight if the header's {@code fmt} field says so. A blank line is a vertex with no
+ * neighbors, and lines starting with {@code %} are comments.
+ *
+ * <p>As every edge is listed under both endpoints, {@link #load(DataSource)} reads the lists straight into the
+ * arrays of an undirected {@link CsrGraph}. The number of entries must be twice the declared edge count and
+ * self-loops are rejected, as METIS does. The lists must also be symmetric, which is checked by comparing a checksum
+ * of the entries listed under the lower endpoint of each edge with one of those listed under the higher, so an edge
+ * listed under only one of its endpoints is rejected however the file is read.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="http://glaros.dtc.umn.edu/gkhome/fetch/sw/metis/manual.pdf">METIS manual, section 4.1.1</a>
+ */
+public class MetisFormat implements GraphFormat<MetisModel> {
+    private static final MimeType[] CONTENT_TYPES;
+    static {
+        try {
+            CONTENT_TYPES = new MimeType[] { new MimeType("application/x-metis-graph") };
+        } catch (MimeTypeParseException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_ARCS = Integer.MAX_VALUE - 8;
+
+    @Override
+    public MimeType[] getSupportedContentTypes() {
+        return CONTENT_TYPES;
+    }
+
+    @Override
+    public void read(DataSource dataIn, Consumer<MetisModel> modelConsumer) throws GraphFormatException, IOException {
+        MetisModel model;
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            model = readModel(new SparseScanner(in), true);
+        }
+        modelConsumer.accept(model);
+    }
+
+    /**
+     * Streams the vertices and then the edges to the visitor as they are parsed, without building a model. Each edge
+     * is visited once, when the list of its endpoint with the lower ID is read; if the lists turn out not to be
+     * symmetric the read fails at the end, after the edges listed so far have been visited.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            SparseScanner scanner = new SparseScanner(in);
+            Header header = readHeader(scanner);
+            SparseGraphEmitter emitter = new SparseGraphEmitter(visitor);
+            emitter.start(new SparseMetadata(header.numVertices, header.numEdges, false, header.hasEdgeWeights));
+            readVertices(scanner, header, (vertex, line) -> {
+                for (int i = 0; i < line.degree; i++) {
+                    if (vertex < line.neighbors[i]) {
+                        emitter.emitEdge(vertex, line.neighbors[i], line.edgeWeights[i]);
+                    }
+                }
+            });
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Loads the graph straight into an undirected {@link CsrGraph}, sharing the adjacency arrays as read rather than
+     * sorting them into place. Vertex sizes and all weights are skipped.
+     */
+    public CsrGraph load(DataSource dataIn) throws GraphFormatException, IOException {
+        MetisModel model;
+        try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+            model = readModel(new SparseScanner(in), false);
+        }
+        int numVertices = (int) model.getVertexCount();
+        return new CsrGraph(CsrAssembler.sequentialVertices(numVertices), false, model.getEdgeCount(),
+                model.offsets, model.adjacency, new int[0], new int[0]);
+    }
+
+    @Override
+    public void write(DataSource dataOut, MetisModel model) throws IOException {
+        OutputStream raw = CompressedDataSource.wrap(dataOut).getOutputStream();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(raw, StandardCharsets.US_ASCII),
+                WRITE_BUFFER_SIZE)) {
+            int numVertexWeights = model.getNumVertexWeights();
+            StringBuilder line = new StringBuilder(256);
+            line.append(model.getVertexCount()).append(' ').append(model.getEdgeCount());
+            if (model.hasVertexSizes() || numVertexWeights > 0 || model.hasEdgeWeights()) {
+                line.append(' ');
+                if (model.hasVertexSizes()) {
+                    line.append('1');
+                }
+                if (model.hasVertexSizes() || numVertexWeights > 0) {
+                    line.append(numVertexWeights > 0 ? '1' : '0');
+                }
+                line.append(model.hasEdgeWeights() ? '1' : '0');
+                if (numVertexWeights > 1) {
+                    line.append(' ').append(numVertexWeights);
+                }
+            }
+            out.append(line.append('\n'));
+
+            for (int i = 0; i < model.getVertexCount(); i++) {
+                line.setLength(0);
+                if (model.vertexSizes != null) {
+                    line.append(model.vertexSizes[i]).append(' ');
+                }
+                for (int k = 0; k < numVertexWeights; k++) {
+                    line.append(model.vertexWeights[i * numVertexWeights + k]).append(' ');
+                }
+                for (int j = model.offsets[i]; j < model.offsets[i + 1]; j++) {
+                    line.append(model.adjacency[j] + 1).append(' ');
+                    if (model.edgeWeights != null) {
+                        line.append(model.edgeWeights[j]).append(' ');
+                    }
+                }
+                if (line.length() > 0) {
+                    line.setLength(line.length() - 1);
+                }
+                out.append(line.append('\n'));
+            }
+        }
+    }
+
+    private static MetisModel readModel(SparseScanner scanner, boolean keepWeights)
+            throws GraphFormatException, IOException {
+        Header header = readHeader(scanner);
+        ModelArrays arrays = new ModelArrays(header, keepWeights);
+        readVertices(scanner, header, arrays::add);
+        return new MetisModel(header.numVertices, header.numEdges, keepWeights ? header.numVertexWeights : 0,
+                arrays.offsets, arrays.adjacency, arrays.edgeWeights, arrays.vertexSizes, arrays.vertexWeights);
+    }
+
+    private static Header readHeader(SparseScanner scanner) throws GraphFormatException, IOException {
+        do {
+            if (!scanner.nextLine()) {
+                throw new GraphFormatException("empty METIS file", null);
+            }
+        } while (scanner.isBlank() || scanner.isComment('%'));
+
+        Header header = new Header();
+        header.numVertices = scanner.nextInt("vertex count", 0, MAX_ARCS);
+        header.numEdges = scanner.nextInt("edge count", 0, MAX_ARCS / 2);
+        if (scanner.hasNext()) {
+            String fmt = scanner.nextToken();
+            if (!fmt.matches("[01]{1,3}")) {
+                throw scanner.error("invalid fmt, expected up to three 0 or 1 digits: " + fmt);
+            }
+            // leading zeros may be left out, so read the flags from the right
+            int flags = Integer.parseInt(fmt, 2);
+            header.hasEdgeWeights = (flags & 1) != 0;
+            header.numVertexWeights = (flags & 2) != 0 ? 1 : 0;
+            header.hasVertexSizes = (flags & 4) != 0;
+        }
+        if (scanner.hasNext()) {
+            if (header.numVertexWeights == 0) {
+                throw scanner.error("number of vertex weights given but fmt does not include them");
+            }
+            header.numVertexWeights = scanner.nextInt("number of vertex weights", 1, 1024);
+        }
+        if (scanner.hasNext()) {
+            throw scanner.error("unexpected value after header");
+        }
+        if ((long) header.numVertices * header.numVertexWeights > MAX_ARCS) {
+            throw scanner.error("too many vertex weights");
+        }
+        return header;
+    }
+
+    // reads exactly one line per vertex, checking the total number of entries against the declared edge count and
+    // that every edge is listed under both of its endpoints
+    private static void readVertices(SparseScanner scanner, Header header, VertexConsumer consumer)
+            throws GraphFormatException, IOException {
+        VertexLine line = new VertexLine(header.numVertexWeights);
+        int numArcs = 2 * header.numEdges;
+        int arcCount = 0;
+        int vertex = 0;
+        long lowerChecksum = 0;
+        long higherChecksum = 0;
+        while (scanner.nextLine()) {
+            if (scanner.isComment('%') || (vertex == header.numVertices && scanner.isBlank())) {
+                continue;
+            }
+            if (vertex == header.numVertices) {
+                throw scanner.error("more vertex lines than the " + header.numVertices + " declared");
+            }
+            line.parse(scanner, header, vertex);
+            for (int i = 0; i < line.degree; i++) {
+                int neighbor = line.neighbors[i];
+                if (vertex < neighbor) {
+                    lowerChecksum += arcHash(vertex, neighbor);
+                } else {
+                    higherChecksum += arcHash(neighbor, vertex);
+                }
+            }
+            arcCount += line.degree;
+            if (arcCount > numArcs) {
+                throw scanner.error("more adjacencies than the " + header.numEdges + " edges declared allow");
+            }
+            consumer.accept(vertex++, line);
+        }
+        if (vertex < header.numVertices) {
+            throw new GraphFormatException("expected " + header.numVertices + " vertex lines but found " + vertex,
+                    null);
+        }
+        if (arcCount < numArcs) {
+            throw new GraphFormatException("expected " + numArcs + " adjacencies for " + header.numEdges
+                    + " edges but found " + arcCount, null);
+        }
+        if (lowerChecksum != higherChecksum) {
+            throw new GraphFormatException("adjacency lists are not symmetric: some edge is listed under only one of "
+                    + "its endpoints", null);
+        }
+    }
+
+    // sums of these over a multiset of edges only match for the same multiset, barring a 64-bit collision
+    private static long arcHash(int lower, int higher) {
+        long hash = ((long) lower << 32 | higher) * 0x9e3779b97f4a7c15L;
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    @FunctionalInterface
+    private interface VertexConsumer {
+        void accept(int vertex, VertexLine line) throws GraphFormatException;
+    }
+
+    /**
+     * The arrays behind a {@link MetisModel}, filled one vertex line at a time. They are sized from the header up to
+     * {@link HeaderCounts#MAX_PRESIZE} and grow from there; as readVertices() holds the lines to the declared
+     * counts, they end up exactly that long.
+     */
+    private static class ModelArrays {
+        private final int numVertices;
+        private final int numArcs;
+        private final int numVertexWeights;
+        int[] offsets;
+        int[] adjacency;
+        @Nullable int[] edgeWeights;
+        @Nullable int[] vertexSizes;
+        @Nullable int[] vertexWeights;
+
+        ModelArrays(Header header, boolean keepWeights) {
+            numVertices = header.numVertices;
+            numArcs = 2 * header.numEdges;
+            numVertexWeights = keepWeights ? header.numVertexWeights : 0;
+            offsets = new int[HeaderCounts.presize(numVertices + 1)];
+            adjacency = new int[HeaderCounts.presize(numArcs)];
+            edgeWeights = keepWeights && header.hasEdgeWeights ? new int[adjacency.length] : null;
+            vertexSizes = keepWeights && header.hasVertexSizes ? new int[HeaderCounts.presize(numVertices)] : null;
+            vertexWeights = numVertexWeights > 0 ? new int[HeaderCounts.presize(numVertices * numVertexWeights)] : null;
+        }
+
+        void add(int vertex, VertexLine line) {
+            if (vertex + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, HeaderCounts.grow(offsets.length, vertex + 2, numVertices + 1));
+            }
+            int offset = offsets[vertex];
+            int end = offset + line.degree;
+            if (end > adjacency.length) {
+                int newLength = HeaderCounts.grow(adjacency.length, end, numArcs);
+                adjacency = Arrays.copyOf(adjacency, newLength);
+                if (edgeWeights != null) {
+                    edgeWeights = Arrays.copyOf(edgeWeights, newLength);
+                }
+            }
+            System.arraycopy(line.neighbors, 0, adjacency, offset, line.degree);
+            if (edgeWeights != null) {
+                System.arraycopy(line.edgeWeights, 0, edgeWeights, offset, line.degree);
+            }
+            if (vertexSizes != null) {
+                if (vertex == vertexSizes.length) {
+                    vertexSizes = Arrays.copyOf(vertexSizes,
+                            HeaderCounts.grow(vertexSizes.length, vertex + 1, numVertices));
+                }
+                vertexSizes[vertex] = line.size;
+            }
+            if (vertexWeights != null) {
+                int weightsEnd = (vertex + 1) * numVertexWeights;
+                if (weightsEnd > vertexWeights.length) {
+                    vertexWeights = Arrays.copyOf(vertexWeights,
+                            HeaderCounts.grow(vertexWeights.length, weightsEnd, numVertices * numVertexWeights));
+                }
+                System.arraycopy(line.vertexWeights, 0, vertexWeights, vertex * numVertexWeights, numVertexWeights);
+            }
+            offsets[vertex + 1] = end;
+        }
+    }
+
+    private static class Header {
+        int numVertices;
+        int numEdges;
+        int numVertexWeights;
+        boolean hasVertexSizes;
+        boolean hasEdgeWeights;
+    }
+
+    /**
+     * One parsed vertex line, with 0-based neighbor indices; reused from line to line.
+     */
+    private static class VertexLine {
+        final int[] vertexWeights;
+        int size;
+        int[] neighbors = new int[64];
+        int[] edgeWeights = new int[64];
+        int degree;
+
+        VertexLine(int numVertexWeights) {
+            this.vertexWeights = new int[numVertexWeights];
+        }
+
+        void parse(SparseScanner scanner, Header header, int vertex) throws GraphFormatException {
+            size = header.hasVertexSizes ? scanner.nextInt("vertex size", 0, Integer.MAX_VALUE) : 1;
+            for (int k = 0; k < vertexWeights.length; k++) {
+                vertexWeights[k] = scanner.nextInt("vertex weight", 0, Integer.MAX_VALUE);
+            }
+            degree = 0;
+            while (scanner.hasNext()) {
+                if (degree == neighbors.length) {
+                    neighbors = Arrays.copyOf(neighbors, degree * 2);
+                    edgeWeights = Arrays.copyOf(edgeWeights, degree * 2);
+                }
+                int neighbor = scanner.nextInt("neighbor", 1, header.numVertices) - 1;
+                if (neighbor == vertex) {
+                    throw scanner.error("self-loops are not allowed");
+                }
+                neighbors[degree] = neighbor;
+                edgeWeights[degree] = header.hasEdgeWeights ? scanner.nextInt("edge weight", 1, Integer.MAX_VALUE) : 1;
+                degree++;
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.GraphModel;
+import cloudwall.graph.GraphVisitor;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Data model for a graph in METIS format: an undirected graph with vertices 1 to <em>n</em>, optionally with vertex
+ * sizes, one or more vertex weights per vertex (the balance constraints) and edge weights. The adjacency lists are
+ * kept exactly as in the file, in compressed sparse row layout with every edge listed under both of its endpoints,
+ * which is also the layout of an undirected {@link cloudwall.graph.CsrGraph}.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see MetisFormat
+ */
+@SuppressWarnings("WeakerAccess")
+public class MetisModel implements GraphModel {
+    private final int numVertices;
+    private final int numEdges;
+    private final int numVertexWeights;
+
+    // adjacency of vertex i, by 0-based index, is adjacency[offsets[i] .. offsets[i + 1])
+    final int[] offsets;
+    final int[] adjacency;
+    @Nullable final int[] edgeWeights;
+    @Nullable final int[] vertexSizes;
+    @Nullable final int[] vertexWeights;
+
+    MetisModel(int numVertices, int numEdges, int numVertexWeights, int[] offsets, int[] adjacency,
+               @Nullable int[] edgeWeights, @Nullable int[] vertexSizes, @Nullable int[] vertexWeights) {
+        this.numVertices = numVertices;
+        this.numEdges = numEdges;
+        this.numVertexWeights = numVertexWeights;
+        this.offsets = offsets;
+        this.adjacency = adjacency;
+        this.edgeWeights = edgeWeights;
+        this.vertexSizes = vertexSizes;
+        this.vertexWeights = vertexWeights;
+    }
+
+    @Override
+    public long getVertexCount() {
+        return numVertices;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return numEdges;
+    }
+
+    @Override
+    public boolean supports(Feature feature) {
+        return feature == Feature.WEIGHTED && hasEdgeWeights();
+    }
+
+    public boolean hasEdgeWeights() {
+        return edgeWeights != null;
+    }
+
+    public boolean hasVertexSizes() {
+        return vertexSizes != null;
+    }
+
+    /**
+     * Gets the number of weights on each vertex, or zero if the vertices are unweighted.
+     */
+    public int getNumVertexWeights() {
+        return numVertexWeights;
+    }
+
+    /**
+     * Gets the IDs of the neighbors of the given vertex, in file order.
+     */
+    public int[] getNeighbors(int vertexId) {
+        int ndx = checkVertex(vertexId);
+        int[] neighbors = Arrays.copyOfRange(adjacency, offsets[ndx], offsets[ndx + 1]);
+        for (int i = 0; i < neighbors.length; i++) {
+            neighbors[i]++;
+        }
+        return neighbors;
+    }
+
+    /**
+     * Gets the weights of the edges to the neighbors of the given vertex, in the same order as
+     * {@link #getNeighbors(int)}; all one if the edges are unweighted.
+     */
+    public int[] getEdgeWeights(int vertexId) {
+        int ndx = checkVertex(vertexId);
+        if (edgeWeights == null) {
+            int[] weights = new int[offsets[ndx + 1] - offsets[ndx]];
+            Arrays.fill(weights, 1);
+            return weights;
+        }
+        return Arrays.copyOfRange(edgeWeights, offsets[ndx], offsets[ndx + 1]);
+    }
+
+    /**
+     * Gets the size of the given vertex, its cost of migration when repartitioning; one if sizes are not given.
+     */
+    public int getVertexSize(int vertexId) {
+        int ndx = checkVertex(vertexId);
+        return vertexSizes == null ? 1 : vertexSizes[ndx];
+    }
+
+    /**
+     * Gets one of the weights of the given vertex; one if the vertices are unweighted.
+     */
+    public int getVertexWeight(int vertexId, int constraint) {
+        int ndx = checkVertex(vertexId);
+        if (vertexWeights == null) {
+            return 1;
+        }
+        if (constraint < 0 || constraint >= numVertexWeights) {
+            throw new IndexOutOfBoundsException("no such vertex weight: " + constraint);
+        }
+        return vertexWeights[ndx * numVertexWeights + constraint];
+    }
+
+    /**
+     * Visits every edge once, from the endpoint with the lower ID.
+     */
+    @Override
+    public void visit(GraphVisitor visitor) {
+        SparseGraphEmitter emitter = new SparseGraphEmitter(visitor);
+        emitter.start(this);
+        for (int i = 0; i < numVertices; i++) {
+            for (int j = offsets[i]; j < offsets[i + 1]; j++) {
+                if (i < adjacency[j]) {
+                    emitter.emitEdge(i, adjacency[j], edgeWeights == null ? 1.0 : edgeWeights[j]);
+                }
+            }
+        }
+        emitter.complete();
+    }
+
+    private int checkVertex(int vertexId) {
+        if (vertexId < 1 || vertexId > numVertices) {
+            throw new IndexOutOfBoundsException("no such vertex: " + vertexId);
+        }
+        return vertexId - 1;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.Edge;
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.HeavyweightDirectedEdge;
+import cloudwall.graph.HeavyweightEdge;
+import cloudwall.graph.LightweightEdge;
+import cloudwall.graph.LightweightVertex;
+import cloudwall.graph.Vertex;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Helper which turns the entries of a sparse matrix or adjacency structure into {@link GraphVisitor} callbacks,
+ * shared by the models' {@code visit} methods and the streaming reads. As both formats declare the vertex count up
+ * front, all the vertices are created and visited on {@link #start(GraphMetadata)} with IDs 1 to <em>n</em>, matching
+ * the 1-based numbering in the files, and edges are then passed by 0-based index.
+ *
+ * <p>Weighted edges carry the magnitude of the value as their weight and its sign as their sign, as
+ * {@link Edge.WeightedEdge} weights cannot be negative.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+final class SparseGraphEmitter {
+    private final GraphVisitor visitor;
+    private Vertex[] vertices;
+    private boolean directed;
+    private boolean weighted;
+
+    SparseGraphEmitter(GraphVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    void start(GraphMetadata metadata) {
+        directed = metadata.supports(GraphMetadata.Feature.DIRECTED);
+        weighted = metadata.supports(GraphMetadata.Feature.WEIGHTED);
+        vertices = new Vertex[(int) metadata.getVertexCount()];
+
+        visitor.start(metadata);
+        for (int i = 0; i < vertices.length; i++) {
+            vertices[i] = new LightweightVertex((long) i + 1);
+            visitor.visitVertex(vertices[i]);
+        }
+    }
+
+    void emitEdge(int source, int target, double value) {
+        Vertex vertex0 = vertices[source];
+        Vertex vertex1 = vertices[target];
+        Edge<Vertex> edge;
+        if (weighted) {
+            double weight = Math.abs(value);
+            short sign = (short) Math.signum(value);
+            edge = directed
+                    ? new HeavyweightDirectedEdge<>(vertex0, vertex1, weight, sign)
+                    : new HeavyweightEdge<>(vertex0, vertex1, weight, sign);
+        } else {
+            edge = directed
+                    ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
+                    : new LightweightEdge<>(vertex0, vertex1);
+        }
+        visitor.visitEdge(edge);
+    }
+
+    void complete() {
+        visitor.complete();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.GraphMetadata;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Counts and features taken from a file header, for the streaming reads which start visiting before there is a model.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@Immutable
+final class SparseMetadata implements GraphMetadata {
+    private final long vertexCount;
+    private final long edgeCount;
+    private final boolean directed;
+    private final boolean weighted;
+
+    SparseMetadata(long vertexCount, long edgeCount, boolean directed, boolean weighted) {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.directed = directed;
+        this.weighted = weighted;
+    }
+
+    @Override
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public long getEdgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public boolean supports(Feature feature) {
+        return (feature == Feature.DIRECTED && directed) || (feature == Feature.WEIGHTED && weighted);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.io.ByteLineBuffer;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Byte-level scanner for the line-oriented numeric formats in this package, reading straight from a large buffer
+ * over the raw input like {@link cloudwall.graph.io.edge.EdgeListFormat}'s scanner. Callers move from line to line
+ * with {@link #nextLine()} and then pull whitespace-separated numbers off the current line, which are parsed in place
+ * so that the common all-integer lines allocate nothing.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class SparseScanner {
+    private final ByteLineBuffer lines;
+
+    // the start of the next token on the current line
+    private int cursor = 0;
+
+    SparseScanner(InputStream in) {
+        this.lines = new ByteLineBuffer(in);
+    }
+
+    /**
+     * Advances to the next line, blank or not, and returns false once the input is exhausted.
+     */
+    boolean nextLine() throws IOException {
+        if (!lines.nextLine()) {
+            return false;
+        }
+        cursor = lines.skipWhitespace(lines.getLineStart());
+        return true;
+    }
+
+    boolean isBlank() {
+        return lines.skipWhitespace(lines.getLineStart()) == lines.getLineEnd();
+    }
+
+    /**
+     * Tests whether the current line starts with the comment marker, ignoring leading whitespace.
+     */
+    boolean isComment(char commentMarker) {
+        int first = lines.skipWhitespace(lines.getLineStart());
+        return first < lines.getLineEnd() && lines.byteAt(first) == commentMarker;
+    }
+
+    /**
+     * Tests whether there are more tokens on the current line.
+     */
+    boolean hasNext() {
+        return cursor < lines.getLineEnd();
+    }
+
+    String nextToken() throws GraphFormatException {
+        int start = requireToken("a value");
+        int end = lines.skipToken(start);
+        cursor = lines.skipWhitespace(end);
+        return lines.text(start, end);
+    }
+
+    long nextLong() throws GraphFormatException {
+        int start = requireToken("an integer");
+        int end = lines.skipToken(start);
+        long value;
+        try {
+            value = lines.parseLong(start, end);
+        } catch (NumberFormatException e) {
+            throw error("expected an integer");
+        }
+        cursor = lines.skipWhitespace(end);
+        return value;
+    }
+
+    /**
+     * Reads an integer which must lie within the given bounds, inclusive, naming the value in the error otherwise.
+     */
+    int nextInt(String name, long min, long max) throws GraphFormatException {
+        long value = nextLong();
+        if (value < min || value > max) {
+            throw error(name + " out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    double nextDouble() throws GraphFormatException {
+        int start = requireToken("a number");
+        int end = lines.skipToken(start);
+
+        // integer values are common enough, e.g. in integer matrices, to be worth the fast path
+        boolean integral = end - start < 18;
+        for (int i = start; i < end && integral; i++) {
+            byte b = lines.byteAt(i);
+            integral = (b >= '0' && b <= '9') || (i == start && b == '-');
+        }
+        if (integral && end - start > (lines.byteAt(start) == '-' ? 1 : 0)) {
+            return nextLong();
+        }
+        try {
+            double value = Double.parseDouble(lines.text(start, end));
+            cursor = lines.skipWhitespace(end);
+            return value;
+        } catch (NumberFormatException e) {
+            throw error("expected a number");
+        }
+    }
+
+    int getLineNumber() {
+        return lines.getLineNumber();
+    }
+
+    /**
+     * Gets the current line as text, trimmed.
+     */
+    String getLine() {
+        return lines.getLine();
+    }
+
+    /**
+     * Creates an error pointing at the current line.
+     */
+    GraphFormatException error(String problem) {
+        return new GraphFormatException(problem + " at line # " + getLineNumber() + ": " + getLine(), null);
+    }
+
+    private int requireToken(String expected) throws GraphFormatException {
+        if (cursor == lines.getLineEnd()) {
+            throw error("expected " + expected);
+        }
+        return cursor;
+    }
+}
@@ -16,11 +16,10 @@
 package cloudwall.graph.io.tulip;
 
 import javax.annotation.Nonnull;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * Declared attribute in the Tulip file format.
+ * Declared attribute in the Tulip file format. Values for individual nodes and edges are kept in a pair of
+ * {@link PropertyColumn} instances whose storage depends on the {@link PropertyType}.
  *
  * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
  * @see TulipFormat
@@ -32,13 +31,15 @@ public class Property {
 
     private Object nodeDefaultValue;
     private Object edgeDefaultValue;
-    private Map<Integer, Object> nodeValues = new HashMap<>();
-    private Map<Integer, Object> edgeValues = new HashMap<>();
+    private final PropertyColumn nodeValues;
+    private final PropertyColumn edgeValues;
 
     public Property(int clusterId, @Nonnull PropertyType propertyType, @Nonnull String name) {
         this.clusterId = clusterId;
         this.propertyType = propertyType;
         this.name = name;
+        this.nodeValues = PropertyColumn.create(propertyType, false);
+        this.edgeValues = PropertyColumn.create(propertyType, true);
     }
 
     public int getClusterId() {
@@ -69,19 +70,29 @@ public class Property {
         this.edgeDefaultValue = edgeDefaultValue;
     }
 
-    public Map<Integer, Object> getNodeValues() {
+    public PropertyColumn getNodeValues() {
         return nodeValues;
     }
 
+    /**
+     * Sets the value for a node from its text form in a TLP file.
+     *
+     * @throws IllegalArgumentException if the value is not valid for the property type
+     */
     public void setNodeValue(int nodeId, @Nonnull Object value) {
-        this.nodeValues.put(nodeId, value);
+        nodeValues.parse(nodeId, value.toString());
     }
 
-    public Map<Integer, Object> getEdgeValues() {
+    public PropertyColumn getEdgeValues() {
         return edgeValues;
     }
 
+    /**
+     * Sets the value for an edge from its text form in a TLP file.
+     *
+     * @throws IllegalArgumentException if the value is not valid for the property type
+     */
     public void setEdgeValue(int edgeId, @Nonnull Object value) {
-        this.edgeValues.put(edgeId, value);
+        edgeValues.parse(edgeId, value.toString());
     }
 }
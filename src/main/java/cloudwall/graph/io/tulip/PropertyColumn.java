@@ -0,0 +1,360 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.tulip;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Values of a {@link Property} for either the nodes or the edges of a Tulip graph, stored in primitive arrays indexed
+ * by node or edge ID rather than a map of boxed objects. Tulip assigns IDs densely from zero, so the arrays stay
+ * compact even for layouts with millions of nodes; a bitmap records which IDs have a value of their own, the rest
+ * falling back to the property's default.
+ *
+ * <p>The subclass is chosen from the {@link PropertyType}: {@link Doubles} for {@code double}, {@code metric} and
+ * {@code float}; {@link Ints} for {@code int} and {@code uint}; {@link Booleans} for {@code bool};
+ * {@link Coordinates} for {@code layout}, {@code size} and {@code coord}; and {@link Strings} for everything else.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see Property
+ */
+@NotThreadSafe
+public abstract class PropertyColumn {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BitSet defined = new BitSet();
+
+    static PropertyColumn create(@Nonnull PropertyType type, boolean edges) {
+        switch (type) {
+            case DOUBLE:
+            case METRIC:
+            case FLOAT:
+                return new Doubles();
+            case INT:
+                return new Ints(false);
+            case UINT:
+                return new Ints(true);
+            case BOOLEAN:
+                return new Booleans();
+            case LAYOUT:
+                // edge layouts are lists of bend points rather than a single position
+                return new Coordinates(edges);
+            case SIZE:
+            case COORDINATES:
+                return new Coordinates(false);
+            default:
+                return new Strings();
+        }
+    }
+
+    /**
+     * Checks whether the given node or edge has a value of its own.
+     */
+    public boolean isDefined(@Nonnegative int id) {
+        return defined.get(id);
+    }
+
+    /**
+     * Gets the number of nodes or edges with a value of their own.
+     */
+    public int size() {
+        return defined.cardinality();
+    }
+
+    /**
+     * Calls the consumer with every node or edge ID which has a value of its own, in ascending order.
+     */
+    public void forEachDefined(@Nonnull IntConsumer ids) {
+        for (int id = defined.nextSetBit(0); id >= 0; id = defined.nextSetBit(id + 1)) {
+            ids.accept(id);
+        }
+    }
+
+    /**
+     * Sets the value for a node or edge from its text form in a TLP file.
+     *
+     * @throws IllegalArgumentException if the text is not a valid value of this column's type
+     */
+    public abstract void parse(@Nonnegative int id, @Nonnull String text);
+
+    /**
+     * Gets the text form of the value for a node or edge, as written in a TLP file.
+     */
+    public abstract String format(@Nonnegative int id);
+
+    void markDefined(int id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("negative ID: " + id);
+        }
+        defined.set(id);
+    }
+
+    static int grow(int length, int id) {
+        return Math.max(id + 1, Math.max(INITIAL_CAPACITY, length * 2));
+    }
+
+    static String formatDouble(double value) {
+        long integral = (long) value;
+        return integral == value ? Long.toString(integral) : Double.toString(value);
+    }
+
+    public static class Doubles extends PropertyColumn {
+        private double[] values = new double[0];
+
+        public double get(@Nonnegative int id) {
+            return id < values.length ? values[id] : 0.0;
+        }
+
+        public void set(@Nonnegative int id, double value) {
+            markDefined(id);
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, id));
+            }
+            values[id] = value;
+        }
+
+        @Override
+        public void parse(@Nonnegative int id, @Nonnull String text) {
+            set(id, Double.parseDouble(text));
+        }
+
+        @Override
+        public String format(@Nonnegative int id) {
+            return formatDouble(get(id));
+        }
+    }
+
+    public static class Ints extends PropertyColumn {
+        private final boolean unsigned;
+        private int[] values = new int[0];
+
+        Ints(boolean unsigned) {
+            this.unsigned = unsigned;
+        }
+
+        /**
+         * Gets the value for a node or edge; {@code uint} values above {@link Integer#MAX_VALUE} come back negative,
+         * so use {@link Integer#toUnsignedLong(int)} on them.
+         */
+        public int get(@Nonnegative int id) {
+            return id < values.length ? values[id] : 0;
+        }
+
+        public void set(@Nonnegative int id, int value) {
+            markDefined(id);
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, id));
+            }
+            values[id] = value;
+        }
+
+        @Override
+        public void parse(@Nonnegative int id, @Nonnull String text) {
+            set(id, unsigned ? Integer.parseUnsignedInt(text) : Integer.parseInt(text));
+        }
+
+        @Override
+        public String format(@Nonnegative int id) {
+            return unsigned ? Integer.toUnsignedString(get(id)) : Integer.toString(get(id));
+        }
+    }
+
+    public static class Booleans extends PropertyColumn {
+        private final BitSet values = new BitSet();
+
+        public boolean get(@Nonnegative int id) {
+            return values.get(id);
+        }
+
+        public void set(@Nonnegative int id, boolean value) {
+            markDefined(id);
+            values.set(id, value);
+        }
+
+        @Override
+        public void parse(@Nonnegative int id, @Nonnull String text) {
+            if (text.equals("true")) {
+                set(id, true);
+            } else if (text.equals("false")) {
+                set(id, false);
+            } else {
+                throw new IllegalArgumentException("not a boolean: " + text);
+            }
+        }
+
+        @Override
+        public String format(@Nonnegative int id) {
+            return Boolean.toString(get(id));
+        }
+    }
+
+    /**
+     * Column of 3D points: one per node or edge for positions and sizes, or a list of them per edge for the bends in
+     * an edge layout. All the coordinates live in one shared array, with each ID holding an offset and a count.
+     */
+    public static class Coordinates extends PropertyColumn {
+        private static final int DIMENSIONS = 3;
+
+        private final boolean lists;
+        private int[] starts = new int[0];
+        private int[] counts = new int[0];
+        private double[] coordinates = new double[0];
+        private int numCoordinates = 0;
+
+        Coordinates(boolean lists) {
+            this.lists = lists;
+        }
+
+        /**
+         * Checks whether every value is a list of points, e.g. the bends of an edge, rather than a single point.
+         */
+        public boolean isPointList() {
+            return lists;
+        }
+
+        public int getPointCount(@Nonnegative int id) {
+            return id < counts.length ? counts[id] : 0;
+        }
+
+        public double getX(@Nonnegative int id, @Nonnegative int point) {
+            return coordinate(id, point, 0);
+        }
+
+        public double getY(@Nonnegative int id, @Nonnegative int point) {
+            return coordinate(id, point, 1);
+        }
+
+        public double getZ(@Nonnegative int id, @Nonnegative int point) {
+            return coordinate(id, point, 2);
+        }
+
+        public void set(@Nonnegative int id, double x, double y, double z) {
+            setPoints(id, new double[] { x, y, z });
+        }
+
+        /**
+         * Sets the points for a node or edge as consecutive (x, y, z) triples.
+         */
+        public void setPoints(@Nonnegative int id, @Nonnull double[] xyz) {
+            int numPoints = xyz.length / DIMENSIONS;
+            if (xyz.length % DIMENSIONS != 0 || (!lists && numPoints != 1)) {
+                throw new IllegalArgumentException("expected " + (lists ? "(x,y,z) triples" : "a single (x,y,z)")
+                        + " but got " + xyz.length + " coordinates");
+            }
+            markDefined(id);
+            if (id >= starts.length) {
+                int newLength = grow(starts.length, id);
+                starts = Arrays.copyOf(starts, newLength);
+                counts = Arrays.copyOf(counts, newLength);
+            }
+            // values are appended, so overwriting a list with a longer one leaves the old slots unused
+            int start = numCoordinates;
+            if (counts[id] >= numPoints) {
+                start = starts[id];
+            } else {
+                if (numCoordinates + xyz.length > coordinates.length) {
+                    coordinates = Arrays.copyOf(coordinates,
+                            Math.max(numCoordinates + xyz.length, Math.max(INITIAL_CAPACITY, coordinates.length * 2)));
+                }
+                numCoordinates += xyz.length;
+            }
+            System.arraycopy(xyz, 0, coordinates, start, xyz.length);
+            starts[id] = start;
+            counts[id] = numPoints;
+        }
+
+        // Tulip writes points as "(x,y,z)" and lists of them as "((x,y,z)(x,y,z))", with "()" for an empty list
+        @Override
+        public void parse(@Nonnegative int id, @Nonnull String text) {
+            double[] xyz = new double[DIMENSIONS];
+            int numParsed = 0;
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                char c = text.charAt(i);
+                if (c == '(' || c == ')' || c == ',' || Character.isWhitespace(c)) {
+                    i++;
+                    continue;
+                }
+                int end = i;
+                while (end < length && "(),".indexOf(text.charAt(end)) < 0
+                        && !Character.isWhitespace(text.charAt(end))) {
+                    end++;
+                }
+                if (numParsed == xyz.length) {
+                    xyz = Arrays.copyOf(xyz, xyz.length * 2);
+                }
+                xyz[numParsed++] = Double.parseDouble(text.substring(i, end));
+                i = end;
+            }
+            setPoints(id, numParsed == xyz.length ? xyz : Arrays.copyOf(xyz, numParsed));
+        }
+
+        @Override
+        public String format(@Nonnegative int id) {
+            StringBuilder text = new StringBuilder();
+            if (lists) {
+                text.append('(');
+            }
+            for (int point = 0; point < getPointCount(id); point++) {
+                text.append('(').append(formatDouble(getX(id, point)))
+                        .append(',').append(formatDouble(getY(id, point)))
+                        .append(',').append(formatDouble(getZ(id, point))).append(')');
+            }
+            if (lists) {
+                text.append(')');
+            }
+            return text.toString();
+        }
+
+        private double coordinate(int id, int point, int axis) {
+            if (point >= getPointCount(id)) {
+                throw new IndexOutOfBoundsException("point " + point + " of " + getPointCount(id));
+            }
+            return coordinates[starts[id] + point * DIMENSIONS + axis];
+        }
+    }
+
+    public static class Strings extends PropertyColumn {
+        private String[] values = new String[0];
+
+        public String get(@Nonnegative int id) {
+            return id < values.length ? values[id] : null;
+        }
+
+        public void set(@Nonnegative int id, @Nonnull String value) {
+            markDefined(id);
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, id));
+            }
+            values[id] = value;
+        }
+
+        @Override
+        public void parse(@Nonnegative int id, @Nonnull String text) {
+            set(id, text);
+        }
+
+        @Override
+        public String format(@Nonnegative int id) {
+            return get(id);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package cloudwall.graph.io.tulip;
 
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.CompressedDataSource;
 import cloudwall.graph.io.GraphFormat;
 import cloudwall.graph.io.GraphFormatException;
 
@@ -27,6 +29,8 @@ public class TulipFormat implements GraphFormat<TulipModel> {
         }
     }
 
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
     @Override
     public MimeType[] getSupportedContentTypes() {
         return CONTENT_TYPES;
@@ -34,34 +38,55 @@ public class TulipFormat implements GraphFormat<TulipModel> {
 
     @Override
     public void read(DataSource dataIn, Consumer<TulipModel> modelConsumer) throws GraphFormatException, IOException {
-        try (Reader r = new InputStreamReader(dataIn.getInputStream())) {
-            modelConsumer.accept(null);
-        } catch (Exception e) {
-            throw new GraphFormatException("unexpected error", e);
+        TulipModel model;
+        try (
+                InputStream in = CompressedDataSource.wrap(dataIn).getInputStream();
+                Reader r = new InputStreamReader(in)
+            )
+        {
+            model = new TulipParser(r).parse();
+        }
+        modelConsumer.accept(model);
+    }
+
+    /**
+     * Streams the nodes and edges to the visitor as they are parsed, skipping clusters and properties, so none of
+     * them are held in memory.
+     */
+    @Override
+    public void read(DataSource dataIn, GraphVisitor visitor) throws GraphFormatException, IOException {
+        try (
+                InputStream in = CompressedDataSource.wrap(dataIn).getInputStream();
+                Reader r = new InputStreamReader(in)
+            )
+        {
+            new TulipParser(r).parse(visitor);
         }
     }
 
     @Override
     public void write(DataSource dataOut, TulipModel model) throws IOException {
-        try (PrintWriter pw = new PrintWriter(new OutputStreamWriter(dataOut.getOutputStream()))) {
+        OutputStream out = CompressedDataSource.wrap(dataOut).getOutputStream();
+        try (PrintWriter pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(out), WRITE_BUFFER_SIZE))) {
             // output header
             pw.write("(tlp ");
-            pw.write('"');
-            pw.write(model.getVersion());
-            pw.write('"');
+            writeQuotedValue(pw, model.getVersion());
             pw.write("\n");
 
             // output metadata
-            maybeWriteField(pw, "date", model.getDate());
+            if (model.getDate() != null) {
+                maybeWriteField(pw, "date", TulipParser.DATE_FORMAT.format(model.getDate()));
+            }
             maybeWriteField(pw, "author", model.getAuthor());
             maybeWriteField(pw, "comments", model.getComments());
 
             // output root cluster
             writeNodes(pw, model.getNodeIds());
             writeEdges(pw, model.getEdges());
+            model.getClusters().forEach(c -> writeCluster(pw, c));
             writeProperties(pw, model.getProperties());
 
-            pw.write(")");
+            pw.write(")\n");
 
         }
     }
@@ -73,26 +98,30 @@ public class TulipFormat implements GraphFormat<TulipModel> {
     private void writeEdges(PrintWriter pw, Collection<Edge> edges) {
         edges.forEach(e -> {
             pw.write("(edge ");
-            pw.write(e.getId());
+            pw.print(e.getId());
             pw.write(" ");
-            pw.write(e.getNode0());
+            pw.print(e.getNode0());
             pw.write(" ");
-            pw.write(e.getNode1());
+            pw.print(e.getNode1());
             pw.write(")\n");
         });
     }
 
     private void writeCluster(PrintWriter pw, Cluster c) {
-        boolean rootCluster = (c.getId() > 0);
-        if (rootCluster) {
+        boolean rootCluster = (c.getId() == 0);
+        if (!rootCluster) {
             pw.write("(cluster ");
-            pw.write(c.getId());
+            pw.print(c.getId());
+            if (c.getName() != null) {
+                pw.write(" ");
+                writeQuotedValue(pw, c.getName());
+            }
             pw.write("\n");
         }
         writeNodes(pw, c.getNodes());
         writeIdList(pw, "edges", c.getEdges());
         c.getClusters().forEach(child -> writeCluster(pw, child));
-        if (rootCluster) {
+        if (!rootCluster) {
             pw.write(")\n");
         }
     }
@@ -105,7 +134,7 @@ public class TulipFormat implements GraphFormat<TulipModel> {
          pw.write(type);
          idList.forEach(n -> {
              pw.write(" ");
-             pw.write(n);
+             pw.print(n.intValue());
          });
          pw.write(")\n");
      }
@@ -113,7 +142,7 @@ public class TulipFormat implements GraphFormat<TulipModel> {
     private void writeProperties(PrintWriter pw, Collection<Property> properties) {
         properties.forEach(p -> {
             pw.write("(property ");
-            pw.write(p.getClusterId());
+            pw.print(p.getClusterId());
             pw.write(" ");
             pw.write(p.getPropertyType().toString());
             pw.write(" ");
@@ -125,20 +154,21 @@ public class TulipFormat implements GraphFormat<TulipModel> {
             writeQuotedValue(pw, p.getEdgeDefaultValue());
             pw.write(")\n");
 
-            p.getNodeValues().forEach((k, v) -> {
-                pw.write("(node ");
-                pw.write(k);
-                pw.write(" ");
-                writeQuotedValue(pw, v);
-                pw.write(")\n");
-            });
-            p.getEdgeValues().forEach((k, v) -> {
-                pw.write("(edge ");
-                pw.write(k);
-                pw.write(" ");
-                writeQuotedValue(pw, v);
-                pw.write(")\n");
-            });
+            writeValues(pw, "node", p.getNodeValues());
+            writeValues(pw, "edge", p.getEdgeValues());
+            pw.write(")\n");
+        });
+    }
+
+    private void writeValues(PrintWriter pw, String type, PropertyColumn values) {
+        values.forEachDefined(id -> {
+            pw.write("(");
+            pw.write(type);
+            pw.write(" ");
+            pw.print(id);
+            pw.write(" ");
+            writeQuotedValue(pw, values.format(id));
+            pw.write(")\n");
         });
     }
 
@@ -155,7 +185,14 @@ public class TulipFormat implements GraphFormat<TulipModel> {
     private void writeQuotedValue(PrintWriter pw, Object value) {
         pw.write('"');
         if (value != null) {
-            pw.write(value.toString());
+            String text = value.toString();
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    pw.write('\\');
+                }
+                pw.write(c);
+            }
         }
         pw.write('"');
     }
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.tulip;
+
+import cloudwall.graph.*;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Helper which turns Tulip node and edge declarations into {@link GraphVisitor} callbacks, shared by
+ * {@link TulipModel#visit(GraphVisitor)} and the streaming {@link TulipParser}. Tulip numbers nodes densely from
+ * zero, so vertices are looked up in an array indexed by node ID. Nodes must be declared before the edges which
+ * refer to them, as in the file format itself.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class TulipGraphEmitter {
+    private final GraphVisitor visitor;
+    private Vertex[] vertices = new Vertex[1024];
+
+    TulipGraphEmitter(GraphVisitor visitor) {
+        this.visitor = visitor;
+    }
+
+    void visitNode(int id) {
+        if (id < 0) {
+            throw new IllegalStateException("mal-formed TLP for graph representation: negative node ID " + id);
+        }
+        if (id >= vertices.length) {
+            vertices = Arrays.copyOf(vertices, Math.max(id + 1, vertices.length * 2));
+        }
+        if (vertices[id] == null) {
+            Vertex vertex = new LightweightVertex(id);
+            vertices[id] = vertex;
+            visitor.visitVertex(vertex);
+        }
+    }
+
+    void visitEdge(int node0, int node1) {
+        visitor.visitEdge(new LightweightEdge<>(vertex(node0), vertex(node1)));
+    }
+
+    private Vertex vertex(int id) {
+        Vertex vertex = (id >= 0 && id < vertices.length) ? vertices[id] : null;
+        if (vertex == null) {
+            throw new IllegalStateException("mal-formed TLP for graph representation: undeclared node " + id);
+        }
+        return vertex;
+    }
+}
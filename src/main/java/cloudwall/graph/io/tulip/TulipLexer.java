@@ -0,0 +1,232 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.tulip;
+
+import cloudwall.graph.io.CharWindow;
+import cloudwall.graph.io.GraphFormatException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass tokenizer for TLP files, reading from a fixed-size window over the character stream. A semicolon
+ * outside of a string starts a comment running to the end of the line. Integers followed by {@code ..} are split
+ * from it, so node ranges like {@code 0..29} come out as integer, {@link Token#RANGE} and integer.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+class TulipLexer {
+    enum Token {
+        SYMBOL("a symbol"),
+        INTEGER("an integer"),
+        REAL("a real"),
+        STRING("a string"),
+        RANGE("'..'"),
+        LEFT_PAREN("'('"),
+        RIGHT_PAREN("')'"),
+        END("end of input");
+
+        private final String label;
+
+        Token(String label) {
+            this.label = label;
+        }
+
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int EOF = CharWindow.EOF;
+
+    private final CharWindow window;
+
+    private int lineNumber = 1;
+
+    private Token token;
+    private int tokenLineNumber;
+    private final StringBuilder text = new StringBuilder();
+
+    TulipLexer(Reader in) {
+        this.window = new CharWindow(in);
+    }
+
+    /**
+     * Advances to the next token and returns its type; at the end of the input this is {@link Token#END}.
+     */
+    Token next() throws GraphFormatException, IOException {
+        text.setLength(0);
+        int c = skipWhitespaceAndComments();
+        tokenLineNumber = lineNumber;
+        if (c == EOF) {
+            return token = Token.END;
+        } else if (c == '(') {
+            window.advance();
+            return token = Token.LEFT_PAREN;
+        } else if (c == ')') {
+            window.advance();
+            return token = Token.RIGHT_PAREN;
+        } else if (c == '"') {
+            return string();
+        } else if (c == '.' && window.peek(1) == '.') {
+            window.advance(2);
+            return token = Token.RANGE;
+        } else if (isLetter(c)) {
+            while ((c = window.peek(0)) != EOF && (isLetter(c) || isDigit(c))) {
+                text.append((char) c);
+                window.advance();
+            }
+            return token = Token.SYMBOL;
+        } else if (isDigit(c) || c == '-' || c == '+' || c == '.') {
+            return number();
+        }
+        throw error("unexpected character '" + (char) c + "'");
+    }
+
+    Token getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the text of the current token; strings are returned without their quotes and with escapes resolved.
+     */
+    String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Gets the text of the current token without copying it; only valid until the next call to {@link #next()}.
+     */
+    CharSequence getTextSequence() {
+        return text;
+    }
+
+    String describeToken() {
+        switch (token) {
+            case SYMBOL:
+            case INTEGER:
+            case REAL:
+                return "'" + text + "'";
+            case STRING:
+                return "\"" + text + "\"";
+            default:
+                return token.toString();
+        }
+    }
+
+    /**
+     * Creates an exception for a syntax error at the current token.
+     */
+    GraphFormatException error(String problem) {
+        return new GraphFormatException(problem + " at line # " + tokenLineNumber, null);
+    }
+
+    private Token number() throws GraphFormatException, IOException {
+        int c = window.peek(0);
+        if (c == '-' || c == '+') {
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+        }
+        int numDigits = 0;
+        boolean real = false;
+        while (isDigit(c) || (c == '.' && !real && window.peek(1) != '.')) {
+            if (c == '.') {
+                real = true;
+            } else {
+                numDigits++;
+            }
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+        }
+        if (numDigits == 0) {
+            throw error("invalid number '" + text + "'");
+        }
+        if (c == 'E' || c == 'e') {
+            real = true;
+            text.append((char) c);
+            window.advance();
+            c = window.peek(0);
+            if (c == '-' || c == '+') {
+                text.append((char) c);
+                window.advance();
+                c = window.peek(0);
+            }
+            if (!isDigit(c)) {
+                throw error("invalid number '" + text + "'");
+            }
+            while (isDigit(c)) {
+                text.append((char) c);
+                window.advance();
+                c = window.peek(0);
+            }
+        }
+        return token = real ? Token.REAL : Token.INTEGER;
+    }
+
+    // Tulip escapes quotes and backslashes inside strings; anything else after a backslash is kept as it is
+    private Token string() throws GraphFormatException, IOException {
+        window.advance();
+        while (true) {
+            int c = window.peek(0);
+            if (c == EOF) {
+                throw error("unterminated string");
+            }
+            window.advance();
+            if (c == '"') {
+                return token = Token.STRING;
+            } else if (c == '\\') {
+                int escaped = window.peek(0);
+                if (escaped == '"' || escaped == '\\') {
+                    c = escaped;
+                    window.advance();
+                }
+            } else if (c == '\n') {
+                lineNumber++;
+            }
+            text.append((char) c);
+        }
+    }
+
+    private int skipWhitespaceAndComments() throws IOException {
+        while (true) {
+            int c = window.peek(0);
+            if (c == '\n') {
+                lineNumber++;
+                window.advance();
+            } else if (c == ' ' || c == '\t' || c == '\r' || c == '\f') {
+                window.advance();
+            } else if (c == ';') {
+                while ((c = window.peek(0)) != EOF && c != '\n') {
+                    window.advance();
+                }
+            } else {
+                return c;
+            }
+        }
+    }
+
+    private static boolean isLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+}
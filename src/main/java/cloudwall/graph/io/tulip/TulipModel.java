@@ -118,19 +118,9 @@ public class TulipModel implements GraphModel {
     @Override
     public void visit(GraphVisitor visitor) {
         visitor.start(this);
-        Map<Integer, LightweightVertex> vertices = new HashMap<>();
-        nodes.forEach(node -> {
-            LightweightVertex vertex = new LightweightVertex(node.getId());
-            vertices.put(node.getId(), vertex);
-            visitor.visitVertex(new LightweightVertex(node.getId()));
-        });
-        edges.forEach(edge -> {
-            int node0 = edge.getNode0();
-            int node1 = edge.getNode0();
-            LightweightVertex vertex0 = vertices.get(node0);
-            LightweightVertex vertex1 = vertices.get(node1);
-            visitor.visitEdge(new LightweightEdge<>(vertex0, vertex1));
-        });
+        TulipGraphEmitter emitter = new TulipGraphEmitter(visitor);
+        nodes.forEach(node -> emitter.visitNode(node.getId()));
+        edges.forEach(edge -> emitter.visitEdge(edge.getNode0(), edge.getNode1()));
         visitor.complete();
     }
 
@@ -13,350 +13,367 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package cloudwall.graph.io.tulip;
 
-import org.javafp.data.IList;
-import org.javafp.data.Unit;
-import org.javafp.parsecj.Parser;
-import org.jooq.lambda.tuple.Tuple2;
-import org.jooq.lambda.tuple.Tuple3;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.tulip.TulipLexer.Token;
 
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.io.Reader;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
-
-import static cloudwall.graph.io.Parsers.jstring;
-import static cloudwall.graph.io.Parsers.keyword;
-import static cloudwall.graph.io.Parsers.token;
-import static org.javafp.parsecj.Combinators.*;
-import static org.javafp.parsecj.Text.*;
-
-@SuppressWarnings("WeakerAccess")
+import java.time.format.DateTimeParseException;
+import java.util.function.IntConsumer;
+
+/**
+ * Parser for TLP files, covering both the full format with a header and the light format which starts straight
+ * with the node declarations:
+ * <p>
+ * <pre>
+ *     tulip ::= tulip-full | tulip-light
+ *     tulip-full ::= header declaration* ')'
+ *     tulip-light ::= declaration*
+ *     header ::= '(' 'tlp' quoted-string
+ *     declaration ::= date-attr | author-attr | comments-attr | nodes-decl | edge-decl | cluster-decl
+ *                   | property-decl | other-decl
+ *     date-attr ::= '(' 'date' quoted-string ')'
+ *     author-attr ::= '(' 'author' quoted-string ')'
+ *     comments-attr ::= '(' 'comments' quoted-string ')'
+ *     nodes-decl ::= '(' 'nodes' id-list ')'
+ *     id-list ::= (id | id '..' id)*
+ *     edge-decl ::= '(' 'edge' edge-id node-id node-id ')'
+ *     cluster-decl ::= '(' 'cluster' cluster-id quoted-string? node-list? edge-list? cluster-decl* ')'
+ *     node-list ::= '(' 'nodes' id-list ')'
+ *     edge-list ::= '(' 'edges' id-list ')'
+ *     property-decl ::= '(' 'property' cluster-id property-type quoted-string property-default-decl?
+ *                       applied-property* ')'
+ *     property-default-decl ::= '(' 'default' quoted-string quoted-string ')'
+ *     applied-property ::= '(' ('node' | 'edge') id quoted-string ')'
+ * </pre>
+ *
+ * <p>The {@code attributes}, {@code controller} and {@code displaying} sections, along with any other declaration
+ * this parser does not know, only hold view settings and are checked for balanced parentheses but otherwise skipped.
+ * This is a recursive descent parser over the tokens from {@link TulipLexer}, and with one token of lookahead it
+ * needs no backtracking.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ * @see <a href="http://tulip.labri.fr/TulipDrupal/?q=tlp-file-format">TLP file format</a>
+ */
+@NotThreadSafe
 class TulipParser {
-    // tulip ::= tulip-full | tulip-light
-    @SuppressWarnings("unchecked")
-    public static Parser<Character, TulipModel> newInstance() {
-        return choice(attempt(tulipFull()), attempt(tulipLight()));
-    }
-
-    // tulip-light ::= nodes-decl edge-decl* cluster-decl* property-decl* attributes-decl? displaying-decl?
-    private static Parser<Character, TulipModel> tulipLight() {
-        return tulipRootCluster(new TulipModel());
-    }
+    static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MM-dd-yyyy");
 
-    // tulip-full ::= header nodes-decl edge-decl* clusters-decl* property-decl* attributes-decl? displaying-decl? ')'
-    private static Parser<Character, TulipModel> tulipFull() {
-        return tulipHeader().bind(model -> tulipRootCluster(model).bind(close -> retn(model)));
-    }
-
-    // header ::= '(' 'tlp' quoted-string date-attr? author-attr? comments-attr?
-    private static Parser<Character, TulipModel> tulipHeader() {
-        return openDecl("tlp")
-                .bind(decl -> quotedString()
-                        .bind(version -> option(attempt(dateAttribute()), null)
-                                .bind(date -> option(attempt(authorAttribute()), null)
-                                        .bind(author -> option(attempt(commentsAttribute()), null)
-                                                .bind(comments -> {
-                                                            TulipModel model = new TulipModel();
-                                                            model.setDate(date);
-                                                            model.setAuthor(author);
-                                                            model.setComments(comments);
-                                                            return retn(model);
-                                                        }
-                                                )
-                                        )
-                                )
-                        )
-                );
-    }
+    private final TulipLexer lexer;
 
-    private static Parser<Character, TulipModel> tulipRootCluster(TulipModel model) {
-        return nodes()
-                .bind(nodes -> many(attempt(edge()))
-                        .bind(edges -> many(attempt(cluster()))
-                                .bind(clusters -> many(attempt(propertyDeclaration()))
-                                        .bind(properties -> optional(attempt(attributesDeclaration()))
-                                                .bind(controller -> optional(attempt(controllerDeclaration()))
-                                                        .bind(attributes -> optional(displayingDeclaration())
-                                                                .bind(displaying -> {
-                                                                    nodes.forEach(model::addNode);
-                                                                    edges.forEach(model::addEdge);
-                                                                    clusters.forEach(model::addCluster);
-                                                                    properties.forEach(model::addProperty);
-                                                                    return retn(model);
-                                                                })
-                                                        )
-                                                )
-                                        )
-                                )
-                        )
-                );
-    }
-
-    // date-attr ::= '(' 'date' quoted-string ')'
-    private static Parser<Character, LocalDate> dateAttribute() {
-        return openDecl("date")
-                .bind(decl -> quotedString()
-                        .bind(value -> close()
-                                .bind(close -> retn(LocalDate.parse(value, DateTimeFormatter.ofPattern("MM-dd-yyyy")))
-                                )
-                        )
-                );
-    }
-
-    // author-attr ::= '(' 'author' quoted-string ')'
-    @SuppressWarnings("Convert2MethodRef")
-    private static Parser<Character, String> authorAttribute() {
-        return openDecl("author")
-                .bind(decl -> quotedString()
-                        .bind(value -> close()
-                                .bind(close -> retn(value)
-                                )
-                        )
-                );
-    }
-
-    // comments-attr ::= '(' 'comments' quoted-string ')'
-    @SuppressWarnings("Convert2MethodRef")
-    private static Parser<Character, String> commentsAttribute() {
-        return openDecl("comments")
-                .bind(decl -> quotedString()
-                        .bind(value -> close()
-                                .bind(close -> retn(value)
-                                )
-                        )
-                );
-    }
-
-    // nodes-decl ::= '(' 'nodes' node-id+ ')'
-    @SuppressWarnings("Convert2MethodRef")
-    private static Parser<Character, IList<Node>> nodes() {
-        return openDecl("nodes").then(nodeIds()
-                .bind(value -> close()
-                        .bind(close -> retn(value.map(id -> new Node(id)))
-                        )
-                )
-        );
-    }
-
-    @SuppressWarnings("unchecked")
-    private static Parser<Character, IList<Integer>> nodeIds() {
-        return choice(
-                attempt(nodeIdRange()),
-                attempt(many1(id())
-                )
-        );
-    }
+    // only set when streaming to a visitor
+    private GraphVisitor visitor;
+    private TulipGraphEmitter emitter;
 
-    private static Parser<Character, IList<Integer>> nodeIdRange() {
-        return intr
-                .bind(startRange -> keyword("..")
-                        .bind(op -> intr
-                                .bind(endRange -> retn(IList.of(startRange, endRange))
-                                )
-                        )
-                );
+    TulipParser(Reader in) {
+        this.lexer = new TulipLexer(in);
     }
 
-    // edges-decl ::= '(' 'edge' edge-id node-id node-id ')'
-    private static Parser<Character, Edge> edge() {
-        return openDecl("edge").then(id()
-                .bind(edgeId -> id()
-                        .bind(node0 -> id()
-                                .bind(node1 -> close()
-                                        .bind(close -> retn(new Edge(edgeId, node0, node1))
-                                        )
-                                )
-                        )
-                )
-        );
+    /**
+     * Parses the whole input into a model.
+     */
+    TulipModel parse() throws GraphFormatException, IOException {
+        lexer.next();
+        return tulip();
     }
 
-    // cluster-decl ::= '(' 'cluster' cluster-id quoted-string node-list edge-list cluster* ')'
-    private static Parser<Character, Cluster> cluster() {
-        return openDecl("cluster").then(id()
-                .bind(clusterId -> jstring
-                        .bind(clusterName -> clusterNodeList()
-                                .bind(clusterNodes -> clusterEdgeList()
-                                        .bind(clusterEdges -> many(cluster())
-                                                .bind(clusters -> close()
-                                                        .bind(close -> {
-                                                                    Cluster cluster = new Cluster(clusterId, clusterName);
-                                                                    clusterNodes.forEach(cluster::addNode);
-                                                                    clusterEdges.forEach(cluster::addEdge);
-                                                                    clusters.forEach(cluster::addCluster);
-                                                                    return retn(cluster);
-                                                                }
-                                                        )
-                                                )
-                                        )
-                                )
-                        )
-                )
-        );
+    /**
+     * Parses the input and passes the graph it describes straight to the visitor, as for
+     * {@link TulipModel#visit(GraphVisitor)}, without keeping the nodes and edges; clusters and properties are
+     * skipped. The model passed to {@link GraphVisitor#start} only holds the header fields, and as the nodes and edges
+     * come after it, its counts are -1 for unknown.
+     */
+    void parse(GraphVisitor visitor) throws GraphFormatException, IOException {
+        this.visitor = visitor;
+        lexer.next();
+        TulipModel model = tulip();
+        if (emitter == null) {
+            visitor.start(model);
+        }
+        visitor.complete();
     }
 
-    // node-list ::= '(' 'nodes' node-id+ ')'
-    private static Parser<Character, IList<Integer>> clusterNodeList() {
-        return openDecl("nodes").then(many1(id()).bind(nodeIds -> close().bind(close -> retn(nodeIds))));
+    private TulipModel tulip() throws GraphFormatException, IOException {
+        TulipModel model = null;
+        boolean full = false;
+        while (lexer.getToken() != Token.END) {
+            if (full && lexer.getToken() == Token.RIGHT_PAREN) {
+                lexer.next();
+                if (lexer.getToken() != Token.END) {
+                    throw unexpected(Token.END.toString());
+                }
+                return model;
+            }
+            expect(Token.LEFT_PAREN);
+            String name = symbol();
+            if (model == null) {
+                if (name.equals("tlp")) {
+                    model = newModel(string());
+                    full = true;
+                    continue;
+                }
+                model = newModel(TulipModel.CURRENT_VERSION);
+            }
+            declaration(model, name);
+        }
+        if (full) {
+            throw unexpected(Token.RIGHT_PAREN.toString());
+        }
+        return model != null ? model : newModel(TulipModel.CURRENT_VERSION);
     }
 
-    // edge-list ::= '(' 'edges' edge-id+ ')'
-    private static Parser<Character, IList<Integer>> clusterEdgeList() {
-        return openDecl("edges").then(many1(id()).bind(edgeIds -> close().bind(close -> retn(edgeIds))));
+    private TulipModel newModel(String version) {
+        return visitor != null ? new StreamedModel(version) : new TulipModel(version);
     }
 
-    // property-decl ::= '(' 'property' cluster-id property-type quoted-string property-default-decl? applied-properties* ')'
-    private static Parser<Character, Property> propertyDeclaration() {
-        return openDecl("property")
-                .then(id()
-                        .bind(clusterId -> propertyType()
-                                .bind(type -> quotedString()
-                                        .bind(name -> propertyDefault()
-                                                .bind(defaults -> appliedProperties()
-                                                        .bind(properties -> close()
-                                                                .bind(close -> {
-                                                                            Property prop = new Property(clusterId, type, name);
-                                                                            prop.setNodeDefaultValue(defaults.v1());
-                                                                            prop.setEdgeDefaultValue(defaults.v2());
-
-                                                                            properties.forEach(p -> {
-                                                                                if (p.v1().equals("node")) {
-                                                                                    prop.setNodeValue(p.v2(), p.v3());
-                                                                                } else {
-                                                                                    prop.setEdgeValue(p.v2(), p.v3());
-                                                                                }
-                                                                            });
-
-                                                                            return retn(prop);
-                                                                        }
-                                                                )
-                                                        )
-                                                )
-                                        )
-                                )
-                        )
-                );
+    private void declaration(TulipModel model, String name) throws GraphFormatException, IOException {
+        switch (name) {
+            case "date":
+                model.setDate(date(string()));
+                break;
+            case "author":
+                model.setAuthor(string());
+                break;
+            case "comments":
+                model.setComments(string());
+                break;
+            case "nodes":
+                IntConsumer nodes = visitor != null ? emitter(model)::visitNode : id -> model.addNode(new Node(id));
+                try {
+                    idList(nodes);
+                } catch (IllegalStateException e) {
+                    throw lexer.error(e.getMessage());
+                }
+                break;
+            case "edge":
+                edge(model);
+                break;
+            case "cluster":
+                if (visitor != null) {
+                    skip();
+                    return;
+                }
+                model.addCluster(cluster());
+                return;
+            case "property":
+                if (visitor != null) {
+                    skip();
+                    return;
+                }
+                model.addProperty(property());
+                return;
+            default:
+                skip();
+                return;
+        }
+        expect(Token.RIGHT_PAREN);
     }
 
-    // attributes-decl ::= '(' 'attributes' attribute-decl* ')'
-    private static Parser<Character, Unit> attributesDeclaration() {
-        return openDecl("attributes")
-                .bind(attributes -> many(attributeDeclaration())
-                        .bind(attr -> closeAndSkipAll()
-                        )
-                );
+    private void edge(TulipModel model) throws GraphFormatException, IOException {
+        int edgeId = integer();
+        int node0 = integer();
+        int node1 = integer();
+        if (visitor != null) {
+            try {
+                emitter(model).visitEdge(node0, node1);
+            } catch (IllegalStateException e) {
+                throw lexer.error(e.getMessage());
+            }
+        } else {
+            model.addEdge(new Edge(edgeId, node0, node1));
+        }
     }
 
-    // displaying-decl ::= '(' 'displaying' attribute-decl* ')'
-    private static Parser<Character, Unit> displayingDeclaration() {
-        return openDecl("displaying")
-                .then(many(attributeDeclaration()))
-                .then(closeAndSkipAll());
+    private TulipGraphEmitter emitter(TulipModel model) {
+        if (emitter == null) {
+            visitor.start(model);
+            emitter = new TulipGraphEmitter(visitor);
+        }
+        return emitter;
     }
 
-    // controller-decl ::= '(' 'controller' data-set* attribute-decl* ')'
-    private static Parser<Character, Unit> controllerDeclaration() {
-        return openDecl("controller")
-                .then(many(dataSet()))
-                .then(closeAndSkipAll());
+    // cluster-decl ::= '(' 'cluster' cluster-id quoted-string? node-list? edge-list? cluster-decl* ')'
+    private Cluster cluster() throws GraphFormatException, IOException {
+        int clusterId = integer();
+        String clusterName = lexer.getToken() == Token.STRING ? string() : null;
+        Cluster cluster = new Cluster(clusterId, clusterName);
+        while (lexer.getToken() == Token.LEFT_PAREN) {
+            lexer.next();
+            String name = symbol();
+            switch (name) {
+                case "nodes":
+                    idList(cluster::addNode);
+                    expect(Token.RIGHT_PAREN);
+                    break;
+                case "edges":
+                    idList(cluster::addEdge);
+                    expect(Token.RIGHT_PAREN);
+                    break;
+                case "cluster":
+                    cluster.addCluster(cluster());
+                    break;
+                default:
+                    skip();
+            }
+        }
+        expect(Token.RIGHT_PAREN);
+        return cluster;
     }
 
-    // data-set ::= '(' 'DataSet' quoted-string ')'
-    private static Parser<Character, Unit> dataSet() {
-        return openDecl("DataSet")
-                .bind(dataSet -> quotedString()
-                        .then(many(attempt(dataSet())))
-                        .then(many(attempt(attributeDeclaration())))
-                        .then(closeAndSkipAll()
-                        )
-                );
+    // id-list ::= (id | id '..' id)*
+    private void idList(IntConsumer ids) throws GraphFormatException, IOException {
+        while (lexer.getToken() == Token.INTEGER) {
+            int from = integer();
+            if (lexer.getToken() == Token.RANGE) {
+                lexer.next();
+                int to = integer();
+                if (to < from) {
+                    throw lexer.error("invalid range " + from + ".." + to);
+                }
+                // a long counter, as an int one would wrap around instead of stopping at Integer.MAX_VALUE
+                for (long id = from; id <= to; id++) {
+                    ids.accept((int) id);
+                }
+            } else {
+                ids.accept(from);
+            }
+        }
     }
 
-    // attribute-decl ::= '(' property-type quoted-string | bool-value | double | integer ')'
-    private static Parser<Character, Unit> attributeDeclaration() {
-        return open()
-                .then(propertyType()
-                        .bind(type -> quotedString()
-                                .bind(attribName -> attributeValues()
-                                        .bind(attribValue -> closeAndSkipAll()
-                                        )
-                                )
-                        )
-                );
+    // property-decl ::= '(' 'property' cluster-id property-type quoted-string property-default-decl?
+    //                   applied-property* ')'
+    private Property property() throws GraphFormatException, IOException {
+        int clusterId = integer();
+        String typeName = symbol();
+        PropertyType type = PropertyType.getPropertyTypeByName(typeName);
+        if (type == null) {
+            throw lexer.error("unknown property type '" + typeName + "'");
+        }
+        Property property = new Property(clusterId, type, string());
+        while (lexer.getToken() == Token.LEFT_PAREN) {
+            lexer.next();
+            String name = symbol();
+            switch (name) {
+                case "default":
+                    property.setNodeDefaultValue(string());
+                    property.setEdgeDefaultValue(string());
+                    break;
+                case "node":
+                case "edge":
+                    int id = integer();
+                    String value = string();
+                    try {
+                        if (name.equals("node")) {
+                            property.setNodeValue(id, value);
+                        } else {
+                            property.setEdgeValue(id, value);
+                        }
+                    } catch (IllegalArgumentException e) {
+                        throw lexer.error("invalid " + type + " value \"" + value + "\"");
+                    }
+                    break;
+                default:
+                    skip();
+                    continue;
+            }
+            expect(Token.RIGHT_PAREN);
+        }
+        expect(Token.RIGHT_PAREN);
+        return property;
     }
 
-    private static Parser<Character, Unit> attributeValues() {
-        IList<Parser<Character, Unit>> valueParsers = IList.of();
-        valueParsers = valueParsers.add(intr.bind(value -> retn(Unit.unit)));
-        valueParsers = valueParsers.add(dble.bind(value -> retn(Unit.unit)));
-        valueParsers = valueParsers.add(jstring.bind(value -> retn(Unit.unit)));
-        valueParsers = valueParsers.add(keyword("true").bind(value -> retn(Unit.unit)));
-        valueParsers = valueParsers.add(keyword("false").bind(value -> retn(Unit.unit)));
-        return choice(valueParsers);
+    // consumes the rest of a declaration whose opening parenthesis and name have already been read
+    private void skip() throws GraphFormatException, IOException {
+        int depth = 1;
+        while (depth > 0) {
+            switch (lexer.getToken()) {
+                case LEFT_PAREN:
+                    depth++;
+                    break;
+                case RIGHT_PAREN:
+                    depth--;
+                    break;
+                case END:
+                    throw unexpected(Token.RIGHT_PAREN.toString());
+                default:
+                    break;
+            }
+            lexer.next();
+        }
     }
 
-    // property-type ::= 'bool' | 'double' | 'layout' | 'int' | 'size' | 'string'
-    private static Parser<Character, PropertyType> propertyType() {
-        IList<Parser<Character, PropertyType>> choices = IList.of();
-        for (PropertyType propertyType : PropertyType.values()) {
-            choices = choices.add(attempt(keyword(propertyType.toString()).then(retn(propertyType))));
+    private LocalDate date(String text) throws GraphFormatException {
+        try {
+            return LocalDate.parse(text, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw lexer.error("invalid date \"" + text + "\"");
         }
-        return wspaces.then(choice(choices));
     }
 
-    // property-default-decl ::= '(' 'default' quoted-string quoted-string ')'
-    private static Parser<Character, Tuple2<String, String>> propertyDefault() {
-        return openDecl("default")
-                .then(quotedString()
-                        .bind(nodeDefaultValue -> quotedString()
-                                .bind(edgeDefaultValue -> close()
-                                        .bind(close -> retn(new Tuple2<>(nodeDefaultValue, edgeDefaultValue))
-                                        )
-                                )
-                        )
-                );
+    private String symbol() throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.SYMBOL) {
+            throw unexpected(Token.SYMBOL.toString());
+        }
+        String text = lexer.getText();
+        lexer.next();
+        return text;
     }
 
-    // applied-properties ::= '(' ('node' | 'edge') id quoted-string ')'
-    private static Parser<Character, IList<Tuple3<String, Integer, String>>> appliedProperties() {
-        return many(
-                open()
-                        .then(or(keyword("node"), keyword("edge"))
-                                .bind(applyType -> id()
-                                        .bind(edgeId -> quotedString()
-                                                .bind(value -> close()
-                                                        .bind(close -> retn(new Tuple3<>(applyType, edgeId, value))
-                                                        )
-                                                )
-                                        )
-                                )
-                        )
-        );
+    private String string() throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.STRING) {
+            throw unexpected(Token.STRING.toString());
+        }
+        String text = lexer.getText();
+        lexer.next();
+        return text;
     }
 
-    private static Parser<Character, String> quotedString() {
-        return wspaces.then(jstring);
+    private int integer() throws GraphFormatException, IOException {
+        if (lexer.getToken() != Token.INTEGER) {
+            throw unexpected(Token.INTEGER.toString());
+        }
+        CharSequence text = lexer.getTextSequence();
+        int value;
+        try {
+            value = Integer.parseInt(text, 0, text.length(), 10);
+        } catch (NumberFormatException e) {
+            throw lexer.error("integer out of range '" + text + "'");
+        }
+        lexer.next();
+        return value;
     }
 
-    private static Parser<Character, Integer> id() {
-        return wspaces.then(intr);
+    private void expect(Token expected) throws GraphFormatException, IOException {
+        if (lexer.getToken() != expected) {
+            throw unexpected(expected.toString());
+        }
+        lexer.next();
     }
 
-    private static Parser<Character, Character> open() {
-        return token(chr('('));
+    private GraphFormatException unexpected(String expected) {
+        return lexer.error("expected " + expected + " but found " + lexer.describeToken());
     }
 
-    private static Parser<Character, Unit> openDecl(String name) {
-        return open().label("(" + name).then(keyword(name)).then(wspaces);
-    }
+    // nodes and edges go straight to the visitor rather than into the model, so there is nothing to count
+    private static final class StreamedModel extends TulipModel {
+        StreamedModel(String version) {
+            super(version);
+        }
 
-    private static Parser<Character, Character> close() {
-        return token(chr(')'));
-    }
+        @Override
+        public long getVertexCount() {
+            return -1;
+        }
 
-    // for elements we want to check for well-formedness but not consume, just finish by returning Unit
-    private static Parser<Character, Unit> closeAndSkipAll() {
-        return close().bind(close -> retn(Unit.unit));
+        @Override
+        public long getEdgeCount() {
+            return -1;
+        }
     }
 }
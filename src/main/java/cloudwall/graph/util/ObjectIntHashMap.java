@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.util;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Open-addressing hash map from object keys to primitive {@code int} values, used as a dictionary for string
+ * identifiers. Compared with a {@code HashMap<K,Integer>} it avoids the per-entry node and the boxed value, which
+ * matters when interning millions of names. Absent keys are reported with a caller-supplied sentinel value.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public class ObjectIntHashMap<K> {
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int missingValue;
+
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int size = 0;
+    private int resizeThreshold;
+
+    public ObjectIntHashMap(int missingValue) {
+        this(16, missingValue);
+    }
+
+    public ObjectIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(LongIntHashMap.tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Gets the value for the given key, or the missing value sentinel if absent.
+     */
+    public int get(@Nonnull K key) {
+        int slot = mix(key) & mask;
+        Object candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Associates the value with the given key only if it is not already present; returns the current value if there
+     * was one, else the missing value sentinel.
+     */
+    public int putIfAbsent(@Nonnull K key, int value) {
+        int slot = mix(key) & mask;
+        Object candidate;
+        while ((candidate = keys[slot]) != null) {
+            if (candidate.equals(key)) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length * 2);
+        }
+        return missingValue;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the approximate number of bytes held by the backing arrays, not counting the keys themselves.
+     */
+    public long getMemoryFootprint() {
+        return (4L + 4L) * keys.length;
+    }
+
+    private void rehash(int newCapacity) {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = mix(oldKeys[i]) & mask;
+                while (keys[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int mix(Object key) {
+        int h = key.hashCode() * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.util;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.zip.Checksum;
+
+/**
+ * Fixed-size region of off-heap memory made up of direct {@link ByteBuffer} chunks, so it can exceed the 2 GB limit of
+ * a single buffer. Elements are addressed by index in units of the accessor's type, e.g. {@link #getInt(long)} reads
+ * bytes {@code 4 * index} to {@code 4 * index + 3}; mixing element types within one buffer is allowed but not useful.
+ * Values are stored in native byte order and the memory starts zeroed.
+ *
+ * <p>A buffer can also be a read-only window onto a file via {@link #map(FileChannel, long, long, ByteOrder)}, in which
+ * case the operating system pages data in on first access and {@link #close()} unmaps it.
+ *
+ * <p>Unlike a plain direct buffer, which is only released once the garbage collector gets round to its owner, the
+ * memory here is freed as soon as {@link #close()} is called. Any access after that fails with an
+ * {@link IllegalStateException} rather than touching freed memory. Concurrent reads are safe, but closing while other
+ * threads are still reading is not.
+ *
+ * @author <a href="mailto:kyle.downey@gmail.com">Kyle F. Downey</a>
+ */
+@NotThreadSafe
+public class OffHeapBuffer implements AutoCloseable {
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    // sun.misc.Unsafe.invokeCleaner(ByteBuffer), if this JVM offers it; otherwise memory is left to the GC on close
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not available on this JVM, so close() falls back to dropping the references
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final long capacity;
+    private ByteBuffer[] chunks;
+
+    /**
+     * Allocates the given number of bytes off-heap.
+     */
+    public OffHeapBuffer(@Nonnegative long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must be non-negative: " + capacity);
+        }
+        this.capacity = capacity;
+        int numChunks = (int) ((capacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new ByteBuffer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            int chunkSize = (int) Math.min(1L << CHUNK_SHIFT, capacity - ((long) i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private OffHeapBuffer(long capacity, ByteBuffer[] chunks) {
+        this.capacity = capacity;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Maps the given region of a file read-only. The mapping stays valid after the channel is closed, and values are
+     * read in the given byte order, which should be the one the file was written in.
+     */
+    public static OffHeapBuffer map(@Nonnull FileChannel channel, @Nonnegative long position, @Nonnegative long size,
+                                    @Nonnull ByteOrder order) throws IOException {
+        int numChunks = (int) ((size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        ByteBuffer[] chunks = new ByteBuffer[numChunks];
+        for (int i = 0; i < numChunks; i++) {
+            long chunkStart = (long) i << CHUNK_SHIFT;
+            long chunkSize = Math.min(1L << CHUNK_SHIFT, size - chunkStart);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + chunkStart, chunkSize).order(order);
+        }
+        return new OffHeapBuffer(size, chunks);
+    }
+
+    /**
+     * Gets the size of the buffer in bytes.
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    public byte getByte(long position) {
+        return chunk(position).get((int) (position & CHUNK_MASK));
+    }
+
+    public void putByte(long position, byte value) {
+        chunk(position).put((int) (position & CHUNK_MASK), value);
+    }
+
+    /**
+     * Copies {@code length} bytes starting at the given byte position into the destination array; unlike the typed
+     * accessors the range may span chunks.
+     */
+    public void getBytes(long position, @Nonnull byte[] dest, int offset, int length) {
+        while (length > 0) {
+            ByteBuffer chunk = chunk(position).duplicate();
+            int chunkOffset = (int) (position & CHUNK_MASK);
+            int count = Math.min(length, chunk.capacity() - chunkOffset);
+            chunk.position(chunkOffset);
+            chunk.get(dest, offset, count);
+            position += count;
+            offset += count;
+            length -= count;
+        }
+    }
+
+    public int getInt(long index) {
+        long position = index << 2;
+        return chunk(position).getInt((int) (position & CHUNK_MASK));
+    }
+
+    public void putInt(long index, int value) {
+        long position = index << 2;
+        chunk(position).putInt((int) (position & CHUNK_MASK), value);
+    }
+
+    public long getLong(long index) {
+        long position = index << 3;
+        return chunk(position).getLong((int) (position & CHUNK_MASK));
+    }
+
+    public void putLong(long index, long value) {
+        long position = index << 3;
+        chunk(position).putLong((int) (position & CHUNK_MASK), value);
+    }
+
+    public double getDouble(long index) {
+        long position = index << 3;
+        return chunk(position).getDouble((int) (position & CHUNK_MASK));
+    }
+
+    public void putDouble(long index, double value) {
+        long position = index << 3;
+        chunk(position).putDouble((int) (position & CHUNK_MASK), value);
+    }
+
+    /**
+     * Feeds the whole contents of the buffer to the given checksum.
+     */
+    public void updateChecksum(@Nonnull Checksum checksum) {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("off-heap buffer has been closed");
+        }
+        for (ByteBuffer chunk : current) {
+            checksum.update(chunk.duplicate());
+        }
+    }
+
+    public boolean isClosed() {
+        return chunks == null;
+    }
+
+    /**
+     * Releases the memory immediately. Calling this more than once has no further effect.
+     */
+    @Override
+    public void close() {
+        ByteBuffer[] released = chunks;
+        chunks = null;
+        if (released == null || INVOKE_CLEANER == null) {
+            return;
+        }
+        for (ByteBuffer chunk : released) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, chunk);
+            } catch (ReflectiveOperationException e) {
+                // nothing more we can do; the GC will release it along with the buffer object
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer chunk(long position) {
+        ByteBuffer[] current = chunks;
+        if (current == null) {
+            throw new IllegalStateException("off-heap buffer has been closed");
+        }
+        return current[(int) (position >>> CHUNK_SHIFT)];
+    }
+}
@@ -119,13 +119,50 @@ public class AdjacencyListGraphTest {
         graph.removeVertex(vertexMap.get("A"));
 
         assertEquals(8, graph.getVertexCount());
-        assertEquals(7, graph.getEdgeCount());
+        assertEquals(6, graph.getEdgeCount());
 
         dfs(graph, "B");
         dfs(graph, "C");
 
     }
 
+    @Test
+    public void transposeReversesEdges() {
+        MutableGraph<LightweightVertex, HeavyweightDirectedEdge<LightweightVertex>> graph = aDirectedAcyclicGraph();
+        graph.addEdge(new HeavyweightDirectedEdge<>(vertexMap.get("H"), vertexMap.get("I"), 2.5));
+        Graph<LightweightVertex, Edge<LightweightVertex>> transposed = graph.transpose();
+
+        List<LightweightVertex> vertices = new ArrayList<>();
+        transposed.visitBreadthFirstFrom(vertexMap.get("I"), vertices::add);
+        assertEquals(createVertices("I", "G", "H", "C", "E", "A"), vertices);
+        vertices.clear();
+        transposed.visitDepthFirstFrom(vertexMap.get("I"), vertices::add);
+        assertEquals(createVertices("I", "H", "E", "C", "A", "G"), vertices);
+
+        LightweightVertex i = vertexMap.get("I");
+        List<Edge<LightweightVertex>> edges = new ArrayList<>();
+        transposed.forEachTraversableEdge(i, edges::add);
+        assertEquals(2, edges.size());
+        for (Edge<LightweightVertex> edge : edges) {
+            assertTrue(edge.isTraversable(i));
+            assertEquals(i, edge.getVertex0());
+        }
+        Edge.WeightedEdge<?> weighted = (Edge.WeightedEdge<?>) edges.get(1);
+        assertEquals(2.5, weighted.getWeight(), 0.0);
+        assertTrue(transposed.transpose() == (Object) graph);
+    }
+
+    @Test
+    public void presizedGraphGrowsPastHints() {
+        MutableGraph<LightweightVertex,LightweightEdge> graph =
+                anUndirectedGraphWithCycles(new AdjacencyListGraph<>(2, 1));
+
+        assertEquals(9, graph.getVertexCount());
+        assertEquals(13, graph.getEdgeCount());
+        assertEquals(createVertices("A", "B", "C", "D", "E", "F", "G", "H", "I"), bfs(graph, "A"));
+        assertEquals(createVertices("A", "C", "G", "F", "E", "D", "B", "H", "I"), dfs(graph, "A"));
+    }
+
     private List<LightweightVertex> bfs(Graph<LightweightVertex,? extends Edge> graph, String start) {
         List<LightweightVertex> vertices = new ArrayList<>();
         graph.visitBreadthFirstFrom(vertexMap.get(start), v -> {
@@ -164,8 +201,11 @@ public class AdjacencyListGraphTest {
     }
 
     private MutableGraph<LightweightVertex,LightweightEdge> anUndirectedGraphWithCycles() {
-        MutableGraph<LightweightVertex,LightweightEdge> graph = new AdjacencyListGraph<>();
+        return anUndirectedGraphWithCycles(new AdjacencyListGraph<>());
+    }
 
+    private MutableGraph<LightweightVertex,LightweightEdge> anUndirectedGraphWithCycles(
+            MutableGraph<LightweightVertex,LightweightEdge> graph) {
         for (String id : ImmutableList.of("A", "B", "C", "D", "E", "F", "G", "H", "I")) {
             graph.addVertex(vertexMap.get(id));
         }
@@ -0,0 +1,307 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.analysis.DirectionOptimizingBreadthFirstSearch;
+import cloudwall.graph.io.StringDataSource;
+import cloudwall.graph.io.edge.CsrEdgeListLoader;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import cloudwall.graph.io.edge.EdgeListModel;
+import cloudwall.graph.io.graphlet.GMLFormat;
+import cloudwall.graph.io.graphviz.GraphvizDotFormat;
+import cloudwall.graph.io.graphviz.GraphvizDotModel;
+import cloudwall.graph.io.snapshot.SnapshotFormat;
+import cloudwall.graph.io.snapshot.SnapshotModel;
+import cloudwall.graph.io.sparse.MatrixMarketFormat;
+import cloudwall.graph.io.tulip.TulipFormat;
+
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
+import javax.activation.URLDataSource;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.ref.Reference;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Rough throughput and memory figures for the graph implementations and formats, printed rather than asserted since
+ * they depend on the machine and the JIT. Not a unit test: run it by hand or with {@code gradle benchmark}.
+ */
+public final class Benchmarks {
+    private static final URL EMAIL_EU_CORE = EdgeListFormat.class.getResource("email-Eu-core.txt");
+
+    private static final String[] DOT_CORPUS = {
+            "cluster.dot", "crazy.dot", "datastruct.dot", "er.dot", "fdpclust.dot", "fsm.dot", "helloworld.dot",
+            "process.dot", "profile.dot", "softmaint.dot", "switch.dot", "twopi.dot", "world.dot"
+    };
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        new EdgeListFormat().read(new URLDataSource(EMAIL_EU_CORE), modelRef::set);
+        GraphModel email = modelRef.get();
+
+        measureFootprints(email);
+        measureTraversals(email);
+        measureBuilders(email);
+        measureEdgeListFormat(email);
+        measureSparseLoad();
+        measureDotRead();
+        measureGmlLoad();
+        measureTulipRead();
+        measureSnapshotOpen(email);
+    }
+
+    private static void measureFootprints(GraphModel model) throws Exception {
+        long baselineBytes = measureRetainedBytes(() -> new GraphBuilder().build(model));
+        CsrGraph csr = new CsrGraphBuilder().build(model);
+        CompressedGraph compressed = new CompressedGraphBuilder().build(csr);
+        CsrGraph loaded = new CsrEdgeListLoader().load(Paths.get(EMAIL_EU_CORE.toURI()));
+
+        long edgeCount = csr.getEdgeCount();
+        System.out.printf("AdjacencyListGraph: ~%d bytes/edge%n", baselineBytes / edgeCount);
+        System.out.printf("CsrGraph: ~%d bytes/edge%n", csr.getMemoryFootprint() / edgeCount);
+        System.out.printf("CsrEdgeListLoader: ~%d bytes/edge%n", loaded.getMemoryFootprint() / edgeCount);
+        System.out.printf("CompressedGraph: %.1f bits/edge of adjacency data, ~%d bytes/edge in total%n",
+                compressed.getBitsPerEdge(), compressed.getMemoryFootprint() / edgeCount);
+        try (OffHeapGraph offHeap = new OffHeapGraphBuilder().build(model)) {
+            System.out.printf("OffHeapGraph: ~%d bytes/edge, of which ~%d off-heap%n",
+                    offHeap.getMemoryFootprint() / edgeCount, offHeap.getOffHeapMemoryFootprint() / edgeCount);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void measureTraversals(GraphModel model) throws Exception {
+        Graph<Vertex, Edge<Vertex>> baseline = (Graph<Vertex, Edge<Vertex>>) new GraphBuilder().build(model);
+        CsrGraph csr = new CsrGraphBuilder().build(model);
+        long edgeCount = csr.getEdgeCount();
+        Vertex baselineStart = baseline.getVertex(0L);
+        Vertex start = csr.getVertex(0L);
+
+        report("AdjacencyListGraph BFS", edgeCount, "edges", 50,
+                () -> baseline.visitBreadthFirstFrom(baselineStart, v -> { }));
+        report("AdjacencyListGraph DFS", edgeCount, "edges", 50,
+                () -> baseline.visitDepthFirstFrom(baselineStart, v -> { }));
+        report("CsrGraph BFS", edgeCount, "edges", 50, () -> csr.visitBreadthFirstFrom(start, v -> { }));
+        report("CsrGraph DFS", edgeCount, "edges", 50, () -> csr.visitDepthFirstFrom(start, v -> { }));
+
+        IndexedTraversal traversal = new IndexedTraversal(csr);
+        report("IndexedTraversal BFS", edgeCount, "edges", 50,
+                () -> traversal.breadthFirst(csr.indexOf(start), v -> { }));
+        report("DirectionOptimizingBreadthFirstSearch", edgeCount, "edges", 50,
+                () -> new DirectionOptimizingBreadthFirstSearch<Vertex, Edge<Vertex>, CsrGraph>(start).apply(csr));
+        try (OffHeapGraph offHeap = new OffHeapGraphBuilder().build(model)) {
+            IndexedTraversal offHeapTraversal = new IndexedTraversal(offHeap);
+            report("OffHeapGraph BFS", edgeCount, "edges", 50,
+                    () -> offHeapTraversal.breadthFirst(offHeap.indexOf(start), v -> { }));
+        }
+    }
+
+    private static void measureBuilders(GraphModel model) throws Exception {
+        long edgeCount = model.getEdgeCount();
+        report("GraphBuilder, unsized", edgeCount, "edges", 10,
+                () -> new GraphBuilder(metadata -> new AdjacencyListGraph<>()).build(model));
+        report("GraphBuilder, pre-sized", edgeCount, "edges", 10, () -> new GraphBuilder().build(model));
+        report("CsrGraphBuilder", edgeCount, "edges", 10, () -> new CsrGraphBuilder().build(model));
+    }
+
+    private static void measureEdgeListFormat(GraphModel model) throws Exception {
+        EdgeListFormat format = new EdgeListFormat();
+        long edgeCount = model.getEdgeCount();
+        report("EdgeListFormat read", edgeCount, "edges", 50,
+                () -> format.read(new URLDataSource(EMAIL_EU_CORE), m -> { }));
+
+        AtomicReference<EdgeListModel> modelRef = new AtomicReference<>();
+        format.read(new URLDataSource(EMAIL_EU_CORE), modelRef::set);
+        File file = aTempFile(".txt");
+        report("EdgeListFormat write", edgeCount, "edges", 50,
+                () -> format.write(new FileDataSource(file), modelRef.get()));
+    }
+
+    private static void measureSparseLoad() throws Exception {
+        int numVertices = 100000;
+        int numEntries = 1000000;
+        File mtxFile = aTempFile(".mtx");
+        File edgeFile = aTempFile(".txt");
+        Random random = new Random(42);
+        try (Writer mtx = new BufferedWriter(new FileWriter(mtxFile));
+             Writer edges = new BufferedWriter(new FileWriter(edgeFile))) {
+            mtx.write("%%MatrixMarket matrix coordinate pattern general\n");
+            mtx.write(numVertices + " " + numVertices + " " + numEntries + "\n");
+            for (int i = 0; i < numEntries; i++) {
+                String entry = (random.nextInt(numVertices) + 1) + " " + (random.nextInt(numVertices) + 1) + "\n";
+                mtx.write(entry);
+                edges.write(entry);
+            }
+        }
+
+        MatrixMarketFormat format = new MatrixMarketFormat();
+        EdgeListFormat edgeListFormat = new EdgeListFormat();
+        report("MatrixMarketFormat load", numEntries, "edges", 5, () -> format.load(new FileDataSource(mtxFile)));
+        report("CsrGraphBuilder from edge list", numEntries, "edges", 5,
+                () -> new CsrGraphBuilder().build(edgeListFormat, new FileDataSource(edgeFile)));
+    }
+
+    // the corpus files are small, so repeat the statements in each one to get a more realistic input size
+    private static void measureDotRead() throws Exception {
+        List<byte[]> scaled = new ArrayList<>();
+        for (String resource : DOT_CORPUS) {
+            scaled.add(scaleUp(GraphvizDotFormat.class.getResource(resource), 1 << 20));
+        }
+        GraphvizDotFormat format = new GraphvizDotFormat();
+        AtomicLong numStatements = new AtomicLong();
+        for (byte[] text : scaled) {
+            format.read(aDataSource(text, "text/vnd.graphviz"),
+                    model -> numStatements.addAndGet(((GraphvizDotModel) model).getStatements().size()));
+        }
+        report("GraphvizDotFormat read", numStatements.get(), "statements", 3, () -> {
+            for (byte[] text : scaled) {
+                format.read(aDataSource(text, "text/vnd.graphviz"), model -> { });
+            }
+        });
+    }
+
+    private static void measureGmlLoad() throws Exception {
+        int numNodes = 100000;
+        StringBuilder text = new StringBuilder("graph [\n directed 1\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append(" node [ id ").append(i).append(" label \"n").append(i).append("\" ]\n");
+        }
+        for (int i = 0; i < numNodes * 3; i++) {
+            text.append(" edge [ source ").append(i % numNodes).append(" target ").append((i * 7 + 1) % numNodes)
+                    .append(" weight 1.5 ]\n");
+        }
+        byte[] bytes = text.append("]\n").toString().getBytes(StandardCharsets.UTF_8);
+
+        GMLFormat format = new GMLFormat();
+        report("GMLFormat load via model", numNodes * 3, "edges", 2, () -> format.read(
+                aDataSource(bytes, "application/x-graphlet"), model -> new CsrGraphBuilder().build(model)));
+        report("GMLFormat load streamed", numNodes * 3, "edges", 2,
+                () -> new CsrGraphBuilder().build(format, aDataSource(bytes, "application/x-graphlet")));
+    }
+
+    private static void measureTulipRead() throws Exception {
+        int numNodes = 200000;
+        StringBuilder text = new StringBuilder("(tlp \"2.3\"\n(nb_nodes ").append(numNodes).append(")\n(nodes 0..")
+                .append(numNodes - 1).append(")\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append("(edge ").append(i).append(' ').append(i).append(' ').append((i * 7 + 1) % numNodes)
+                    .append(")\n");
+        }
+        text.append("(property 0 layout \"viewLayout\"\n(default \"(0,0,0)\" \"()\")\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append("(node ").append(i).append(" \"(").append(i * 0.5).append(",-").append(i)
+                    .append(",0)\")\n");
+        }
+        byte[] bytes = text.append("))\n").toString().getBytes(StandardCharsets.UTF_8);
+
+        TulipFormat format = new TulipFormat();
+        report("TulipFormat read with layout", numNodes, "nodes", 2,
+                () -> format.read(aDataSource(bytes, "application/x-tulip-tlp"), model -> { }));
+    }
+
+    private static void measureSnapshotOpen(GraphModel model) throws Exception {
+        File file = aTempFile(".cwg");
+        SnapshotFormat format = new SnapshotFormat();
+        format.write(new FileDataSource(file), new SnapshotModel(new CsrGraphBuilder().build(model)));
+
+        long startNanos = System.nanoTime();
+        try (SnapshotModel snapshot = format.open(file.toPath())) {
+            System.out.printf("SnapshotFormat: opened %d byte snapshot of %d edges in %.2f ms%n", file.length(),
+                    snapshot.getGraph().getEdgeCount(), (System.nanoTime() - startNanos) / 1e6);
+        }
+    }
+
+    private static void report(String label, long units, String unitName, int iterations, Task task)
+            throws Exception {
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        double elapsedSecs = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%s: %.1fM %s/sec%n", label, units * iterations / elapsedSecs / 1e6, unitName);
+    }
+
+    private static long measureRetainedBytes(Supplier<Object> allocator) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object retained = allocator.get();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        Reference.reachabilityFence(retained);
+        return Math.max(0, after - before);
+    }
+
+    private static byte[] scaleUp(URL resource, int minSize) throws Exception {
+        String text;
+        try (InputStream in = resource.openStream()) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, count);
+            }
+            text = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+        int bodyStart = text.indexOf('{') + 1;
+        int bodyEnd = text.lastIndexOf('}');
+        String body = text.substring(bodyStart, bodyEnd);
+
+        StringBuilder scaled = new StringBuilder(text.substring(0, bodyStart));
+        while (scaled.length() < minSize) {
+            scaled.append(body).append('\n');
+        }
+        scaled.append("}\n");
+        return scaled.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static DataSource aDataSource(byte[] bytes, String contentType) throws Exception {
+        StringDataSource dataSource = new StringDataSource("<benchmark>", contentType, StandardCharsets.UTF_8);
+        try (OutputStream out = dataSource.getOutputStream()) {
+            out.write(bytes);
+        }
+        return dataSource;
+    }
+
+    private static File aTempFile(String suffix) throws Exception {
+        File file = File.createTempFile("benchmark", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+}
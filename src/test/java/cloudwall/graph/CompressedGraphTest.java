@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.io.edge.EdgeListFormat;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedGraphTest {
+    @Test
+    public void traverseSortedNeighbors() {
+        // same graphs as CsrGraphTest; only the undirected DFS differs, as there neighbor lists get reordered
+        CompressedGraph directed = aGraph(true);
+        CompressedGraph undirected = aGraph(false);
+        assertEquals(ids("A", "B", "C", "D", "E", "F", "G", "H", "I"), bfs(directed, "A"));
+        assertEquals(ids("A", "C", "G", "I", "F", "E", "H", "B", "D"), dfs(directed, "A"));
+        assertEquals(ids("A", "B", "C", "D", "E", "F", "G", "H", "I"), bfs(undirected, "A"));
+        assertEquals(ids("A", "C", "G", "I", "H", "E", "F", "D", "B"), dfs(undirected, "A"));
+
+        AtomicInteger numEdges = new AtomicInteger();
+        undirected.forEachEdge(e -> numEdges.incrementAndGet());
+        assertEquals(13, numEdges.get());
+        assertEquals(13, undirected.getEdgeCount());
+        assertEquals(5, undirected.degree(undirected.indexOf(undirected.getVertex("C"))));
+
+        List<Object> sources = new ArrayList<>();
+        directed.forEachInEdge(directed.getVertex("E"), e -> sources.add(e.getVertex0().getVertexId()));
+        assertEquals(ids("C"), sources);
+        assertEquals(1, directed.inDegree(directed.indexOf(directed.getVertex("E"))));
+    }
+
+    @Test
+    public void encodeLargeAndNegativeGaps() {
+        // hub vertex in the middle of the index range, linked to both ends
+        CompressedGraph graph = new CompressedGraphBuilder().build(modelOf(visitor -> {
+            List<Vertex> vertices = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                Vertex vertex = new LightweightVertex(i);
+                vertices.add(vertex);
+                visitor.visitVertex(vertex);
+            }
+            Vertex hub = vertices.get(50_000);
+            for (int i : new int[] { 99_999, 0, 50_000, 1, 50_000, 65_536 }) {
+                visitor.visitEdge(new HeavyweightDirectedEdge<>(hub, vertices.get(i)));
+            }
+        }));
+
+        int hub = graph.indexOf(graph.getVertex(50_000));
+        int[] neighbors = new int[graph.degree(hub)];
+        assertEquals(6, graph.neighborsInto(hub, neighbors));
+        assertArrayEquals(new int[] { 0, 1, 50_000, 50_000, 65_536, 99_999 }, neighbors);
+        assertEquals(hub, graph.findInNeighbor(graph.indexOf(graph.getVertex(99_999)), n -> true));
+        assertEquals(-1, graph.findInNeighbor(hub, n -> n != hub));
+    }
+
+    @Test
+    public void compareWithAdjacencyListGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        GraphModel model = modelRef.get();
+
+        CsrGraph csr = new CsrGraphBuilder().build(model);
+        CompressedGraph compressed = new CompressedGraphBuilder().build(csr);
+        assertEquals(csr.getVertexCount(), compressed.getVertexCount());
+        assertEquals(csr.getEdgeCount(), compressed.getEdgeCount());
+
+        int[] expected = new int[1024];
+        int[] actual = new int[1024];
+        for (int i = 0; i < csr.getVertexCount(); i++) {
+            assertEquals(csr.degree(i), compressed.degree(i));
+            int degree = csr.neighborsInto(i, expected);
+            assertEquals(degree, compressed.neighborsInto(i, actual));
+            Arrays.sort(expected, 0, degree);
+            assertArrayEquals(Arrays.copyOf(expected, degree), Arrays.copyOf(actual, degree));
+        }
+
+        Graph<?, ?> baseline = new GraphBuilder().build(model);
+        assertTrue(compressed.getMemoryFootprint() < csr.getMemoryFootprint());
+        assertEquals(baseline.getEdgeCount(), compressed.getEdgeCount());
+    }
+
+    private List<Object> bfs(CompressedGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitBreadthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    private List<Object> dfs(CompressedGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitDepthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    private static CompressedGraph aGraph(boolean directed) {
+        String[] endpoints = directed
+                ? new String[] { "A", "B", "A", "C", "B", "D", "C", "E", "C", "F", "C", "G", "E", "H", "G", "I" }
+                : new String[] { "A", "B", "A", "C", "B", "D", "B", "C", "C", "E", "C", "F", "C", "G",
+                        "E", "H", "G", "I", "D", "E", "E", "F", "F", "G", "H", "I" };
+        return new CompressedGraphBuilder().build(modelOf(visitor -> {
+            Map<String, Vertex> vertices = new HashMap<>();
+            for (String id : ImmutableList.of("A", "B", "C", "D", "E", "F", "G", "H", "I")) {
+                vertices.put(id, new LightweightVertex(id));
+                visitor.visitVertex(vertices.get(id));
+            }
+            for (int i = 0; i < endpoints.length; i += 2) {
+                Vertex vertex0 = vertices.get(endpoints[i]);
+                Vertex vertex1 = vertices.get(endpoints[i + 1]);
+                visitor.visitEdge(directed ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
+                        : new LightweightEdge<>(vertex0, vertex1));
+            }
+        }));
+    }
+
+    private static GraphModel modelOf(Consumer<GraphVisitor> contents) {
+        return new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                contents.accept(visitor);
+                visitor.complete();
+            }
+        };
+    }
+
+    private static List<Object> ids(String... ids) {
+        return Arrays.asList((Object[]) ids);
+    }
+}
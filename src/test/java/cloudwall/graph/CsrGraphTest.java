@@ -0,0 +1,209 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.io.edge.EdgeListFormat;
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CsrGraphTest {
+    /*
+     * Uses the same pair of graphs as AdjacencyListGraphTest, so the traversal orders must match exactly:
+     *
+     *                  A                               A
+     *                /  \                            /  \
+     *               B   C                           B----C
+     *             /   / |  \                      /   / |  \
+     *            D   E  F   G                    D---E--F---G
+     *               /        \                      /        \
+     *              H          I                    H----------I
+     *
+     *        (directed, acyclic)                (undirected, cycles)
+     */
+
+    private Map<Object,LightweightVertex> vertexMap = new HashMap<>();
+
+    @Before
+    public void buildVertexMap() {
+        for (String id : ImmutableList.of("A", "B", "C", "D", "E", "F", "G", "H", "I")) {
+            LightweightVertex v = new LightweightVertex(id);
+            vertexMap.put(v.getVertexId(), v);
+        }
+    }
+
+    @Test
+    public void bfsAcyclicGraph() {
+        assertEquals(ids("A", "B", "C", "D", "E", "F", "G", "H", "I"), bfs(aDirectedAcyclicGraph(), "A"));
+    }
+
+    @Test
+    public void bfsGraphWithCycles() {
+        assertEquals(ids("A", "B", "C", "D", "E", "F", "G", "H", "I"), bfs(anUndirectedGraphWithCycles(), "A"));
+    }
+
+    @Test
+    public void dfsAcyclicGraph() {
+        assertEquals(ids("A", "C", "G", "I", "F", "E", "H", "B", "D"), dfs(aDirectedAcyclicGraph(), "A"));
+    }
+
+    @Test
+    public void dfsAGraphWithCycles() {
+        assertEquals(ids("A", "C", "G", "F", "E", "D", "B", "H", "I"), dfs(anUndirectedGraphWithCycles(), "A"));
+    }
+
+    @Test
+    public void iterateEdges() {
+        CsrGraph directed = aDirectedAcyclicGraph();
+        AtomicInteger numEdges = new AtomicInteger();
+        AtomicInteger numAdjacentToC = new AtomicInteger();
+        directed.forEachEdge(e -> numEdges.incrementAndGet());
+        directed.forEachConnectedEdge(directed.getVertex("C"), e -> numAdjacentToC.incrementAndGet());
+
+        assertTrue(directed.isDirected());
+        assertEquals(8, numEdges.get());
+        assertEquals(8, directed.getEdgeCount());
+        assertEquals(9, directed.getVertexCount());
+        assertEquals(4, numAdjacentToC.get());
+        assertNull(directed.getVertex("Z"));
+
+        CsrGraph undirected = anUndirectedGraphWithCycles();
+        numEdges.set(0);
+        undirected.forEachEdge(e -> numEdges.incrementAndGet());
+        assertEquals(13, numEdges.get());
+        assertEquals(13, undirected.getEdgeCount());
+    }
+
+    @Test
+    public void iterateNeighborIndices() {
+        CsrGraph graph = anUndirectedGraphWithCycles();
+        int c = graph.indexOf(graph.getVertex("C"));
+        List<Object> neighbors = new ArrayList<>();
+        graph.forEachNeighbor(c, n -> neighbors.add(graph.vertexAt(n).getVertexId()));
+
+        int[] buffer = new int[graph.degree(c)];
+        assertEquals(5, graph.neighborsInto(c, buffer));
+        assertEquals(ids("A", "B", "E", "F", "G"), neighbors);
+        assertEquals(c, graph.indexOf(graph.vertexAt(c)));
+        for (int i = 0; i < buffer.length; i++) {
+            assertEquals(neighbors.get(i), graph.vertexAt(buffer[i]).getVertexId());
+        }
+    }
+
+    @Test
+    public void transposeReversesTraversal() {
+        CsrGraph graph = aDirectedAcyclicGraph();
+        CsrGraph transposed = graph.transpose();
+        List<Object> sources = new ArrayList<>();
+        graph.forEachInEdge(graph.getVertex("E"), e -> sources.add(e.getVertex0().getVertexId()));
+
+        assertEquals(ids("C"), sources);
+        assertEquals(ids("I", "G", "C", "A"), bfs(transposed, "I"));
+        assertEquals(ids("H", "E", "C", "A"), dfs(transposed, "H"));
+        Vertex h = transposed.getVertex("H");
+        transposed.forEachTraversableEdge(h, e -> {
+            assertEquals("H", e.getVertex0().getVertexId());
+            assertEquals("E", e.getVertex1().getVertexId());
+            assertTrue(e.isTraversable(h));
+        });
+        assertEquals(bfs(graph, "A"), bfs(transposed.transpose(), "A"));
+
+        CsrGraph undirected = anUndirectedGraphWithCycles();
+        assertTrue(undirected.transpose() == undirected);
+    }
+
+    @Test
+    public void matchAdjacencyListGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        GraphModel model = modelRef.get();
+
+        @SuppressWarnings("unchecked")
+        Graph<Vertex, ?> baseline = (Graph<Vertex, ?>) new GraphBuilder().build(model);
+        CsrGraph csr = new CsrGraphBuilder().build(model);
+        assertEquals(baseline.getVertexCount(), csr.getVertexCount());
+        assertEquals(baseline.getEdgeCount(), csr.getEdgeCount());
+
+        AtomicInteger baselineVisits = new AtomicInteger();
+        AtomicInteger csrVisits = new AtomicInteger();
+        baseline.visitBreadthFirstFrom(baseline.getVertex(0L), v -> baselineVisits.incrementAndGet());
+        csr.visitBreadthFirstFrom(csr.getVertex(0L), v -> csrVisits.incrementAndGet());
+        assertEquals(baselineVisits.get(), csrVisits.get());
+    }
+
+    private List<Object> bfs(CsrGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitBreadthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    private List<Object> dfs(CsrGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitDepthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    private CsrGraph aDirectedAcyclicGraph() {
+        return new CsrGraphBuilder().build(modelOf(visitor -> {
+            addEdges(visitor, true, "A", "B", "A", "C", "B", "D", "C", "E", "C", "F", "C", "G", "E", "H", "G", "I");
+        }));
+    }
+
+    private CsrGraph anUndirectedGraphWithCycles() {
+        return new CsrGraphBuilder().build(modelOf(visitor -> {
+            addEdges(visitor, false, "A", "B", "A", "C", "B", "D", "B", "C", "C", "E", "C", "F", "C", "G",
+                    "E", "H", "G", "I", "D", "E", "E", "F", "F", "G", "H", "I");
+        }));
+    }
+
+    private void addEdges(GraphVisitor visitor, boolean directed, String... endpoints) {
+        for (String id : ImmutableList.of("A", "B", "C", "D", "E", "F", "G", "H", "I")) {
+            visitor.visitVertex(vertexMap.get(id));
+        }
+        for (int i = 0; i < endpoints.length; i += 2) {
+            Vertex vertex0 = vertexMap.get(endpoints[i]);
+            Vertex vertex1 = vertexMap.get(endpoints[i + 1]);
+            visitor.visitEdge(directed ? new HeavyweightDirectedEdge<>(vertex0, vertex1)
+                    : new LightweightEdge<>(vertex0, vertex1));
+        }
+    }
+
+    private static GraphModel modelOf(Consumer<GraphVisitor> contents) {
+        return new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                contents.accept(visitor);
+                visitor.complete();
+            }
+        };
+    }
+
+    private static List<Object> ids(String... ids) {
+        return Arrays.asList((Object[]) ids);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.io.edge.EdgeListFormat;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+
+public class GraphBuilderTest {
+    @Test
+    public void factoryReceivesCapacityHints() throws Exception {
+        GraphModel model = anEdgeListModel();
+        AtomicLong expectedVertices = new AtomicLong();
+        AtomicLong expectedEdges = new AtomicLong();
+        Graph<?, ?> graph = new GraphBuilder(metadata -> {
+            expectedVertices.set(metadata.getVertexCount());
+            expectedEdges.set(metadata.getEdgeCount());
+            return new AdjacencyListGraph<>(metadata.getVertexCount(), metadata.getEdgeCount());
+        }).build(model);
+
+        assertEquals(model.getVertexCount(), expectedVertices.get());
+        assertEquals(model.getEdgeCount(), expectedEdges.get());
+        assertEquals(expectedVertices.get(), graph.getVertexCount());
+        assertEquals(expectedEdges.get(), graph.getEdgeCount());
+    }
+
+    @Test
+    public void presizeEdgeBuffersFromHints() {
+        CsrGraphBuilder csrBuilder = new CsrGraphBuilder();
+        csrBuilder.start(aMetadata(100, 5000));
+        assertEquals(5000, csrBuilder.getEdgeCapacity());
+
+        OffHeapGraphBuilder offHeapBuilder = new OffHeapGraphBuilder();
+        offHeapBuilder.start(aMetadata(100, 5000));
+        assertEquals(5000, offHeapBuilder.getEdgeCapacity());
+
+        // unknown or small counts keep the default
+        CsrGraphBuilder unsized = new CsrGraphBuilder();
+        unsized.start(aMetadata(-1, -1));
+        assertEquals(1024, unsized.getEdgeCapacity());
+        OffHeapGraphBuilder small = new OffHeapGraphBuilder();
+        small.start(aMetadata(2, 1));
+        assertEquals(1024, small.getEdgeCapacity());
+    }
+
+    @Test
+    public void capPresizing() {
+        assertEquals(16, CapacityHints.presize(-1, 16));
+        assertEquals(0, CapacityHints.presize(0, 16));
+        assertEquals(5000, CapacityHints.presize(5000, 16));
+        assertEquals(CapacityHints.MAX_PRESIZE, CapacityHints.presize(CapacityHints.MAX_PRESIZE + 1L, 16));
+        assertEquals(CapacityHints.MAX_PRESIZE, CapacityHints.presize(Long.MAX_VALUE, 16));
+    }
+
+    @Test
+    public void keepBufferedEdgesOnLateStart() {
+        CsrGraphBuilder builder = new CsrGraphBuilder();
+        builder.visitEdge(new LightweightEdge<>(new LightweightVertex(1), new LightweightVertex(2)));
+        builder.start(aMetadata(2, 5000));
+        assertEquals(1024, builder.getEdgeCapacity());
+    }
+
+    @Test
+    public void sameArcsFromCsrAndOffHeapBuilders() {
+        // the undirected edge is stored both ways and counts twice, but the undirected self-loop is one arc
+        Vertex a = new LightweightVertex(1);
+        Vertex b = new LightweightVertex(2);
+        Vertex c = new LightweightVertex(3);
+        List<Edge<Vertex>> edges = Arrays.asList(new HeavyweightDirectedEdge<>(a, b),
+                new HeavyweightDirectedEdge<>(a, a), new LightweightEdge<>(b, c), new LightweightEdge<>(c, c));
+        CsrGraphBuilder csrBuilder = new CsrGraphBuilder();
+        OffHeapGraphBuilder offHeapBuilder = new OffHeapGraphBuilder();
+        edges.forEach(csrBuilder::visitEdge);
+        edges.forEach(offHeapBuilder::visitEdge);
+
+        CsrGraph csr = csrBuilder.build();
+        try (OffHeapGraph offHeap = offHeapBuilder.build()) {
+            assertEquals(5, csr.getEdgeCount());
+            assertEquals(csr.getEdgeCount(), offHeap.getEdgeCount());
+            for (int i = 0; i < 3; i++) {
+                assertEquals(neighbors(csr, i, false), neighbors(offHeap, i, false));
+                assertEquals(neighbors(csr, i, true), neighbors(offHeap, i, true));
+            }
+            assertEquals(Arrays.asList(1, 0), neighbors(csr, 0, false));
+            assertEquals(Arrays.asList(1, 2), neighbors(csr, 2, false));
+        }
+    }
+
+    private static List<Integer> neighbors(IndexedGraph<?, ?> graph, int vertexIndex, boolean in) {
+        List<Integer> neighbors = new ArrayList<>();
+        if (in) {
+            graph.forEachInNeighbor(vertexIndex, neighbors::add);
+        } else {
+            graph.forEachNeighbor(vertexIndex, neighbors::add);
+        }
+        return neighbors;
+    }
+
+    private static GraphMetadata aMetadata(long vertexCount, long edgeCount) {
+        return new GraphMetadata() {
+            @Override
+            public long getVertexCount() {
+                return vertexCount;
+            }
+
+            @Override
+            public long getEdgeCount() {
+                return edgeCount;
+            }
+        };
+    }
+
+    private static GraphModel anEdgeListModel() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        return modelRef.get();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IndexedTraversalTest {
+    /*
+     * Directed graph, with vertex indices assigned in alphabetical order:
+     *
+     *                  A
+     *                /  \
+     *               B   C
+     *             /   / |  \
+     *            D   E  F   G
+     *               /        \
+     *              H          I      J (unreachable)
+     */
+    private CsrGraph graph;
+
+    @Before
+    public void buildGraph() {
+        graph = new CsrGraphBuilder().build(new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                Vertex[] v = new Vertex[10];
+                for (int i = 0; i < v.length; i++) {
+                    v[i] = new LightweightVertex(String.valueOf((char) ('A' + i)));
+                    visitor.visitVertex(v[i]);
+                }
+                int[][] edges = { {0, 1}, {0, 2}, {1, 3}, {2, 4}, {2, 5}, {2, 6}, {4, 7}, {6, 8} };
+                for (int[] edge : edges) {
+                    visitor.visitEdge(new HeavyweightDirectedEdge<>(v[edge[0]], v[edge[1]]));
+                }
+                visitor.complete();
+            }
+        });
+    }
+
+    @Test
+    public void breadthFirstDepthsAndParents() {
+        IndexedTraversal traversal = new IndexedTraversal(graph);
+        List<Integer> order = new ArrayList<>();
+        assertEquals(9, traversal.breadthFirst(0, order::add));
+
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8), order);
+        assertArrayEquals(new int[] { 0, 1, 1, 2, 2, 2, 2, 3, 3, -1 }, traversal.getDepths());
+        assertArrayEquals(new int[] { -1, 0, 0, 1, 2, 2, 2, 4, 6, -1 }, traversal.getParents());
+        assertFalse(traversal.isVisited(9));
+    }
+
+    @Test
+    public void depthFirstPreOrder() {
+        IndexedTraversal traversal = new IndexedTraversal(graph);
+        List<Integer> order = new ArrayList<>();
+        traversal.depthFirst(0, order::add);
+
+        // A C G I F E H B D
+        assertEquals(Arrays.asList(0, 2, 6, 8, 5, 4, 7, 1, 3), order);
+        assertEquals(3, traversal.getDepth(8));
+        assertEquals(6, traversal.getParent(8));
+    }
+
+    @Test
+    public void reuseAcrossTraversals() {
+        IndexedTraversal traversal = new IndexedTraversal(graph);
+        traversal.breadthFirst(0, v -> { });
+        assertEquals(9, traversal.getVisitedCount());
+
+        // starting again from C must forget everything reached from A
+        assertEquals(6, traversal.breadthFirst(2, v -> { }));
+        assertFalse(traversal.isVisited(0));
+        assertEquals(IndexedTraversal.NONE, traversal.getDepth(1));
+        assertEquals(0, traversal.getDepth(2));
+        assertEquals(2, traversal.getVisitedVertex(0));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import cloudwall.graph.io.edge.EdgeListFormat;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OffHeapGraphTest {
+    @Test
+    public void traversalMatchesCsrGraph() {
+        try (OffHeapGraph graph = new OffHeapGraphBuilder().build(aWeightedDirectedGraph())) {
+            CsrGraph csr = new CsrGraphBuilder().build(aWeightedDirectedGraph());
+            assertEquals(bfs(csr, "A"), bfs(graph, "A"));
+            assertEquals(dfs(csr, "A"), dfs(graph, "A"));
+            assertEquals(csr.getEdgeCount(), graph.getEdgeCount());
+            assertEquals(csr.getVertexCount(), graph.getVertexCount());
+
+            int c = graph.indexOf(graph.getVertex("C"));
+            assertEquals(3, graph.degree(c));
+            assertEquals(1, graph.inDegree(c));
+            assertEquals(graph.indexOf(graph.getVertex("A")), graph.findInNeighbor(c, n -> true));
+        }
+    }
+
+    @Test
+    public void storeWeights() {
+        try (OffHeapGraph graph = new OffHeapGraphBuilder().build(aWeightedDirectedGraph())) {
+            assertTrue(graph.isWeighted());
+
+            List<Double> weights = new ArrayList<>();
+            graph.forEachWeightedNeighbor(graph.indexOf(graph.getVertex("C")), (n, weight) -> weights.add(weight));
+            assertEquals(Arrays.asList(4.0, 5.0, 6.0), weights);
+
+            List<Double> inWeights = new ArrayList<>();
+            graph.forEachInEdge(graph.getVertex("E"),
+                    e -> inWeights.add(((Edge.WeightedEdge<?>) e).getWeight()));
+            assertEquals(Collections.singletonList(4.0), inWeights);
+
+            AtomicInteger numEdges = new AtomicInteger();
+            graph.forEachEdge(e -> numEdges.incrementAndGet());
+            assertEquals(8, numEdges.get());
+        }
+    }
+
+    @Test
+    public void closeReleasesMemory() {
+        OffHeapGraph graph = new OffHeapGraphBuilder().build(aWeightedDirectedGraph());
+        assertTrue(graph.getOffHeapMemoryFootprint() > 0);
+        graph.close();
+        graph.close();
+        assertEquals(0, graph.getOffHeapMemoryFootprint());
+        try {
+            graph.degree(0);
+            throw new AssertionError("expected access after close to fail");
+        } catch (IllegalStateException e) {
+            assertFalse(e.getMessage().isEmpty());
+        }
+    }
+
+    @Test
+    public void compareWithCsrGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        GraphModel model = modelRef.get();
+
+        CsrGraph csr = new CsrGraphBuilder().build(model);
+        try (OffHeapGraph offHeap = new OffHeapGraphBuilder().build(model)) {
+            assertEquals(csr.getEdgeCount(), offHeap.getEdgeCount());
+            int[] buffer = new int[1024];
+            for (int i = 0; i < csr.getVertexCount(); i++) {
+                int degree = csr.neighborsInto(i, buffer);
+                assertEquals(degree, offHeap.neighborsInto(i, buffer));
+            }
+
+        }
+    }
+
+    private static List<Object> bfs(AbstractIndexedGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitBreadthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    private static List<Object> dfs(AbstractIndexedGraph graph, String start) {
+        List<Object> vertices = new ArrayList<>();
+        graph.visitDepthFirstFrom(graph.getVertex(start), v -> vertices.add(v.getVertexId()));
+        return vertices;
+    }
+
+    // same shape as the directed graph in CsrGraphTest, with the edges weighted 1.0, 2.0, etc. in order
+    private static GraphModel aWeightedDirectedGraph() {
+        String[] endpoints = { "A", "B", "A", "C", "B", "D", "C", "E", "C", "F", "C", "G", "E", "H", "G", "I" };
+        return modelOf(visitor -> {
+            Map<String, Vertex> vertices = new HashMap<>();
+            for (String id : Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H", "I")) {
+                vertices.put(id, new LightweightVertex(id));
+                visitor.visitVertex(vertices.get(id));
+            }
+            for (int i = 0; i < endpoints.length; i += 2) {
+                visitor.visitEdge(new HeavyweightDirectedEdge<>(vertices.get(endpoints[i]),
+                        vertices.get(endpoints[i + 1]), i / 2 + 1.0));
+            }
+        });
+    }
+
+    private static GraphModel modelOf(Consumer<GraphVisitor> contents) {
+        return new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                contents.accept(visitor);
+                visitor.complete();
+            }
+        };
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class VertexIndexTest {
+    @Test
+    public void assignDenseIndicesInInsertionOrder() {
+        VertexIndex index = new VertexIndex();
+        for (long i = 0; i < 10_000; i++) {
+            assertEquals(i, index.add(new LightweightVertex(i * 7919)));
+        }
+        assertEquals(10_000, index.size());
+        for (long i = 0; i < 10_000; i++) {
+            assertEquals(i, index.indexOf(i * 7919));
+            assertEquals(i, index.indexOf((Object) (i * 7919)));
+        }
+        assertEquals(VertexIndex.NOT_FOUND, index.indexOf(1L));
+    }
+
+    @Test
+    public void reuseIndexForDuplicateIds() {
+        VertexIndex index = new VertexIndex();
+        LightweightVertex first = new LightweightVertex("A");
+        assertEquals(0, index.add(first));
+        assertEquals(1, index.add(new LightweightVertex("B")));
+        assertEquals(0, index.add(new LightweightVertex("A")));
+        assertSame(first, index.getVertex("A"));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void keepIdTypesDistinct() {
+        VertexIndex index = new VertexIndex();
+        index.add(new LightweightVertex(1L));
+        index.add(new LightweightVertex(1));
+        index.add(new LightweightVertex("1"));
+
+        assertEquals(3, index.size());
+        assertEquals(0, index.indexOf((Object) 1L));
+        assertEquals(1, index.indexOf((Object) 1));
+        assertEquals(2, index.indexOf("1"));
+        assertNull(index.getVertex((Object) 2));
+    }
+}
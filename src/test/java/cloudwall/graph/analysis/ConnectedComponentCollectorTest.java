@@ -16,8 +16,17 @@
 package cloudwall.graph.analysis;
 
 import cloudwall.graph.*;
+import cloudwall.graph.io.edge.EdgeListFormat;
 import org.junit.Test;
 
+import javax.activation.URLDataSource;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
 @SuppressWarnings("unchecked")
 public class ConnectedComponentCollectorTest {
     @Test
@@ -26,6 +35,18 @@ public class ConnectedComponentCollectorTest {
             System.out.println("#" + c.getComponentNumber() + " => " + c.getVertices());
         });    }
 
+    @Test
+    public void indexedGraphMatchesAdjacencyListGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+
+        Graph<Vertex, Edge> baseline = (Graph<Vertex, Edge>) new GraphBuilder().build(modelRef.get());
+        CsrGraph csr = new CsrGraphBuilder().build(modelRef.get());
+        assertEquals(componentSizes(baseline.apply(new ConnectedComponentCollector<>())),
+                componentSizes(csr.apply(new ConnectedComponentCollector<>())));
+    }
+
     @Test
     public void analyzeDualDAG() {
         aPairOfDirectedSubgraphs().apply(new ConnectedComponentCollector<>()).forEach(c -> {
@@ -61,4 +82,11 @@ public class ConnectedComponentCollectorTest {
 
         return graph;
     }
-}
\ No newline at end of file
+
+    private static List<Integer> componentSizes(Collection<ConnectedComponentCollector.Component> components) {
+        return components.stream()
+                .map(c -> c.getVertices().size())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.*;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DirectionOptimizingBreadthFirstSearchTest {
+    private GraphModel emailModel;
+
+    @Before
+    public void loadEuEmailCoreGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        emailModel = modelRef.get();
+    }
+
+    @Test
+    public void matchTopDownDepthsOnUndirectedGraph() {
+        CsrGraph graph = new CsrGraphBuilder().build(emailModel);
+        for (int start = 0; start < graph.getVertexCount(); start += 97) {
+            assertSameDepths(graph, start, new DirectionOptimizingBreadthFirstSearch<>(graph.vertexAt(start)));
+        }
+    }
+
+    @Test
+    public void matchTopDownDepthsOnDirectedGraph() {
+        CsrGraph graph = aRandomDirectedGraph(2000, 8, 42L);
+        assertTrue(graph.isDirected());
+        for (int start = 0; start < graph.getVertexCount(); start += 101) {
+            DirectionOptimizingBreadthFirstSearch<Vertex, Edge<Vertex>, CsrGraph> bfs =
+                    new DirectionOptimizingBreadthFirstSearch<>(graph.vertexAt(start));
+            bfs.setAlpha(1);
+            assertSameDepths(graph, start, bfs);
+        }
+    }
+
+    private static void assertSameDepths(CsrGraph graph, int start,
+                                         DirectionOptimizingBreadthFirstSearch<Vertex, Edge<Vertex>, CsrGraph> bfs) {
+        IndexedTraversal reference = new IndexedTraversal(graph);
+        reference.breadthFirst(start, v -> { });
+        BreadthFirstTree tree = bfs.apply(graph);
+
+        assertArrayEquals(reference.getDepths(), tree.getDepths());
+        assertEquals(reference.getVisitedCount(), tree.getVisitedCount());
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            int parent = tree.getParent(v);
+            if (parent != BreadthFirstTree.NONE) {
+                int child = v;
+                AtomicBoolean isNeighbor = new AtomicBoolean();
+                graph.forEachNeighbor(parent, n -> isNeighbor.compareAndSet(false, n == child));
+                assertTrue("parent must link to child", isNeighbor.get());
+                assertEquals(tree.getDepth(parent) + 1, tree.getDepth(v));
+            }
+        }
+    }
+
+    static CsrGraph aRandomDirectedGraph(int numVertices, int edgesPerVertex, long seed) {
+        Random random = new Random(seed);
+        return new CsrGraphBuilder().build(new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                Vertex[] vertices = new Vertex[numVertices];
+                for (int i = 0; i < numVertices; i++) {
+                    vertices[i] = new LightweightVertex(i);
+                    visitor.visitVertex(vertices[i]);
+                }
+                for (int i = 0; i < numVertices * edgesPerVertex; i++) {
+                    Vertex from = vertices[random.nextInt(numVertices)];
+                    Vertex to = vertices[random.nextInt(numVertices)];
+                    visitor.visitEdge(new HeavyweightDirectedEdge<>(from, to));
+                }
+                visitor.complete();
+            }
+        });
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.*;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import org.junit.Test;
+
+import javax.activation.URLDataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelBreadthFirstSearchTest {
+    @Test
+    public void matchSequentialBfsOnEuEmailCoreGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        URLDataSource graphIn = new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt"));
+        new EdgeListFormat().read(graphIn, modelRef::set);
+        CsrGraph graph = new CsrGraphBuilder().build(modelRef.get());
+
+        for (int start = 0; start < graph.getVertexCount(); start += 211) {
+            ParallelBreadthFirstSearch<Vertex, Edge<Vertex>, CsrGraph> bfs =
+                    new ParallelBreadthFirstSearch<>(graph.vertexAt(start), 4);
+            bfs.setGrainSize(8);
+            assertMatchesSequentialBfs(graph, start, bfs.apply(graph));
+        }
+    }
+
+    @Test
+    public void matchSequentialBfsOnDirectedGraph() {
+        CsrGraph graph = DirectionOptimizingBreadthFirstSearchTest.aRandomDirectedGraph(5000, 3, 7L);
+        for (int parallelism = 1; parallelism <= 4; parallelism++) {
+            ParallelBreadthFirstSearch<Vertex, Edge<Vertex>, CsrGraph> bfs =
+                    new ParallelBreadthFirstSearch<>(graph.vertexAt(0), parallelism);
+            bfs.setGrainSize(16);
+            assertMatchesSequentialBfs(graph, 0, bfs.apply(graph));
+        }
+    }
+
+    private static void assertMatchesSequentialBfs(CsrGraph graph, int start, BreadthFirstTree tree) {
+        // the sequential visit order must cover the same vertices, with depths never decreasing along it
+        List<Integer> order = new ArrayList<>();
+        graph.visitBreadthFirstFrom(graph.vertexAt(start), v -> order.add(graph.indexOf(v)));
+        assertEquals(order.size(), tree.getVisitedCount());
+
+        int previousDepth = 0;
+        for (int v : order) {
+            int depth = tree.getDepth(v);
+            assertTrue("depth order must follow BFS order", depth >= previousDepth);
+            previousDepth = depth;
+            if (v != start) {
+                assertEquals(depth - 1, tree.getDepth(tree.getParent(v)));
+            }
+        }
+
+        IndexedTraversal reference = new IndexedTraversal(graph);
+        reference.breadthFirst(start, v -> { });
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            assertEquals(reference.getDepth(v), tree.getDepth(v));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.analysis;
+
+import cloudwall.graph.*;
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelConnectedComponentsTest {
+    @Test
+    public void matchSequentialCollectorOnSparseGraph() {
+        // sparse enough that there are plenty of components of different sizes
+        CsrGraph graph = aRandomUndirectedGraph(20_000, 9_000, 11L);
+
+        ParallelConnectedComponents<Vertex, Edge<Vertex>, CsrGraph> wcc = new ParallelConnectedComponents<>(4);
+        wcc.setGrainSize(64);
+        ComponentLabels labels = wcc.apply(graph);
+        Collection<ConnectedComponentCollector.Component> expected = graph.apply(new ConnectedComponentCollector<>());
+
+        assertEquals(expected.size(), labels.getComponentCount());
+        assertEquals(componentSizes(expected), componentSizes(labels.toComponents(graph)));
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            int label = labels.getLabel(v);
+            int vertex = v;
+            graph.forEachNeighbor(v, n -> assertEquals("edge " + vertex + " - " + n, label, labels.getLabel(n)));
+        }
+    }
+
+    @Test
+    public void ignoreEdgeDirection() {
+        CsrGraph graph = DirectionOptimizingBreadthFirstSearchTest.aRandomDirectedGraph(1000, 1, 3L);
+        ComponentLabels labels = new ParallelConnectedComponents<Vertex, Edge<Vertex>, CsrGraph>(2).apply(graph);
+
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            int label = labels.getLabel(v);
+            graph.forEachInNeighbor(v, n -> assertEquals(label, labels.getLabel(n)));
+        }
+        int total = 0;
+        for (int size : labels.getSizes()) {
+            total += size;
+        }
+        assertEquals(1000, total);
+        assertEquals(0, labels.getLabel(0));
+    }
+
+    private static List<Integer> componentSizes(Collection<ConnectedComponentCollector.Component> components) {
+        return components.stream()
+                .map(c -> c.getVertices().size())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private static CsrGraph aRandomUndirectedGraph(int numVertices, int numEdges, long seed) {
+        Random random = new Random(seed);
+        return new CsrGraphBuilder().build(new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                Vertex[] vertices = new Vertex[numVertices];
+                for (int i = 0; i < numVertices; i++) {
+                    vertices[i] = new LightweightVertex(i);
+                    visitor.visitVertex(vertices[i]);
+                }
+                for (int i = 0; i < numEdges; i++) {
+                    Vertex vertex0 = vertices[random.nextInt(numVertices)];
+                    Vertex vertex1 = vertices[random.nextInt(numVertices)];
+                    visitor.visitEdge(new LightweightEdge<>(vertex0, vertex1));
+                }
+                visitor.complete();
+            }
+        });
+    }
+}
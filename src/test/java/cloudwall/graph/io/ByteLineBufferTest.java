@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ByteLineBufferTest {
+    @Test
+    public void linesAcrossRefills() throws Exception {
+        // a buffer of four has to compact, grow and refill to get through the longer lines
+        ByteLineBuffer lines = buffer("ab\r\n  c d \n\nlonger line\nlast", 4);
+        assertTrue(lines.nextLine());
+        assertEquals("ab", lines.getLine());
+        assertTrue(lines.nextLine());
+        int start = lines.skipWhitespace(lines.getLineStart());
+        assertEquals("c", lines.text(start, lines.skipToken(start)));
+        assertEquals("c d", lines.text(start, lines.trimEnd()));
+        assertTrue(lines.nextLine());
+        assertEquals(lines.getLineEnd(), lines.skipWhitespace(lines.getLineStart()));
+        assertTrue(lines.nextLine());
+        assertEquals("longer line", lines.getLine());
+        assertEquals(24, lines.getOffset());
+        assertTrue(lines.nextLine());
+        assertEquals("last", lines.getLine());
+        assertEquals(5, lines.getLineNumber());
+        assertFalse(lines.nextLine());
+    }
+
+    @Test
+    public void parseLongLimits() throws Exception {
+        assertEquals(Long.MIN_VALUE, parseLong("-9223372036854775808"));
+        assertEquals(Long.MAX_VALUE, parseLong("+9223372036854775807"));
+        for (String text : new String[] { "9223372036854775808", "-", "1x" }) {
+            try {
+                parseLong(text);
+                fail("expected an invalid long: " + text);
+            } catch (NumberFormatException e) {
+                // expected
+            }
+        }
+    }
+
+    private static long parseLong(String text) throws Exception {
+        ByteLineBuffer lines = buffer(text, 16);
+        assertTrue(lines.nextLine());
+        return lines.parseLong(lines.getLineStart(), lines.getLineEnd());
+    }
+
+    private static ByteLineBuffer buffer(String text, int size) {
+        return new ByteLineBuffer(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), size);
+    }
+}
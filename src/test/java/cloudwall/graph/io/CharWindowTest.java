@@ -0,0 +1,50 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.assertEquals;
+
+public class CharWindowTest {
+    @Test
+    public void peekAcrossRefills() throws Exception {
+        // a window of four has to compact and refill several times to get through the text
+        CharWindow window = new CharWindow(new StringReader("abcdefghij"), 4);
+        StringBuilder text = new StringBuilder();
+        while (window.peek(0) != CharWindow.EOF) {
+            assertEquals(window.peek(1), nextOrEof(text.length() + 1));
+            text.append((char) window.peek(0));
+            window.advance();
+        }
+        assertEquals("abcdefghij", text.toString());
+    }
+
+    @Test
+    public void lookAheadPastEnd() throws Exception {
+        CharWindow window = new CharWindow(new StringReader("xy"), 4);
+        assertEquals('y', window.peek(1));
+        assertEquals(CharWindow.EOF, window.peek(2));
+        window.advance(2);
+        assertEquals(CharWindow.EOF, window.peek(0));
+    }
+
+    private static int nextOrEof(int index) {
+        return index < 10 ? "abcdefghij".charAt(index) : CharWindow.EOF;
+    }
+}
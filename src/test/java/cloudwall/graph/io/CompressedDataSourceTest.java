@@ -0,0 +1,264 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io;
+
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.GraphModel;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import cloudwall.graph.io.edge.EdgeListModel;
+import cloudwall.graph.io.edge.TrivialGraphFormat;
+import cloudwall.graph.io.graphlet.GMLFormat;
+import cloudwall.graph.io.tulip.TulipFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
+import javax.activation.URLDataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import static org.junit.Assert.*;
+
+public class CompressedDataSourceTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripGzippedEdgeList() throws Exception {
+        EdgeListFormat format = new EdgeListFormat();
+        GraphModel model = read(format, resource(EdgeListFormat.class, "email-Eu-core.txt"));
+        File file = tempFolder.newFile("email-Eu-core.txt.gz");
+        format.write(new FileDataSource(file), (EdgeListModel) model);
+
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals(0x1f, bytes[0] & 0xff);
+        assertEquals(0x8b, bytes[1] & 0xff);
+
+        // parallelism is ignored for compressed files, which can only be read from the start
+        format.setParallelism(4);
+        CsrGraph graph = new CsrGraphBuilder().build(format, new FileDataSource(file));
+        assertEquals(25571, graph.getEdgeCount());
+        assertEquals(1005, graph.getVertexCount());
+        assertEquals(asText(format, model), asText(format, read(format, new FileDataSource(file))));
+    }
+
+    @Test
+    public void roundTripOtherFormats() throws Exception {
+        assertRoundTrip(new TrivialGraphFormat(), resource(TrivialGraphFormat.class, "calendar.tgf"), "calendar.tgf.gz");
+        assertRoundTrip(new GMLFormat(), resource(GMLFormat.class, "example1.gml"), "example1.gml.deflate");
+        assertRoundTrip(new TulipFormat(), resource(TulipFormat.class, "grid1010.tlp"), "grid1010.tlp.gz");
+    }
+
+    @Test
+    public void compressionLevels() throws Exception {
+        EdgeListFormat format = new EdgeListFormat();
+        GraphModel model = read(format, resource(EdgeListFormat.class, "email-Eu-core.txt"));
+        long fastest = 0;
+        long smallest = 0;
+        for (int level : new int[] { Deflater.BEST_SPEED, Deflater.BEST_COMPRESSION }) {
+            File file = tempFolder.newFile("level" + level + ".txt.gz");
+            format.write(new CompressedDataSource(new FileDataSource(file), Compression.GZIP, level),
+                    (EdgeListModel) model);
+            if (level == Deflater.BEST_SPEED) {
+                fastest = file.length();
+            } else {
+                smallest = file.length();
+            }
+            assertEquals(asText(format, model), asText(format, read(format, new FileDataSource(file))));
+        }
+        assertTrue(smallest < fastest);
+
+        try {
+            new CompressedDataSource(new FileDataSource("x.gz"), Compression.GZIP, 10);
+            fail("expected invalid level to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("invalid compression level: 10", e.getMessage());
+        }
+    }
+
+    @Test
+    public void detectFromNameAndContentType() throws Exception {
+        assertEquals(Compression.GZIP, Compression.detect(new FileDataSource("calendar.TGF.GZ")));
+        assertEquals(Compression.DEFLATE, Compression.detect(new FileDataSource("calendar.tgf.zz")));
+        assertEquals(Compression.NONE, Compression.detect(new FileDataSource("calendar.tgf")));
+
+        DataSource plain = new FileDataSource("calendar.tgf");
+        assertSame(plain, CompressedDataSource.wrap(plain));
+
+        DataSource wrapped = CompressedDataSource.wrap(new FileDataSource("calendar.tgf.gz"));
+        assertSame(wrapped, CompressedDataSource.wrap(wrapped));
+        assertEquals("calendar.tgf", wrapped.getName());
+        assertEquals("chemical/x-mdl-tgf", wrapped.getContentType());
+
+        // a download with no useful name, only an HTTP-style content type
+        byte[] gzipped = gzip("1 2\n2 3\n");
+        DataSource download = new BytesDataSource("download", "application/gzip; charset=binary", gzipped);
+        assertEquals(Compression.GZIP, Compression.detect(download));
+        assertEquals(2, read(new EdgeListFormat(), download).getEdgeCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedInputFails() throws Exception {
+        byte[] gzipped = gzip("1 2\n2 3\n3 4\n");
+        byte[] truncated = Arrays.copyOf(gzipped, gzipped.length - 12);
+        read(new EdgeListFormat(), new BytesDataSource("truncated.txt.gz", "application/octet-stream", truncated));
+    }
+
+    @Test(timeout = 10000)
+    public void runtimeFailureReachesReader() throws Exception {
+        InputStream failing = new InputStream() {
+            @Override
+            public int read() {
+                throw new IllegalStateException("corrupt block");
+            }
+        };
+        try (InputStream in = new BackgroundInflaterInputStream(failing)) {
+            in.read();
+            fail("expected the inflater's failure to be rethrown");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            assertEquals("corrupt block", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void inflaterKeepsExceptionType() throws Exception {
+        byte[] gzipped = gzip("1 2\n2 3\n3 4\n");
+        DataSource truncated = new BytesDataSource("truncated.txt.gz", null,
+                Arrays.copyOf(gzipped, gzipped.length - 12));
+        try (InputStream in = CompressedDataSource.wrap(truncated).getInputStream()) {
+            in.readAllBytes();
+            fail("expected truncated input to be rejected");
+        } catch (EOFException e) {
+            // as GZIPInputStream reports it
+        }
+
+        InputStream corrupt = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new ZipException("invalid block type");
+            }
+        };
+        try (InputStream in = new BackgroundInflaterInputStream(corrupt)) {
+            in.read();
+            fail("expected the inflater's failure to be rethrown");
+        } catch (ZipException e) {
+            assertEquals("invalid block type", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void closeWithoutReadingEverything() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500000; i++) {
+            text.append(i).append(' ').append(i + 1).append('\n');
+        }
+        DataSource dataIn = new BytesDataSource("big.txt.gz", null, gzip(text.toString()));
+        for (int i = 0; i < 10; i++) {
+            try (InputStream in = CompressedDataSource.wrap(dataIn).getInputStream()) {
+                assertEquals('0', in.read());
+            }
+        }
+    }
+
+    private void assertRoundTrip(GraphFormat format, DataSource original, String fileName) throws Exception {
+        GraphModel model = read(format, original);
+        File file = tempFolder.newFile(fileName);
+        write(format, new FileDataSource(file), model);
+        assertEquals(asText(format, model), asText(format, read(format, new FileDataSource(file))));
+    }
+
+    private static DataSource resource(Class<?> formatClass, String name) {
+        return new URLDataSource(formatClass.getResource(name));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static GraphModel read(GraphFormat format, DataSource dataIn) throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        format.read(dataIn, model -> modelRef.set((GraphModel) model));
+        return modelRef.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void write(GraphFormat format, DataSource dataOut, GraphModel model) throws IOException {
+        format.write(dataOut, model);
+    }
+
+    private static String asText(GraphFormat format, GraphModel model) throws IOException {
+        StringDataSource dataOut = new StringDataSource();
+        write(format, dataOut, model);
+        return dataOut.toString();
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        BytesDataSource dataOut = new BytesDataSource("text.gz", null, new byte[0]);
+        try (OutputStream out = CompressedDataSource.wrap(dataOut).getOutputStream()) {
+            out.write(text.getBytes(StandardCharsets.US_ASCII));
+        }
+        return dataOut.bytes;
+    }
+
+    private static class BytesDataSource implements DataSource {
+        private final String name;
+        private final String contentType;
+        private byte[] bytes;
+
+        BytesDataSource(String name, String contentType, byte[] bytes) {
+            this.name = name;
+            this.contentType = contentType;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() {
+                    bytes = toByteArray();
+                }
+            };
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
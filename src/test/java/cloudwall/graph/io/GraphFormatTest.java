@@ -15,17 +15,45 @@
  */
 package cloudwall.graph.io;
 
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import cloudwall.graph.io.edge.TrivialGraphFormat;
+import cloudwall.graph.io.graphlet.GMLFormat;
+import cloudwall.graph.io.graphviz.GraphvizDotFormat;
+import cloudwall.graph.io.snapshot.SnapshotFormat;
+import cloudwall.graph.io.sparse.MatrixMarketFormat;
+import cloudwall.graph.io.sparse.MetisFormat;
+import cloudwall.graph.io.tulip.TulipFormat;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.activation.MimeType;
 import javax.activation.MimetypesFileTypeMap;
+import javax.activation.URLDataSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.function.Supplier;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 
 public class GraphFormatTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void enumerateFormats() {
         Set<String> contentTypes = new HashSet<>();
@@ -41,4 +69,118 @@ public class GraphFormatTest {
         assertEquals("text/vnd.graphviz", dotContentType);
         assertTrue(contentTypes.contains(dotContentType));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void lookUpByContentType() {
+        assertTrue(GraphFormat.Provider.forContentType("text/vnd.graphviz") instanceof GraphvizDotFormat);
+        assertTrue(GraphFormat.Provider.forContentType("Text/Plain; charset=UTF-8") instanceof EdgeListFormat);
+        assertNull(GraphFormat.Provider.forContentType("application/octet-stream"));
+
+        // formats are stateful, so callers must not share them by accident
+        assertNotSame(GraphFormat.Provider.forContentType("text/plain"),
+                GraphFormat.Provider.forContentType("text/plain"));
+    }
+
+    @Test
+    public void skipFormatsWhichFailToLoad() {
+        ServiceLoader.Provider<GraphFormat> broken = aProvider(() -> {
+            throw new ServiceConfigurationError("GraphFormat: provider could not be instantiated");
+        });
+        ServiceLoader.Provider<GraphFormat> dot = aProvider(GraphvizDotFormat::new);
+
+        Map<String, ServiceLoader.Provider<GraphFormat>> index =
+                GraphFormat.Provider.indexByContentType(Arrays.asList(broken, dot));
+        assertSame(dot, index.get("text/vnd.graphviz"));
+    }
+
+    @Test
+    public void detectBundledExamples() throws Exception {
+        assertDetected(TrivialGraphFormat.class, "edge", "calendar.tgf", "simple.tgf");
+        assertDetected(EdgeListFormat.class, "edge", "email-Eu-core.txt", "tiny-snap-format.txt", "tinyDG.txt");
+        assertDetected(GMLFormat.class, "graphlet", "example1.gml", "example2.gml", "example3.gml");
+        assertDetected(GraphvizDotFormat.class, "graphviz", "cluster.dot", "crazy.dot", "er.dot", "helloworld.dot",
+                "switch.dot", "world.dot");
+        assertDetected(TulipFormat.class, "tulip", "grid1010.tlp", "openmetanode1.tlp", "planar30drawnMM.tlp");
+        assertDetected(MatrixMarketFormat.class, "sparse", "symmetric.mtx", "directed.mtx");
+        assertDetected(MetisFormat.class, "sparse", "manual.graph", "manual-weighted.graph");
+    }
+
+    @Test
+    public void detectUploadsWithoutUsefulNames() throws Exception {
+        assertTrue(detect("// generated\nstrict Graph {\n a -- b\n}") instanceof GraphvizDotFormat);
+        assertTrue(detect("Creator \"yFiles\"\ngraph\n[\n node [ id 1 ]\n]") instanceof GMLFormat);
+        assertTrue(detect("; no header\n(nodes 0 1)\n(edge 0 0 1)\n)") instanceof TulipFormat);
+        assertTrue(detect("1 first\n2\n#\n1 2 edge label\n") instanceof TrivialGraphFormat);
+        assertTrue(detect("# Nodes: 3\n#\n1\t2\n2\t-3\n") instanceof EdgeListFormat);
+        assertTrue(detect("% partitioning input\n3 2\n2\n1 3\n2\n") instanceof MetisFormat);
+        assertNull(detect("hello, world\n"));
+        assertNull(detect(""));
+
+        // the edge list detected from an extension-less upload must then parse straight away
+        StringDataSource upload = upload("0 1\n1 2\n2 0\n");
+        GraphFormat<?> format = GraphFormat.Provider.detect(upload);
+        CsrGraph graph = new CsrGraphBuilder().build(format, upload);
+        assertEquals(3, graph.getEdgeCount());
+    }
+
+    @Test
+    public void detectCompressedAndBinaryFiles() throws Exception {
+        File gzipped = tempFolder.newFile("upload.gz");
+        try (OutputStream out = new CompressedDataSource(new FileDataSource(gzipped), Compression.GZIP)
+                .getOutputStream()) {
+            out.write("digraph { a -> b }".getBytes(StandardCharsets.US_ASCII));
+        }
+        assertTrue(GraphFormat.Provider.detect(new FileDataSource(gzipped)) instanceof GraphvizDotFormat);
+
+        File snapshot = tempFolder.newFile("snapshot");
+        Files.write(snapshot.toPath(), "CWGRAPH\n".getBytes(StandardCharsets.US_ASCII));
+        assertTrue(GraphFormat.Provider.detect(new FileDataSource(snapshot)) instanceof SnapshotFormat);
+
+        // nothing recognizable in the data, so it comes down to the file extension
+        File empty = tempFolder.newFile("empty.tlp");
+        assertTrue(GraphFormat.Provider.detect(new FileDataSource(empty)) instanceof TulipFormat);
+    }
+
+    private static void assertDetected(Class<?> formatClass, String directory, String... resources)
+            throws IOException {
+        for (String resource : resources) {
+            // URLDataSource takes its content type from the URL, so strip that out to test the detection itself
+            DataSource dataIn = new URLDataSource(GraphFormatTest.class.getResource(directory + "/" + resource));
+            StringDataSource upload = upload(new String(readAll(dataIn), StandardCharsets.ISO_8859_1));
+            assertEquals(resource, formatClass, GraphFormat.Provider.detect(upload).getClass());
+        }
+    }
+
+    private static GraphFormat<?> detect(String text) throws IOException {
+        return GraphFormat.Provider.detect(upload(text));
+    }
+
+    private static StringDataSource upload(String text) throws IOException {
+        StringDataSource upload = new StringDataSource("upload", "application/octet-stream",
+                StandardCharsets.ISO_8859_1);
+        try (OutputStream out = upload.getOutputStream()) {
+            out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return upload;
+    }
+
+    private static byte[] readAll(DataSource dataIn) throws IOException {
+        try (InputStream in = dataIn.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static ServiceLoader.Provider<GraphFormat> aProvider(Supplier<GraphFormat> factory) {
+        return new ServiceLoader.Provider<GraphFormat>() {
+            @Override
+            public Class<? extends GraphFormat> type() {
+                return GraphFormat.class;
+            }
+
+            @Override
+            public GraphFormat get() {
+                return factory.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.edge;
+
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.LightweightVertex;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.activation.FileDataSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class CsrEdgeListLoaderTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void matchesGraphBuiltFromModel() throws Exception {
+        File file = new File(getClass().getResource("email-Eu-core.txt").toURI());
+        AtomicReference<EdgeListModel> modelRef = new AtomicReference<>();
+        new EdgeListFormat().read(new FileDataSource(file), modelRef::set);
+        CsrGraph expected = new CsrGraphBuilder().build(modelRef.get());
+
+        CsrGraph loaded = new CsrEdgeListLoader().load(file.toPath());
+        assertFalse(loaded.isDirected());
+        assertEquals(expected.getVertexCount(), loaded.getVertexCount());
+        assertEquals(expected.getEdgeCount(), loaded.getEdgeCount());
+        for (int i = 0; i < expected.getVertexCount(); i++) {
+            assertEquals(expected.vertexAt(i), loaded.vertexAt(i));
+            assertEquals(neighbors(expected, i), neighbors(loaded, i));
+        }
+    }
+
+    @Test
+    public void loadDirectedGraphWithHeader() throws Exception {
+        File file = new File(getClass().getResource("tinyDG.txt").toURI());
+        CsrEdgeListLoader loader = new CsrEdgeListLoader();
+        loader.setSkipLines(2);
+        loader.setDirected(true);
+        CsrGraph graph = loader.load(file.toPath());
+
+        assertTrue(graph.isDirected());
+        assertEquals(13, graph.getVertexCount());
+        assertEquals(22, graph.getEdgeCount());
+        assertEquals(ids(0, 8, 4, 9), ids(graph, neighbors(graph, indexOf(graph, 6))));
+        List<Long> inNeighbors = new ArrayList<>();
+        graph.forEachInNeighbor(indexOf(graph, 9), n -> inNeighbors.add((Long) graph.vertexAt(n).getVertexId()));
+        assertEquals(ids(12, 7, 6), inNeighbors);
+    }
+
+    @Test
+    public void loadEmptyAndMalformedFiles() throws Exception {
+        File empty = tempFolder.newFile("empty.txt");
+        CsrGraph graph = new CsrEdgeListLoader().load(empty.toPath());
+        assertEquals(0, graph.getVertexCount());
+        assertEquals(0, graph.getEdgeCount());
+
+        File broken = tempFolder.newFile("broken.txt");
+        Files.write(broken.toPath(), "# comment\n1 2\n2 three\n".getBytes(StandardCharsets.UTF_8));
+        try {
+            new CsrEdgeListLoader().load(broken.toPath());
+            fail("expected malformed edge list to be rejected");
+        } catch (IOException e) {
+            assertEquals("invalid node ID in edge list at line # 3: 2 three", e.getMessage());
+        }
+    }
+
+    private static List<Integer> neighbors(CsrGraph graph, int vertexIndex) {
+        List<Integer> neighbors = new ArrayList<>();
+        graph.forEachNeighbor(vertexIndex, neighbors::add);
+        return neighbors;
+    }
+
+    private static int indexOf(CsrGraph graph, long vid) {
+        return graph.indexOf(new LightweightVertex(vid));
+    }
+
+    private static List<Long> ids(CsrGraph graph, List<Integer> indices) {
+        List<Long> ids = new ArrayList<>();
+        indices.forEach(ndx -> ids.add((Long) graph.vertexAt(ndx).getVertexId()));
+        return ids;
+    }
+
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+}
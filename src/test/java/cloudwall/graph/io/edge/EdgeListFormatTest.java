@@ -18,17 +18,32 @@ package cloudwall.graph.io.edge;
 import cloudwall.graph.*;
 import cloudwall.graph.analysis.ConnectedComponentCollector;
 import cloudwall.graph.io.StringDataSource;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.activation.URLDataSource;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class EdgeListFormatTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void loadEuEmailCoreGraph() throws Exception {
         EdgeListFormat format = new EdgeListFormat();
@@ -83,4 +98,174 @@ public class EdgeListFormatTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    public void parseLabelsTabsAndComments() throws Exception {
+        StringDataSource graphIn = StringDataSource.of("text/plain",
+                "# comment\r\n\r\n  1\t2\r\n2 3 a label  \n# another\n3\t-4\tx\n5 6");
+        EdgeListModel model = read(new EdgeListFormat(), graphIn);
+        assertEquals(4, model.getEdgeCount());
+        assertEquals(6, model.getVertexCount());
+
+        StringDataSource dataOut = new StringDataSource();
+        new EdgeListFormat().write(dataOut, model);
+        assertEquals("1 2\n2 3 a label\n3 -4 x\n5 6\n", dataOut.toString());
+    }
+
+    @Test
+    public void reportMalformedLines() throws Exception {
+        assertInvalid("1 2\n\n3\n", "invalid line at line # 3: 3");
+        assertInvalid("1 2\n3 x4\n", "invalid node ID in edge list at line # 2: 3 x4");
+        assertInvalid("1 92233720368547758070\n", "invalid node ID in edge list at line # 1: 1 92233720368547758070");
+    }
+
+    @Test
+    public void scanLinesAcrossBufferBoundaries() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            text.append(i).append(' ').append(Long.MAX_VALUE - i).append(i % 10 == 0 ? " label\n" : "\n");
+        }
+        EdgeListScanner scanner = new EdgeListScanner(
+                new ByteArrayInputStream(text.toString().getBytes(StandardCharsets.UTF_8)), 16);
+        scanner.skipLines(1);
+        for (int i = 1; i < 1000; i++) {
+            assertTrue(scanner.nextEdge());
+            assertEquals(i, scanner.getSource());
+            assertEquals(Long.MAX_VALUE - i, scanner.getTarget());
+            assertEquals(i % 10 == 0 ? "label" : null, scanner.getLabel());
+            assertEquals(i + 1, scanner.getLineNumber());
+        }
+        assertFalse(scanner.nextEdge());
+    }
+
+    @Test
+    public void parallelReadMatchesSequentialRead() throws Exception {
+        File file = new File(getClass().getResource("email-Eu-core.txt").toURI());
+        EdgeListModel sequential = read(new EdgeListFormat(), new FileDataSource(file));
+
+        // small chunks so the file gets split many ways
+        for (int parallelism : new int[] { 1, 3, 8 }) {
+            EdgeListModel parallel = new EdgeListModel();
+            new ParallelEdgeListReader(parallelism, 1000).read(file.toPath(), 0, 0, parallel);
+            assertEquals(sequential.getVertexCount(), parallel.getVertexCount());
+            assertEquals(toString(sequential), toString(parallel));
+        }
+
+        EdgeListFormat format = new EdgeListFormat();
+        format.setParallelism(4);
+        assertEquals(toString(sequential), toString(read(format, new FileDataSource(file))));
+    }
+
+    @Test
+    public void parallelReadReportsFileLineNumbers() throws Exception {
+        File file = tempFolder.newFile("broken.txt");
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            w.write("header 1\nheader 2\n");
+            for (int i = 0; i < 5000; i++) {
+                w.write(i % 100 == 0 ? "# comment\n" : i + " " + (i + 1) + "\n");
+            }
+            w.write("4 oops\n");
+            for (int i = 0; i < 5000; i++) {
+                w.write(i + " " + (i + 1) + "\n");
+            }
+            w.write("5\n");
+        }
+
+        EdgeListFormat format = new EdgeListFormat();
+        format.setSkipLines(2);
+        format.setParallelism(4);
+        try {
+            read(format, new FileDataSource(file));
+            fail("expected malformed edge list to be rejected");
+        } catch (IOException e) {
+            assertEquals("invalid node ID in edge list at line # 5003: 4 oops", e.getMessage());
+        }
+
+        EdgeListModel model = new EdgeListModel();
+        try {
+            new ParallelEdgeListReader(8, 100).read(file.toPath(), 0, 0, model);
+            fail("expected malformed edge list to be rejected");
+        } catch (IOException e) {
+            assertEquals("invalid node ID in edge list at line # 1: header 1", e.getMessage());
+        }
+    }
+
+    @Test
+    public void streamIntoGraphBuilders() throws Exception {
+        URL resource = getClass().getResource("email-Eu-core.txt");
+        EdgeListFormat format = new EdgeListFormat();
+        Graph<?, ?> graph = new GraphBuilder().build(format, new URLDataSource(resource));
+        assertEquals(25571, graph.getEdgeCount());
+        assertEquals(1005, graph.getVertexCount());
+
+        CsrGraph streamed = new CsrGraphBuilder().build(format, new URLDataSource(resource));
+        CsrGraph fromModel = new CsrGraphBuilder().build(read(format, new URLDataSource(resource)));
+        assertEquals(fromModel.getEdgeCount(), streamed.getEdgeCount());
+        for (int i = 0; i < fromModel.getVertexCount(); i++) {
+            assertEquals(fromModel.vertexAt(i), streamed.vertexAt(i));
+            assertEquals(fromModel.degree(i), streamed.degree(i));
+        }
+
+        format.setSkipLines(2);
+        Graph<?, ?> tiny = new GraphBuilder().build(format, new URLDataSource(getClass().getResource("tinyDG.txt")));
+        assertEquals(22, tiny.getEdgeCount());
+        assertEquals(13, tiny.getVertexCount());
+    }
+
+    @Test
+    public void writeIdsAndLabels() throws Exception {
+        long[][] edges = { { 0, -1 }, { Long.MIN_VALUE, Long.MAX_VALUE }, { 1234567890123L, 9 }, { 10, 100 } };
+        String[] labels = { null, "max", "na\u00efve label", null };
+        EdgeListModel model = new EdgeListModel();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < edges.length; i++) {
+            model.addEdge(edges[i][0], edges[i][1], labels[i]);
+            expected.append(String.valueOf(edges[i][0])).append(' ').append(String.valueOf(edges[i][1]));
+            if (labels[i] != null) {
+                expected.append(' ').append(labels[i]);
+            }
+            expected.append('\n');
+        }
+        // labels go through the default charset, just as they did with an OutputStreamWriter
+        Charset charset = Charset.defaultCharset();
+        assertEquals(new String(expected.toString().getBytes(charset), charset), toString(model));
+    }
+
+    @Test
+    public void parallelWriteMatchesSequentialWrite() throws Exception {
+        EdgeListModel model = read(new EdgeListFormat(), new URLDataSource(getClass().getResource("email-Eu-core.txt")));
+        File sequential = tempFolder.newFile("sequential.txt");
+        new EdgeListFormat().write(new FileDataSource(sequential), model);
+        byte[] expected = Files.readAllBytes(sequential.toPath());
+        assertEquals(toString(model), new String(expected, Charset.defaultCharset()));
+
+        // small blocks so the edges get split many ways, including a short last block
+        for (int parallelism : new int[] { 1, 3, 8 }) {
+            File parallel = tempFolder.newFile("parallel-" + parallelism + ".txt");
+            try (EdgeListWriter writer = new EdgeListWriter(new FileDataSource(parallel), parallelism, 1000)) {
+                model.writeEdges(writer);
+            }
+            assertArrayEquals(expected, Files.readAllBytes(parallel.toPath()));
+        }
+    }
+
+    private static String toString(EdgeListModel model) throws IOException {
+        StringDataSource dataOut = new StringDataSource();
+        new EdgeListFormat().write(dataOut, model);
+        return dataOut.toString();
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            read(new EdgeListFormat(), StringDataSource.of("text/plain", text));
+            fail("expected malformed edge list to be rejected");
+        } catch (IOException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static EdgeListModel read(EdgeListFormat format, DataSource graphIn) throws Exception {
+        AtomicReference<EdgeListModel> modelRef = new AtomicReference<>();
+        format.read(graphIn, modelRef::set);
+        return modelRef.get();
+    }
+}
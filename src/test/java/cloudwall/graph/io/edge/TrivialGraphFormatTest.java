@@ -15,13 +15,22 @@
  */
 package cloudwall.graph.io.edge;
 
+import cloudwall.graph.Graph;
+import cloudwall.graph.GraphBuilder;
 import cloudwall.graph.io.StringDataSource;
 import org.junit.Test;
 
 import javax.activation.DataSource;
+import javax.activation.FileDataSource;
 import javax.activation.URLDataSource;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TrivialGraphFormatTest {
     @Test
@@ -40,4 +49,47 @@ public class TrivialGraphFormatTest {
             }
         });
     }
+
+    @Test
+    public void parallelReadMatchesSequentialRead() throws Exception {
+        File file = new File(getClass().getResource("calendar.tgf").toURI());
+        TrivialGraphFormat format = new TrivialGraphFormat();
+        AtomicReference<String> sequential = new AtomicReference<>();
+        format.read(new FileDataSource(file), model -> sequential.set(write(format, model)));
+
+        format.setParallelism(4);
+        format.read(new FileDataSource(file), model -> {
+            assertEquals(sequential.get(), write(format, model));
+            assertTrue(model.getEdgeCount() > 0);
+        });
+    }
+
+    @Test
+    public void streamIntoGraphBuilder() throws Exception {
+        TrivialGraphFormat format = new TrivialGraphFormat();
+        URL resource = getClass().getResource("calendar.tgf");
+        AtomicReference<TrivialGraphModel> modelRef = new AtomicReference<>();
+        format.read(new URLDataSource(resource), modelRef::set);
+
+        Graph<?, ?> graph = new GraphBuilder().build(format, new URLDataSource(resource));
+        assertEquals(modelRef.get().getEdgeCount(), graph.getEdgeCount());
+        assertEquals(modelRef.get().getVertexCount(), graph.getVertexCount());
+
+        try {
+            new GraphBuilder().build(format, StringDataSource.of("chemical/x-mdl-tgf", "1 first\nx second\n#\n1 2\n"));
+            fail("expected malformed node list to be rejected");
+        } catch (IOException e) {
+            assertEquals("invalid node ID in node list at line # 2: x second", e.getMessage());
+        }
+    }
+
+    private static String write(TrivialGraphFormat format, TrivialGraphModel model) {
+        StringDataSource dataOut = new StringDataSource();
+        try {
+            format.write(dataOut, model);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return dataOut.toString();
+    }
 }
@@ -16,17 +16,27 @@
 
 package cloudwall.graph.io.graphlet;
 
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.Graph;
+import cloudwall.graph.GraphBuilder;
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.io.GraphFormatException;
 import cloudwall.graph.io.StringDataSource;
 import org.junit.Test;
 
 import javax.activation.MimeType;
 import javax.activation.URLDataSource;
+import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.charset.Charset;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class GMLFormatTest {
     @Test
@@ -52,4 +62,86 @@ public class GMLFormatTest {
 
         assertEquals("application/x-graphlet", supported[0].toString());
     }
+
+    @Test
+    public void buildGraphsFromExamples() throws Exception {
+        GMLFormat format = new GMLFormat();
+        URLDataSource example1 = new URLDataSource(getClass().getResource("example1.gml"));
+        CsrGraph directed = new CsrGraphBuilder().build(format, example1);
+        assertTrue(directed.isDirected());
+        assertEquals(3, directed.getVertexCount());
+        assertEquals(3, directed.getEdgeCount());
+
+        Graph<?, ?> commented = new GraphBuilder().build(format,
+                new URLDataSource(getClass().getResource("example2.gml")));
+        assertEquals(2, commented.getVertexCount());
+        assertEquals(1, commented.getEdgeCount());
+
+        // example3 has a stray unclosed list, so most of its nodes end up nested in another node
+        URLDataSource example3 = new URLDataSource(getClass().getResource("example3.gml"));
+        AtomicReference<GMLModel> modelRef = new AtomicReference<>();
+        format.read(example3, modelRef::set);
+        Graph<?, ?> fromModel = new GraphBuilder().build(modelRef.get());
+        Graph<?, ?> streamed = new GraphBuilder().build(format, example3);
+        assertEquals(fromModel.getVertexCount(), streamed.getVertexCount());
+        assertEquals(fromModel.getEdgeCount(), streamed.getEdgeCount());
+    }
+
+    @Test
+    public void rejectEdgesWithoutEndpoints() throws Exception {
+        StringDataSource graphIn = StringDataSource.of("application/x-graphlet",
+                "graph [ node [ id 1 ] edge [ source 1 ] ]");
+        try {
+            new GraphBuilder().build(new GMLFormat(), graphIn);
+            fail("expected edge without target to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals("mal-formed GML for graph representation: missing target at line # 1", e.getMessage());
+        }
+    }
+
+    @Test
+    public void streamWithUnknownCounts() throws Exception {
+        AtomicReference<GraphMetadata> metadataRef = new AtomicReference<>();
+        String text = "graph [ directed 1 node [ id 1 ] node [ id 2 ] edge [ source 1 target 2 ] ]";
+        new GMLFormat().read(StringDataSource.of("application/x-graphlet", text),
+                new GraphVisitor() {
+                    @Override
+                    public void start(@Nonnull GraphMetadata metadata) {
+                        metadataRef.set(metadata);
+                    }
+                });
+
+        // the visit starts at the first node, before the rest can be counted
+        GraphMetadata metadata = metadataRef.get();
+        assertTrue(metadata.supports(GraphMetadata.Feature.DIRECTED));
+        assertEquals(-1, metadata.getVertexCount());
+        assertEquals(-1, metadata.getEdgeCount());
+    }
+
+    // visiting used to look up every node and edge attribute with a scan of the whole graph list
+    @Test
+    public void loadLargeGraph() throws Exception {
+        int numNodes = 100000;
+        StringBuilder text = new StringBuilder("graph [\n directed 1\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append(" node [ id ").append(i).append(" label \"n").append(i).append("\" ]\n");
+        }
+        for (int i = 0; i < numNodes * 3; i++) {
+            text.append(" edge [ source ").append(i % numNodes).append(" target ").append((i * 7 + 1) % numNodes)
+                    .append(" weight 1.5 ]\n");
+        }
+        StringDataSource graphIn = StringDataSource.of("application/x-graphlet", text.append("]\n").toString());
+
+        GMLFormat format = new GMLFormat();
+        AtomicReference<GMLModel> modelRef = new AtomicReference<>();
+        format.read(graphIn, modelRef::set);
+        CsrGraph fromModel = new CsrGraphBuilder().build(modelRef.get());
+        CsrGraph streamed = new CsrGraphBuilder().build(format, graphIn);
+
+        assertEquals(numNodes, modelRef.get().getVertexCount());
+        assertEquals(numNodes * 3, modelRef.get().getEdgeCount());
+        assertEquals(numNodes, fromModel.getVertexCount());
+        assertEquals(numNodes * 3, fromModel.getEdgeCount());
+        assertEquals(numNodes * 3, streamed.getEdgeCount());
+    }
 }
\ No newline at end of file
@@ -16,15 +16,14 @@
 
 package cloudwall.graph.io.graphlet;
 
-import cloudwall.graph.io.ReaderInput;
-import org.javafp.parsecj.Parser;
+import cloudwall.graph.io.GraphFormatException;
 import org.junit.Test;
 
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
 
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class GMLParserTest {
     @Test
@@ -39,7 +38,17 @@ public class GMLParserTest {
 
     @Test
     public void parseGraphExample2() throws Exception {
-        parseExample("example2.gml");
+        GMLModel model = parseExample("example2.gml");
+        GMLModel.List graph = (GMLModel.List) model.getRoot().get("graph");
+        assertEquals(1, graph.get("directed").getValue());
+        assertEquals(2, graph.getEntries("node").size());
+
+        GMLModel.List earth = (GMLModel.List) graph.getEntries("node").iterator().next().getValue();
+        GMLModel.List graphics = (GMLModel.List) earth.get("graphics");
+        assertEquals(0.1, graphics.get("x").getValue());
+        assertEquals(Double.class, graphics.get("x").getType());
+        assertEquals("earth.gif", graphics.get("bitmap").getValue());
+        assertNull(graphics.get("label"));
     }
 
     @Test
@@ -47,9 +56,65 @@ public class GMLParserTest {
         parseExample("example3.gml");
     }
 
+    @Test
+    public void parseScalars() throws Exception {
+        GMLModel.List root = parse("a 1 b -2.5E3 c \"x &quot;y&quot;\" d 3000000000 e [ f +4 g .5 ] h []").getRoot();
+        assertEquals(1, root.get("a").getValue());
+        assertEquals(-2500.0, root.get("b").getValue());
+        assertEquals("x &quot;y&quot;", root.get("c").getValue());
+        assertEquals(3000000000L, root.get("d").getValue());
+        assertEquals(Long.class, root.get("d").getType());
+        assertEquals(4, ((GMLModel.List) root.get("e")).get("f").getValue());
+        assertEquals(0.5, ((GMLModel.List) root.get("e")).get("g").getValue());
+        assertFalse(((GMLModel.List) root.get("h")).iterator().hasNext());
+    }
+
+    @Test
+    public void closeListsAtEndOfInput() throws Exception {
+        GMLModel.List graph = (GMLModel.List) parse("graph [ node [ id 1 ] node [ id 2").getRoot().get("graph");
+        assertEquals(2, graph.getEntries("node").size());
+    }
+
+    @Test
+    public void lookUpKeysInLongLists() throws Exception {
+        StringBuilder text = new StringBuilder("graph [");
+        for (int i = 0; i < 100; i++) {
+            text.append(" k").append(i % 10).append(' ').append(i);
+        }
+        GMLModel.List graph = (GMLModel.List) parse(text.append(" ]").toString()).getRoot().get("graph");
+        assertEquals(3, graph.get("k3").getValue());
+        assertEquals(10, graph.getEntries("k3").size());
+        assertTrue(graph.getEntries("k10").isEmpty());
+
+        graph.addEntry(new GMLModel.ListEntry("k10", new GMLModel.Scalar(100, Integer.class)));
+        assertEquals(100, graph.get("k10").getValue());
+        assertEquals(11, graph.getEntries("k0").size() + graph.getEntries("k10").size());
+    }
+
+    @Test
+    public void rejectInvalidSyntax() throws Exception {
+        assertInvalid("graph [ node [ id 1 ] ] ]", "expected a key but found ']' at line # 1");
+        assertInvalid("graph [\n id ]", "expected a value but found ']' at line # 2");
+        assertInvalid("graph [ label \"open ]", "unterminated string at line # 1");
+        assertInvalid("graph [ x 1.2.3 ]", "expected a key but found '.3' at line # 1");
+        assertInvalid("1 2", "expected a key but found '1' at line # 1");
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            parse(text);
+            fail("expected invalid GML to be rejected: " + text);
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static GMLModel parse(String text) throws Exception {
+        return new GMLParser(new StringReader(text)).parse();
+    }
+
     private GMLModel parseExample(String exampleResource) throws Exception {
-        Parser<Character, GMLModel> parser = GMLParser.newInstance();
         Reader r = new InputStreamReader(getClass().getResourceAsStream(exampleResource));
-        return parser.parse(new ReaderInput(r).toInput()).getResult();
+        return new GMLParser(r).parse();
     }
 }
\ No newline at end of file
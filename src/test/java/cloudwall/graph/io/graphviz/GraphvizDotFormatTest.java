@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.graphviz;
+
+import cloudwall.graph.*;
+import cloudwall.graph.io.StringDataSource;
+import org.junit.Test;
+
+import javax.activation.DataSource;
+import javax.activation.URLDataSource;
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GraphvizDotFormatTest {
+    private static final String[] CORPUS = {
+            "cluster.dot", "crazy.dot", "datastruct.dot", "er.dot", "fdpclust.dot", "fsm.dot", "helloworld.dot",
+            "process.dot", "profile.dot", "softmaint.dot", "switch.dot", "twopi.dot", "world.dot"
+    };
+
+    @Test
+    public void roundTripCorpus() throws Exception {
+        GraphvizDotFormat format = new GraphvizDotFormat();
+        for (String resource : CORPUS) {
+            GraphvizDotModel model = read(format, new URLDataSource(getClass().getResource(resource)));
+            String written = write(format, model);
+            GraphvizDotModel reread = read(format, StringDataSource.of("text/vnd.graphviz", written));
+
+            assertEquals(resource, model.getStatements().size(), reread.getStatements().size());
+            assertEquals(resource, written, write(format, reread));
+        }
+    }
+
+    @Test
+    public void writeModel() throws Exception {
+        GraphvizDotModel model = read(new GraphvizDotFormat(), StringDataSource.of("text/vnd.graphviz",
+                "strict digraph G { rankdir=LR; node [shape=box]; a:p:n -> {b c} -> d [color=\"red\"]; e; }"));
+        assertEquals("strict digraph G {\n"
+                + "    rankdir=LR\n"
+                + "    node [shape=box]\n"
+                + "    a:p:n -> subgraph {\n"
+                + "        b\n"
+                + "        c\n"
+                + "    } -> d [color=\"red\"]\n"
+                + "    e\n"
+                + "}\n", write(new GraphvizDotFormat(), model));
+    }
+
+    @Test
+    public void escapeQuotesOnWrite() throws Exception {
+        GraphvizDotModel model = read(new GraphvizDotFormat(),
+                StringDataSource.of("text/vnd.graphviz", "graph { a [label=\"say \\\"hi\\\"\"] }"));
+        String written = write(new GraphvizDotFormat(), model);
+        assertEquals("graph {\n    a [label=\"say \\\"hi\\\"\"]\n}\n", written);
+        GraphvizDotModel reread = read(new GraphvizDotFormat(), StringDataSource.of("text/vnd.graphviz", written));
+        assertEquals(written, write(new GraphvizDotFormat(), reread));
+    }
+
+    @Test
+    public void escapeBackslashesOnWrite() throws Exception {
+        // a trailing backslash or one before a quote must not escape the quote that follows it
+        assertEquals("\"a\\\\\"", new GraphvizDotModel.Id("a\\", true).toString());
+        assertEquals("\"a\\\\\\\"b\"", new GraphvizDotModel.Id("a\\\"b", true).toString());
+        assertEquals("\"x\\ny\"", new GraphvizDotModel.Id("x\\ny", true).toString());
+
+        for (String text : new String[] {
+                "digraph { \"C:\\\\dir\\\\\" -> b }", "digraph { \"a\\\\\\\"b\" -> c }" }) {
+            GraphvizDotModel model = read(new GraphvizDotFormat(), StringDataSource.of("text/vnd.graphviz", text));
+            String written = write(new GraphvizDotFormat(), model);
+            GraphvizDotModel reread = read(new GraphvizDotFormat(), StringDataSource.of("text/vnd.graphviz", written));
+            assertEquals(written, write(new GraphvizDotFormat(), reread));
+        }
+        assertEquals(Arrays.asList("C:\\\\dir\\\\->b"), edges("digraph { \"C:\\\\dir\\\\\" -> b }"));
+    }
+
+    @Test
+    public void buildGraphsFromCorpus() throws Exception {
+        GraphvizDotFormat format = new GraphvizDotFormat();
+        for (String resource : CORPUS) {
+            Graph<?, ?> graph = new GraphBuilder().build(format, new URLDataSource(getClass().getResource(resource)));
+            assertTrue(resource, graph.getVertexCount() > 0);
+        }
+
+        Graph<?, ?> cluster = new GraphBuilder().build(format, new URLDataSource(getClass().getResource("cluster.dot")));
+        assertEquals(10, cluster.getVertexCount());
+        assertEquals(13, cluster.getEdgeCount());
+
+        CsrGraph nested = new CsrGraphBuilder().build(format, new URLDataSource(getClass().getResource("fdpclust.dot")));
+        assertFalse(nested.isDirected());
+        assertEquals(9, nested.getVertexCount());
+        assertEquals(6, nested.getEdgeCount());
+    }
+
+    @Test
+    public void expandEdgeChainsAndSubgraphs() throws Exception {
+        List<String> edges = edges("digraph { a -> b -> c; {d e} -> {f -> g} -> h; \"a\" -> i:p:n }");
+        assertEquals(Arrays.asList("a->b", "b->c", "f->g", "d->f", "d->g", "e->f", "e->g", "f->h", "g->h", "a->i"),
+                edges);
+
+        // members of nested subgraphs count too, but only once each
+        assertEquals(Arrays.asList("x--a", "x--b", "x--c"),
+                edges("graph { x -- { a; b [color=red]; subgraph { a; c } } }"));
+    }
+
+    @Test
+    public void dropRepeatedEdgesInStrictGraphs() throws Exception {
+        assertEquals(Arrays.asList("a->b", "b->a", "a->b", "a->a"),
+                edges("digraph { a -> b -> a; a -> b; a -> a }"));
+        assertEquals(Arrays.asList("a->b", "b->a", "a->a"),
+                edges("strict digraph { a -> b -> a; a -> b; a -> a }"));
+        assertEquals(Arrays.asList("a--b", "c--b"),
+                edges("strict graph { a -- b -- a; {a c} -- b }"));
+    }
+
+    private static List<String> edges(String text) throws Exception {
+        GraphvizDotModel model = read(new GraphvizDotFormat(), StringDataSource.of("text/vnd.graphviz", text));
+        List<String> edges = new ArrayList<>();
+        model.visit(new GraphVisitor() {
+            @Override
+            public void visitEdge(@Nonnull Edge<Vertex> edge) {
+                String op = edge instanceof Edge.DirectedEdge ? "->" : "--";
+                edges.add(edge.getVertex0().getVertexId() + op + edge.getVertex1().getVertexId());
+            }
+        });
+        return edges;
+    }
+
+    private static GraphvizDotModel read(GraphvizDotFormat format, DataSource dataIn) throws Exception {
+        AtomicReference<GraphvizDotModel> modelRef = new AtomicReference<>();
+        format.read(dataIn, modelRef::set);
+        return modelRef.get();
+    }
+
+    private static String write(GraphvizDotFormat format, GraphvizDotModel model) throws Exception {
+        StringDataSource dataOut = new StringDataSource("<test>", "text/vnd.graphviz", StandardCharsets.UTF_8);
+        format.write(dataOut, model);
+        return dataOut.toString();
+    }
+}
@@ -16,25 +16,27 @@
 
 package cloudwall.graph.io.graphviz;
 
-import cloudwall.graph.io.ReaderInput;
+import cloudwall.graph.io.GraphFormatException;
 import cloudwall.graph.io.graphviz.GraphvizDotModel.*;
-
-import org.javafp.parsecj.input.Input;
-import org.junit.Ignore;
 import org.junit.Test;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 import static org.junit.Assert.*;
 
-// bunch of problems still with Graphviz parsing
-@Ignore
 public class GraphvizDotParserTest {
     @Test
     public void parseCluster() throws Exception {
-        parseModel("cluster.dot");
+        GraphvizDotModel model = parseModel("cluster.dot");
+        Subgraph cluster = (Subgraph) model.getStatements().iterator().next();
+        assertEquals("cluster_0", cluster.getId().toString());
+        assertEquals(5, cluster.getStatements().size());
+        assertEquals(11, model.getStatements().size());
     }
 
     @Test
@@ -49,7 +51,8 @@ public class GraphvizDotParserTest {
 
     @Test
     public void parseErDiagram() throws Exception {
-        parseModel("er.dot");
+        GraphvizDotModel model = parseModel("er.dot");
+        assertFalse(model.isDigraph());
     }
 
     @Test
@@ -115,51 +118,112 @@ public class GraphvizDotParserTest {
 
     @Test
     public void parseCompassPoints() throws Exception {
-        for (GraphvizDotModel.CompassPoint point : GraphvizDotModel.CompassPoint.values()) {
-            GraphvizDotParser.compassPoint().parse(Input.of(point.getLabel()));
+        for (CompassPoint point : CompassPoint.values()) {
+            assertEquals(point, parseNodeId("a:" + point.getLabel()).getCompassPoint());
+            assertEquals(point, parseNodeId("a:b:" + point.getLabel()).getCompassPoint());
         }
     }
 
     @Test
     public void parseNodeId() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("A_BC")).getResult();
-        assertEquals("A_BC", nodeId.toString());
+        assertEquals("A_BC", parseNodeId("A_BC").toString());
     }
 
     @Test
     public void parseNodeIdInt() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("123")).getResult();
-        assertEquals("123", nodeId.toString());
+        assertEquals("123", parseNodeId("123").toString());
+        assertEquals("-.5", parseNodeId("-.5").toString());
     }
 
     @Test
     public void parseNodeIdPortIdBothInt() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("123:456")).getResult();
-        assertEquals("123:456", nodeId.toString());
+        assertEquals("123:456", parseNodeId("123:456").toString());
     }
 
     @Test
     public void parseNodeIdWithPort() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("\"X yz\":32")).getResult();
+        NodeId nodeId = parseNodeId("\"X yz\":32");
         assertEquals("\"X yz\":32", nodeId.toString());
+        assertEquals("X yz", nodeId.getNodeId().getValue());
+        assertNull(nodeId.getCompassPoint());
     }
 
     @Test
     public void parseNodeIdWithCompassPoint() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("x64:nw")).getResult();
+        NodeId nodeId = parseNodeId("x64:nw");
         assertEquals("x64:nw", nodeId.toString());
+        assertNull(nodeId.getPortId());
+    }
+
+    @Test
+    public void parseEscapedBackslashes() throws Exception {
+        assertEquals("\"C:\\\\dir\\\\\"", parseNodeId("\"C:\\\\dir\\\\\"").toString());
+        EdgeStatement edge = (EdgeStatement) parse("digraph { \"a\\\\\" -> b }").getStatements().iterator().next();
+        assertEquals("a\\\\", ((NodeId) edge.getLhsTerminal()).getNodeId().getValue());
     }
-    
+
     @Test
     public void parseNodeIdWithPortAndCompassPoint() throws Exception {
-        GraphvizDotModel.NodeId nodeId = GraphvizDotParser.nodeId().parse(Input.of("ABC:123:_")).getResult();
-        assertEquals("ABC:123:_", nodeId.toString());
+        assertEquals("ABC:123:_", parseNodeId("ABC:123:_").toString());
+    }
+
+    @Test
+    public void parseStringsCommentsAndHtml() throws Exception {
+        GraphvizDotModel model = parse("/* header */ strict Graph \"g\" {\n"
+                + "# preprocessor line\n"
+                + "a [label=\"multi\" + // comment\n \"part \\\"quoted\\\"\", html=<<b>bold</b>>];\n"
+                + "b -- {c; d} [weight=2] [color=red]\n"
+                + "}\n");
+        assertTrue(model.isStrict());
+        assertFalse(model.isDigraph());
+        assertEquals("\"g\"", model.getId().toString());
+
+        Iterator<Statement> statements = model.getStatements().iterator();
+        NodeStatement node = (NodeStatement) statements.next();
+        Iterator<Attribute> attributes = node.getAttributes().iterator().next().getAttributes().iterator();
+        assertEquals("multipart \"quoted\"", attributes.next().getValue().getValue());
+        assertEquals("<<b>bold</b>>", attributes.next().getValue().toString());
+
+        EdgeStatement edge = (EdgeStatement) statements.next();
+        Subgraph rhs = (Subgraph) edge.getRhsTerminals().iterator().next();
+        assertNull(rhs.getId());
+        assertEquals(2, rhs.getStatements().size());
+        assertEquals("[weight=2;color=red]", edge.getAttributes().toString());
+        assertFalse(statements.hasNext());
+    }
+
+    @Test
+    public void rejectInvalidSyntax() throws Exception {
+        assertInvalid("digraph { a -- b }", "expected '->' in a digraph but found '--' at line # 1");
+        assertInvalid("graph {\n a -- b\n c [x=] }", "expected an ID but found ']' at line # 3");
+        assertInvalid("graph { a:b:up }", "invalid compass point 'up' at line # 1");
+        assertInvalid("graph { a = \"b }", "unterminated string at line # 1");
+        assertInvalid("graph { a } graph { b }", "expected end of input but found 'graph' at line # 1");
+        assertInvalid("graph {\n\n a -- b", "expected a statement but found end of input at line # 3");
+    }
+
+    private static NodeId parseNodeId(String text) throws Exception {
+        NodeStatement node = (NodeStatement) parse("graph { " + text + " }").getStatements().iterator().next();
+        return node.getNodeId();
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            parse(text);
+            fail("expected invalid DOT to be rejected: " + text);
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static GraphvizDotModel parse(String text) throws Exception {
+        return new GraphvizDotParser(new StringReader(text)).parse();
     }
 
     private GraphvizDotModel parseModel(String resource) throws Exception {
         InputStream in = getClass().getResourceAsStream(resource);
-        Reader r = new InputStreamReader(in);
-        ReaderInput input = new ReaderInput(r);
-        return GraphvizDotParser.newInstance().parse(input.toInput()).getResult();
+        try (Reader r = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return new GraphvizDotParser(r).parse();
+        }
     }
-}
\ No newline at end of file
+}
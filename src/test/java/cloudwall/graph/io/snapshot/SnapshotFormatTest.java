@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package cloudwall.graph.io.snapshot;
+
+import cloudwall.graph.*;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.edge.EdgeListFormat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.activation.FileDataSource;
+import javax.activation.URLDataSource;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFormatTest {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripEuEmailCoreGraph() throws Exception {
+        AtomicReference<GraphModel> modelRef = new AtomicReference<>();
+        new EdgeListFormat().read(new URLDataSource(EdgeListFormat.class.getResource("email-Eu-core.txt")),
+                modelRef::set);
+        CsrGraph csr = new CsrGraphBuilder().build(modelRef.get());
+
+        File file = tempFolder.newFile("email-Eu-core.cwg");
+        SnapshotFormat format = new SnapshotFormat();
+        format.write(new FileDataSource(file), new SnapshotModel(csr));
+
+        try (SnapshotModel snapshot = format.open(file.toPath())) {
+            AbstractIndexedGraph graph = snapshot.getGraph();
+            assertEquals(csr.getVertexCount(), graph.getVertexCount());
+            assertEquals(csr.getEdgeCount(), graph.getEdgeCount());
+            assertEquals(csr.isDirected(), graph.isDirected());
+
+            int[] expected = new int[1024];
+            int[] actual = new int[1024];
+            for (int i = 0; i < csr.getVertexCount(); i++) {
+                int degree = csr.neighborsInto(i, expected);
+                assertEquals(degree, graph.neighborsInto(i, actual));
+                assertArrayEquals(Arrays.copyOf(expected, degree), Arrays.copyOf(actual, degree));
+                Object id = csr.vertexAt(i).getVertexId();
+                assertEquals(id, graph.vertexAt(i).getVertexId());
+                assertSame(graph.vertexAt(i), graph.getVertex(id));
+            }
+            assertNull(graph.getVertex(-1L));
+            assertNull(graph.getVertex("0"));
+
+            List<Object> expectedOrder = new ArrayList<>();
+            List<Object> actualOrder = new ArrayList<>();
+            csr.visitBreadthFirstFrom(csr.getVertex(0L), v -> expectedOrder.add(v.getVertexId()));
+            graph.visitBreadthFirstFrom(graph.getVertex(0L), v -> actualOrder.add(v.getVertexId()));
+            assertEquals(expectedOrder, actualOrder);
+        }
+    }
+
+    @Test
+    public void roundTripDirectedGraphWithMixedIds() throws Exception {
+        CsrGraph csr = new CsrGraphBuilder().build(modelOf(visitor -> {
+            Vertex a = new LightweightVertex("A");
+            Vertex b = new LightweightVertex("\u00e9t\u00e9");
+            Vertex c = new LightweightVertex(-7);
+            Vertex d = new LightweightVertex(Long.MAX_VALUE);
+            visitor.visitEdge(new HeavyweightDirectedEdge<>(a, b));
+            visitor.visitEdge(new HeavyweightDirectedEdge<>(a, c));
+            visitor.visitEdge(new HeavyweightDirectedEdge<>(c, d));
+            visitor.visitEdge(new HeavyweightDirectedEdge<>(b, d));
+        }));
+
+        // read through a non-file source to go via the spool file
+        File file = tempFolder.newFile("mixed.cwg");
+        new SnapshotFormat().write(new FileDataSource(file), new SnapshotModel(csr));
+        AtomicReference<SnapshotModel> snapshotRef = new AtomicReference<>();
+        new SnapshotFormat().read(new URLDataSource(file.toURI().toURL()), snapshotRef::set);
+
+        try (SnapshotModel snapshot = snapshotRef.get()) {
+            AbstractIndexedGraph graph = snapshot.getGraph();
+            assertTrue(snapshot.supports(GraphMetadata.Feature.DIRECTED));
+            assertEquals(4, graph.getEdgeCount());
+
+            List<Object> sources = new ArrayList<>();
+            graph.forEachInEdge(graph.getVertex(Long.MAX_VALUE), e -> sources.add(e.getVertex0().getVertexId()));
+            assertEquals(Arrays.asList(-7, "\u00e9t\u00e9"), sources);
+            assertNotNull(graph.getVertex(-7));
+            assertNull(graph.getVertex(-7L));
+
+            List<Object> visited = new ArrayList<>();
+            graph.visitDepthFirstFrom(graph.getVertex("A"), v -> visited.add(v.getVertexId()));
+            assertEquals(Arrays.asList("A", -7, Long.MAX_VALUE, "\u00e9t\u00e9"), visited);
+        }
+    }
+
+    @Test
+    public void rejectCorruptSnapshots() throws Exception {
+        CsrGraph csr = new CsrGraphBuilder().build(modelOf(visitor ->
+                visitor.visitEdge(new LightweightEdge<>(new LightweightVertex(1L), new LightweightVertex(2L)))));
+        File file = tempFolder.newFile("corrupt.cwg");
+        SnapshotFormat format = new SnapshotFormat();
+        format.write(new FileDataSource(file), new SnapshotModel(csr));
+        format.open(file.toPath()).close();
+
+        assertRejected(format, file, SnapshotLayout.VERSION_POSITION, "version");
+        assertRejected(format, file, SnapshotLayout.EDGE_COUNT_POSITION, "header");
+        assertRejected(format, file, file.length() - 1, "body");
+        assertRejected(format, file, SnapshotLayout.MAGIC_POSITION, "magic");
+
+        // the body is not checked if verification is turned off
+        format.setVerifyChecksum(false);
+        format.write(new FileDataSource(file), new SnapshotModel(csr));
+        flipByte(file, file.length() - 1);
+        format.open(file.toPath()).close();
+    }
+
+    private static void assertRejected(SnapshotFormat format, File file, long position, String expectedMessage)
+            throws Exception {
+        flipByte(file, position);
+        try {
+            format.open(file.toPath()).close();
+            fail("expected corrupt snapshot to be rejected");
+        } catch (GraphFormatException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+        }
+        flipByte(file, position);
+    }
+
+    private static void flipByte(File file, long position) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int b = raf.read();
+            raf.seek(position);
+            raf.write(b ^ 0xFF);
+        }
+    }
+
+    private static GraphModel modelOf(Consumer<GraphVisitor> contents) {
+        return new GraphModel() {
+            @Override
+            public void visit(GraphVisitor visitor) {
+                visitor.start(this);
+                contents.accept(visitor);
+                visitor.complete();
+            }
+        };
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.Edge;
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.StringDataSource;
+import org.junit.Test;
+
+import javax.activation.DataSource;
+import javax.activation.URLDataSource;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MatrixMarketFormatTest {
+    @Test
+    public void readSymmetricMatrix() throws Exception {
+        MatrixMarketModel model = read(resource("symmetric.mtx"));
+        assertEquals(MatrixMarketModel.Field.REAL, model.getField());
+        assertEquals(MatrixMarketModel.Symmetry.SYMMETRIC, model.getSymmetry());
+        assertEquals(5, model.getVertexCount());
+        assertEquals(7, model.getEdgeCount());
+        assertFalse(model.supports(GraphMetadata.Feature.DIRECTED));
+        assertTrue(model.supports(GraphMetadata.Feature.WEIGHTED));
+        assertEquals(3, model.getRow(2));
+        assertEquals(1, model.getColumn(2));
+        assertEquals(0.25, model.getValue(2), 0.0);
+
+        List<Edge<Vertex>> edges = new ArrayList<>();
+        model.visit(new GraphVisitor() {
+            @Override
+            public void visitEdge(@Nonnull Edge<Vertex> edge) {
+                edges.add(edge);
+            }
+        });
+        Edge.WeightedEdge<?> negative = (Edge.WeightedEdge<?>) edges.stream()
+                .filter(e -> e.getVertex0().getVertexId().equals(2L) && e.getVertex1().getVertexId().equals(1L))
+                .findFirst().orElseThrow(AssertionError::new);
+        assertEquals(1.5, negative.getWeight(), 0.0);
+        assertEquals(-1, ((Edge.SignedEdge<?>) negative).getSign());
+    }
+
+    @Test
+    public void loadMatchesBuiltGraph() throws Exception {
+        for (String name : new String[] { "symmetric.mtx", "directed.mtx" }) {
+            MatrixMarketFormat format = new MatrixMarketFormat();
+            CsrGraph expected = new CsrGraphBuilder().build(read(resource(name)));
+            assertSameGraph(expected, format.load(resource(name)));
+            assertSameGraph(expected, new CsrGraphBuilder().build(format, resource(name)));
+        }
+
+        CsrGraph directed = new MatrixMarketFormat().load(resource("directed.mtx"));
+        assertTrue(directed.isDirected());
+        assertEquals(5, directed.getEdgeCount());
+        assertEquals(ids(1, 4), neighborIds(directed, 3));
+        assertEquals(ids(3, 4), inNeighborIds(directed, 4));
+    }
+
+    @Test
+    public void writeAndReadBack() throws Exception {
+        MatrixMarketModel model = new MatrixMarketModel(MatrixMarketModel.Field.COMPLEX,
+                MatrixMarketModel.Symmetry.HERMITIAN, 3, 3);
+        model.addEntry(1, 1, 2.0, 0.0);
+        model.addEntry(3, 2, -0.5, 1.25);
+        StringDataSource dataOut = new StringDataSource();
+        new MatrixMarketFormat().write(dataOut, model);
+        assertEquals("%%MatrixMarket matrix coordinate complex hermitian\n3 3 2\n1 1 2 0\n3 2 -0.5 1.25\n",
+                dataOut.toString());
+
+        MatrixMarketModel readBack = read(dataOut);
+        assertEquals(2, readBack.getEntryCount());
+        assertEquals(-0.5, readBack.getValue(1), 0.0);
+        assertEquals(1.25, readBack.getImaginaryValue(1), 0.0);
+
+        MatrixMarketModel symmetric = read(resource("symmetric.mtx"));
+        StringDataSource symmetricOut = new StringDataSource();
+        new MatrixMarketFormat().write(symmetricOut, symmetric);
+        assertEquals("%%MatrixMarket matrix coordinate real symmetric\n5 5 7\n1 1 4\n2 1 -1.5\n3 1 0.25\n3 2 1\n"
+                + "4 3 -2\n5 4 7.25\n5 2 3\n", symmetricOut.toString());
+    }
+
+    @Test
+    public void reportMalformedFiles() throws Exception {
+        assertInvalid("", "empty Matrix Market file");
+        assertInvalid("1 2\n", "expected a %%MatrixMarket header at line # 1: 1 2");
+        assertInvalid("%%MatrixMarket matrix array real general\n2 2\n1\n2\n3\n4\n",
+                "dense array format is not supported, only coordinate at line # 1: "
+                        + "%%MatrixMarket matrix array real general");
+        assertInvalid("%%MatrixMarket matrix coordinate boolean general\n",
+                "unknown field: boolean at line # 1: %%MatrixMarket matrix coordinate boolean general");
+        assertInvalid("%%MatrixMarket matrix coordinate pattern symmetric\n% no size\n",
+                "missing size line in Matrix Market file");
+        assertInvalid("%%MatrixMarket matrix coordinate pattern symmetric\n2 3 1\n1 1\n",
+                "symmetric matrix must be square at line # 2: 2 3 1");
+        assertInvalid("%%MatrixMarket matrix coordinate pattern general\n2 2 2\n1 2\n",
+                "expected 2 entries but found 1");
+        assertInvalid("%%MatrixMarket matrix coordinate pattern general\n2 2 1\n1 2\n2 1\n",
+                "more entries than the 1 declared at line # 4: 2 1");
+        assertInvalid("%%MatrixMarket matrix coordinate pattern general\n2 2 1\n1 3\n",
+                "column index out of range: 3 at line # 3: 1 3");
+        assertInvalid("%%MatrixMarket matrix coordinate integer general\n2 2 1\n1 2 0.5\n",
+                "expected an integer at line # 3: 1 2 0.5");
+        assertInvalid("%%MatrixMarket matrix coordinate real general\n2 2 1\n1 2 x\n",
+                "expected a number at line # 3: 1 2 x");
+    }
+
+    // a header claiming two billion entries used to allocate them all before reading the first
+    @Test
+    public void distrustHeaderCounts() throws Exception {
+        String text = "%%MatrixMarket matrix coordinate pattern general\n3 3 2000000000\n1 2\n";
+        assertInvalid(text, "expected 2000000000 entries but found 1");
+        try {
+            new MatrixMarketFormat().load(StringDataSource.of("application/x-matrix-market", text));
+            fail("expected missing entries to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals("expected 2000000000 entries but found 1", e.getMessage());
+        }
+
+        assertEquals(HeaderCounts.MAX_PRESIZE, HeaderCounts.presize(2000000000));
+        assertEquals(10, HeaderCounts.presize(10));
+        assertEquals(2 * HeaderCounts.MAX_PRESIZE, HeaderCounts.grow(HeaderCounts.MAX_PRESIZE, 1, 2000000000));
+        assertEquals(100, HeaderCounts.grow(HeaderCounts.MAX_PRESIZE, 1, 100));
+        assertEquals(5000, HeaderCounts.grow(16, 5000, 2000000000));
+    }
+
+    // vertex IDs in both formats are the 1-based row or vertex numbers
+    static void assertSameGraph(CsrGraph expected, CsrGraph actual) {
+        assertEquals(expected.isDirected(), actual.isDirected());
+        assertEquals(expected.getVertexCount(), actual.getVertexCount());
+        assertEquals(expected.getEdgeCount(), actual.getEdgeCount());
+        for (int i = 0; i < expected.getVertexCount(); i++) {
+            long id = (Long) expected.vertexAt(i).getVertexId();
+            assertEquals(id, actual.vertexAt(i).getVertexId());
+            assertEquals(neighborIds(expected, id), neighborIds(actual, id));
+            assertEquals(inNeighborIds(expected, id), inNeighborIds(actual, id));
+        }
+    }
+
+    static List<Long> neighborIds(CsrGraph graph, long id) {
+        List<Long> ids = new ArrayList<>();
+        graph.forEachNeighbor(graph.indexOf(graph.getVertex(id)), n -> ids.add((Long) graph.vertexAt(n).getVertexId()));
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private static List<Long> inNeighborIds(CsrGraph graph, long id) {
+        List<Long> ids = new ArrayList<>();
+        graph.forEachInNeighbor(graph.indexOf(graph.getVertex(id)),
+                n -> ids.add((Long) graph.vertexAt(n).getVertexId()));
+        Collections.sort(ids);
+        return ids;
+    }
+
+    static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            read(StringDataSource.of("application/x-matrix-market", text));
+            fail("expected malformed Matrix Market file to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static DataSource resource(String name) {
+        return new URLDataSource(MatrixMarketFormatTest.class.getResource(name));
+    }
+
+    private static MatrixMarketModel read(DataSource dataIn) throws Exception {
+        AtomicReference<MatrixMarketModel> modelRef = new AtomicReference<>();
+        new MatrixMarketFormat().read(dataIn, modelRef::set);
+        return modelRef.get();
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.sparse;
+
+import cloudwall.graph.CsrGraph;
+import cloudwall.graph.CsrGraphBuilder;
+import cloudwall.graph.Edge;
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.StringDataSource;
+import org.junit.Test;
+
+import javax.activation.DataSource;
+import javax.activation.URLDataSource;
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static cloudwall.graph.io.sparse.MatrixMarketFormatTest.assertSameGraph;
+import static cloudwall.graph.io.sparse.MatrixMarketFormatTest.ids;
+import static cloudwall.graph.io.sparse.MatrixMarketFormatTest.neighborIds;
+import static org.junit.Assert.*;
+
+public class MetisFormatTest {
+    @Test
+    public void readManualExample() throws Exception {
+        MetisModel model = read(resource("manual.graph"));
+        assertEquals(7, model.getVertexCount());
+        assertEquals(11, model.getEdgeCount());
+        assertFalse(model.supports(GraphMetadata.Feature.WEIGHTED));
+        assertArrayEquals(new int[] { 2, 3, 6, 7 }, model.getNeighbors(4));
+        assertArrayEquals(new int[] { 1, 1, 1, 1 }, model.getEdgeWeights(4));
+        assertEquals(1, model.getVertexWeight(4, 0));
+
+        MetisFormat format = new MetisFormat();
+        CsrGraph expected = new CsrGraphBuilder().build(model);
+        CsrGraph loaded = format.load(resource("manual.graph"));
+        assertFalse(loaded.isDirected());
+        assertSameGraph(expected, loaded);
+        assertSameGraph(expected, new CsrGraphBuilder().build(format, resource("manual.graph")));
+        assertEquals(ids(2, 3, 6, 7), neighborIds(loaded, 4));
+    }
+
+    @Test
+    public void readWeights() throws Exception {
+        MetisModel model = read(resource("manual-weighted.graph"));
+        assertTrue(model.supports(GraphMetadata.Feature.WEIGHTED));
+        assertFalse(model.hasVertexSizes());
+        assertEquals(1, model.getNumVertexWeights());
+        assertEquals(5, model.getVertexWeight(3, 0));
+        assertArrayEquals(new int[] { 5, 4, 2, 1 }, model.getNeighbors(3));
+        assertArrayEquals(new int[] { 3, 2, 2, 2 }, model.getEdgeWeights(3));
+
+        // every edge is visited once, with the weight given on the lower-numbered endpoint's line
+        AtomicInteger numEdges = new AtomicInteger();
+        AtomicInteger totalWeight = new AtomicInteger();
+        new MetisFormat().read(resource("manual-weighted.graph"), new GraphVisitor() {
+            @Override
+            public void visitEdge(@Nonnull Edge<Vertex> edge) {
+                numEdges.incrementAndGet();
+                totalWeight.addAndGet((int) ((Edge.WeightedEdge<Vertex>) edge).getWeight());
+            }
+        });
+        assertEquals(11, numEdges.get());
+        assertEquals(27, totalWeight.get());
+    }
+
+    @Test
+    public void writeAndReadBack() throws Exception {
+        for (String name : new String[] { "manual.graph", "manual-weighted.graph" }) {
+            StringDataSource dataOut = new StringDataSource();
+            new MetisFormat().write(dataOut, read(resource(name)));
+            assertEquals(name, text(resource(name)), dataOut.toString());
+        }
+
+        String withSizes = "% vertex sizes, two vertex weights and edge weights\n3 2 111 2\n"
+                + "1 4 5 2 7\n2 0 0 1 7 3 8\n3 1 1 2 8\n\n";
+        StringDataSource dataOut = new StringDataSource();
+        MetisModel model = read(StringDataSource.of("application/x-metis-graph", withSizes));
+        assertEquals(3, model.getVertexSize(3));
+        assertEquals(5, model.getVertexWeight(1, 1));
+        new MetisFormat().write(dataOut, model);
+        assertEquals("3 2 111 2\n1 4 5 2 7\n2 0 0 1 7 3 8\n3 1 1 2 8\n", dataOut.toString());
+    }
+
+    @Test
+    public void blankLinesAreIsolatedVertices() throws Exception {
+        CsrGraph graph = new MetisFormat().load(StringDataSource.of("application/x-metis-graph",
+                "% a comment\n4 1\n\n3\n2\n\n"));
+        assertEquals(4, graph.getVertexCount());
+        assertEquals(1, graph.getEdgeCount());
+        assertEquals(ids(), neighborIds(graph, 1));
+        assertEquals(ids(3), neighborIds(graph, 2));
+        assertEquals(ids(), neighborIds(graph, 4));
+    }
+
+    @Test
+    public void reportMalformedFiles() throws Exception {
+        assertInvalid("% nothing else\n", "empty METIS file");
+        assertInvalid("3 1 012\n", "invalid fmt, expected up to three 0 or 1 digits: 012 at line # 1: 3 1 012");
+        assertInvalid("3 1 1 2\n",
+                "number of vertex weights given but fmt does not include them at line # 1: 3 1 1 2");
+        assertInvalid("3 1\n2\n1\n", "expected 3 vertex lines but found 2");
+        assertInvalid("2 1\n2\n1\n1\n", "more vertex lines than the 2 declared at line # 4: 1");
+        assertInvalid("2 1\n2\n3\n", "neighbor out of range: 3 at line # 3: 3");
+        assertInvalid("2 1\n1\n\n", "self-loops are not allowed at line # 2: 1");
+        assertInvalid("3 1\n2 3\n1\n1\n", "more adjacencies than the 1 edges declared allow at line # 3: 1");
+        assertInvalid("3 2\n2\n1\n\n", "expected 4 adjacencies for 2 edges but found 2");
+        assertInvalid("2 1 1\n2\n1 1\n", "expected an integer at line # 2: 2");
+    }
+
+    // 2-3 is listed both ways but 1-3 and 1-4 only under their higher endpoint, which streaming used to drop and
+    // loading kept as single arcs
+    @Test
+    public void rejectAsymmetricLists() throws Exception {
+        String text = "4 2\n\n3\n1 2\n1\n";
+        String expectedMessage = "adjacency lists are not symmetric: some edge is listed under only one of its "
+                + "endpoints";
+        assertInvalid(text, expectedMessage);
+        try {
+            new MetisFormat().read(StringDataSource.of("application/x-metis-graph", text), new GraphVisitor() { });
+            fail("expected asymmetric lists to be rejected when streaming");
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+        try {
+            new MetisFormat().load(StringDataSource.of("application/x-metis-graph", text));
+            fail("expected asymmetric lists to be rejected when loading");
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+
+        // the same edges listed both ways are fine
+        CsrGraph graph = new MetisFormat().load(StringDataSource.of("application/x-metis-graph", "3 2\n3\n3\n1 2\n"));
+        assertEquals(2, graph.getEdgeCount());
+    }
+
+    @Test
+    public void distrustHeaderCounts() throws Exception {
+        assertInvalid("3 1000000000\n2\n1\n\n", "expected 2000000000 adjacencies for 1000000000 edges but found 2");
+        assertInvalid("2000000000 1\n2\n1\n", "expected 2000000000 vertex lines but found 2");
+        try {
+            new MetisFormat().load(StringDataSource.of("application/x-metis-graph", "3 1000000000\n2\n1\n\n"));
+            fail("expected missing adjacencies to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals("expected 2000000000 adjacencies for 1000000000 edges but found 2", e.getMessage());
+        }
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            read(StringDataSource.of("application/x-metis-graph", text));
+            fail("expected malformed METIS file to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static DataSource resource(String name) {
+        return new URLDataSource(MetisFormatTest.class.getResource(name));
+    }
+
+    private static String text(DataSource dataIn) throws IOException {
+        try (InputStream in = dataIn.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.US_ASCII);
+        }
+    }
+
+    private static MetisModel read(DataSource dataIn) throws Exception {
+        AtomicReference<MetisModel> modelRef = new AtomicReference<>();
+        new MetisFormat().read(dataIn, modelRef::set);
+        return modelRef.get();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2017 Kyle F. Downey.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package cloudwall.graph.io.tulip;
+
+import cloudwall.graph.Graph;
+import cloudwall.graph.GraphBuilder;
+import cloudwall.graph.GraphMetadata;
+import cloudwall.graph.GraphVisitor;
+import cloudwall.graph.Vertex;
+import cloudwall.graph.io.GraphFormatException;
+import cloudwall.graph.io.StringDataSource;
+import org.junit.Test;
+
+import javax.activation.DataSource;
+import javax.activation.URLDataSource;
+import javax.annotation.Nonnull;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class TulipFormatTest {
+    @Test
+    public void buildGraphsFromTestCases() throws Exception {
+        TulipFormat format = new TulipFormat();
+        URLDataSource grid = new URLDataSource(getClass().getResource("grid1010.tlp"));
+        TulipModel model = read(format, grid);
+        Graph<?, ?> fromModel = new GraphBuilder().build(model);
+        Graph<?, ?> streamed = new GraphBuilder().build(format, grid);
+        assertEquals(100, fromModel.getVertexCount());
+        assertEquals(180, fromModel.getEdgeCount());
+        assertEquals(fromModel.getVertexCount(), streamed.getVertexCount());
+        assertEquals(fromModel.getEdgeCount(), streamed.getEdgeCount());
+
+        // (edge 0 0 1) must join two different vertices
+        @SuppressWarnings("unchecked")
+        Graph<Vertex, ?> graph = (Graph<Vertex, ?>) streamed;
+        List<Object> neighbors = new ArrayList<>();
+        graph.forEachConnectedEdge(graph.getVertex(0), e -> neighbors.add(e.getVertex1().getVertexId()));
+        assertTrue(neighbors.contains(1));
+        assertTrue(neighbors.contains(10));
+    }
+
+    @Test
+    public void streamWithUnknownCounts() throws Exception {
+        AtomicReference<GraphMetadata> metadataRef = new AtomicReference<>();
+        String text = "(tlp \"2.3\"\n(author \"me\")\n(nodes 0..2)\n(edge 0 0 1)\n)";
+        new TulipFormat().read(StringDataSource.of("application/x-tulip-tlp", text),
+                new GraphVisitor() {
+                    @Override
+                    public void start(@Nonnull GraphMetadata metadata) {
+                        metadataRef.set(metadata);
+                    }
+                });
+
+        // nodes and edges follow the header, so they cannot be counted when the visit starts
+        TulipModel header = (TulipModel) metadataRef.get();
+        assertEquals("2.3", header.getVersion());
+        assertEquals("me", header.getAuthor());
+        assertEquals(-1, header.getVertexCount());
+        assertEquals(-1, header.getEdgeCount());
+    }
+
+    @Test
+    public void rejectEdgesToUndeclaredNodes() throws Exception {
+        try {
+            new GraphBuilder().build(new TulipFormat(),
+                    StringDataSource.of("application/x-tulip-tlp", "(nodes 0..1)\n(edge 0 0 1)\n(edge 1 1 2)"));
+            fail("expected edge to an undeclared node to be rejected");
+        } catch (GraphFormatException e) {
+            assertEquals("mal-formed TLP for graph representation: undeclared node 2 at line # 3", e.getMessage());
+        }
+    }
+
+    @Test
+    public void roundTripFormat() throws Exception {
+        TulipFormat format = new TulipFormat();
+        TulipModel model = read(format, new URLDataSource(getClass().getResource("openmetanode1.tlp")));
+        StringDataSource written = new StringDataSource("<test>", "application/x-tulip-tlp", Charset.defaultCharset());
+        format.write(written, model);
+        TulipModel reread = read(format, written);
+
+        assertEquals(model.getVersion(), reread.getVersion());
+        assertEquals(model.getDate(), reread.getDate());
+        assertEquals(model.getNodeIds(), reread.getNodeIds());
+        assertEquals(new ArrayList<>(model.getEdges()), new ArrayList<>(reread.getEdges()));
+        assertEquals(model.getClusters().iterator().next().getNodes(),
+                reread.getClusters().iterator().next().getNodes());
+        assertEquals(model.getProperties().size(), reread.getProperties().size());
+
+        List<Property> properties = new ArrayList<>(model.getProperties());
+        List<Property> rereadProperties = new ArrayList<>(reread.getProperties());
+        for (int i = 0; i < properties.size(); i++) {
+            Property expected = properties.get(i);
+            Property actual = rereadProperties.get(i);
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getNodeDefaultValue(), actual.getNodeDefaultValue());
+            assertEquals(formatAll(expected.getNodeValues()), formatAll(actual.getNodeValues()));
+            assertEquals(formatAll(expected.getEdgeValues()), formatAll(actual.getEdgeValues()));
+        }
+    }
+
+    @Test
+    public void loadLargeLayout() throws Exception {
+        int numNodes = 200000;
+        StringBuilder text = new StringBuilder("(tlp \"2.3\"\n(nb_nodes ").append(numNodes).append(")\n(nodes 0..")
+                .append(numNodes - 1).append(")\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append("(edge ").append(i).append(' ').append(i).append(' ').append((i * 7 + 1) % numNodes)
+                    .append(")\n");
+        }
+        text.append("(property 0 layout \"viewLayout\"\n(default \"(0,0,0)\" \"()\")\n");
+        for (int i = 0; i < numNodes; i++) {
+            text.append("(node ").append(i).append(" \"(").append(i * 0.5).append(",-").append(i)
+                    .append(",0)\")\n");
+        }
+        StringDataSource graphIn = StringDataSource.of("application/x-tulip-tlp", text.append("))\n").toString());
+
+        TulipFormat format = new TulipFormat();
+        TulipModel model = read(format, graphIn);
+
+        PropertyColumn.Coordinates layout =
+                (PropertyColumn.Coordinates) model.getProperties().iterator().next().getNodeValues();
+        assertEquals(numNodes, model.getVertexCount());
+        assertEquals(numNodes, model.getEdgeCount());
+        assertEquals(numNodes, layout.size());
+        assertEquals(1000.5, layout.getX(2001, 0), 0.0);
+        assertEquals(-2001.0, layout.getY(2001, 0), 0.0);
+    }
+
+    private static List<String> formatAll(PropertyColumn column) {
+        List<String> values = new ArrayList<>();
+        column.forEachDefined(id -> values.add(id + "=" + column.format(id)));
+        return values;
+    }
+
+    private static TulipModel read(TulipFormat format, DataSource dataIn) throws Exception {
+        AtomicReference<TulipModel> modelRef = new AtomicReference<>();
+        format.read(dataIn, modelRef::set);
+        assertNotNull(modelRef.get());
+        return modelRef.get();
+    }
+}
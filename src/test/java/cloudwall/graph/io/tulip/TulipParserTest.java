@@ -16,30 +16,161 @@
 
 package cloudwall.graph.io.tulip;
 
+import cloudwall.graph.io.GraphFormatException;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import org.junit.Test;
 
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.util.Collection;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
 
 public class TulipParserTest {
     @Test
     public void parseTestCasesFromTulip() throws Exception {
-        Collection<String> testCases = ImmutableList.of(
-                "grid1010.tlp",
-                "k33k55.tlp",
-                "openmetanode1.tlp",
-                "planar30drawnFPP.tlp",
-                "planar30drawnMM.tlp",
-                "unbiconnected.tlp",
-                "unconnected.tlp"
-        );
-
-        for (String testCase : testCases) {
-            Reader r = new InputStreamReader(getClass().getResourceAsStream(testCase));
-            TulipInput in = new TulipInput(r);
-            TulipParser.newInstance().parse(in.toInput()).getResult();
+        // expected node and edge counts
+        Map<String, List<Integer>> testCases = ImmutableMap.<String, List<Integer>>builder()
+                .put("grid1010.tlp", ImmutableList.of(100, 180))
+                .put("k33k55.tlp", ImmutableList.of(8, 16))
+                .put("openmetanode1.tlp", ImmutableList.of(8, 6))
+                .put("planar30drawnFPP.tlp", ImmutableList.of(30, 84))
+                .put("planar30drawnMM.tlp", ImmutableList.of(30, 84))
+                .put("unbiconnected.tlp", ImmutableList.of(15, 23))
+                .put("unconnected.tlp", ImmutableList.of(15, 21))
+                .build();
+
+        for (Map.Entry<String, List<Integer>> testCase : testCases.entrySet()) {
+            TulipModel model = parseExample(testCase.getKey());
+            assertEquals(testCase.getKey(), (long) testCase.getValue().get(0), model.getVertexCount());
+            assertEquals(testCase.getKey(), (long) testCase.getValue().get(1), model.getEdgeCount());
+            assertFalse(model.getProperties().isEmpty());
         }
     }
+
+    @Test
+    public void parseHeaderAndNodeRanges() throws Exception {
+        TulipModel model = parseExample("planar30drawnFPP.tlp");
+        assertEquals("2.1", model.getVersion());
+        assertEquals(LocalDate.of(2010, 10, 5), model.getDate());
+        assertEquals("This file was generated by Tulip.", model.getComments());
+        assertEquals(Integer.valueOf(29), new ArrayList<>(model.getNodeIds()).get(29));
+        assertEquals(19, model.getProperties().size());
+    }
+
+    @Test(timeout = 10000)
+    public void parseRangeEndingAtMaxInt() throws Exception {
+        TulipModel model = parse("(nodes 2147483646..2147483647)");
+        assertEquals(Arrays.asList(2147483646, 2147483647), new ArrayList<>(model.getNodeIds()));
+    }
+
+    @Test
+    public void parseClustersAndTypedProperties() throws Exception {
+        TulipModel model = parseExample("openmetanode1.tlp");
+        Cluster cluster = model.getClusters().iterator().next();
+        assertEquals(1, cluster.getId());
+        assertEquals("a", cluster.getName());
+        assertEquals(ImmutableList.of(0, 1, 2, 3, 4, 5), cluster.getNodes());
+        assertEquals(ImmutableList.of(0, 1, 2, 3, 4), cluster.getEdges());
+
+        PropertyColumn.Doubles metric = (PropertyColumn.Doubles) property(model, 1, "viewMetric").getNodeValues();
+        assertEquals(6, metric.size());
+        assertEquals(5.0, metric.get(0), 0.0);
+        assertEquals(1.0, metric.get(5), 0.0);
+        assertFalse(metric.isDefined(6));
+
+        Property layout = property(model, 4, "viewLayout");
+        assertEquals("(346,886,909)", layout.getNodeDefaultValue());
+        PropertyColumn.Coordinates positions = (PropertyColumn.Coordinates) layout.getNodeValues();
+        assertEquals(1, positions.getPointCount(6));
+        assertEquals(-0.383888, positions.getX(6, 0), 0.0);
+        assertEquals(67.1516, positions.getX(7, 0), 0.0);
+        PropertyColumn.Coordinates bends = (PropertyColumn.Coordinates) layout.getEdgeValues();
+        assertEquals(2, bends.getPointCount(5));
+        assertEquals(49.3839, bends.getX(5, 1), 0.0);
+        assertEquals("((17.3839,0,0)(49.3839,0,0))", bends.format(5));
+
+        PropertyColumn.Coordinates sizes =
+                (PropertyColumn.Coordinates) property(model, 0, "viewSize").getNodeValues();
+        assertEquals(3.619, sizes.getY(6, 0), 0.0);
+        assertEquals("(0.707107,0.707107,0.707107)", sizes.format(0));
+        assertTrue(property(model, 1, "viewColor").getEdgeValues() instanceof PropertyColumn.Strings);
+    }
+
+    @Test
+    public void parseInlineSyntax() throws Exception {
+        TulipModel model = parse("; leading comment\n"
+                + "(nodes 0..2 5 ; trailing comment\n"
+                + " 7..8)\n"
+                + "(edge 0 0 5)(edge 1 7 8)\n"
+                + "(cluster 2 (nodes 0..2) (cluster 3 \"inner\" (nodes 1)))\n"
+                + "(property 0 bool \"visible\" (default \"true\" \"false\") (node 5 \"false\") (edge 1 \"true\"))\n"
+                + "(property 0 uint \"weight\" (default \"0\" \"0\") (edge 0 \"4294967295\"))\n"
+                + "(property 0 string \"label\" (default \"\" \"\") (node 0 \"say \\\"hi\\\" \\\\ (;)\"))\n"
+                + "(displaying (bool \"_viewArrow\" true) (uint \"_viewOrtho\" 1))");
+        assertEquals(TulipModel.CURRENT_VERSION, model.getVersion());
+        assertEquals(ImmutableList.of(0, 1, 2, 5, 7, 8), model.getNodeIds());
+        assertEquals(2, model.getEdgeCount());
+
+        Cluster cluster = model.getClusters().iterator().next();
+        assertNull(cluster.getName());
+        assertEquals(ImmutableList.of(0, 1, 2), cluster.getNodes());
+        assertEquals("inner", cluster.getClusters().iterator().next().getName());
+
+        PropertyColumn.Booleans visible = (PropertyColumn.Booleans) property(model, 0, "visible").getNodeValues();
+        assertFalse(visible.get(5));
+        assertTrue(visible.isDefined(5));
+        assertTrue(((PropertyColumn.Booleans) property(model, 0, "visible").getEdgeValues()).get(1));
+        PropertyColumn weights = property(model, 0, "weight").getEdgeValues();
+        assertEquals(-1, ((PropertyColumn.Ints) weights).get(0));
+        assertEquals("4294967295", weights.format(0));
+        assertEquals("say \"hi\" \\ (;)", property(model, 0, "label").getNodeValues().format(0));
+    }
+
+    @Test
+    public void rejectInvalidSyntax() throws Exception {
+        assertInvalid("(nodes 0 1)\n(edge 0 0)", "expected an integer but found ')' at line # 2");
+        assertInvalid("(nodes 0..x)", "expected an integer but found 'x' at line # 1");
+        assertInvalid("(nodes 0 #)", "unexpected character '#' at line # 1");
+        assertInvalid("(nodes 3..1)", "invalid range 3..1 at line # 1");
+        assertInvalid("(tlp \"2.0\"\n(nodes 0 1)", "expected ')' but found end of input at line # 2");
+        assertInvalid("(nodes 0)\n(property 0 widget \"w\")", "unknown property type 'widget' at line # 2");
+        assertInvalid("(nodes 0)\n(property 0 double \"d\"\n(node 0 \"abc\"))",
+                "invalid double value \"abc\" at line # 3");
+        assertInvalid("(nodes 0)\n(displaying (bool \"x\" true)", "expected ')' but found end of input at line # 2");
+        assertInvalid("(date \"2010-10-05\")", "invalid date \"2010-10-05\" at line # 1");
+    }
+
+    private static Property property(TulipModel model, int clusterId, String name) {
+        for (Property property : model.getProperties()) {
+            if (property.getClusterId() == clusterId && property.getName().equals(name)) {
+                return property;
+            }
+        }
+        throw new AssertionError("missing property " + name);
+    }
+
+    private static void assertInvalid(String text, String expectedMessage) throws Exception {
+        try {
+            parse(text);
+            fail("expected invalid TLP to be rejected: " + text);
+        } catch (GraphFormatException e) {
+            assertEquals(expectedMessage, e.getMessage());
+        }
+    }
+
+    private static TulipModel parse(String text) throws Exception {
+        return new TulipParser(new StringReader(text)).parse();
+    }
+
+    private TulipModel parseExample(String exampleResource) throws Exception {
+        Reader r = new InputStreamReader(getClass().getResourceAsStream(exampleResource));
+        return new TulipParser(r).parse();
+    }
 }